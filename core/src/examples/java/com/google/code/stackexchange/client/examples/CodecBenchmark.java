@@ -0,0 +1,226 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.examples;
+
+import java.io.StringReader;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import com.google.code.stackexchange.client.impl.JsonCodec;
+import com.google.code.stackexchange.client.impl.JsonListReader;
+import com.google.code.stackexchange.common.PagedList;
+import com.google.code.stackexchange.schema.Question;
+
+/**
+ * The Class CodecBenchmark.
+ *
+ * Decodes the same list response over and over, once building a new Gson for
+ * every response as the clients used to, once with a shared Gson and once
+ * with the generated json adapters of the default {@link JsonCodec}, and
+ * prints the average time per response of each. The fields option reads only
+ * the given fields of each question, as a projected query does.
+ */
+public class CodecBenchmark {
+
+    /** The Constant RESPONSES_OPTION. */
+    private static final String RESPONSES_OPTION = "responses";
+
+    /** The Constant ELEMENTS_OPTION. */
+    private static final String ELEMENTS_OPTION = "elements";
+
+    /** The Constant FIELDS_OPTION. */
+    private static final String FIELDS_OPTION = "fields";
+
+    /** The Constant HELP_OPTION. */
+    private static final String HELP_OPTION = "help";
+
+    /** The Constant REFLECTIVE_CODEC, a shared codec leaving every entity to Gson. */
+    private static final JsonCodec REFLECTIVE_CODEC = new JsonCodec(JsonCodec.createGsonBuilder());
+
+    /** The Constant QUESTION. */
+    private static final String QUESTION = "{\"tags\":[\"java\",\"gson\"],\"answer_count\":2,\"accepted_answer_id\":3456790,"
+    		+ "\"favorite_count\":1,\"question_id\":3456789,\"owner\":{\"user_id\":12345,\"user_type\":\"registered\","
+    		+ "\"display_name\":\"benchmark\",\"reputation\":1024,\"email_hash\":\"0123456789abcdef\"},"
+    		+ "\"creation_date\":1281476321,\"last_edit_date\":1281476999,\"last_activity_date\":1281477000,"
+    		+ "\"up_vote_count\":3,\"down_vote_count\":0,\"view_count\":100,\"score\":3,\"community_owned\":false,"
+    		+ "\"title\":\"How do I reuse a Gson instance?\",\"body\":\"<p>Every call builds a new Gson with the same"
+    		+ " type adapters registered, which shows up in the profiles of our crawler.<\\/p>\\n<pre><code>Gson gson"
+    		+ " = builder.create();\\nQuestion question = gson.fromJson(json, Question.class);\\n<\\/code><\\/pre>\\n"
+    		+ "<p>Is a <code>Gson<\\/code> instance safe to share between threads, and does sharing it keep any"
+    		+ " state from one response to the next?<\\/p>\\n\"}";
+
+    /**
+     * The main method.
+     *
+     * @param args the arguments
+     *
+     * @throws Exception the exception
+     */
+	public static void main(String[] args) throws Exception {
+		Options options = buildOptions();
+        try {
+            CommandLine line = new BasicParser().parse(options, args);
+            processCommandLine(line, options);
+        } catch(ParseException exp ) {
+            System.err.println(exp.getMessage());
+            printHelp(options);
+        }
+	}
+
+    /**
+     * Process command line.
+     *
+     * @param line the line
+     * @param options the options
+     *
+     * @throws Exception the exception
+     */
+    private static void processCommandLine(CommandLine line, Options options) throws Exception {
+        if(line.hasOption(HELP_OPTION)) {
+            printHelp(options);
+            return;
+        }
+        int responses = Integer.parseInt(line.getOptionValue(RESPONSES_OPTION, "20000"));
+        int elements = Integer.parseInt(line.getOptionValue(ELEMENTS_OPTION, "1"));
+        List<String> fields = line.hasOption(FIELDS_OPTION) ? Arrays.asList(line.getOptionValue(FIELDS_OPTION).split(",")) : null;
+        String response = buildResponse(elements);
+        System.out.println(responses + " responses of " + elements + " questions, " + response.length() + " chars each");
+
+        // the first rounds warm up the jit
+        for (int round = 0; round < 3; round++) {
+            boolean last = round == 2;
+            long perResponse = run(response, responses, null, fields);
+            long shared = run(response, responses, REFLECTIVE_CODEC, fields);
+            long generated = run(response, responses, JsonCodec.getDefault(), fields);
+            if (last) {
+                System.out.println("new gson per response: " + perResponse + "ns per response");
+                System.out.println("shared gson:           " + shared + "ns per response");
+                System.out.println("generated adapters:    " + generated + "ns per response");
+            }
+        }
+    }
+
+    /**
+     * Decodes the response the given number of times.
+     *
+     * @param response the response
+     * @param responses the number of responses
+     * @param codec the shared codec, null to build one per response
+     * @param fields the fields read, null to read every field
+     *
+     * @return the average time per response in nanoseconds
+     *
+     * @throws Exception the exception
+     */
+    private static long run(String response, int responses, JsonCodec codec, List<String> fields) throws Exception {
+        long size = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < responses; i++) {
+            JsonCodec responseCodec = codec != null ? codec : new JsonCodec(JsonCodec.createGsonBuilder());
+            JsonListReader reader = new JsonListReader(new StringReader(response));
+            reader.setFields(fields);
+            PagedList<Question> questions = reader.readList(Question.class, "questions", responseCodec);
+            size += questions.size();
+        }
+        long elapsed = System.nanoTime() - start;
+        if (size != (long) responses * questions(response)) {
+            throw new IllegalStateException("Unexpected number of questions decoded: " + size);
+        }
+        return elapsed / responses;
+    }
+
+    /**
+     * Counts the questions of a response.
+     *
+     * @param response the response
+     *
+     * @return the number of questions
+     */
+    private static int questions(String response) {
+        return response.split("\"question_id\"", -1).length - 1;
+    }
+
+    /**
+     * Builds a list response.
+     *
+     * @param elements the number of questions
+     *
+     * @return the response
+     */
+    private static String buildResponse(int elements) {
+        StringBuilder response = new StringBuilder("{\"total\":" + elements + ",\"page\":1,\"pagesize\":" + elements + ",\"questions\":[");
+        for (int i = 0; i < elements; i++) {
+            if (i > 0) {
+                response.append(',');
+            }
+            response.append(QUESTION);
+        }
+        return response.append("]}").toString();
+    }
+
+	/**
+	 * Builds the options.
+	 *
+	 * @return the options
+	 */
+    private static Options buildOptions() {
+
+        Options opts = new Options();
+
+        String helpMsg = "Print this message.";
+        Option help = new Option(HELP_OPTION, helpMsg);
+        opts.addOption(help);
+
+        OptionBuilder.withArgName("count");
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription("Number of responses decoded per run (default 20000).");
+        opts.addOption(OptionBuilder.create(RESPONSES_OPTION));
+
+        OptionBuilder.withArgName("count");
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription("Number of questions per response (default 1).");
+        opts.addOption(OptionBuilder.create(ELEMENTS_OPTION));
+
+        OptionBuilder.withArgName("names");
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription("Comma separated json names of the fields read (default all).");
+        opts.addOption(OptionBuilder.create(FIELDS_OPTION));
+
+        return opts;
+    }
+
+    /**
+     * Prints the help.
+     *
+     * @param options the options
+     */
+    private static void printHelp(Options options) {
+        int width = 80;
+        String syntax = CodecBenchmark.class.getName() + " <options>";
+        String header = "\nAll options are optional.";
+        String footer = "";
+        new HelpFormatter().printHelp(width, syntax, header, options, footer, false);
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.examples;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import com.google.code.stackexchange.client.impl.JsonCodec;
+import com.google.code.stackexchange.client.impl.JsonListReader;
+import com.google.code.stackexchange.common.PagedList;
+import com.google.code.stackexchange.schema.Comment;
+
+/**
+ * The Class EntityBenchmark.
+ *
+ * Decodes the same page of comments, each with its owner and the user it
+ * replies to, on several threads at once and prints how many entities are
+ * decoded per second. As most of the work is creating small entities, it
+ * shows what constructing an entity costs, and whether threads contend
+ * while doing it.
+ */
+public class EntityBenchmark {
+
+    /** The Constant THREADS_OPTION. */
+    private static final String THREADS_OPTION = "threads";
+
+    /** The Constant SECONDS_OPTION. */
+    private static final String SECONDS_OPTION = "seconds";
+
+    /** The Constant HELP_OPTION. */
+    private static final String HELP_OPTION = "help";
+
+    /** The Constant COMMENTS, the number of comments in the page. */
+    private static final int COMMENTS = 100;
+
+    /** The Constant ENTITIES_PER_COMMENT, the comment, its owner and its reply to user. */
+    private static final int ENTITIES_PER_COMMENT = 3;
+
+    /**
+     * The main method.
+     *
+     * @param args the arguments
+     *
+     * @throws Exception the exception
+     */
+	public static void main(String[] args) throws Exception {
+		Options options = buildOptions();
+        try {
+            CommandLine line = new BasicParser().parse(options, args);
+            processCommandLine(line, options);
+        } catch(ParseException exp ) {
+            System.err.println(exp.getMessage());
+            printHelp(options);
+        }
+	}
+
+    /**
+     * Process command line.
+     *
+     * @param line the line
+     * @param options the options
+     *
+     * @throws Exception the exception
+     */
+    private static void processCommandLine(CommandLine line, Options options) throws Exception {
+        if(line.hasOption(HELP_OPTION)) {
+            printHelp(options);
+            return;
+        }
+        int threads = Integer.parseInt(line.getOptionValue(THREADS_OPTION, String.valueOf(Runtime.getRuntime().availableProcessors())));
+        int seconds = Integer.parseInt(line.getOptionValue(SECONDS_OPTION, "5"));
+        String response = buildResponse();
+        System.out.println(threads + " threads decoding pages of " + COMMENTS * ENTITIES_PER_COMMENT + " entities");
+
+        // the first rounds warm up the jit
+        for (int round = 0; round < 3; round++) {
+            long entities = run(response, threads, round == 2 ? seconds : 1);
+            if (round == 2) {
+                System.out.println((entities / seconds) + " entities per second");
+            }
+        }
+    }
+
+    /**
+     * Decodes the response on the given number of threads for a while.
+     *
+     * @param response the response
+     * @param threads the number of threads
+     * @param seconds the seconds to run
+     *
+     * @return the number of entities decoded
+     *
+     * @throws Exception the exception
+     */
+    private static long run(final String response, int threads, int seconds) throws Exception {
+        final long deadline = System.nanoTime() + seconds * 1000000000L;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<Long>> results = new ArrayList<Future<Long>>();
+            for (int i = 0; i < threads; i++) {
+                results.add(executor.submit(new Callable<Long>() {
+                    @Override
+                    public Long call() throws Exception {
+                        long entities = 0;
+                        while (System.nanoTime() < deadline) {
+                            PagedList<Comment> comments = new JsonListReader(new StringReader(response)).readList(Comment.class, "comments", JsonCodec.getDefault());
+                            if (comments.size() != COMMENTS) {
+                                throw new IllegalStateException("Unexpected number of comments decoded: " + comments.size());
+                            }
+                            entities += COMMENTS * ENTITIES_PER_COMMENT;
+                        }
+                        return entities;
+                    }
+                }));
+            }
+            long entities = 0;
+            for (Future<Long> result : results) {
+                entities += result.get();
+            }
+            return entities;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Builds a page of comments.
+     *
+     * @return the response
+     */
+    private static String buildResponse() {
+        StringBuilder response = new StringBuilder("{\"total\":" + COMMENTS + ",\"page\":1,\"pagesize\":" + COMMENTS + ",\"comments\":[");
+        for (int i = 0; i < COMMENTS; i++) {
+            if (i > 0) {
+                response.append(',');
+            }
+            response.append("{\"comment_id\":").append(1000 + i).append(",\"creation_date\":1281476321,")
+            	.append("\"owner\":").append(buildUser(i)).append(",\"reply_to_user\":").append(buildUser(i + 1))
+            	.append(",\"post_id\":3456789,\"post_type\":\"question\",\"score\":1,\"edit_count\":0,")
+            	.append("\"body\":\"Have you tried sharing it?\"}");
+        }
+        return response.append("]}").toString();
+    }
+
+    /**
+     * Builds a user.
+     *
+     * @param id the id
+     *
+     * @return the user
+     */
+    private static String buildUser(int id) {
+        return "{\"user_id\":" + id + ",\"user_type\":\"registered\",\"display_name\":\"user" + id
+        	+ "\",\"reputation\":" + (id * 10) + ",\"email_hash\":\"0123456789abcdef\"}";
+    }
+
+	/**
+	 * Builds the options.
+	 *
+	 * @return the options
+	 */
+    private static Options buildOptions() {
+
+        Options opts = new Options();
+
+        String helpMsg = "Print this message.";
+        Option help = new Option(HELP_OPTION, helpMsg);
+        opts.addOption(help);
+
+        OptionBuilder.withArgName("count");
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription("Number of decoding threads (default the number of processors).");
+        opts.addOption(OptionBuilder.create(THREADS_OPTION));
+
+        OptionBuilder.withArgName("seconds");
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription("Length of the measured run (default 5).");
+        opts.addOption(OptionBuilder.create(SECONDS_OPTION));
+
+        return opts;
+    }
+
+    /**
+     * Prints the help.
+     *
+     * @param options the options
+     */
+    private static void printHelp(Options options) {
+        int width = 80;
+        String syntax = EntityBenchmark.class.getName() + " <options>";
+        String header = "\nAll options are optional.";
+        String footer = "";
+        new HelpFormatter().printHelp(width, syntax, header, options, footer, false);
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.examples;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import com.google.code.stackexchange.client.AsyncStackExchangeApiClient;
+import com.google.code.stackexchange.client.StackExchangeApiClientFactory;
+import com.google.code.stackexchange.client.impl.BoundedExecutorService;
+import com.google.code.stackexchange.client.provider.CustomApiProvider;
+import com.google.code.stackexchange.client.transport.impl.PooledHttpTransport;
+import com.google.code.stackexchange.schema.Paging;
+import com.google.code.stackexchange.schema.Question;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The Class ExecutorLoadTest.
+ *
+ * Fires a burst of asynchronous calls at a local stub of the api, once with
+ * the default cached thread pool and once in virtual thread mode, and prints
+ * the elapsed time and the peak number of platform threads of each run.
+ */
+public class ExecutorLoadTest {
+
+    /** The Constant REQUESTS_OPTION. */
+    private static final String REQUESTS_OPTION = "requests";
+
+    /** The Constant CONCURRENCY_OPTION. */
+    private static final String CONCURRENCY_OPTION = "concurrency";
+
+    /** The Constant LATENCY_OPTION. */
+    private static final String LATENCY_OPTION = "latency";
+
+    /** The Constant HELP_OPTION. */
+    private static final String HELP_OPTION = "help";
+
+    /** The Constant RESPONSE. */
+    private static final String RESPONSE = "{\"total\":1,\"page\":1,\"pagesize\":30,\"questions\":[{\"question_id\":1,\"title\":\"Load test\"}]}";
+
+    /**
+     * The main method.
+     *
+     * @param args the arguments
+     *
+     * @throws Exception the exception
+     */
+	public static void main(String[] args) throws Exception {
+		Options options = buildOptions();
+        try {
+            CommandLine line = new BasicParser().parse(options, args);
+            processCommandLine(line, options);
+        } catch(ParseException exp ) {
+            System.err.println(exp.getMessage());
+            printHelp(options);
+        }
+	}
+
+    /**
+     * Process command line.
+     *
+     * @param line the line
+     * @param options the options
+     *
+     * @throws Exception the exception
+     */
+    private static void processCommandLine(CommandLine line, Options options) throws Exception {
+        if(line.hasOption(HELP_OPTION)) {
+            printHelp(options);
+            return;
+        }
+        int requests = Integer.parseInt(line.getOptionValue(REQUESTS_OPTION, "2000"));
+        int concurrency = Integer.parseInt(line.getOptionValue(CONCURRENCY_OPTION, "200"));
+        long latency = Long.parseLong(line.getOptionValue(LATENCY_OPTION, "100"));
+
+        final ScheduledExecutorService responder = Executors.newScheduledThreadPool(2);
+        HttpServer server = startServer(responder, latency);
+        String host = "http://127.0.0.1:" + server.getAddress().getPort();
+        System.out.println(requests + " requests, " + latency + "ms simulated latency, virtual threads "
+        		+ (BoundedExecutorService.isVirtualThreadSupported() ? "available" : "not available, using platform threads"));
+        try {
+            PooledHttpTransport transport = new PooledHttpTransport();
+            transport.setMaxConnectionsPerHost(concurrency);
+            StackExchangeApiClientFactory factory = StackExchangeApiClientFactory.newInstance("load-test");
+            factory.setHttpTransport(transport);
+
+            ExecutorService cachedPool = Executors.newCachedThreadPool();
+            factory.setTaskExecutor(cachedPool);
+            run("cached thread pool", factory, host, requests);
+            cachedPool.shutdown();
+            cachedPool.awaitTermination(1, TimeUnit.MINUTES);
+
+            factory.useVirtualThreads(concurrency);
+            run("virtual threads (max " + concurrency + " in flight)", factory, host, requests);
+            transport.shutdown();
+        } finally {
+            server.stop(0);
+            responder.shutdown();
+        }
+    }
+
+    /**
+     * Runs one burst of requests and prints its statistics.
+     *
+     * @param name the name
+     * @param factory the factory
+     * @param host the host
+     * @param requests the requests
+     *
+     * @throws Exception the exception
+     */
+    private static void run(String name, StackExchangeApiClientFactory factory, String host, int requests) throws Exception {
+        AsyncStackExchangeApiClient client = factory.createAsyncStackExchangeApiClient();
+        client.setApiProvider(new CustomApiProvider(host));
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        threads.resetPeakThreadCount();
+        long start = System.currentTimeMillis();
+        List<Future<List<Question>>> results = new ArrayList<Future<List<Question>>>(requests);
+        for (int i = 0; i < requests; i++) {
+            results.add(client.getQuestions(new Paging(i + 1, 1)));
+        }
+        int failures = 0;
+        for (Future<List<Question>> result : results) {
+            try {
+                result.get();
+            } catch (Exception e) {
+                failures++;
+            }
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        System.out.println(name + ": " + elapsed + "ms, " + failures + " failures, peak platform threads "
+        		+ threads.getPeakThreadCount());
+    }
+
+    /**
+     * Starts a local server answering every call after the given latency.
+     *
+     * @param responder the responder
+     * @param latency the latency
+     *
+     * @return the http server
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static HttpServer startServer(final ScheduledExecutorService responder, final long latency) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 1024);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(final HttpExchange exchange) throws IOException {
+                responder.schedule(new Runnable() {
+                    @Override
+                    public void run() {
+                        try {
+                            byte[] body = RESPONSE.getBytes("UTF-8");
+                            exchange.sendResponseHeaders(200, body.length);
+                            exchange.getResponseBody().write(body);
+                        } catch (IOException e) {
+                            e.printStackTrace();
+                        } finally {
+                            exchange.close();
+                        }
+                    }
+                }, latency, TimeUnit.MILLISECONDS);
+            }
+        });
+        server.start();
+        return server;
+    }
+
+	/**
+	 * Builds the options.
+	 *
+	 * @return the options
+	 */
+    private static Options buildOptions() {
+
+        Options opts = new Options();
+
+        String helpMsg = "Print this message.";
+        Option help = new Option(HELP_OPTION, helpMsg);
+        opts.addOption(help);
+
+        OptionBuilder.withArgName("count");
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription("Number of calls per run (default 2000).");
+        opts.addOption(OptionBuilder.create(REQUESTS_OPTION));
+
+        OptionBuilder.withArgName("count");
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription("Max calls in flight in virtual thread mode (default 200).");
+        opts.addOption(OptionBuilder.create(CONCURRENCY_OPTION));
+
+        OptionBuilder.withArgName("millis");
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription("Simulated server latency (default 100).");
+        opts.addOption(OptionBuilder.create(LATENCY_OPTION));
+
+        return opts;
+    }
+
+    /**
+     * Prints the help.
+     *
+     * @param options the options
+     */
+    private static void printHelp(Options options) {
+        int width = 80;
+        String syntax = ExecutorLoadTest.class.getName() + " <options>";
+        String header = "\nAll options are optional.";
+        String footer = "";
+        new HelpFormatter().printHelp(width, syntax, header, options, footer, false);
+    }
+}
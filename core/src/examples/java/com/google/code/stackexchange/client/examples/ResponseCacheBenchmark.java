@@ -0,0 +1,275 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.examples;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.cli.BasicParser;
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Option;
+import org.apache.commons.cli.OptionBuilder;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+
+import com.google.code.stackexchange.client.StackExchangeApiClient;
+import com.google.code.stackexchange.client.StackExchangeApiClientFactory;
+import com.google.code.stackexchange.client.cache.impl.AbstractResponseCache;
+import com.google.code.stackexchange.client.cache.impl.DiskResponseCache;
+import com.google.code.stackexchange.client.cache.impl.InMemoryResponseCache;
+import com.google.code.stackexchange.client.constant.StackExchangeApiMethods;
+import com.google.code.stackexchange.client.provider.CustomApiProvider;
+import com.google.code.stackexchange.schema.Paging;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The Class ResponseCacheBenchmark.
+ *
+ * Makes a mix of badge, statistics and tag calls against a local stub of
+ * the api, once without and once with an in memory response cache, and
+ * prints the mean time per call and the number of calls that reached the
+ * server in each run. Given a directory, it also runs with a disk response
+ * cache and again after reopening it, as a restarted process would.
+ */
+public class ResponseCacheBenchmark {
+
+    /** The Constant REQUESTS_OPTION. */
+    private static final String REQUESTS_OPTION = "requests";
+
+    /** The Constant PAGES_OPTION. */
+    private static final String PAGES_OPTION = "pages";
+
+    /** The Constant LATENCY_OPTION. */
+    private static final String LATENCY_OPTION = "latency";
+
+    /** The Constant DIRECTORY_OPTION. */
+    private static final String DIRECTORY_OPTION = "directory";
+
+    /** The Constant HELP_OPTION. */
+    private static final String HELP_OPTION = "help";
+
+    /** The Constant BADGES. */
+    private static final String BADGES = "{\"badges\":[{\"badge_id\":9,\"rank\":\"bronze\",\"name\":\"Autobiographer\",\"description\":\"Completed all user profile fields\",\"award_count\":183417,\"tag_based\":false}]}";
+
+    /** The Constant STATISTICS. */
+    private static final String STATISTICS = "{\"statistics\":[{\"total_questions\":1034203,\"total_unanswered\":68142,\"total_answers\":2776417,\"total_comments\":4061823,\"total_votes\":8263431,\"total_badges\":1329108,\"total_users\":465532,\"questions_per_minute\":2.04,\"answers_per_minute\":4.51}]}";
+
+    /** The Constant TAGS. */
+    private static final String TAGS = "{\"total\":28000,\"page\":1,\"pagesize\":30,\"tags\":[{\"name\":\"java\",\"count\":124519},{\"name\":\"c#\",\"count\":163212}]}";
+
+    /**
+     * The main method.
+     *
+     * @param args the arguments
+     *
+     * @throws Exception the exception
+     */
+	public static void main(String[] args) throws Exception {
+		Options options = buildOptions();
+        try {
+            CommandLine line = new BasicParser().parse(options, args);
+            processCommandLine(line, options);
+        } catch(ParseException exp ) {
+            System.err.println(exp.getMessage());
+            printHelp(options);
+        }
+	}
+
+    /**
+     * Process command line.
+     *
+     * @param line the line
+     * @param options the options
+     *
+     * @throws Exception the exception
+     */
+    private static void processCommandLine(CommandLine line, Options options) throws Exception {
+        if(line.hasOption(HELP_OPTION)) {
+            printHelp(options);
+            return;
+        }
+        int requests = Integer.parseInt(line.getOptionValue(REQUESTS_OPTION, "300"));
+        int pages = Integer.parseInt(line.getOptionValue(PAGES_OPTION, "5"));
+        long latency = Long.parseLong(line.getOptionValue(LATENCY_OPTION, "20"));
+
+        AtomicInteger served = new AtomicInteger();
+        HttpServer server = startServer(served, latency);
+        String host = "http://127.0.0.1:" + server.getAddress().getPort();
+        System.out.println(requests + " calls over " + (pages + 2) + " urls, " + latency + "ms simulated latency");
+        try {
+            StackExchangeApiClientFactory factory = StackExchangeApiClientFactory.newInstance("cache-benchmark");
+            run("no cache", factory, host, requests, pages, served);
+
+            InMemoryResponseCache cache = new InMemoryResponseCache();
+            setTimesToLive(cache);
+            factory.getConfiguration().setResponseCache(cache);
+            run("in memory cache", factory, host, requests, pages, served);
+            System.out.println("cache stats " + cache.getStats());
+
+            if (line.hasOption(DIRECTORY_OPTION)) {
+                File directory = new File(line.getOptionValue(DIRECTORY_OPTION));
+                DiskResponseCache diskCache = new DiskResponseCache(directory);
+                diskCache.clear();
+                setTimesToLive(diskCache);
+                factory.getConfiguration().setResponseCache(diskCache);
+                run("disk cache", factory, host, requests, pages, served);
+                diskCache.close();
+
+                diskCache = new DiskResponseCache(directory);
+                setTimesToLive(diskCache);
+                factory.getConfiguration().setResponseCache(diskCache);
+                run("disk cache after restart", factory, host, requests, pages, served);
+                System.out.println("cache stats " + diskCache.getStats());
+                diskCache.close();
+            }
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    /**
+     * Sets the times to live of the called methods.
+     *
+     * @param cache the cache
+     */
+    private static void setTimesToLive(AbstractResponseCache cache) {
+        cache.setTimeToLive(StackExchangeApiMethods.GET_BADGES, 60 * 60 * 1000L);
+        cache.setTimeToLive(StackExchangeApiMethods.GET_TAGS, 10 * 60 * 1000L);
+        cache.setTimeToLive(StackExchangeApiMethods.GET_STATISTICS, 60 * 1000L);
+    }
+
+    /**
+     * Runs the calls one after the other and prints their statistics.
+     *
+     * @param name the name
+     * @param factory the factory
+     * @param host the host
+     * @param requests the requests
+     * @param pages the pages
+     * @param served the calls served by the server
+     */
+    private static void run(String name, StackExchangeApiClientFactory factory, String host, int requests, int pages,
+    		AtomicInteger served) {
+        StackExchangeApiClient client = factory.createStackExchangeApiClient();
+        client.setApiProvider(new CustomApiProvider(host));
+        served.set(0);
+        long start = System.nanoTime();
+        for (int i = 0; i < requests; i++) {
+            switch (i % 3) {
+            case 0:
+                client.getBadges();
+                break;
+            case 1:
+                client.getStatistics();
+                break;
+            default:
+                client.getTags(new Paging(1 + (i / 3) % pages, 30));
+                break;
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%s: %.3fms per call, %d calls reached the server%n", name, elapsed / 1e6 / requests, served.get());
+    }
+
+    /**
+     * Starts a local server answering every call after the given latency.
+     *
+     * @param served the counter of the calls served
+     * @param latency the latency
+     *
+     * @return the http server
+     *
+     * @throws IOException Signals that an I/O exception has occurred.
+     */
+    private static HttpServer startServer(final AtomicInteger served, final long latency) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 64);
+        server.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                try {
+                    served.incrementAndGet();
+                    Thread.sleep(latency);
+                    String path = exchange.getRequestURI().getPath();
+                    String response = path.endsWith("/badges") ? BADGES : path.endsWith("/stats") ? STATISTICS : TAGS;
+                    byte[] body = response.getBytes("UTF-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    exchange.getResponseBody().write(body);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    exchange.close();
+                }
+            }
+        });
+        server.start();
+        return server;
+    }
+
+	/**
+	 * Builds the options.
+	 *
+	 * @return the options
+	 */
+    private static Options buildOptions() {
+
+        Options opts = new Options();
+
+        String helpMsg = "Print this message.";
+        Option help = new Option(HELP_OPTION, helpMsg);
+        opts.addOption(help);
+
+        OptionBuilder.withArgName("count");
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription("Number of calls per run (default 300).");
+        opts.addOption(OptionBuilder.create(REQUESTS_OPTION));
+
+        OptionBuilder.withArgName("count");
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription("Number of tag pages called (default 5).");
+        opts.addOption(OptionBuilder.create(PAGES_OPTION));
+
+        OptionBuilder.withArgName("millis");
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription("Simulated server latency (default 20).");
+        opts.addOption(OptionBuilder.create(LATENCY_OPTION));
+
+        OptionBuilder.withArgName("path");
+        OptionBuilder.hasArg();
+        OptionBuilder.withDescription("Directory of a disk cache to also run with, cleared first.");
+        opts.addOption(OptionBuilder.create(DIRECTORY_OPTION));
+
+        return opts;
+    }
+
+    /**
+     * Prints the help.
+     *
+     * @param options the options
+     */
+    private static void printHelp(Options options) {
+        int width = 80;
+        String syntax = ResponseCacheBenchmark.class.getName() + " <options>";
+        String header = "\nAll options are optional.";
+        String footer = "";
+        new HelpFormatter().printHelp(width, syntax, header, options, footer, false);
+    }
+}
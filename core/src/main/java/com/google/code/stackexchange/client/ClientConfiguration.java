@@ -0,0 +1,329 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client;
+
+import com.google.code.stackexchange.client.cache.EntityCache;
+import com.google.code.stackexchange.client.cache.ResponseCache;
+import com.google.code.stackexchange.client.constant.ApplicationConstants;
+import com.google.code.stackexchange.client.impl.CircuitBreaker;
+import com.google.code.stackexchange.client.impl.HedgingPolicy;
+import com.google.code.stackexchange.client.impl.QuotaScheduler;
+import com.google.code.stackexchange.client.impl.RequestCoalescer;
+import com.google.code.stackexchange.client.impl.RetryPolicy;
+
+/**
+ * The Class ClientConfiguration.
+ *
+ * The settings of the calls made by a client or a query.
+ * One configuration can be shared by many clients and queries, e.g. all
+ * those created by a factory, and a change to it applies to their next calls,
+ * whichever thread makes them.
+ */
+public class ClientConfiguration {
+
+	/** The quota scheduler, null if calls are not paced. */
+	private volatile QuotaScheduler quotaScheduler;
+
+	/** The retry policy, null if failed calls are not retried. */
+	private volatile RetryPolicy retryPolicy;
+
+	/** The circuit breaker, null if calls are not guarded. */
+	private volatile CircuitBreaker circuitBreaker;
+
+	/** The hedging policy, null if requests are not hedged. */
+	private volatile HedgingPolicy hedgingPolicy;
+
+	/** The request coalescer, null if calls are not shared. */
+	private volatile RequestCoalescer requestCoalescer;
+
+	/** The response cache, null if responses are not cached. */
+	private volatile ResponseCache responseCache;
+
+	/** The entity cache, null if entities are not cached by id. */
+	private volatile EntityCache entityCache;
+
+	/** The connect timeout. */
+	private volatile int connectTimeout = ApplicationConstants.CONNECT_TIMEOUT;
+
+	/** The read timeout. */
+	private volatile int readTimeout = ApplicationConstants.READ_TIMEOUT;
+
+	/** The first byte timeout. */
+	private volatile int firstByteTimeout = ApplicationConstants.FIRST_BYTE_TIMEOUT;
+
+	/** The request timeout. */
+	private volatile long requestTimeout = ApplicationConstants.REQUEST_TIMEOUT;
+
+	/** Whether list elements are decoded when first read. */
+	private volatile boolean lazyDecoding;
+
+	/** Whether entities nested in the elements of a response are shared by id. */
+	private volatile boolean identityMapping;
+
+	/**
+	 * Gets the quota scheduler.
+	 *
+	 * @return the quota scheduler, null if calls are not paced
+	 */
+	public QuotaScheduler getQuotaScheduler() {
+		return quotaScheduler;
+	}
+
+	/**
+	 * Sets the quota scheduler that paces the calls to stay within the quota
+	 * of the application key. Share it between all the clients of a key.
+	 *
+	 * @param quotaScheduler the new quota scheduler, null to send calls at once
+	 */
+	public void setQuotaScheduler(QuotaScheduler quotaScheduler) {
+		this.quotaScheduler = quotaScheduler;
+	}
+
+	/**
+	 * Gets the retry policy.
+	 *
+	 * @return the retry policy, null if failed calls are not retried
+	 */
+	public RetryPolicy getRetryPolicy() {
+		return retryPolicy;
+	}
+
+	/**
+	 * Sets the retry policy for failed calls. Each client and query gets its
+	 * own retry budget from the policy.
+	 *
+	 * @param retryPolicy the new retry policy, null to fail at once
+	 */
+	public void setRetryPolicy(RetryPolicy retryPolicy) {
+		this.retryPolicy = retryPolicy;
+	}
+
+	/**
+	 * Gets the circuit breaker.
+	 *
+	 * @return the circuit breaker, null if calls are not guarded
+	 */
+	public CircuitBreaker getCircuitBreaker() {
+		return circuitBreaker;
+	}
+
+	/**
+	 * Sets the circuit breaker that fails calls at once while their host is
+	 * unhealthy.
+	 *
+	 * @param circuitBreaker the new circuit breaker, null to always call the host
+	 */
+	public void setCircuitBreaker(CircuitBreaker circuitBreaker) {
+		this.circuitBreaker = circuitBreaker;
+	}
+
+	/**
+	 * Gets the hedging policy.
+	 *
+	 * @return the hedging policy, null if requests are not hedged
+	 */
+	public HedgingPolicy getHedgingPolicy() {
+		return hedgingPolicy;
+	}
+
+	/**
+	 * Sets the hedging policy that sends a second copy of slow idempotent
+	 * requests.
+	 *
+	 * @param hedgingPolicy the new hedging policy, null to send each request once
+	 */
+	public void setHedgingPolicy(HedgingPolicy hedgingPolicy) {
+		this.hedgingPolicy = hedgingPolicy;
+	}
+
+	/**
+	 * Gets the request coalescer.
+	 *
+	 * @return the request coalescer, null if calls are not shared
+	 */
+	public RequestCoalescer getRequestCoalescer() {
+		return requestCoalescer;
+	}
+
+	/**
+	 * Sets the request coalescer that lets concurrent GET calls of the same
+	 * url share one network call.
+	 *
+	 * @param requestCoalescer the new request coalescer, null to make every call
+	 */
+	public void setRequestCoalescer(RequestCoalescer requestCoalescer) {
+		this.requestCoalescer = requestCoalescer;
+	}
+
+	/**
+	 * Gets the response cache.
+	 *
+	 * @return the response cache, null if responses are not cached
+	 */
+	public ResponseCache getResponseCache() {
+		return responseCache;
+	}
+
+	/**
+	 * Sets the response cache that answers GET calls of urls whose response
+	 * was cached without going to the network.
+	 *
+	 * @param responseCache the new response cache, null to not cache responses
+	 */
+	public void setResponseCache(ResponseCache responseCache) {
+		this.responseCache = responseCache;
+	}
+
+	/**
+	 * Gets the entity cache.
+	 *
+	 * @return the entity cache, null if entities are not cached by id
+	 */
+	public EntityCache getEntityCache() {
+		return entityCache;
+	}
+
+	/**
+	 * Sets the entity cache that lets the calls of clients for questions,
+	 * answers, comments or users by id fetch only the ids that are not cached.
+	 * Queries do not use it.
+	 *
+	 * @param entityCache the new entity cache, null to fetch every id
+	 */
+	public void setEntityCache(EntityCache entityCache) {
+		this.entityCache = entityCache;
+	}
+
+	/**
+	 * Gets the connect timeout.
+	 *
+	 * @return the connect timeout in milliseconds, -1 for none
+	 */
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	/**
+	 * Sets the connect timeout of the calls.
+	 *
+	 * @param connectTimeout the new connect timeout in milliseconds, -1 for none
+	 */
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	/**
+	 * Gets the read timeout.
+	 *
+	 * @return the read timeout in milliseconds, -1 for none
+	 */
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	/**
+	 * Sets the longest wait between two reads of a response.
+	 *
+	 * @param readTimeout the new read timeout in milliseconds, -1 for none
+	 */
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	/**
+	 * Gets the first byte timeout.
+	 *
+	 * @return the first byte timeout in milliseconds, -1 to use the read timeout
+	 */
+	public int getFirstByteTimeout() {
+		return firstByteTimeout;
+	}
+
+	/**
+	 * Sets the longest wait for a response to start once its request has
+	 * been sent.
+	 *
+	 * @param firstByteTimeout the new first byte timeout in milliseconds, -1 to use the read timeout
+	 */
+	public void setFirstByteTimeout(int firstByteTimeout) {
+		this.firstByteTimeout = firstByteTimeout;
+	}
+
+	/**
+	 * Gets the request timeout.
+	 *
+	 * @return the request timeout in milliseconds, -1 for none
+	 */
+	public long getRequestTimeout() {
+		return requestTimeout;
+	}
+
+	/**
+	 * Sets the time each call may take as a whole, including waiting for
+	 * quota, retries and reading the response. When it runs out the call
+	 * fails with a {@link java.net.SocketTimeoutException} as cause and its
+	 * connection is closed.
+	 *
+	 * @param requestTimeout the new request timeout in milliseconds, -1 for none
+	 */
+	public void setRequestTimeout(long requestTimeout) {
+		this.requestTimeout = requestTimeout;
+	}
+
+	/**
+	 * Checks if list elements are decoded when first read.
+	 *
+	 * @return true, if lazy decoding
+	 */
+	public boolean isLazyDecoding() {
+		return lazyDecoding;
+	}
+
+	/**
+	 * Sets whether the elements of list responses are decoded only when they
+	 * are first read rather than all at once. The list then keeps the content
+	 * of the response until all its elements are decoded, and an element that
+	 * does not fit its class fails when it is read.
+	 *
+	 * @param lazyDecoding true to decode list elements when first read
+	 */
+	public void setLazyDecoding(boolean lazyDecoding) {
+		this.lazyDecoding = lazyDecoding;
+	}
+
+	/**
+	 * Checks if nested entities are shared by id within a response.
+	 *
+	 * @return true, if identity mapping
+	 */
+	public boolean isIdentityMapping() {
+		return identityMapping;
+	}
+
+	/**
+	 * Sets whether the entities nested in the elements of a list response,
+	 * e.g. the owners of questions, are decoded once per id and shared. An
+	 * owner of many questions in a page is then a single user, so changing it
+	 * changes it for every question. Entities with a generated json adapter
+	 * and an identity field, such as users, are shared.
+	 *
+	 * @param identityMapping true to share nested entities by id
+	 */
+	public void setIdentityMapping(boolean identityMapping) {
+		this.identityMapping = identityMapping;
+	}
+}
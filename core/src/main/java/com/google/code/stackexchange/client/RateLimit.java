@@ -0,0 +1,114 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client;
+
+import java.util.Date;
+
+/**
+ * The Class RateLimit.
+ *
+ * An immutable snapshot of the request quota reported by one api host for one
+ * application key.
+ */
+public class RateLimit {
+
+	/** The host. */
+	private final String host;
+
+	/** The application key. */
+	private final String applicationKey;
+
+	/** The max rate limit. */
+	private final int maxRateLimit;
+
+	/** The current rate limit, i.e. the requests left. */
+	private final int currentRateLimit;
+
+	/** The last updated. */
+	private final long lastUpdated;
+
+	/**
+	 * Instantiates a new rate limit.
+	 *
+	 * @param host the host
+	 * @param applicationKey the application key
+	 * @param maxRateLimit the max rate limit
+	 * @param currentRateLimit the current rate limit
+	 * @param lastUpdated the time the limits were reported
+	 */
+	public RateLimit(String host, String applicationKey, int maxRateLimit, int currentRateLimit, long lastUpdated) {
+		this.host = host;
+		this.applicationKey = applicationKey;
+		this.maxRateLimit = maxRateLimit;
+		this.currentRateLimit = currentRateLimit;
+		this.lastUpdated = lastUpdated;
+	}
+
+	/**
+	 * Gets the host.
+	 *
+	 * @return the host
+	 */
+	public String getHost() {
+		return host;
+	}
+
+	/**
+	 * Gets the application key.
+	 *
+	 * @return the application key, null if requests were made without one
+	 */
+	public String getApplicationKey() {
+		return applicationKey;
+	}
+
+	/**
+	 * Gets the max rate limit.
+	 *
+	 * @return the max rate limit, -1 if unknown
+	 */
+	public int getMaxRateLimit() {
+		return maxRateLimit;
+	}
+
+	/**
+	 * Gets the current rate limit.
+	 *
+	 * @return the requests left, -1 if unknown
+	 */
+	public int getCurrentRateLimit() {
+		return currentRateLimit;
+	}
+
+	/**
+	 * Gets the last updated.
+	 *
+	 * @return the time the limits were reported
+	 */
+	public Date getLastUpdated() {
+		return new Date(lastUpdated);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "[host: " + host + "; applicationKey: " + applicationKey + "; current: " + currentRateLimit
+				+ "; max: " + maxRateLimit + "; lastUpdated: " + getLastUpdated() + "]";
+	}
+}
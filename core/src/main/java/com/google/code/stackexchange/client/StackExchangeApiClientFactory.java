@@ -21,7 +21,10 @@ import java.util.concurrent.Executors;
 
 import com.google.code.stackexchange.client.exception.StackExchangeApiException;
 import com.google.code.stackexchange.client.impl.AsyncStackExchangeApiClientAdapter;
+import com.google.code.stackexchange.client.impl.AsyncStackExchangeApiJsonClient;
+import com.google.code.stackexchange.client.impl.BoundedExecutorService;
 import com.google.code.stackexchange.client.impl.StackExchangeApiJsonClient;
+import com.google.code.stackexchange.client.transport.HttpTransport;
 
 /**
  * A factory for creating StackExchangeApiClient objects.
@@ -34,6 +37,12 @@ public class StackExchangeApiClientFactory {
     /** The application key. */
     private String applicationKey;
 
+    /** The http transport, null for the shared default. */
+    private HttpTransport httpTransport;
+
+    /** The configuration of the calls, shared by the created clients. */
+    private ClientConfiguration configuration = new ClientConfiguration();
+
     /**
      * Instantiates a new stack exchange api client factory.
      * 
@@ -52,6 +61,46 @@ public class StackExchangeApiClientFactory {
         this.taskExecutor = taskExecutor;
 	}
 
+    /**
+     * Runs the calls of the async clients created by this factory on virtual
+     * threads (on Java 21 or later, daemon platform threads otherwise) with at
+     * most maxConcurrency calls in flight. Further calls are queued without a
+     * thread, so bursts cannot exhaust the host.
+     * 
+     * @param maxConcurrency the max number of concurrent calls
+     */
+	public void useVirtualThreads(int maxConcurrency) {
+        this.taskExecutor = BoundedExecutorService.newVirtualThreadExecutor(maxConcurrency);
+	}
+
+    /**
+     * Sets the http transport used by the clients created by this factory.
+     * 
+     * @param httpTransport the new http transport
+     */
+	public void setHttpTransport(HttpTransport httpTransport) {
+        this.httpTransport = httpTransport;
+	}
+
+    /**
+     * Gets the configuration shared by the clients created by this factory.
+     * 
+     * @return the configuration
+     */
+	public ClientConfiguration getConfiguration() {
+        return configuration;
+	}
+
+    /**
+     * Sets the configuration shared by the clients created by this factory,
+     * i.e. the settings of their calls.
+     * 
+     * @param configuration the new configuration
+     */
+	public void setConfiguration(ClientConfiguration configuration) {
+        this.configuration = configuration;
+	}
+
     /**
      * New instance.
      * 
@@ -71,7 +120,7 @@ public class StackExchangeApiClientFactory {
 	public StackExchangeApiClient createStackExchangeApiClient() {
 		final StackExchangeApiClient client = new StackExchangeApiJsonClient(applicationKey);
 
-        return client;
+        return configure(client);
     }
 
 	/**
@@ -84,7 +133,7 @@ public class StackExchangeApiClientFactory {
 	public StackExchangeApiClient createStackExchangeApiClient(String apiVersion) {
 		final StackExchangeApiClient client = new StackExchangeApiJsonClient(applicationKey, apiVersion);
 
-        return client;
+        return configure(client);
     }
 	
     /**
@@ -98,7 +147,7 @@ public class StackExchangeApiClientFactory {
     	try {
 			final StackExchangeApiClient client = implClass.getConstructor(String.class).newInstance(applicationKey);
 
-	        return client;
+	        return configure(client);
 		} catch (Exception e) {
 			throw new StackExchangeApiException(e);
 		}
@@ -114,4 +163,34 @@ public class StackExchangeApiClientFactory {
 
         return new AsyncStackExchangeApiClientAdapter(client, taskExecutor);
     }
+
+    /**
+     * Creates a new AsyncStackExchangeApiClient object whose requests do not
+     * hold a thread while waiting for the network. The task executor is only
+     * used to parse responses. Unless another asynchronous transport is set,
+     * its connections are opened straight to the host, ignoring the JDK proxy
+     * settings.
+     * 
+     * @return the async stack exchange api client
+     */
+    public AsyncStackExchangeApiClient createNonBlockingAsyncStackExchangeApiClient() {
+        final AsyncStackExchangeApiClient client = new AsyncStackExchangeApiJsonClient(applicationKey, taskExecutor);
+
+        return configure(client);
+    }
+
+    /**
+     * Configure.
+     * 
+     * @param client the client
+     * 
+     * @return the client
+     */
+    private <C extends StackExchangeCommunicationClient> C configure(C client) {
+    	if (httpTransport != null) {
+    		client.setHttpTransport(httpTransport);
+    	}
+    	client.setConfiguration(configuration);
+    	return client;
+    }
 }
@@ -19,6 +19,7 @@ package com.google.code.stackexchange.client;
 import java.util.Map;
 
 import com.google.code.stackexchange.client.provider.ApiProvider;
+import com.google.code.stackexchange.client.transport.HttpTransport;
 
 /**
  * The Interface StackExchangeCommunicationClient.
@@ -68,6 +69,20 @@ public interface StackExchangeCommunicationClient {
      */
     public ApiProvider getApiProvider();
     
+    /**
+     * Sets the http transport.
+     * 
+     * @param httpTransport the new http transport
+     */
+    public void setHttpTransport(HttpTransport httpTransport);
+    
+    /**
+     * Gets the http transport.
+     * 
+     * @return the http transport
+     */
+    public HttpTransport getHttpTransport();
+    
     /**
      * Gets the max rate limit.
      * 
@@ -81,4 +96,27 @@ public interface StackExchangeCommunicationClient {
      * @return the current rate limit
      */
     public int getCurrentRateLimit();
+    
+    /**
+     * Gets the rate limit of the host last called, for the application key
+     * of this client.
+     * 
+     * @return the rate limit, null if none was reported yet
+     */
+    public RateLimit getRateLimit();
+    
+    /**
+     * Sets the configuration of the calls made by this client. The
+     * configuration may be shared with other clients.
+     * 
+     * @param configuration the new configuration
+     */
+    public void setConfiguration(ClientConfiguration configuration);
+    
+    /**
+     * Gets the configuration.
+     * 
+     * @return the configuration
+     */
+    public ClientConfiguration getConfiguration();
 }
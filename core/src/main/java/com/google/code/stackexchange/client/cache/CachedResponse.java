@@ -0,0 +1,110 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.cache;
+
+/**
+ * The Class CachedResponse.
+ *
+ * The content a response cache found for a url, and whether it should be
+ * refreshed, or that the url was found not to exist.
+ */
+public class CachedResponse {
+
+	/** The content. */
+	private final byte[] content;
+
+	/** Whether the content is past its time to live. */
+	private final boolean stale;
+
+	/** Whether the caller should refresh the content. */
+	private final boolean refreshNeeded;
+
+	/** The message of the not found error, null if the url was found. */
+	private final String notFoundMessage;
+
+	/**
+	 * Instantiates a new cached response.
+	 *
+	 * @param content the content
+	 * @param stale whether the content is past its time to live
+	 * @param refreshNeeded whether the caller should refresh the content
+	 */
+	public CachedResponse(byte[] content, boolean stale, boolean refreshNeeded) {
+		this.content = content;
+		this.stale = stale;
+		this.refreshNeeded = refreshNeeded;
+		this.notFoundMessage = null;
+	}
+
+	/**
+	 * Instantiates a new cached response of a url that was not found.
+	 *
+	 * @param notFoundMessage the message of the not found error
+	 */
+	public CachedResponse(String notFoundMessage) {
+		this.content = null;
+		this.stale = false;
+		this.refreshNeeded = false;
+		this.notFoundMessage = (notFoundMessage == null) ? "" : notFoundMessage;
+	}
+
+	/**
+	 * Gets the content.
+	 *
+	 * @return the content, null if the url was not found
+	 */
+	public byte[] getContent() {
+		return content;
+	}
+
+	/**
+	 * Checks if the content is stale.
+	 *
+	 * @return true, if the content is past its time to live
+	 */
+	public boolean isStale() {
+		return stale;
+	}
+
+	/**
+	 * Checks if the caller should refresh the content. Of the callers that
+	 * find the same stale content only one at a time is asked to.
+	 *
+	 * @return true, if the caller should fetch the url again and cache the response
+	 */
+	public boolean isRefreshNeeded() {
+		return refreshNeeded;
+	}
+
+	/**
+	 * Checks if the url was not found.
+	 *
+	 * @return true, if the api answered the url with a not found error
+	 */
+	public boolean isNotFound() {
+		return notFoundMessage != null;
+	}
+
+	/**
+	 * Gets the not found message.
+	 *
+	 * @return the message of the not found error, null if the url was found
+	 */
+	public String getNotFoundMessage() {
+		return notFoundMessage;
+	}
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.cache;
+
+/**
+ * The Interface EntityCache.
+ *
+ * Keeps entities fetched by id, e.g. questions or users, so that calls
+ * asking for several ids only fetch the ones that are not cached. Entities
+ * are cached per view, the canonical url of the call with its ids left out,
+ * so that an entity fetched without e.g. its body is not returned to a call
+ * asking for it. Cached entities are shared by the callers and must not be
+ * modified. Implementations must be thread safe.
+ */
+public interface EntityCache {
+
+	/**
+	 * Gets the entity cached for the id.
+	 *
+	 * @param type the entity type
+	 * @param view the canonical url of the call without its ids
+	 * @param id the id
+	 *
+	 * @return the entity, null if it is not cached or expired
+	 */
+	public <T> T get(Class<T> type, String view, long id);
+
+	/**
+	 * Caches an entity fetched by id.
+	 *
+	 * @param type the entity type
+	 * @param view the canonical url of the call without its ids
+	 * @param id the id
+	 * @param entity the entity
+	 */
+	public <T> void put(Class<T> type, String view, long id, T entity);
+
+	/**
+	 * Removes all the cached entities.
+	 */
+	public void clear();
+
+	/**
+	 * Gets the stats.
+	 *
+	 * @return a snapshot of the counters of this cache
+	 */
+	public EntityCacheStats getStats();
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.cache;
+
+/**
+ * The Class EntityCacheStats.
+ *
+ * An immutable snapshot of the counters of an entity cache.
+ */
+public class EntityCacheStats {
+
+	/** The cached entities. */
+	private final int entries;
+
+	/** The ids answered from the cache. */
+	private final long hits;
+
+	/** The ids that missed. */
+	private final long misses;
+
+	/** The entities dropped to make room for others. */
+	private final long evicted;
+
+	/**
+	 * Instantiates a new entity cache stats.
+	 *
+	 * @param entries the entries
+	 * @param hits the hits
+	 * @param misses the misses
+	 * @param evicted the evicted
+	 */
+	public EntityCacheStats(int entries, long hits, long misses, long evicted) {
+		this.entries = entries;
+		this.hits = hits;
+		this.misses = misses;
+		this.evicted = evicted;
+	}
+
+	/**
+	 * Gets the entries.
+	 *
+	 * @return the number of cached entities
+	 */
+	public int getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Gets the hits.
+	 *
+	 * @return the number of ids answered from the cache
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Gets the misses.
+	 *
+	 * @return the number of ids that found nothing or an expired entity
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Gets the evicted.
+	 *
+	 * @return the number of entities dropped to stay within the size bound
+	 */
+	public long getEvicted() {
+		return evicted;
+	}
+
+	/**
+	 * Gets the hit ratio.
+	 *
+	 * @return the share of ids answered from the cache, 0 if there were none
+	 */
+	public double getHitRatio() {
+		long lookups = hits + misses;
+		return (lookups == 0) ? 0.0 : (double) hits / lookups;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "[entries: " + entries + "; hits: " + hits + "; misses: " + misses + "; evicted: " + evicted + "]";
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.cache;
+
+/**
+ * The Interface ResponseCache.
+ *
+ * Keeps the content of successful GET responses so that later calls of the
+ * same url are answered without going to the network. Urls are compared in
+ * their canonical form, see
+ * {@link com.google.code.stackexchange.client.provider.url.DefaultApiUrlBuilder#getCanonicalUrl(String)}.
+ * Implementations decide how long content is kept and must be thread safe,
+ * as one cache is normally shared by every client and query.
+ */
+public interface ResponseCache {
+
+	/**
+	 * Gets the content cached for the url.
+	 *
+	 * @param url the url
+	 *
+	 * @return the content, null if the url is not cached, was not found or its content expired
+	 */
+	public byte[] get(String url);
+
+	/**
+	 * Looks up the content cached for the url. Content past its time to live
+	 * is still answered while it is within the max stale of the method it
+	 * was put for, so that callers are not held up while it is refreshed. Of the callers
+	 * that find the same stale content, one at a time is asked to refresh
+	 * it, so that a hot url expiring causes one call rather than one per
+	 * caller.
+	 *
+	 * @param url the url
+	 *
+	 * @return the cached response, null if the url is not cached or its content expired
+	 */
+	public CachedResponse lookup(String url);
+
+	/**
+	 * Caches the content of a successful response of the url. The content
+	 * must not be modified afterwards.
+	 *
+	 * @param methodName the name of the api method the url was built for, see
+	 * {@link com.google.code.stackexchange.client.constant.StackExchangeApiMethods}
+	 * @param url the url
+	 * @param content the content
+	 */
+	public void put(String methodName, String url, byte[] content);
+
+	/**
+	 * Caches that the api answered the url with a not found error, so that
+	 * lookups of deleted questions or users do not each cost a call.
+	 * Implementations keep it for a short time, if at all.
+	 *
+	 * @param url the url
+	 * @param message the message of the error
+	 */
+	public void putNotFound(String url, String message);
+
+	/**
+	 * Removes the content cached for the url.
+	 *
+	 * @param url the url
+	 */
+	public void remove(String url);
+
+	/**
+	 * Removes all the cached content.
+	 */
+	public void clear();
+
+	/**
+	 * Gets the stats.
+	 *
+	 * @return a snapshot of the counters of this cache
+	 */
+	public ResponseCacheStats getStats();
+}
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.cache;
+
+/**
+ * The Class ResponseCacheStats.
+ *
+ * An immutable snapshot of the counters of a response cache.
+ */
+public class ResponseCacheStats {
+
+	/** The cached responses. */
+	private final int entries;
+
+	/** The size of the cached responses. */
+	private final long bytes;
+
+	/** The lookups answered from the cache. */
+	private final long hits;
+
+	/** The lookups answered with stale content. */
+	private final long staleHits;
+
+	/** The lookups that missed. */
+	private final long misses;
+
+	/** The responses dropped to make room for others. */
+	private final long evicted;
+
+	/**
+	 * Instantiates a new response cache stats.
+	 *
+	 * @param entries the entries
+	 * @param bytes the bytes
+	 * @param hits the hits
+	 * @param staleHits the stale hits
+	 * @param misses the misses
+	 * @param evicted the evicted
+	 */
+	public ResponseCacheStats(int entries, long bytes, long hits, long staleHits, long misses, long evicted) {
+		this.entries = entries;
+		this.bytes = bytes;
+		this.hits = hits;
+		this.staleHits = staleHits;
+		this.misses = misses;
+		this.evicted = evicted;
+	}
+
+	/**
+	 * Gets the entries.
+	 *
+	 * @return the number of cached responses
+	 */
+	public int getEntries() {
+		return entries;
+	}
+
+	/**
+	 * Gets the bytes.
+	 *
+	 * @return the size of the cached responses in bytes
+	 */
+	public long getBytes() {
+		return bytes;
+	}
+
+	/**
+	 * Gets the hits.
+	 *
+	 * @return the number of lookups answered with fresh content
+	 */
+	public long getHits() {
+		return hits;
+	}
+
+	/**
+	 * Gets the stale hits.
+	 *
+	 * @return the number of lookups answered with content past its time to live
+	 */
+	public long getStaleHits() {
+		return staleHits;
+	}
+
+	/**
+	 * Gets the misses.
+	 *
+	 * @return the number of lookups that found nothing or expired content
+	 */
+	public long getMisses() {
+		return misses;
+	}
+
+	/**
+	 * Gets the evicted.
+	 *
+	 * @return the number of responses dropped to stay within the size bound
+	 */
+	public long getEvicted() {
+		return evicted;
+	}
+
+	/**
+	 * Gets the hit ratio.
+	 *
+	 * @return the share of lookups answered from the cache, 0 if there were none
+	 */
+	public double getHitRatio() {
+		long lookups = hits + staleHits + misses;
+		return (lookups == 0) ? 0.0 : (double) (hits + staleHits) / lookups;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "[entries: " + entries + "; bytes: " + bytes + "; hits: " + hits + "; stale hits: " + staleHits + "; misses: " + misses
+				+ "; evicted: " + evicted + "]";
+	}
+}
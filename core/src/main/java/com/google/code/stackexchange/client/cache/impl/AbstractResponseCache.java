@@ -0,0 +1,273 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.cache.impl;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.code.stackexchange.client.cache.ResponseCache;
+
+/**
+ * The Class AbstractResponseCache.
+ *
+ * The times to live shared by the response caches. Each response is kept
+ * for the time to live of the api method it was cached for by the caller,
+ * see {@link com.google.code.stackexchange.client.constant.StackExchangeApiMethods},
+ * or for the default time to live if none was set for the method. Once
+ * past it, a response may still be answered as stale for the max stale of
+ * its method while one caller refreshes it. Negative results, not found
+ * errors and empty lists, may be kept for a time to live of their own.
+ */
+public abstract class AbstractResponseCache implements ResponseCache {
+
+	/** The Constant DEFAULT_TIME_TO_LIVE. */
+	public static final long DEFAULT_TIME_TO_LIVE = 60000L;
+
+	/** The Constant DEFAULT_REFRESH_TIMEOUT. */
+	public static final long DEFAULT_REFRESH_TIMEOUT = 30000L;
+
+	/** The time to live of the methods without one of their own. */
+	private volatile long defaultTimeToLive = DEFAULT_TIME_TO_LIVE;
+
+	/** The times to live keyed by method name. */
+	private final ConcurrentMap<String, Long> timesToLive = new ConcurrentHashMap<String, Long>();
+
+	/** The max stale of the methods without one of their own. */
+	private volatile long defaultMaxStale;
+
+	/** The max stales keyed by method name. */
+	private final ConcurrentMap<String, Long> maxStales = new ConcurrentHashMap<String, Long>();
+
+	/** The time to live of not found errors and empty lists, 0 if they are not told apart. */
+	private volatile long negativeTimeToLive;
+
+	/** The time after which a refresh that did not complete is handed to another caller. */
+	private volatile long refreshTimeout = DEFAULT_REFRESH_TIMEOUT;
+
+	/**
+	 * Gets the default time to live.
+	 *
+	 * @return the time to live of the methods without one of their own in milliseconds
+	 */
+	public long getDefaultTimeToLive() {
+		return defaultTimeToLive;
+	}
+
+	/**
+	 * Sets the time to live of the methods without one of their own.
+	 *
+	 * @param defaultTimeToLive the new default time to live in milliseconds, 0 to not cache them
+	 */
+	public void setDefaultTimeToLive(long defaultTimeToLive) {
+		this.defaultTimeToLive = defaultTimeToLive;
+	}
+
+	/**
+	 * Gets the time to live of an api method.
+	 *
+	 * @param methodName the method name, null for an unknown method
+	 *
+	 * @return the time to live in milliseconds
+	 */
+	public long getTimeToLive(String methodName) {
+		Long timeToLive = (methodName == null) ? null : timesToLive.get(methodName);
+		return (timeToLive == null) ? defaultTimeToLive : timeToLive.longValue();
+	}
+
+	/**
+	 * Sets the time to live of an api method, e.g.
+	 * {@link com.google.code.stackexchange.client.constant.StackExchangeApiMethods#GET_BADGES}.
+	 * Responses cached before keep their time to live.
+	 *
+	 * @param methodName the method name
+	 * @param timeToLive the time to live in milliseconds, 0 to not cache the method
+	 */
+	public void setTimeToLive(String methodName, long timeToLive) {
+		timesToLive.put(methodName, timeToLive);
+	}
+
+	/**
+	 * Gets the default max stale.
+	 *
+	 * @return the max stale of the methods without one of their own in milliseconds
+	 */
+	public long getDefaultMaxStale() {
+		return defaultMaxStale;
+	}
+
+	/**
+	 * Sets the max stale of the methods without one of their own.
+	 *
+	 * @param defaultMaxStale the new default max stale in milliseconds, 0 to never answer stale responses
+	 */
+	public void setDefaultMaxStale(long defaultMaxStale) {
+		this.defaultMaxStale = defaultMaxStale;
+	}
+
+	/**
+	 * Gets the max stale of an api method.
+	 *
+	 * @param methodName the method name, null for an unknown method
+	 *
+	 * @return the max stale in milliseconds
+	 */
+	public long getMaxStale(String methodName) {
+		Long maxStale = (methodName == null) ? null : maxStales.get(methodName);
+		return (maxStale == null) ? defaultMaxStale : maxStale.longValue();
+	}
+
+	/**
+	 * Sets how long past its time to live a response of an api method is
+	 * still answered, as stale, while it is refreshed. Responses cached
+	 * before keep their max stale.
+	 *
+	 * @param methodName the method name
+	 * @param maxStale the max stale in milliseconds, 0 to never answer stale responses of the method
+	 */
+	public void setMaxStale(String methodName, long maxStale) {
+		maxStales.put(methodName, maxStale);
+	}
+
+	/**
+	 * Gets the negative time to live.
+	 *
+	 * @return the time to live of negative results in milliseconds
+	 */
+	public long getNegativeTimeToLive() {
+		return negativeTimeToLive;
+	}
+
+	/**
+	 * Sets the time to live of the negative results: not found errors, and
+	 * responses whose list is empty, which are then kept for this time
+	 * rather than the time to live of their method, even if it is 0.
+	 * Negative results are not answered once stale.
+	 *
+	 * @param negativeTimeToLive the new negative time to live in milliseconds, 0 to not cache not found errors and treat empty lists like any response
+	 */
+	public void setNegativeTimeToLive(long negativeTimeToLive) {
+		this.negativeTimeToLive = negativeTimeToLive;
+	}
+
+	/**
+	 * Gets the refresh timeout.
+	 *
+	 * @return the refresh timeout in milliseconds
+	 */
+	public long getRefreshTimeout() {
+		return refreshTimeout;
+	}
+
+	/**
+	 * Sets the time after which the refresh of a stale response that did not
+	 * complete, e.g. because its call failed, is handed to another caller.
+	 *
+	 * @param refreshTimeout the new refresh timeout in milliseconds
+	 */
+	public void setRefreshTimeout(long refreshTimeout) {
+		this.refreshTimeout = refreshTimeout;
+	}
+
+	/**
+	 * Gets the times a response of an api method cached now goes stale and
+	 * expires at.
+	 *
+	 * @param methodName the method name, null for an unknown method
+	 * @param content the content
+	 *
+	 * @return the times in milliseconds since the epoch, null if the response is not cached
+	 */
+	protected long[] getExpiry(String methodName, byte[] content) {
+		if (negativeTimeToLive > 0 && isEmptyList(content)) {
+			return getNegativeExpiry();
+		}
+		long timeToLive = getTimeToLive(methodName);
+		if (timeToLive <= 0) {
+			return null;
+		}
+		long staleAt = System.currentTimeMillis() + timeToLive;
+		return new long[] {staleAt, staleAt + Math.max(0, getMaxStale(methodName))};
+	}
+
+	/**
+	 * Gets the times a negative result cached now goes stale and expires at.
+	 *
+	 * @return the times in milliseconds since the epoch, null if negative results are not cached
+	 */
+	protected long[] getNegativeExpiry() {
+		long timeToLive = negativeTimeToLive;
+		if (timeToLive <= 0) {
+			return null;
+		}
+		long expires = System.currentTimeMillis() + timeToLive;
+		return new long[] {expires, expires};
+	}
+
+	/**
+	 * Checks if the first list of a response, e.g. the questions of
+	 * <code>{"total": 0, "questions": []}</code>, is empty. Only the top
+	 * level of the response up to that list is read.
+	 *
+	 * @param content the content
+	 *
+	 * @return true, if the list is empty
+	 */
+	protected static boolean isEmptyList(byte[] content) {
+		int depth = 0;
+		boolean inString = false;
+		for (int i = 0; i < content.length; i++) {
+			byte b = content[i];
+			if (inString) {
+				if (b == '\\') {
+					i++;
+				} else if (b == '"') {
+					inString = false;
+				}
+			} else if (b == '"') {
+				inString = true;
+			} else if (b == '{') {
+				depth++;
+			} else if (b == '}') {
+				depth--;
+			} else if (b == '[') {
+				if (depth != 1) {
+					return false;
+				}
+				for (i++; i < content.length; i++) {
+					if (content[i] != ' ' && content[i] != '\t' && content[i] != '\r' && content[i] != '\n') {
+						return content[i] == ']';
+					}
+				}
+				return false;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if the refresh of a stale response is to be handed to the
+	 * caller.
+	 *
+	 * @param refreshStarted the time the last refresh was handed out at, 0 if none was
+	 * @param now the now
+	 *
+	 * @return true, if the caller should refresh the response
+	 */
+	protected boolean isRefreshDue(long refreshStarted, long now) {
+		return refreshStarted == 0 || now - refreshStarted >= refreshTimeout;
+	}
+}
@@ -0,0 +1,1071 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.cache.impl;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import com.google.code.stackexchange.client.cache.CachedResponse;
+import com.google.code.stackexchange.client.cache.ResponseCacheStats;
+import com.google.code.stackexchange.client.exception.StackExchangeApiException;
+import com.google.code.stackexchange.client.provider.url.DefaultApiUrlBuilder;
+
+/**
+ * The Class DiskResponseCache.
+ *
+ * A response cache kept in a directory, so that a restarted process answers
+ * the calls made before without going to the network. Responses are
+ * compressed and appended, with their url and the times they go stale and
+ * expire at, to segment files of a fixed size, which are read and written
+ * through their file channels. They are not memory mapped, so that a
+ * segment can be deleted, on every platform, as soon as its channel is
+ * closed. An index of the responses is kept on the heap and is rebuilt from
+ * the segments when the cache is opened, skipping the expired responses and
+ * a record torn by a crash.
+ * <p>
+ * Once a segment is full the next one is started. Sealed segments whose
+ * responses were mostly replaced, removed or expired are compacted by
+ * copying their remaining responses to the current segment, and the oldest
+ * segments are dropped to keep the directory within a number of bytes.
+ * A directory is locked by the cache that opened it until it is closed.
+ */
+public class DiskResponseCache extends AbstractResponseCache {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = Logger.getLogger(DiskResponseCache.class.getCanonicalName());
+
+	/** The Constant DEFAULT_MAX_BYTES. */
+	public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+
+	/** The Constant DEFAULT_SEGMENT_SIZE. */
+	public static final int DEFAULT_SEGMENT_SIZE = 16 * 1024 * 1024;
+
+	/** The Constant DEFAULT_COMPACTION_THRESHOLD. */
+	public static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+
+	/** The Constant LOCK_FILE. */
+	private static final String LOCK_FILE = "cache.lock";
+
+	/** The Constant SEGMENT_PREFIX. */
+	private static final String SEGMENT_PREFIX = "responses-";
+
+	/** The Constant SEGMENT_SUFFIX. */
+	private static final String SEGMENT_SUFFIX = ".seg";
+
+	/** The Constant UTF_8. */
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	/** The offset of the record length, 0 past the last record of a segment. */
+	private static final int OFFSET_LENGTH = 0;
+
+	/** The offset of the checksum of the record from its expiry on. */
+	private static final int OFFSET_CHECKSUM = 4;
+
+	/** The offset of the state, left out of the checksum so that it can be changed in place. */
+	private static final int OFFSET_STATE = 8;
+
+	/** The offset of the time in milliseconds since the epoch the response expires at. */
+	private static final int OFFSET_EXPIRES = 9;
+
+	/** The offset of the time in milliseconds since the epoch the response goes stale at. */
+	private static final int OFFSET_STALE_AT = 17;
+
+	/** The offset of the length of the uncompressed content. */
+	private static final int OFFSET_CONTENT_LENGTH = 25;
+
+	/** The offset of the length of the url. */
+	private static final int OFFSET_URL_LENGTH = 29;
+
+	/** The size of the record header, followed by the url and the compressed content. */
+	private static final int HEADER_SIZE = 33;
+
+	/** The state of a cached response. */
+	private static final byte LIVE = 1;
+
+	/** The state of a removed response. */
+	private static final byte REMOVED = 2;
+
+	/** The state of a not found error, whose content is its message. */
+	private static final byte NOT_FOUND = 3;
+
+	/** The directory. */
+	private final File directory;
+
+	/** The max bytes. */
+	private final long maxBytes;
+
+	/** The segment size. */
+	private final int segmentSize;
+
+	/** The compaction threshold. */
+	private volatile double compactionThreshold = DEFAULT_COMPACTION_THRESHOLD;
+
+	/** The lock file. */
+	private final RandomAccessFile lockFile;
+
+	/** The lock held on the directory. */
+	private final FileLock lock;
+
+	/** The segments, oldest first. The last one is written to. */
+	private final List<Segment> segments = new ArrayList<Segment>();
+
+	/** The locations of the responses keyed by canonical url. */
+	private final Map<String, Location> index = new HashMap<String, Location>();
+
+	/** The hits. */
+	private long hits;
+
+	/** The stale hits. */
+	private long staleHits;
+
+	/** The misses. */
+	private long misses;
+
+	/** The evicted. */
+	private long evicted;
+
+	/** Whether the cache was closed. */
+	private boolean closed;
+
+	/**
+	 * Instantiates a new disk response cache with the default sizes.
+	 *
+	 * @param directory the directory, created if missing
+	 */
+	public DiskResponseCache(File directory) {
+		this(directory, DEFAULT_MAX_BYTES, DEFAULT_SEGMENT_SIZE);
+	}
+
+	/**
+	 * Instantiates a new disk response cache, loading the responses cached
+	 * in the directory before.
+	 *
+	 * @param directory the directory, created if missing
+	 * @param maxBytes the max size of the segments in bytes
+	 * @param segmentSize the size of a segment in bytes, which bounds the size of a compressed response
+	 */
+	public DiskResponseCache(File directory, long maxBytes, int segmentSize) {
+		if (segmentSize <= HEADER_SIZE) {
+			throw new IllegalArgumentException("The segment size must be larger than " + HEADER_SIZE + ": " + segmentSize);
+		}
+		if (maxBytes < segmentSize) {
+			throw new IllegalArgumentException("The max bytes must be at least the segment size: " + maxBytes);
+		}
+		this.directory = directory;
+		this.maxBytes = maxBytes;
+		this.segmentSize = segmentSize;
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new StackExchangeApiException("Could not create the cache directory " + directory);
+		}
+		try {
+			lockFile = new RandomAccessFile(new File(directory, LOCK_FILE), "rw");
+			FileLock lock = null;
+			try {
+				lock = lockFile.getChannel().tryLock();
+			} catch (OverlappingFileLockException e) {
+				// locked by another cache of this process
+			}
+			if (lock == null) {
+				lockFile.close();
+				throw new StackExchangeApiException("The cache directory " + directory + " is in use");
+			}
+			this.lock = lock;
+			load();
+		} catch (IOException e) {
+			throw new StackExchangeApiException(e);
+		}
+	}
+
+	/**
+	 * Gets the directory.
+	 *
+	 * @return the directory
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Gets the max bytes.
+	 *
+	 * @return the max size of the segments in bytes
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Gets the segment size.
+	 *
+	 * @return the size of a segment in bytes
+	 */
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	/**
+	 * Gets the compaction threshold.
+	 *
+	 * @return the share of a sealed segment below which its responses are compacted
+	 */
+	public double getCompactionThreshold() {
+		return compactionThreshold;
+	}
+
+	/**
+	 * Sets the share of a sealed segment still holding cached responses below
+	 * which they are copied to the current segment and the segment deleted.
+	 * Segments are compacted when the current one is full.
+	 *
+	 * @param compactionThreshold the new compaction threshold, 0 to never compact
+	 */
+	public void setCompactionThreshold(double compactionThreshold) {
+		this.compactionThreshold = compactionThreshold;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.ResponseCache#get(java.lang.String)
+	 */
+	@Override
+	public byte[] get(String url) {
+		String key = DefaultApiUrlBuilder.getCanonicalUrl(url);
+		long now = System.currentTimeMillis();
+		Location location;
+		byte[] compressed;
+		synchronized (this) {
+			location = getLocation(key, now);
+			if (location == null || location.notFound || location.staleAt <= now) {
+				misses++;
+				return null;
+			}
+			hits++;
+			compressed = readContent(key, location);
+		}
+		return (compressed == null) ? null : inflate(key, location, compressed);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.ResponseCache#lookup(java.lang.String)
+	 */
+	@Override
+	public CachedResponse lookup(String url) {
+		String key = DefaultApiUrlBuilder.getCanonicalUrl(url);
+		long now = System.currentTimeMillis();
+		Location location;
+		byte[] compressed;
+		boolean stale;
+		boolean refreshNeeded = false;
+		synchronized (this) {
+			location = getLocation(key, now);
+			if (location == null) {
+				misses++;
+				return null;
+			}
+			stale = location.staleAt <= now;
+			if (stale) {
+				staleHits++;
+				refreshNeeded = isRefreshDue(location.refreshStarted, now);
+				if (refreshNeeded) {
+					location.refreshStarted = now;
+				}
+			} else {
+				hits++;
+			}
+			compressed = readContent(key, location);
+		}
+		if (compressed == null) {
+			return null;
+		}
+		byte[] content = inflate(key, location, compressed);
+		if (content == null) {
+			return null;
+		}
+		return location.notFound ? new CachedResponse(new String(content, UTF_8))
+				: new CachedResponse(content, stale, refreshNeeded);
+	}
+
+	/**
+	 * Gets the location of the response of a url, removing it if it expired.
+	 *
+	 * @param key the key
+	 * @param now the now
+	 *
+	 * @return the location, null if none
+	 */
+	private Location getLocation(String key, long now) {
+		Location location = index.get(key);
+		if (location != null && location.expires <= now) {
+			unindex(key);
+			location = null;
+		}
+		return location;
+	}
+
+	/**
+	 * Reads the compressed content of a response out of its segment, removing
+	 * the response if it cannot be read.
+	 *
+	 * @param key the key
+	 * @param location the location
+	 *
+	 * @return the compressed content, null if it cannot be read
+	 */
+	private byte[] readContent(String key, Location location) {
+		byte[] compressed = new byte[location.length - HEADER_SIZE - location.urlLength];
+		try {
+			read(location.segment, location.offset + HEADER_SIZE + location.urlLength, compressed);
+			return compressed;
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Dropping the unreadable response cached for " + key, e);
+			remove(key, location);
+			return null;
+		}
+	}
+
+	/**
+	 * Decompresses the content of a response, removing the response if it is
+	 * corrupt.
+	 *
+	 * @param key the key
+	 * @param location the location
+	 * @param compressed the compressed content
+	 *
+	 * @return the content, null if it is corrupt
+	 */
+	private byte[] inflate(String key, Location location, byte[] compressed) {
+		try {
+			return inflate(compressed, location.contentLength);
+		} catch (DataFormatException e) {
+			LOG.log(Level.WARNING, "Dropping the corrupt response cached for " + key, e);
+			synchronized (this) {
+				if (index.get(key) == location) {
+					remove(key, location);
+				}
+			}
+			return null;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.ResponseCache#put(java.lang.String, java.lang.String, byte[])
+	 */
+	@Override
+	public void put(String methodName, String url, byte[] content) {
+		String key = DefaultApiUrlBuilder.getCanonicalUrl(url);
+		put(key, content, getExpiry(methodName, content), LIVE);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.ResponseCache#putNotFound(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void putNotFound(String url, String message) {
+		String key = DefaultApiUrlBuilder.getCanonicalUrl(url);
+		put(key, (message == null) ? new byte[0] : message.getBytes(UTF_8), getNegativeExpiry(), NOT_FOUND);
+	}
+
+	/**
+	 * Appends a record and indexes it, compacting the segments if the
+	 * current one filled up.
+	 *
+	 * @param key the key
+	 * @param content the content
+	 * @param expiry the times the record goes stale and expires at, null to not cache it
+	 * @param state the state
+	 */
+	private void put(String key, byte[] content, long[] expiry, byte state) {
+		if (expiry == null) {
+			return;
+		}
+		byte[] record = newRecord(key, state, expiry[0], expiry[1], content);
+		if (record.length > segmentSize) {
+			return;
+		}
+		synchronized (this) {
+			if (closed) {
+				return;
+			}
+			try {
+				Segment current = getCurrentSegment();
+				index(key, append(record));
+				if (current != getCurrentSegment()) {
+					compact(compactionThreshold);
+				}
+			} catch (IOException e) {
+				LOG.log(Level.WARNING, "Could not cache the response of " + key, e);
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.ResponseCache#remove(java.lang.String)
+	 */
+	@Override
+	public synchronized void remove(String url) {
+		String key = DefaultApiUrlBuilder.getCanonicalUrl(url);
+		Location location = index.get(key);
+		if (location != null) {
+			remove(key, location);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.ResponseCache#clear()
+	 */
+	@Override
+	public synchronized void clear() {
+		index.clear();
+		for (Segment segment : new ArrayList<Segment>(segments)) {
+			delete(segment);
+		}
+	}
+
+	/**
+	 * Removes the expired responses from the index. Expired responses are
+	 * otherwise only removed when they are looked up, compacted or evicted.
+	 *
+	 * @return the number of responses removed
+	 */
+	public synchronized int purge() {
+		long now = System.currentTimeMillis();
+		int purged = 0;
+		for (Iterator<Location> iterator = index.values().iterator(); iterator.hasNext();) {
+			Location location = iterator.next();
+			if (location.expires <= now) {
+				iterator.remove();
+				location.segment.liveBytes -= location.length;
+				purged++;
+			}
+		}
+		return purged;
+	}
+
+	/**
+	 * Compacts every sealed segment that holds anything but cached responses.
+	 *
+	 * @return the number of segments deleted
+	 */
+	public synchronized int compact() {
+		if (closed) {
+			return 0;
+		}
+		try {
+			return compact(1.0);
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Could not compact the cache directory " + directory, e);
+			return 0;
+		}
+	}
+
+	/**
+	 * Writes the segments through to the disk, which otherwise happens when
+	 * the operating system chooses to.
+	 */
+	public synchronized void flush() {
+		for (Segment segment : segments) {
+			try {
+				segment.channel.force(false);
+			} catch (IOException e) {
+				LOG.log(Level.WARNING, "Could not flush the cache segment " + segment.file, e);
+			}
+		}
+	}
+
+	/**
+	 * Flushes and closes the segments and releases the directory. The cache
+	 * answers no further calls.
+	 */
+	public synchronized void close() {
+		if (closed) {
+			return;
+		}
+		flush();
+		closed = true;
+		index.clear();
+		for (Segment segment : segments) {
+			closeSegment(segment);
+		}
+		segments.clear();
+		try {
+			lock.release();
+			lockFile.close();
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Could not release the cache directory " + directory, e);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.ResponseCache#getStats()
+	 */
+	@Override
+	public synchronized ResponseCacheStats getStats() {
+		long bytes = 0;
+		for (Segment segment : segments) {
+			bytes += segment.liveBytes;
+		}
+		return new ResponseCacheStats(index.size(), bytes, hits, staleHits, misses, evicted);
+	}
+
+	/**
+	 * Loads the segments of the directory and indexes their responses.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void load() throws IOException {
+		TreeMap<Long, File> files = new TreeMap<Long, File>();
+		File[] children = directory.listFiles();
+		if (children != null) {
+			for (File file : children) {
+				String name = file.getName();
+				if (name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX)) {
+					try {
+						files.put(Long.valueOf(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), file);
+					} catch (NumberFormatException e) {
+						// not a segment
+					}
+				}
+			}
+		}
+		long now = System.currentTimeMillis();
+		for (Map.Entry<Long, File> file : files.entrySet()) {
+			Segment segment = openSegment(file.getKey(), file.getValue());
+			segments.add(segment);
+			scan(segment, now);
+		}
+		Segment current = getCurrentSegment();
+		if (current != null && current.position + HEADER_SIZE <= current.capacity
+				&& readHeader(current, current.position).getInt(OFFSET_LENGTH) != 0) {
+			// a torn record, appending over it could revive the records past it
+			roll();
+		}
+	}
+
+	/**
+	 * Indexes the responses of a segment, up to the first record that is
+	 * missing or torn. The last record of a url wins, so a url whose last
+	 * record was removed or expired is not cached even if an older record
+	 * of it is still marked live.
+	 *
+	 * @param segment the segment
+	 * @param now the now
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void scan(Segment segment, long now) throws IOException {
+		int capacity = segment.capacity;
+		int position = 0;
+		while (position + HEADER_SIZE <= capacity) {
+			ByteBuffer header = readHeader(segment, position);
+			int length = header.getInt(OFFSET_LENGTH);
+			if (length < HEADER_SIZE || length > capacity - position) {
+				break;
+			}
+			int urlLength = header.getInt(OFFSET_URL_LENGTH);
+			if (urlLength < 0 || urlLength > length - HEADER_SIZE) {
+				break;
+			}
+			byte[] record = new byte[length];
+			read(segment, position, record);
+			if (header.getInt(OFFSET_CHECKSUM) != checksum(record)) {
+				break;
+			}
+			long expires = header.getLong(OFFSET_EXPIRES);
+			byte state = header.get(OFFSET_STATE);
+			String key = new String(record, HEADER_SIZE, urlLength, UTF_8);
+			if ((state == LIVE || state == NOT_FOUND) && expires > now) {
+				index(key, new Location(segment, position, length, urlLength, header.getInt(OFFSET_CONTENT_LENGTH),
+						header.getLong(OFFSET_STALE_AT), expires, state == NOT_FOUND));
+			} else {
+				unindex(key);
+			}
+			position += length;
+		}
+		segment.position = position;
+	}
+
+	/**
+	 * Copies the responses of the sealed segments whose share of cached
+	 * responses is below the threshold to the current segment, and deletes
+	 * the segments.
+	 *
+	 * @param threshold the threshold
+	 *
+	 * @return the number of segments deleted
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private int compact(double threshold) throws IOException {
+		purge();
+		int compacted = 0;
+		List<Segment> sealed = new ArrayList<Segment>(segments);
+		sealed.remove(sealed.size() - 1);
+		for (Segment segment : sealed) {
+			if (!segments.contains(segment) || segment == getCurrentSegment()
+					|| (segment.position > 0 && segment.liveBytes >= threshold * segment.position)) {
+				continue;
+			}
+			List<Map.Entry<String, Location>> live = new ArrayList<Map.Entry<String, Location>>();
+			for (Map.Entry<String, Location> entry : index.entrySet()) {
+				if (entry.getValue().segment == segment) {
+					live.add(entry);
+				}
+			}
+			for (Map.Entry<String, Location> entry : live) {
+				Location location = entry.getValue();
+				if (index.get(entry.getKey()) != location) {
+					// evicted while compacting
+					continue;
+				}
+				byte[] record = new byte[location.length];
+				read(segment, location.offset, record);
+				index(entry.getKey(), append(record));
+			}
+			if (segments.contains(segment)) {
+				delete(segment);
+				compacted++;
+			}
+		}
+		return compacted;
+	}
+
+	/**
+	 * Appends a record to the current segment, starting the next one if it
+	 * does not fit.
+	 *
+	 * @param record the record
+	 *
+	 * @return the location of the record
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private Location append(byte[] record) throws IOException {
+		Segment segment = getCurrentSegment();
+		if (segment == null || segment.position + record.length > segment.capacity) {
+			segment = roll();
+		}
+		int offset = segment.position;
+		write(segment, offset + OFFSET_CHECKSUM, ByteBuffer.wrap(record, OFFSET_CHECKSUM, record.length - OFFSET_CHECKSUM));
+		// the length last, so that a record is not read before it is whole
+		write(segment, offset + OFFSET_LENGTH, ByteBuffer.wrap(record, OFFSET_LENGTH, 4));
+		segment.position += record.length;
+		ByteBuffer header = ByteBuffer.wrap(record);
+		return new Location(segment, offset, record.length, header.getInt(OFFSET_URL_LENGTH),
+				header.getInt(OFFSET_CONTENT_LENGTH), header.getLong(OFFSET_STALE_AT), header.getLong(OFFSET_EXPIRES),
+				header.get(OFFSET_STATE) == NOT_FOUND);
+	}
+
+	/**
+	 * Starts the next segment, dropping the oldest ones beyond the max bytes.
+	 *
+	 * @return the segment
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private Segment roll() throws IOException {
+		Segment current = getCurrentSegment();
+		long id = (current == null) ? 1 : current.id + 1;
+		Segment segment = openSegment(id, new File(directory, SEGMENT_PREFIX + id + SEGMENT_SUFFIX));
+		segments.add(segment);
+		while (segments.size() > 1 && (long) segments.size() * segmentSize > maxBytes) {
+			Segment eldest = segments.get(0);
+			for (Iterator<Location> iterator = index.values().iterator(); iterator.hasNext();) {
+				if (iterator.next().segment == eldest) {
+					iterator.remove();
+					evicted++;
+				}
+			}
+			delete(eldest);
+		}
+		return segment;
+	}
+
+	/**
+	 * Opens a segment file, sizing it to the segment size if it is new.
+	 *
+	 * @param id the id
+	 * @param file the file
+	 *
+	 * @return the segment
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private Segment openSegment(long id, File file) throws IOException {
+		RandomAccessFile segmentFile = new RandomAccessFile(file, "rw");
+		try {
+			if (segmentFile.length() == 0) {
+				segmentFile.setLength(segmentSize);
+			}
+			return new Segment(id, file, segmentFile.getChannel(), (int) Math.min(segmentFile.length(), Integer.MAX_VALUE));
+		} catch (IOException e) {
+			segmentFile.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes the channel of a segment.
+	 *
+	 * @param segment the segment
+	 */
+	private static void closeSegment(Segment segment) {
+		try {
+			segment.channel.close();
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Could not close the cache segment " + segment.file, e);
+		}
+	}
+
+	/**
+	 * Closes and deletes a segment.
+	 *
+	 * @param segment the segment
+	 */
+	private void delete(Segment segment) {
+		segments.remove(segment);
+		closeSegment(segment);
+		if (!segment.file.delete()) {
+			LOG.warning("Could not delete the cache segment " + segment.file);
+		}
+	}
+
+	/**
+	 * Reads bytes of a segment.
+	 *
+	 * @param segment the segment
+	 * @param position the position in the segment
+	 * @param bytes the bytes to fill
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void read(Segment segment, long position, byte[] bytes) throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		while (buffer.hasRemaining()) {
+			if (segment.channel.read(buffer, position + buffer.position()) < 0) {
+				throw new IOException("The cache segment " + segment.file + " ends before " + (position + bytes.length));
+			}
+		}
+	}
+
+	/**
+	 * Reads the header of a record.
+	 *
+	 * @param segment the segment
+	 * @param offset the offset of the record
+	 *
+	 * @return the header
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static ByteBuffer readHeader(Segment segment, int offset) throws IOException {
+		byte[] header = new byte[HEADER_SIZE];
+		read(segment, offset, header);
+		return ByteBuffer.wrap(header);
+	}
+
+	/**
+	 * Writes bytes to a segment.
+	 *
+	 * @param segment the segment
+	 * @param position the position in the segment
+	 * @param buffer the bytes to write
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void write(Segment segment, long position, ByteBuffer buffer) throws IOException {
+		long offset = position - buffer.position();
+		while (buffer.hasRemaining()) {
+			segment.channel.write(buffer, offset + buffer.position());
+		}
+	}
+
+	/**
+	 * Gets the segment written to.
+	 *
+	 * @return the current segment, null if there is none
+	 */
+	private Segment getCurrentSegment() {
+		return segments.isEmpty() ? null : segments.get(segments.size() - 1);
+	}
+
+	/**
+	 * Indexes a response, replacing the one cached before for its url. The
+	 * record replaced is marked removed, so that it is not loaded again.
+	 *
+	 * @param key the key
+	 * @param location the location
+	 */
+	private void index(String key, Location location) {
+		Location old = index.put(key, location);
+		if (old != null) {
+			old.segment.liveBytes -= old.length;
+			markRemoved(old);
+		}
+		location.segment.liveBytes += location.length;
+	}
+
+	/**
+	 * Removes a response from the index.
+	 *
+	 * @param key the key
+	 */
+	private void unindex(String key) {
+		Location location = index.remove(key);
+		if (location != null) {
+			location.segment.liveBytes -= location.length;
+		}
+	}
+
+	/**
+	 * Removes a response, marking its record so that it is not loaded again.
+	 *
+	 * @param key the key
+	 * @param location the location
+	 */
+	private void remove(String key, Location location) {
+		unindex(key);
+		markRemoved(location);
+	}
+
+	/**
+	 * Marks the record of a response removed in its segment.
+	 *
+	 * @param location the location
+	 */
+	private void markRemoved(Location location) {
+		if (!location.segment.channel.isOpen()) {
+			// deleted, nothing left to load
+			return;
+		}
+		try {
+			write(location.segment, location.offset + OFFSET_STATE, ByteBuffer.wrap(new byte[] {REMOVED}));
+		} catch (IOException e) {
+			LOG.log(Level.WARNING, "Could not mark the record at " + location.offset + " of " + location.segment.file + " removed", e);
+		}
+	}
+
+	/**
+	 * Creates the record of a response.
+	 *
+	 * @param key the key
+	 * @param state the state
+	 * @param staleAt the stale at
+	 * @param expires the expires
+	 * @param content the content
+	 *
+	 * @return the record
+	 */
+	private static byte[] newRecord(String key, byte state, long staleAt, long expires, byte[] content) {
+		byte[] url = key.getBytes(UTF_8);
+		byte[] compressed = deflate(content);
+		byte[] record = new byte[HEADER_SIZE + url.length + compressed.length];
+		ByteBuffer buffer = ByteBuffer.wrap(record);
+		buffer.putInt(OFFSET_LENGTH, record.length);
+		buffer.put(OFFSET_STATE, state);
+		buffer.putLong(OFFSET_EXPIRES, expires);
+		buffer.putLong(OFFSET_STALE_AT, staleAt);
+		buffer.putInt(OFFSET_CONTENT_LENGTH, content.length);
+		buffer.putInt(OFFSET_URL_LENGTH, url.length);
+		System.arraycopy(url, 0, record, HEADER_SIZE, url.length);
+		System.arraycopy(compressed, 0, record, HEADER_SIZE + url.length, compressed.length);
+		buffer.putInt(OFFSET_CHECKSUM, checksum(record));
+		return record;
+	}
+
+	/**
+	 * Computes the checksum of a record from its expiry on.
+	 *
+	 * @param record the record
+	 *
+	 * @return the checksum
+	 */
+	private static int checksum(byte[] record) {
+		CRC32 crc = new CRC32();
+		crc.update(record, OFFSET_EXPIRES, record.length - OFFSET_EXPIRES);
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Compresses content.
+	 *
+	 * @param content the content
+	 *
+	 * @return the compressed content
+	 */
+	private static byte[] deflate(byte[] content) {
+		Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+		try {
+			deflater.setInput(content);
+			deflater.finish();
+			ByteArrayOutputStream out = new ByteArrayOutputStream(content.length / 4 + 64);
+			byte[] chunk = new byte[8192];
+			while (!deflater.finished()) {
+				out.write(chunk, 0, deflater.deflate(chunk));
+			}
+			return out.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	/**
+	 * Decompresses content.
+	 *
+	 * @param compressed the compressed content
+	 * @param length the length of the content
+	 *
+	 * @return the content
+	 *
+	 * @throws DataFormatException if the compressed content is corrupt
+	 */
+	private static byte[] inflate(byte[] compressed, int length) throws DataFormatException {
+		Inflater inflater = new Inflater();
+		try {
+			inflater.setInput(compressed);
+			byte[] content = new byte[length];
+			int read = 0;
+			while (read < length) {
+				int count = inflater.inflate(content, read, length - read);
+				if (count == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+					throw new DataFormatException("The content ends after " + read + " of " + length + " bytes");
+				}
+				read += count;
+			}
+			return content;
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * The Class Segment.
+	 *
+	 * A segment file and its channel.
+	 */
+	private static class Segment {
+
+		/** The id, increasing with the age of the segments. */
+		final long id;
+
+		/** The file. */
+		final File file;
+
+		/** The channel. */
+		final FileChannel channel;
+
+		/** The size of the file. */
+		final int capacity;
+
+		/** The offset past the last record. */
+		int position;
+
+		/** The size of the records of cached responses. */
+		long liveBytes;
+
+		/**
+		 * Instantiates a new segment.
+		 *
+		 * @param id the id
+		 * @param file the file
+		 * @param channel the channel
+		 * @param capacity the size of the file
+		 */
+		Segment(long id, File file, FileChannel channel, int capacity) {
+			this.id = id;
+			this.file = file;
+			this.channel = channel;
+			this.capacity = capacity;
+		}
+	}
+
+	/**
+	 * The Class Location.
+	 *
+	 * The record of a cached response.
+	 */
+	private static class Location {
+
+		/** The segment. */
+		final Segment segment;
+
+		/** The offset. */
+		final int offset;
+
+		/** The length. */
+		final int length;
+
+		/** The url length. */
+		final int urlLength;
+
+		/** The length of the uncompressed content. */
+		final int contentLength;
+
+		/** The time in milliseconds since the epoch the response goes stale at. */
+		final long staleAt;
+
+		/** The time in milliseconds since the epoch the response expires at. */
+		final long expires;
+
+		/** Whether the url was not found. */
+		final boolean notFound;
+
+		/** The time the last refresh was handed out at, 0 if none was. */
+		long refreshStarted;
+
+		/**
+		 * Instantiates a new location.
+		 *
+		 * @param segment the segment
+		 * @param offset the offset
+		 * @param length the length
+		 * @param urlLength the url length
+		 * @param contentLength the content length
+		 * @param staleAt the stale at
+		 * @param expires the expires
+		 * @param notFound whether the url was not found
+		 */
+		Location(Segment segment, int offset, int length, int urlLength, int contentLength, long staleAt, long expires,
+				boolean notFound) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+			this.urlLength = urlLength;
+			this.contentLength = contentLength;
+			this.staleAt = staleAt;
+			this.expires = expires;
+			this.notFound = notFound;
+		}
+	}
+}
@@ -0,0 +1,302 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.cache.impl;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.code.stackexchange.client.cache.EntityCache;
+import com.google.code.stackexchange.client.cache.EntityCacheStats;
+
+/**
+ * The Class InMemoryEntityCache.
+ *
+ * An entity cache on the heap. Each entity is kept for the time to live of
+ * its type, or for the default time to live if none was set for the type,
+ * and at most a number of entities are kept by dropping the least recently
+ * used ones.
+ */
+public class InMemoryEntityCache implements EntityCache {
+
+	/** The Constant DEFAULT_MAX_ENTRIES. */
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	/** The Constant DEFAULT_TIME_TO_LIVE. */
+	public static final long DEFAULT_TIME_TO_LIVE = 60000L;
+
+	/** The max entries. */
+	private final int maxEntries;
+
+	/** The time to live of the types without one of their own. */
+	private volatile long defaultTimeToLive = DEFAULT_TIME_TO_LIVE;
+
+	/** The times to live keyed by type. */
+	private final ConcurrentMap<Class<?>, Long> timesToLive = new ConcurrentHashMap<Class<?>, Long>();
+
+	/** The entries, least recently used first. */
+	private final LinkedHashMap<Key, Entry> entries = new LinkedHashMap<Key, Entry>(64, 0.75f, true);
+
+	/** The views of the entries, so that equal views are kept once. */
+	private final Map<String, String> views = new HashMap<String, String>();
+
+	/** The hits. */
+	private long hits;
+
+	/** The misses. */
+	private long misses;
+
+	/** The evicted. */
+	private long evicted;
+
+	/**
+	 * Instantiates a new in memory entity cache with the default size.
+	 */
+	public InMemoryEntityCache() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Instantiates a new in memory entity cache.
+	 *
+	 * @param maxEntries the max number of cached entities
+	 */
+	public InMemoryEntityCache(int maxEntries) {
+		if (maxEntries <= 0) {
+			throw new IllegalArgumentException("The max entries must be positive: " + maxEntries);
+		}
+		this.maxEntries = maxEntries;
+	}
+
+	/**
+	 * Gets the max entries.
+	 *
+	 * @return the max number of cached entities
+	 */
+	public int getMaxEntries() {
+		return maxEntries;
+	}
+
+	/**
+	 * Gets the default time to live.
+	 *
+	 * @return the time to live of the types without one of their own in milliseconds
+	 */
+	public long getDefaultTimeToLive() {
+		return defaultTimeToLive;
+	}
+
+	/**
+	 * Sets the time to live of the types without one of their own.
+	 *
+	 * @param defaultTimeToLive the new default time to live in milliseconds, 0 to not cache them
+	 */
+	public void setDefaultTimeToLive(long defaultTimeToLive) {
+		this.defaultTimeToLive = defaultTimeToLive;
+	}
+
+	/**
+	 * Gets the time to live of an entity type.
+	 *
+	 * @param type the type
+	 *
+	 * @return the time to live in milliseconds
+	 */
+	public long getTimeToLive(Class<?> type) {
+		Long timeToLive = timesToLive.get(type);
+		return (timeToLive == null) ? defaultTimeToLive : timeToLive.longValue();
+	}
+
+	/**
+	 * Sets the time to live of an entity type, e.g.
+	 * {@link com.google.code.stackexchange.schema.User}. Entities cached
+	 * before keep their time to live.
+	 *
+	 * @param type the type
+	 * @param timeToLive the time to live in milliseconds, 0 to not cache the type
+	 */
+	public void setTimeToLive(Class<?> type, long timeToLive) {
+		timesToLive.put(type, timeToLive);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.EntityCache#get(java.lang.Class, java.lang.String, long)
+	 */
+	@Override
+	public <T> T get(Class<T> type, String view, long id) {
+		Key key = new Key(type, view, id);
+		long now = System.currentTimeMillis();
+		synchronized (entries) {
+			Entry entry = entries.get(key);
+			if (entry != null && entry.expires <= now) {
+				entries.remove(key);
+				entry = null;
+			}
+			if (entry == null) {
+				misses++;
+				return null;
+			}
+			hits++;
+			return type.cast(entry.entity);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.EntityCache#put(java.lang.Class, java.lang.String, long, java.lang.Object)
+	 */
+	@Override
+	public <T> void put(Class<T> type, String view, long id, T entity) {
+		long timeToLive = getTimeToLive(type);
+		if (timeToLive <= 0) {
+			return;
+		}
+		Entry entry = new Entry(entity, System.currentTimeMillis() + timeToLive);
+		synchronized (entries) {
+			String sharedView = views.get(view);
+			if (sharedView == null) {
+				views.put(view, view);
+				sharedView = view;
+			}
+			entries.put(new Key(type, sharedView, id), entry);
+			Iterator<Entry> iterator = entries.values().iterator();
+			while (entries.size() > maxEntries) {
+				iterator.next();
+				iterator.remove();
+				evicted++;
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.EntityCache#clear()
+	 */
+	@Override
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+			views.clear();
+		}
+	}
+
+	/**
+	 * Removes the expired entities. Expired entities are otherwise only
+	 * removed when they are looked up or evicted.
+	 *
+	 * @return the number of entities removed
+	 */
+	public int purge() {
+		long now = System.currentTimeMillis();
+		int purged = 0;
+		synchronized (entries) {
+			for (Iterator<Entry> iterator = entries.values().iterator(); iterator.hasNext();) {
+				if (iterator.next().expires <= now) {
+					iterator.remove();
+					purged++;
+				}
+			}
+		}
+		return purged;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.EntityCache#getStats()
+	 */
+	@Override
+	public EntityCacheStats getStats() {
+		synchronized (entries) {
+			return new EntityCacheStats(entries.size(), hits, misses, evicted);
+		}
+	}
+
+	/**
+	 * The Class Key.
+	 *
+	 * The type, view and id of a cached entity.
+	 */
+	private static class Key {
+
+		/** The type. */
+		final Class<?> type;
+
+		/** The view. */
+		final String view;
+
+		/** The id. */
+		final long id;
+
+		/**
+		 * Instantiates a new key.
+		 *
+		 * @param type the type
+		 * @param view the view
+		 * @param id the id
+		 */
+		Key(Class<?> type, String view, long id) {
+			this.type = type;
+			this.view = view;
+			this.id = id;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#hashCode()
+		 */
+		@Override
+		public int hashCode() {
+			return (int) (id ^ (id >>> 32)) * 31 + view.hashCode() * 17 + type.hashCode();
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#equals(java.lang.Object)
+		 */
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return id == other.id && type == other.type && view.equals(other.view);
+		}
+	}
+
+	/**
+	 * The Class Entry.
+	 *
+	 * A cached entity.
+	 */
+	private static class Entry {
+
+		/** The entity. */
+		final Object entity;
+
+		/** The time in milliseconds since the epoch the entity expires at. */
+		final long expires;
+
+		/**
+		 * Instantiates a new entry.
+		 *
+		 * @param entity the entity
+		 * @param expires the expires
+		 */
+		Entry(Object entity, long expires) {
+			this.entity = entity;
+			this.expires = expires;
+		}
+	}
+}
@@ -0,0 +1,333 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.cache.impl;
+
+import java.io.UnsupportedEncodingException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.code.stackexchange.client.cache.CachedResponse;
+import com.google.code.stackexchange.client.cache.ResponseCacheStats;
+import com.google.code.stackexchange.client.provider.url.DefaultApiUrlBuilder;
+
+/**
+ * The Class InMemoryResponseCache.
+ *
+ * A response cache on the heap. The cached responses, counting their
+ * content and url, are kept within a number of bytes by dropping the least
+ * recently used ones.
+ */
+public class InMemoryResponseCache extends AbstractResponseCache {
+
+	/** The Constant DEFAULT_MAX_BYTES. */
+	public static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+	/** The max bytes. */
+	private final long maxBytes;
+
+	/** The entries keyed by canonical url, least recently used first. */
+	private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(64, 0.75f, true);
+
+	/** The size of the entries. */
+	private long bytes;
+
+	/** The hits. */
+	private long hits;
+
+	/** The stale hits. */
+	private long staleHits;
+
+	/** The misses. */
+	private long misses;
+
+	/** The evicted. */
+	private long evicted;
+
+	/**
+	 * Instantiates a new in memory response cache with the default size.
+	 */
+	public InMemoryResponseCache() {
+		this(DEFAULT_MAX_BYTES);
+	}
+
+	/**
+	 * Instantiates a new in memory response cache.
+	 *
+	 * @param maxBytes the max size of the cached responses in bytes
+	 */
+	public InMemoryResponseCache(long maxBytes) {
+		if (maxBytes <= 0) {
+			throw new IllegalArgumentException("The max bytes must be positive: " + maxBytes);
+		}
+		this.maxBytes = maxBytes;
+	}
+
+	/**
+	 * Gets the max bytes.
+	 *
+	 * @return the max size of the cached responses in bytes
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.ResponseCache#get(java.lang.String)
+	 */
+	@Override
+	public byte[] get(String url) {
+		String key = DefaultApiUrlBuilder.getCanonicalUrl(url);
+		long now = System.currentTimeMillis();
+		synchronized (entries) {
+			Entry entry = getEntry(key, now);
+			if (entry == null || entry.notFound || entry.staleAt <= now) {
+				misses++;
+				return null;
+			}
+			hits++;
+			return entry.content;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.ResponseCache#lookup(java.lang.String)
+	 */
+	@Override
+	public CachedResponse lookup(String url) {
+		String key = DefaultApiUrlBuilder.getCanonicalUrl(url);
+		long now = System.currentTimeMillis();
+		synchronized (entries) {
+			Entry entry = getEntry(key, now);
+			if (entry == null) {
+				misses++;
+				return null;
+			}
+			if (entry.notFound) {
+				hits++;
+				return new CachedResponse(decode(entry.content));
+			}
+			if (entry.staleAt > now) {
+				hits++;
+				return new CachedResponse(entry.content, false, false);
+			}
+			staleHits++;
+			boolean refreshNeeded = isRefreshDue(entry.refreshStarted, now);
+			if (refreshNeeded) {
+				entry.refreshStarted = now;
+			}
+			return new CachedResponse(entry.content, true, refreshNeeded);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.ResponseCache#put(java.lang.String, java.lang.String, byte[])
+	 */
+	@Override
+	public void put(String methodName, String url, byte[] content) {
+		String key = DefaultApiUrlBuilder.getCanonicalUrl(url);
+		put(key, content, getExpiry(methodName, content), false);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.ResponseCache#putNotFound(java.lang.String, java.lang.String)
+	 */
+	@Override
+	public void putNotFound(String url, String message) {
+		String key = DefaultApiUrlBuilder.getCanonicalUrl(url);
+		put(key, encode(message), getNegativeExpiry(), true);
+	}
+
+	/**
+	 * Caches an entry, evicting the least recently used ones beyond the max
+	 * bytes.
+	 *
+	 * @param key the key
+	 * @param content the content
+	 * @param expiry the times the entry goes stale and expires at, null to not cache it
+	 * @param notFound whether the content is the message of a not found error
+	 */
+	private void put(String key, byte[] content, long[] expiry, boolean notFound) {
+		if (expiry == null || content.length + key.length() > maxBytes) {
+			return;
+		}
+		Entry entry = new Entry(content, key.length(), expiry[0], expiry[1], notFound);
+		synchronized (entries) {
+			Entry old = entries.put(key, entry);
+			if (old != null) {
+				bytes -= old.size;
+			}
+			bytes += entry.size;
+			Iterator<Entry> iterator = entries.values().iterator();
+			while (bytes > maxBytes) {
+				Entry eldest = iterator.next();
+				iterator.remove();
+				bytes -= eldest.size;
+				evicted++;
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.ResponseCache#remove(java.lang.String)
+	 */
+	@Override
+	public void remove(String url) {
+		String key = DefaultApiUrlBuilder.getCanonicalUrl(url);
+		synchronized (entries) {
+			Entry entry = entries.remove(key);
+			if (entry != null) {
+				bytes -= entry.size;
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.ResponseCache#clear()
+	 */
+	@Override
+	public void clear() {
+		synchronized (entries) {
+			entries.clear();
+			bytes = 0;
+		}
+	}
+
+	/**
+	 * Encodes the message of a not found error.
+	 *
+	 * @param message the message
+	 *
+	 * @return the bytes
+	 */
+	private static byte[] encode(String message) {
+		try {
+			return (message == null) ? new byte[0] : message.getBytes("UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Decodes the message of a not found error.
+	 *
+	 * @param bytes the bytes
+	 *
+	 * @return the message
+	 */
+	private static String decode(byte[] bytes) {
+		try {
+			return new String(bytes, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * Gets the entry of a url, removing it if it expired. The caller holds
+	 * the lock of the entries.
+	 *
+	 * @param key the key
+	 * @param now the now
+	 *
+	 * @return the entry, null if none
+	 */
+	private Entry getEntry(String key, long now) {
+		Entry entry = entries.get(key);
+		if (entry != null && entry.expires <= now) {
+			entries.remove(key);
+			bytes -= entry.size;
+			entry = null;
+		}
+		return entry;
+	}
+
+	/**
+	 * Removes the expired responses. Expired responses are otherwise only
+	 * removed when they are looked up or evicted.
+	 *
+	 * @return the number of responses removed
+	 */
+	public int purge() {
+		long now = System.currentTimeMillis();
+		int purged = 0;
+		synchronized (entries) {
+			for (Iterator<Map.Entry<String, Entry>> iterator = entries.entrySet().iterator(); iterator.hasNext();) {
+				Entry entry = iterator.next().getValue();
+				if (entry.expires <= now) {
+					iterator.remove();
+					bytes -= entry.size;
+					purged++;
+				}
+			}
+		}
+		return purged;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.cache.ResponseCache#getStats()
+	 */
+	@Override
+	public ResponseCacheStats getStats() {
+		synchronized (entries) {
+			return new ResponseCacheStats(entries.size(), bytes, hits, staleHits, misses, evicted);
+		}
+	}
+
+	/**
+	 * The Class Entry.
+	 *
+	 * A cached response.
+	 */
+	private static class Entry {
+
+		/** The content, or the message of a not found error. */
+		final byte[] content;
+
+		/** Whether the url was not found. */
+		final boolean notFound;
+
+		/** The size, counting the content and the url. */
+		final long size;
+
+		/** The time in milliseconds since the epoch the content goes stale at. */
+		final long staleAt;
+
+		/** The time in milliseconds since the epoch the content expires at. */
+		final long expires;
+
+		/** The time the last refresh was handed out at, 0 if none was. */
+		long refreshStarted;
+
+		/**
+		 * Instantiates a new entry.
+		 *
+		 * @param content the content
+		 * @param urlLength the url length
+		 * @param staleAt the stale at
+		 * @param expires the expires
+		 * @param notFound whether the url was not found
+		 */
+		Entry(byte[] content, int urlLength, long staleAt, long expires, boolean notFound) {
+			this.content = content;
+			this.notFound = notFound;
+			this.size = content.length + urlLength;
+			this.staleAt = staleAt;
+			this.expires = expires;
+		}
+	}
+}
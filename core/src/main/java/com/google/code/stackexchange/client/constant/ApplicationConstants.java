@@ -66,6 +66,27 @@ public final class ApplicationConstants {
     /** The Constant READ_TIMEOUT. */
     public static final int READ_TIMEOUT = getIntProperty("com.google.code.stackexchange.client.readTimeout");
     
+    /** The Constant FIRST_BYTE_TIMEOUT. */
+    public static final int FIRST_BYTE_TIMEOUT = getIntProperty("com.google.code.stackexchange.client.firstByteTimeout");
+    
+    /** The Constant REQUEST_TIMEOUT. */
+    public static final long REQUEST_TIMEOUT = getLongProperty("com.google.code.stackexchange.client.requestTimeout");
+    
+    /** The Constant MAX_CONNECTIONS_PER_HOST. */
+    public static final int MAX_CONNECTIONS_PER_HOST = getIntProperty("com.google.code.stackexchange.client.maxConnectionsPerHost");
+    
+    /** The Constant CONNECTION_MAX_IDLE_TIME. */
+    public static final long CONNECTION_MAX_IDLE_TIME = getLongProperty("com.google.code.stackexchange.client.connectionMaxIdleTime");
+    
+    /** The Constant CONNECTION_REQUEST_TIMEOUT. */
+    public static final long CONNECTION_REQUEST_TIMEOUT = getLongProperty("com.google.code.stackexchange.client.connectionRequestTimeout");
+    
+    /** The Constant QUOTA_WINDOW. */
+    public static final long QUOTA_WINDOW = getLongProperty("com.google.code.stackexchange.client.quotaWindow");
+    
+    /** The Constant MAX_QUOTA_WAIT. */
+    public static final long MAX_QUOTA_WAIT = getLongProperty("com.google.code.stackexchange.client.maxQuotaWait");
+    
     /** The Constant MAX_RATE_LIMIT_HEADER. */
     public static final String MAX_RATE_LIMIT_HEADER = getProperty("com.google.code.stackexchange.client.maxRateLimitHeader");
 
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.exception;
+
+import java.net.HttpURLConnection;
+import java.util.Date;
+
+/**
+ * The Class CircuitOpenException.
+ *
+ * Thrown without calling the server while the circuit breaker of its host is
+ * open.
+ */
+public class CircuitOpenException extends StackExchangeApiException {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = -2637581162350581309L;
+
+	/**
+	 * Instantiates a new circuit open exception.
+	 */
+	public CircuitOpenException() {
+		super();
+	}
+
+	/**
+	 * Instantiates a new circuit open exception.
+	 * 
+	 * @param message the message
+	 */
+	public CircuitOpenException(String message) {
+		super(message);
+	}
+
+	/**
+	 * Instantiates a new circuit open exception.
+	 * 
+	 * @param cause the cause
+	 */
+	public CircuitOpenException(Throwable cause) {
+		super(cause);
+	}
+
+	/**
+	 * Instantiates a new circuit open exception.
+	 * 
+	 * @param message the message
+	 * @param cause the cause
+	 */
+	public CircuitOpenException(String message, Throwable cause) {
+		super(message, cause);
+	}
+
+	/**
+	 * Instantiates a new circuit open exception.
+	 * 
+	 * @param message the message
+	 * @param statusCode the status code
+	 * @param errorCode the error code
+	 * @param timestamp the timestamp
+	 */
+	public CircuitOpenException(String message, int statusCode, int errorCode,
+			Date timestamp) {
+		super(message, statusCode, errorCode, timestamp);
+	}
+	
+	/**
+	 * Instantiates a new circuit open exception.
+	 * 
+	 * @param message the message
+	 * @param timestamp the timestamp
+	 */
+	public CircuitOpenException(String message, Date timestamp) {
+		super(message, HttpURLConnection.HTTP_UNAVAILABLE, 0, timestamp);
+	}
+}
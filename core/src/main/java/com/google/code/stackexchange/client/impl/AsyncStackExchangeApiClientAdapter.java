@@ -24,8 +24,11 @@ import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 
 import com.google.code.stackexchange.client.AsyncStackExchangeApiClient;
+import com.google.code.stackexchange.client.ClientConfiguration;
+import com.google.code.stackexchange.client.RateLimit;
 import com.google.code.stackexchange.client.StackExchangeApiClient;
 import com.google.code.stackexchange.client.provider.ApiProvider;
+import com.google.code.stackexchange.client.transport.HttpTransport;
 import com.google.code.stackexchange.schema.Answer;
 import com.google.code.stackexchange.schema.Badge;
 import com.google.code.stackexchange.schema.Comment;
@@ -153,6 +156,22 @@ public class AsyncStackExchangeApiClientAdapter implements AsyncStackExchangeApi
 		client.setApiProvider(apiProvider);
 	}
 
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.StackExchangeCommunicationClient#getHttpTransport()
+	 */
+	@Override
+	public HttpTransport getHttpTransport() {
+		return client.getHttpTransport();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.StackExchangeCommunicationClient#setHttpTransport(com.google.code.stackexchange.client.transport.HttpTransport)
+	 */
+	@Override
+	public void setHttpTransport(HttpTransport httpTransport) {
+		client.setHttpTransport(httpTransport);
+	}
+
 	/* (non-Javadoc)
 	 * @see com.google.code.stackexchange.client.AsyncStackOverflowApiClient#getAnswers(long[])
 	 */
@@ -1210,6 +1229,30 @@ public class AsyncStackExchangeApiClientAdapter implements AsyncStackExchangeApi
 		return client.getMaxRateLimit();
 	}
 
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.StackExchangeCommunicationClient#getRateLimit()
+	 */
+	@Override
+	public RateLimit getRateLimit() {
+		return client.getRateLimit();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.StackExchangeCommunicationClient#setConfiguration(com.google.code.stackexchange.client.ClientConfiguration)
+	 */
+	@Override
+	public void setConfiguration(ClientConfiguration configuration) {
+		client.setConfiguration(configuration);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.StackExchangeCommunicationClient#getConfiguration()
+	 */
+	@Override
+	public ClientConfiguration getConfiguration() {
+		return client.getConfiguration();
+	}
+
 	/* (non-Javadoc)
 	 * @see com.google.code.stackexchange.client.AsyncStackOverflowApiClient#getAnswersByQuestions(long[])
 	 */
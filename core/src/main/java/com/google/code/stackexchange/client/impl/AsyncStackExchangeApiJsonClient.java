@@ -0,0 +1,706 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.Date;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import com.google.code.stackexchange.client.cache.CachedResponse;
+import com.google.code.stackexchange.client.cache.ResponseCache;
+import com.google.code.stackexchange.client.constant.StackExchangeApiMethods;
+import com.google.code.stackexchange.client.exception.NotFoundException;
+import com.google.code.stackexchange.client.exception.StackExchangeApiException;
+import com.google.code.stackexchange.client.provider.url.ApiUrlBuilder;
+import com.google.code.stackexchange.client.transport.AsyncHttpTransport;
+import com.google.code.stackexchange.client.transport.HttpRequest;
+import com.google.code.stackexchange.client.transport.HttpResponse;
+import com.google.code.stackexchange.client.transport.HttpResponseCallback;
+import com.google.code.stackexchange.client.transport.HttpTransport;
+import com.google.code.stackexchange.client.transport.impl.NioHttpTransport;
+import com.google.code.stackexchange.common.PagedArrayList;
+import com.google.code.stackexchange.common.PagedList;
+import com.google.code.stackexchange.schema.Revision;
+
+/**
+ * The Class AsyncStackExchangeApiJsonClient.
+ *
+ * An asynchronous client whose requests are sent by an
+ * {@link AsyncHttpTransport}. Unlike {@link AsyncStackExchangeApiClientAdapter}
+ * no thread waits for the network: the api url is built on the calling
+ * thread, the transport completes the exchange from its I/O thread and only
+ * the parsing of the response runs on the task executor.
+ *
+ * If the http transport is replaced by a blocking one, requests fall back to
+ * running on the task executor.
+ */
+public class AsyncStackExchangeApiJsonClient extends AsyncStackExchangeApiClientAdapter {
+
+	/** The default transport, shared by all instances. */
+	private static AsyncHttpTransport defaultHttpTransport;
+
+	/** The timer that sends the requests waiting for quota or a retry, shared by all instances. */
+	private static Timer delayTimer;
+
+	/** The client that builds the api urls. */
+	private final DeferredJsonClient client;
+
+	/** The task executor. */
+	private final ExecutorService taskExecutor;
+
+	/**
+	 * Instantiates a new async stack exchange api json client.
+	 *
+	 * @param applicationKey the application key
+	 * @param taskExecutor the executor used to parse responses
+	 */
+	public AsyncStackExchangeApiJsonClient(String applicationKey, ExecutorService taskExecutor) {
+		this(new DeferredJsonClient(applicationKey), taskExecutor);
+	}
+
+	/**
+	 * Instantiates a new async stack exchange api json client.
+	 *
+	 * @param applicationKey the application key
+	 * @param apiVersion the api version
+	 * @param taskExecutor the executor used to parse responses
+	 */
+	public AsyncStackExchangeApiJsonClient(String applicationKey, String apiVersion, ExecutorService taskExecutor) {
+		this(new DeferredJsonClient(applicationKey, apiVersion), taskExecutor);
+	}
+
+	/**
+	 * Instantiates a new async stack exchange api json client.
+	 *
+	 * @param client the client
+	 * @param taskExecutor the task executor
+	 */
+	private AsyncStackExchangeApiJsonClient(DeferredJsonClient client, ExecutorService taskExecutor) {
+		super(client, taskExecutor);
+		this.client = client;
+		this.taskExecutor = taskExecutor;
+		client.setHttpTransport(getDefaultHttpTransport());
+	}
+
+	/**
+	 * Gets the default http transport.
+	 *
+	 * @return the default http transport
+	 */
+	private static synchronized AsyncHttpTransport getDefaultHttpTransport() {
+		if (defaultHttpTransport == null) {
+			defaultHttpTransport = new NioHttpTransport();
+		}
+		return defaultHttpTransport;
+	}
+
+	/**
+	 * Gets the timer that sends requests held back by the quota scheduler or
+	 * waiting for a retry.
+	 *
+	 * @return the delay timer
+	 */
+	private static synchronized Timer getDelayTimer() {
+		if (delayTimer == null) {
+			delayTimer = new Timer("stackexchange-request-scheduler", true);
+		}
+		return delayTimer;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.impl.AsyncStackExchangeApiClientAdapter#execute(java.util.concurrent.Callable)
+	 */
+	@Override
+	protected <T> Future<T> execute(Callable<T> task) {
+		ResponseFuture<T> future = new ResponseFuture<T>();
+		try {
+			T result = task.call();
+			if (result instanceof DeferredList<?>) {
+				client.fetch((DeferredList<?>) result, false, future, taskExecutor);
+			} else {
+				future.set(result);
+			}
+		} catch (Exception e) {
+			future.setException(e);
+		}
+		return future;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.impl.AsyncStackExchangeApiClientAdapter#getRevisionForPost(long, java.lang.String)
+	 */
+	@Override
+	public Future<Revision> getRevisionForPost(long postId, String revisionGuid) {
+		ResponseFuture<Revision> future = new ResponseFuture<Revision>();
+		try {
+			client.fetch(client.deferRevisionForPost(postId, revisionGuid), true, future, taskExecutor);
+		} catch (RuntimeException e) {
+			future.setException(e);
+		}
+		return future;
+	}
+
+	/**
+	 * The Class DeferredJsonClient.
+	 *
+	 * A json client whose api methods only build the url. Each method returns
+	 * a {@link DeferredList} naming the url and the element type, which is
+	 * then fetched without blocking.
+	 */
+	private static class DeferredJsonClient extends StackExchangeApiJsonClient {
+
+		/**
+		 * Instantiates a new deferred json client.
+		 *
+		 * @param applicationKey the application key
+		 */
+		DeferredJsonClient(String applicationKey) {
+			super(applicationKey);
+		}
+
+		/**
+		 * Instantiates a new deferred json client.
+		 *
+		 * @param applicationKey the application key
+		 * @param apiVersion the api version
+		 */
+		DeferredJsonClient(String applicationKey, String apiVersion) {
+			super(applicationKey, apiVersion);
+		}
+
+		/* (non-Javadoc)
+		 * @see com.google.code.stackexchange.client.impl.StackExchangeApiGateway#callApiMethod(java.lang.String, java.lang.String)
+		 */
+		@Override
+		protected InputStream callApiMethod(String methodName, String apiUrl) {
+			return new DeferredContent(methodName, apiUrl);
+		}
+
+		/* (non-Javadoc)
+		 * @see com.google.code.stackexchange.client.impl.StackExchangeApiJsonClient#unmarshallList(java.lang.Class, java.io.InputStream)
+		 */
+		@Override
+		protected <T> PagedList<T> unmarshallList(Class<T> clazz, InputStream jsonContent) {
+			if (jsonContent instanceof DeferredContent) {
+				DeferredContent content = (DeferredContent) jsonContent;
+				return new DeferredList<T>(clazz, content.methodName, content.apiUrl);
+			}
+			return super.unmarshallList(clazz, jsonContent);
+		}
+
+		/* (non-Javadoc)
+		 * @see com.google.code.stackexchange.client.impl.BaseStackExchangeApiClient#mergeEntities(com.google.code.stackexchange.client.impl.EntityRequest, com.google.code.stackexchange.common.PagedList)
+		 */
+		@Override
+		<T> PagedList<T> mergeEntities(EntityRequest<T> request, PagedList<T> fetched) {
+			if (fetched instanceof DeferredList<?>) {
+				((DeferredList<T>) fetched).entityRequest = request;
+				return fetched;
+			}
+			return super.mergeEntities(request, fetched);
+		}
+
+		/**
+		 * Decodes the response of a deferred list, merging it with the cached
+		 * entities of its request if it has one.
+		 *
+		 * @param call the call
+		 * @param content the content
+		 *
+		 * @return the paged list
+		 */
+		private <T> PagedList<T> decode(DeferredList<T> call, InputStream content) {
+			PagedList<T> list = unmarshallList(call.type, content);
+			return (call.entityRequest == null) ? list : call.entityRequest.merge(list);
+		}
+
+		/**
+		 * Defers the revision for post.
+		 *
+		 * @param postId the post id
+		 * @param revisionGuid the revision guid
+		 *
+		 * @return the deferred list
+		 */
+		DeferredList<Revision> deferRevisionForPost(long postId, String revisionGuid) {
+			ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_REVISIONS_FOR_POST);
+	        String                apiUrl  = builder.withId(postId).withField("revisionguid", revisionGuid).buildUrl();
+
+	        return new DeferredList<Revision>(Revision.class, builder.getMethodName(), apiUrl);
+		}
+
+		/**
+		 * Fetches the deferred list and completes the future with it, or with
+		 * its first element. With a response cache, a call of a url whose
+		 * response is cached is answered from the cache, and a stale response
+		 * is refreshed in the background by one of its callers. With a request
+		 * coalescer, a call of a url that is already being fetched waits for
+		 * that fetch instead.
+		 *
+		 * @param call the call
+		 * @param singleResult whether the future expects the first element only
+		 * @param future the future
+		 * @param executor the executor that parses the response
+		 */
+		<R> void fetch(final DeferredList<?> call, final boolean singleResult, final ResponseFuture<R> future,
+				final ExecutorService executor) {
+			HttpTransport transport = getHttpTransport();
+			if (!(transport instanceof AsyncHttpTransport)) {
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							complete(future, decode(call, callApiMethod(call.methodName, call.apiUrl, HttpURLConnection.HTTP_OK)), singleResult);
+						} catch (RuntimeException e) {
+							future.setException(e);
+						}
+					}
+				});
+				return;
+			}
+			ResponseCache cache = getConfiguration().getResponseCache();
+			final CachedResponse cached = (cache == null) ? null : cache.lookup(call.apiUrl);
+			if (cached != null) {
+				if (cached.isNotFound()) {
+					future.setException(new NotFoundException(cached.getNotFoundMessage(), new Date()));
+					return;
+				}
+				if (cached.isRefreshNeeded()) {
+					refresh(call.methodName, call.apiUrl, cache);
+				}
+				executor.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							complete(future, decode(call, new ByteArrayInputStream(cached.getContent())), singleResult);
+						} catch (RuntimeException e) {
+							future.setException(e);
+						}
+					}
+				});
+				return;
+			}
+			RequestCoalescer coalescer = getConfiguration().getRequestCoalescer();
+			if (coalescer != null) {
+				final RequestCoalescer.Flight flight = coalescer.join(call.apiUrl);
+				if (!flight.start()) {
+					flight.addListener(new Runnable() {
+						@Override
+						public void run() {
+							try {
+								executor.execute(new Runnable() {
+									@Override
+									public void run() {
+										try {
+											complete(future, decode(call, flight.getContent(-1)), singleResult);
+										} catch (RuntimeException e) {
+											future.setException(e);
+										}
+									}
+								});
+							} catch (RejectedExecutionException e) {
+								future.setException(e);
+							}
+						}
+					});
+					return;
+				}
+				future.lead(flight);
+			}
+			depositRetryBudget();
+			send((AsyncHttpTransport) transport, createHttpRequest(call.apiUrl, HttpRequest.GET), call, singleResult,
+					future, executor, 1);
+		}
+
+		/**
+		 * Sends one attempt of the request once the quota scheduler lets it
+		 * through, and schedules the next attempt if it fails and the retry
+		 * policy allows it.
+		 *
+		 * @param transport the transport
+		 * @param request the request
+		 * @param call the call
+		 * @param singleResult whether the future expects the first element only
+		 * @param future the future
+		 * @param executor the executor that parses the response
+		 * @param attempt the attempt, starting at 1
+		 */
+		private <R> void send(final AsyncHttpTransport transport, final HttpRequest request, final DeferredList<?> call,
+				final boolean singleResult, final ResponseFuture<R> future, final ExecutorService executor, final int attempt) {
+			final String circuitHost;
+			try {
+				circuitHost = acquireCircuit(request);
+			} catch (IOException e) {
+				future.setException(new StackExchangeApiException(e));
+				return;
+			} catch (StackExchangeApiException e) {
+				future.setException(e);
+				return;
+			}
+			final HttpResponseCallback callback = new HttpResponseCallback() {
+				@Override
+				public void completed(final HttpResponse response) {
+					try {
+						executor.execute(new Runnable() {
+							@Override
+							public void run() {
+								InputStream content;
+								try {
+									content = handleResponse(request, response, HttpURLConnection.HTTP_OK);
+								} catch (IOException e) {
+									response.close();
+									retry(response, new StackExchangeApiException(e));
+									return;
+								} catch (StackExchangeApiException e) {
+									retry(response, e);
+									return;
+								} catch (RuntimeException e) {
+									releaseCircuit(circuitHost);
+									future.setException(e);
+									return;
+								}
+								recordCircuitResult(circuitHost, response, null);
+								try {
+									RequestCoalescer.Flight flight = future.getFlight();
+									ResponseCache cache = getConfiguration().getResponseCache();
+									if (flight != null || cache != null) {
+										byte[] bytes = readContent(content);
+										if (cache != null) {
+											cache.put(call.methodName, call.apiUrl, bytes);
+										}
+										if (flight != null) {
+											flight.complete(bytes);
+											content = flight.getContent(-1);
+										} else {
+											content = new ByteArrayInputStream(bytes);
+										}
+									}
+									complete(future, decode(call, content), singleResult);
+								} catch (RuntimeException e) {
+									future.setException(e);
+								}
+							}
+						});
+					} catch (RejectedExecutionException e) {
+						releaseCircuit(circuitHost);
+						response.close();
+						future.setException(e);
+					}
+				}
+
+				@Override
+				public void failed(IOException e) {
+					retry(null, new StackExchangeApiException(e));
+				}
+
+				/**
+				 * Schedules the next attempt, or fails the future if the
+				 * retry policy does not allow one.
+				 *
+				 * @param response the response, null if none was received
+				 * @param failure the failure
+				 */
+				private void retry(HttpResponse response, StackExchangeApiException failure) {
+					recordCircuitResult(circuitHost, response, failure);
+					long delay = getRetryDelay(request, response, failure, attempt);
+					if (delay < 0) {
+						cacheNotFound(call.apiUrl, failure);
+						future.setException(failure);
+						return;
+					}
+					getDelayTimer().schedule(new TimerTask() {
+						@Override
+						public void run() {
+							send(transport, request, call, singleResult, future, executor, attempt + 1);
+						}
+					}, delay);
+				}
+			};
+			long wait;
+			try {
+				wait = reserveQuota(request);
+			} catch (IOException e) {
+				releaseCircuit(circuitHost);
+				future.setException(new StackExchangeApiException(e));
+				return;
+			} catch (StackExchangeApiException e) {
+				releaseCircuit(circuitHost);
+				future.setException(e);
+				return;
+			}
+			if (wait > 0) {
+				getDelayTimer().schedule(new TimerTask() {
+					@Override
+					public void run() {
+						transport.executeAsync(request, callback);
+					}
+				}, wait);
+			} else {
+				transport.executeAsync(request, callback);
+			}
+		}
+
+		/**
+		 * Completes the future.
+		 *
+		 * @param future the future
+		 * @param list the list
+		 * @param singleResult whether the future expects the first element only
+		 */
+		@SuppressWarnings("unchecked")
+		private <R> void complete(ResponseFuture<R> future, PagedList<?> list, boolean singleResult) {
+			if (singleResult) {
+				future.set((R) (list.isEmpty() ? null : list.get(0)));
+			} else {
+				future.set((R) list);
+			}
+		}
+	}
+
+	/**
+	 * The Class DeferredContent.
+	 *
+	 * Stands in for the response of an api call that has not been made yet.
+	 */
+	private static class DeferredContent extends InputStream {
+
+		/** The method name. */
+		private final String methodName;
+
+		/** The api url. */
+		private final String apiUrl;
+
+		/**
+		 * Instantiates a new deferred content.
+		 *
+		 * @param methodName the method name
+		 * @param apiUrl the api url
+		 */
+		DeferredContent(String methodName, String apiUrl) {
+			this.methodName = methodName;
+			this.apiUrl = apiUrl;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.InputStream#read()
+		 */
+		@Override
+		public int read() throws IOException {
+			throw new IOException("The api call " + apiUrl + " has not been executed.");
+		}
+	}
+
+	/**
+	 * The Class DeferredList.
+	 *
+	 * An empty list describing the api call that will fill it.
+	 */
+	private static class DeferredList<T> extends PagedArrayList<T> {
+
+		/** The Constant serialVersionUID. */
+		private static final long serialVersionUID = 1L;
+
+		/** The type. */
+		private final Class<T> type;
+
+		/** The method name. */
+		private final String methodName;
+
+		/** The api url. */
+		private final String apiUrl;
+
+		/** The request whose cached entities the response is merged with, null if none. */
+		private EntityRequest<T> entityRequest;
+
+		/**
+		 * Instantiates a new deferred list.
+		 *
+		 * @param type the type
+		 * @param methodName the method name
+		 * @param apiUrl the api url
+		 */
+		DeferredList(Class<T> type, String methodName, String apiUrl) {
+			this.type = type;
+			this.methodName = methodName;
+			this.apiUrl = apiUrl;
+		}
+	}
+
+	/**
+	 * The Class ResponseFuture.
+	 *
+	 * A future that runs nothing: it is completed by the response callback,
+	 * or failed by whichever step of the call goes wrong first. Completing it
+	 * more than once, or after it was cancelled, has no effect.
+	 */
+	private static class ResponseFuture<T> implements Future<T> {
+
+		/** The coalesced call this future makes for others, null if none. */
+		private volatile RequestCoalescer.Flight flight;
+
+		/** The done flag. */
+		private boolean done;
+
+		/** The cancelled flag. */
+		private boolean cancelled;
+
+		/** The value. */
+		private T value;
+
+		/** The failure, null if none. */
+		private Throwable failure;
+
+		/**
+		 * Completes the future with a value.
+		 *
+		 * @param value the value
+		 */
+		synchronized void set(T value) {
+			if (done) {
+				return;
+			}
+			this.value = value;
+			done = true;
+			notifyAll();
+		}
+
+		/**
+		 * Fails the future, and the flight it leads if any.
+		 *
+		 * @param t the failure
+		 */
+		void setException(Throwable t) {
+			RequestCoalescer.Flight led = flight;
+			if (led != null) {
+				led.fail(t instanceof RuntimeException ? (RuntimeException) t : new StackExchangeApiException(t));
+			}
+			synchronized (this) {
+				if (done) {
+					return;
+				}
+				failure = t;
+				done = true;
+				notifyAll();
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.Future#cancel(boolean)
+		 */
+		@Override
+		public synchronized boolean cancel(boolean mayInterruptIfRunning) {
+			if (done) {
+				return false;
+			}
+			cancelled = true;
+			done = true;
+			notifyAll();
+			return true;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.Future#isCancelled()
+		 */
+		@Override
+		public synchronized boolean isCancelled() {
+			return cancelled;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.Future#isDone()
+		 */
+		@Override
+		public synchronized boolean isDone() {
+			return done;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.Future#get()
+		 */
+		@Override
+		public synchronized T get() throws InterruptedException, ExecutionException {
+			while (!done) {
+				wait();
+			}
+			return getResult();
+		}
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.Future#get(long, java.util.concurrent.TimeUnit)
+		 */
+		@Override
+		public synchronized T get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException,
+				TimeoutException {
+			long deadline = System.nanoTime() + unit.toNanos(timeout);
+			while (!done) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					throw new TimeoutException();
+				}
+				TimeUnit.NANOSECONDS.timedWait(this, remaining);
+			}
+			return getResult();
+		}
+
+		/**
+		 * Gets the result of a completed future.
+		 *
+		 * @return the value
+		 *
+		 * @throws ExecutionException if the future failed
+		 */
+		private T getResult() throws ExecutionException {
+			if (cancelled) {
+				throw new CancellationException();
+			}
+			if (failure != null) {
+				throw new ExecutionException(failure);
+			}
+			return value;
+		}
+
+		/**
+		 * Makes this future the one that completes or fails the flight.
+		 *
+		 * @param flight the flight
+		 */
+		void lead(RequestCoalescer.Flight flight) {
+			this.flight = flight;
+		}
+
+		/**
+		 * Gets the flight.
+		 *
+		 * @return the flight led by this future, null if none
+		 */
+		RequestCoalescer.Flight getFlight() {
+			return flight;
+		}
+	}
+}
@@ -17,13 +17,16 @@
 package com.google.code.stackexchange.client.impl;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Set;
 
 import com.google.code.stackexchange.client.StackExchangeApiClient;
+import com.google.code.stackexchange.client.cache.EntityCache;
 import com.google.code.stackexchange.client.constant.StackExchangeApiMethods;
 import com.google.code.stackexchange.client.provider.url.ApiUrlBuilder;
+import com.google.code.stackexchange.client.provider.url.DefaultApiUrlBuilder;
 import com.google.code.stackexchange.common.PagedList;
 import com.google.code.stackexchange.schema.Answer;
 import com.google.code.stackexchange.schema.Badge;
@@ -139,6 +142,42 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
         }
     }
 
+    /**
+     * Gets entities by id. With an entity cache, only the ids that are not
+     * cached are fetched.
+     * 
+     * @param type the entity type
+     * @param builder the url builder, with everything but the ids
+     * @param ids the ids
+     * 
+     * @return the entities, in the order of the ids
+     */
+    protected <T> PagedList<T> getEntities(Class<T> type, ApiUrlBuilder builder, long... ids) {
+    	EntityCache cache = getConfiguration().getEntityCache();
+    	if (cache == null || ids.length == 0) {
+    		return unmarshallList(type, callApiMethod(builder.getMethodName(), builder.withIds(ids).buildUrl()));
+    	}
+    	String view = DefaultApiUrlBuilder.getCanonicalUrl(builder.withIds(new long[0]).buildUrl());
+    	EntityRequest<T> request = new EntityRequest<T>(cache, type, view, ids);
+    	long[] missingIds = request.getMissingIds();
+    	if (missingIds.length == 0) {
+    		return request.merge(Collections.<T>emptyList());
+    	}
+    	return mergeEntities(request, unmarshallList(type, callApiMethod(builder.getMethodName(), builder.withIds(missingIds).buildUrl())));
+    }
+
+    /**
+     * Merges the fetched entities of a request with its cached ones.
+     * 
+     * @param request the request
+     * @param fetched the fetched entities
+     * 
+     * @return the entities, in the order of the ids
+     */
+    <T> PagedList<T> mergeEntities(EntityRequest<T> request, PagedList<T> fetched) {
+    	return request.merge(fetched);
+    }
+
 	/* (non-Javadoc)
 	 * @see com.google.code.stackexchange.client.StackOverflowApiClient#getFavoriteQuestionsByUsers(com.google.code.stackexchange.schema.Paging, long[])
 	 */
@@ -147,7 +186,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_FAVORITE_QUESTIONS);
         String                apiUrl  = builder.withIds(userIds).withPaging(paging).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -159,7 +198,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_FAVORITE_QUESTIONS);
         String                apiUrl  = builder.withIds(userIds).withTimePeriod(timePeriod).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -171,7 +210,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_FAVORITE_QUESTIONS);
         String                apiUrl  = builder.withIds(userIds).withFetchOptions(filterOptions).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
         
         
 	}
@@ -186,7 +225,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_FAVORITE_QUESTIONS);
         String                apiUrl  = builder.withIds(userIds).withSort(sort).withPaging(paging).withTimePeriod(timePeriod).withFetchOptions(filterOptions).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
         
         
 	}
@@ -199,7 +238,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTION);
         String                apiUrl  = builder.withIds(questionIds).withPaging(paging).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
         
         
 	}
@@ -210,9 +249,9 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 	@Override
 	public PagedList<Question> getQuestions(Set<FilterOption> filterOptions, long... questionIds) {
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTION);
-        String                apiUrl  = builder.withIds(questionIds).withFetchOptions(filterOptions).buildUrl();
+        builder.withFetchOptions(filterOptions);
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return getEntities(Question.class, builder, questionIds);
         
         
 	}
@@ -226,7 +265,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTION);
         String                apiUrl  = builder.withIds(questionIds).withPaging(paging).withFetchOptions(filterOptions).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
         
         
 	}
@@ -240,7 +279,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTION_TIMELINE);
         String                apiUrl  = builder.withIds(questionIds).withTimePeriod(timePeriod).buildUrl();
 
-        return unmarshallList(PostTimeline.class, callApiMethod(apiUrl));
+        return unmarshallList(PostTimeline.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -251,7 +290,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTIONS);
         String                apiUrl  = builder.withPaging(paging).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -262,7 +301,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTIONS);
         String                apiUrl  = builder.withTimePeriod(timePeriod).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -273,7 +312,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTIONS);
         String                apiUrl  = builder.withFetchOptions(filterOptions).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -285,7 +324,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTIONS);
         String                apiUrl  = builder.withSort(sort).withPaging(paging).withTimePeriod(timePeriod).withFetchOptions(filterOptions).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -296,7 +335,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTIONS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).withPaging(paging).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -307,7 +346,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTIONS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).withTimePeriod(timePeriod).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -319,7 +358,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTIONS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).withFetchOptions(filterOptions).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -332,7 +371,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTIONS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).withSort(sort).withPaging(paging).withTimePeriod(timePeriod).withFetchOptions(filterOptions).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -345,7 +384,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTIONS);
         String                apiUrl  = builder.withParameters("tagged", tags, ";").withPaging(paging).withTimePeriod(timePeriod).withFetchOptions(filterOptions).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -356,7 +395,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_TAGS);
         String                apiUrl  = builder.withPaging(paging).buildUrl();
 
-        return unmarshallList(Tag.class, callApiMethod(apiUrl));
+        return unmarshallList(Tag.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -367,7 +406,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_TAGS);
         String                apiUrl  = builder.withSort(sort).withPaging(paging).buildUrl();
 
-        return unmarshallList(Tag.class, callApiMethod(apiUrl));
+        return unmarshallList(Tag.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -378,7 +417,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_TAGS_FOR_USER);
         String                apiUrl  = builder.withIds(userIds).withPaging(paging).buildUrl();
 
-        return unmarshallList(Tag.class, callApiMethod(apiUrl));
+        return unmarshallList(Tag.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -389,7 +428,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_UN_ANSWERED_QUESTIONS);
         String                apiUrl  = builder.withPaging(paging).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -400,7 +439,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_UN_ANSWERED_QUESTIONS);
         String                apiUrl  = builder.withTimePeriod(timePeriod).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -411,7 +450,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_UN_ANSWERED_QUESTIONS);
         String                apiUrl  = builder.withFetchOptions(filterOptions).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -424,7 +463,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_UN_ANSWERED_QUESTIONS);
         String                apiUrl  = builder.withSort(sort).withPaging(paging).withTimePeriod(timePeriod).withFetchOptions(filterOptions).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -435,7 +474,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_USER_MENTIONS);
         String                apiUrl  = builder.withIds(userIds).withTimePeriod(timePeriod).buildUrl();
 
-        return unmarshallList(Comment.class, callApiMethod(apiUrl));
+        return unmarshallList(Comment.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -446,7 +485,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_USER_TIMELINE);
         String                apiUrl  = builder.withIds(userIds).withTimePeriod(timePeriod).buildUrl();
 
-        return unmarshallList(UserTimeline.class, callApiMethod(apiUrl));
+        return unmarshallList(UserTimeline.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -457,7 +496,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_USERS);
         String                apiUrl  = builder.withPaging(paging).buildUrl();
 
-        return unmarshallList(User.class, callApiMethod(apiUrl));
+        return unmarshallList(User.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -468,7 +507,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_USERS);
         String                apiUrl  = builder.withParameter("filter", filter).buildUrl();
 
-        return unmarshallList(User.class, callApiMethod(apiUrl));
+        return unmarshallList(User.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -479,7 +518,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_USERS);
         String                apiUrl  = builder.withParameter("filter", filter).withSort(sort).withPaging(paging).buildUrl();
 
-        return unmarshallList(User.class, callApiMethod(apiUrl));
+        return unmarshallList(User.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	
 	/* (non-Javadoc)
@@ -488,9 +527,8 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 	@Override
 	public PagedList<Answer> getAnswers(long... answerIds) {
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_ANSWER);
-        String                apiUrl  = builder.withIds(answerIds).buildUrl();
 
-        return unmarshallList(Answer.class, callApiMethod(apiUrl));
+        return getEntities(Answer.class, builder, answerIds);
 	}
 
 	/* (non-Javadoc)
@@ -501,7 +539,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_ANSWERS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).buildUrl();
 
-        return unmarshallList(Answer.class, callApiMethod(apiUrl));
+        return unmarshallList(Answer.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -512,7 +550,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_ANSWERS_BY_QUESTION);
         String                apiUrl  = builder.withIds(questionIds).buildUrl();
 
-        return unmarshallList(Answer.class, callApiMethod(apiUrl));
+        return unmarshallList(Answer.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	
 	/* (non-Javadoc)
@@ -523,7 +561,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_ANSWERS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).withSort(sort).buildUrl();
 
-        return unmarshallList(Answer.class, callApiMethod(apiUrl));
+        return unmarshallList(Answer.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -534,7 +572,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_ANSWERS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).withSort(sort).withRange(range).buildUrl();
 
-        return unmarshallList(Answer.class, callApiMethod(apiUrl));
+        return unmarshallList(Answer.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	
 	/* (non-Javadoc)
@@ -545,7 +583,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_ANSWERS_BY_QUESTION);
         String                apiUrl  = builder.withIds(questionIds).withSort(sort).buildUrl();
 
-        return unmarshallList(Answer.class, callApiMethod(apiUrl));
+        return unmarshallList(Answer.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	
 	/* (non-Javadoc)
@@ -556,7 +594,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_ANSWERS_BY_QUESTION);
         String                apiUrl  = builder.withIds(questionIds).withSort(sort).withRange(range).buildUrl();
 
-        return unmarshallList(Answer.class, callApiMethod(apiUrl));
+        return unmarshallList(Answer.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	/* (non-Javadoc)
 	 * @see com.google.code.stackexchange.client.StackOverflowApiClient#getBadges()
@@ -566,7 +604,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_BADGES);
         String                apiUrl  = builder.buildUrl();
 
-        return unmarshallList(Badge.class, callApiMethod(apiUrl));
+        return unmarshallList(Badge.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -577,7 +615,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_BADGES_BY_NAME);
         String                apiUrl  = builder.buildUrl();
 
-        return unmarshallList(Badge.class, callApiMethod(apiUrl));
+        return unmarshallList(Badge.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -588,7 +626,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_BADGES_BY_TAGS);
         String                apiUrl  = builder.buildUrl();
 
-        return unmarshallList(Badge.class, callApiMethod(apiUrl));
+        return unmarshallList(Badge.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	
 	/* (non-Javadoc)
@@ -599,7 +637,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_BADGES_FOR_USER);
         String                apiUrl  = builder.withIds(userIds).buildUrl();
 
-        return unmarshallList(Badge.class, callApiMethod(apiUrl));
+        return unmarshallList(Badge.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -610,7 +648,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_FAVORITE_QUESTIONS);
         String                apiUrl  = builder.withIds(userIds).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -622,7 +660,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_FAVORITE_QUESTIONS);
         String                apiUrl  = builder.withIds(userIds).withSort(sort).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -634,7 +672,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_FAVORITE_QUESTIONS);
         String                apiUrl  = builder.withIds(userIds).withSort(sort).withRange(range).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	
 	/* (non-Javadoc)
@@ -643,9 +681,8 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 	@Override
 	public PagedList<Question> getQuestions(long... questionIds) {
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTION);
-        String                apiUrl  = builder.withIds(questionIds).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return getEntities(Question.class, builder, questionIds);
 	}
 
 	/* (non-Javadoc)
@@ -656,7 +693,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTION_TIMELINE);
         String                apiUrl  = builder.withIds(questionIds).buildUrl();
 
-        return unmarshallList(PostTimeline.class, callApiMethod(apiUrl));
+        return unmarshallList(PostTimeline.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -667,7 +704,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTIONS);
         String                apiUrl  = builder.buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -678,7 +715,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTIONS);
         String                apiUrl  = builder.withSort(sort).buildUrl();
         
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -689,7 +726,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTIONS);
         String                apiUrl  = builder.withSort(sort).withRange(range).buildUrl();
         
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	
 	/* (non-Javadoc)
@@ -700,7 +737,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTIONS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -712,7 +749,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTIONS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).withSort(sort).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -724,7 +761,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTIONS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).withSort(sort).withRange(range).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	/* (non-Javadoc)
 	 * @see com.google.code.stackexchange.client.StackOverflowApiClient#getTaggedQuestions(java.util.List)
@@ -734,7 +771,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_QUESTIONS);
         String                apiUrl  = builder.withParameters("tagged", tags, ";").buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -745,7 +782,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_TAGS);
         String                apiUrl  = builder.buildUrl();
 
-        return unmarshallList(Tag.class, callApiMethod(apiUrl));
+        return unmarshallList(Tag.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -756,7 +793,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_TAGS);
         String                apiUrl  = builder.withSort(sort).buildUrl();
 
-        return unmarshallList(Tag.class, callApiMethod(apiUrl));
+        return unmarshallList(Tag.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -767,7 +804,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_TAGS_FOR_USER);
         String                apiUrl  = builder.withIds(userIds).buildUrl();
 
-        return unmarshallList(Tag.class, callApiMethod(apiUrl));
+        return unmarshallList(Tag.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -778,7 +815,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_UN_ANSWERED_QUESTIONS);
         String                apiUrl  = builder.buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -789,7 +826,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_UN_ANSWERED_QUESTIONS);
         String                apiUrl  = builder.withSort(sort).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -800,7 +837,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_UN_ANSWERED_QUESTIONS);
         String                apiUrl  = builder.withSort(sort).withRange(range).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	
 	/* (non-Javadoc)
@@ -809,9 +846,8 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 	@Override
 	public PagedList<User> getUsers(long... userIds) {
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_USER);
-        String                apiUrl  = builder.withIds(userIds).buildUrl();
 
-        return unmarshallList(User.class, callApiMethod(apiUrl));
+        return getEntities(User.class, builder, userIds);
 	}
 
 	/* (non-Javadoc)
@@ -822,7 +858,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_USER_MENTIONS);
         String                apiUrl  = builder.withIds(userIds).buildUrl();
 
-        return unmarshallList(Comment.class, callApiMethod(apiUrl));
+        return unmarshallList(Comment.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -833,7 +869,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_USER_TIMELINE);
         String                apiUrl  = builder.withIds(userIds).buildUrl();
 
-        return unmarshallList(UserTimeline.class, callApiMethod(apiUrl));
+        return unmarshallList(UserTimeline.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -844,7 +880,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_USERS);
         String                apiUrl  = builder.buildUrl();
 
-        return unmarshallList(User.class, callApiMethod(apiUrl));
+        return unmarshallList(User.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -855,7 +891,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_USERS);
         String                apiUrl  = builder.withSort(sort).buildUrl();
 
-        return unmarshallList(User.class, callApiMethod(apiUrl));
+        return unmarshallList(User.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	
 	/* (non-Javadoc)
@@ -866,7 +902,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_USERS);
         String                apiUrl  = builder.withSort(sort).withRange(range).buildUrl();
 
-        return unmarshallList(User.class, callApiMethod(apiUrl));
+        return unmarshallList(User.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	
 	/* (non-Javadoc)
@@ -877,7 +913,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_USER_REPUTATIONS);
         String                apiUrl  = builder.withIds(userIds).buildUrl();
 
-        return unmarshallList(Reputation.class, callApiMethod(apiUrl));
+        return unmarshallList(Reputation.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -889,7 +925,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_USER_REPUTATIONS);
         String                apiUrl  = builder.withIds(userIds).withTimePeriod(timePeriod).buildUrl();
 
-        return unmarshallList(Reputation.class, callApiMethod(apiUrl));
+        return unmarshallList(Reputation.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -900,7 +936,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_USER_REPUTATIONS);
         String                apiUrl  = builder.withIds(userIds).withPaging(paging).buildUrl();
 
-        return unmarshallList(Reputation.class, callApiMethod(apiUrl));
+        return unmarshallList(Reputation.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -912,7 +948,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_USER_REPUTATIONS);
         String                apiUrl  = builder.withIds(userIds).withPaging(paging).withTimePeriod(timePeriod).buildUrl();
 
-        return unmarshallList(Reputation.class, callApiMethod(apiUrl));
+        return unmarshallList(Reputation.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -923,7 +959,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_COMMENTS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).buildUrl();
 
-        return unmarshallList(Comment.class, callApiMethod(apiUrl));
+        return unmarshallList(Comment.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -934,7 +970,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_COMMENTS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).withSort(sort).buildUrl();
 
-        return unmarshallList(Comment.class, callApiMethod(apiUrl));
+        return unmarshallList(Comment.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -945,7 +981,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_COMMENTS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).withSort(sort).withRange(range).buildUrl();
 
-        return unmarshallList(Comment.class, callApiMethod(apiUrl));
+        return unmarshallList(Comment.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	
 	/* (non-Javadoc)
@@ -956,7 +992,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_COMMENTS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).withTimePeriod(timePeriod).buildUrl();
 
-        return unmarshallList(Comment.class, callApiMethod(apiUrl));
+        return unmarshallList(Comment.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -967,7 +1003,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_COMMENTS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).withPaging(paging).buildUrl();
 
-        return unmarshallList(Comment.class, callApiMethod(apiUrl));
+        return unmarshallList(Comment.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -979,7 +1015,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_COMMENTS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).withSort(sort).withPaging(paging).withTimePeriod(timePeriod).buildUrl();
 
-        return unmarshallList(Comment.class, callApiMethod(apiUrl));
+        return unmarshallList(Comment.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -990,7 +1026,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_COMMENTS_BY_USER_TO_USER);
         String                apiUrl  = builder.withIds(userIds).withField("toid", String.valueOf(toUserId)).buildUrl();
 
-        return unmarshallList(Comment.class, callApiMethod(apiUrl));
+        return unmarshallList(Comment.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -1002,7 +1038,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_COMMENTS_BY_USER_TO_USER);
         String                apiUrl  = builder.withIds(userIds).withField("toid", String.valueOf(toUserId)).withSort(sort).buildUrl();
 
-        return unmarshallList(Comment.class, callApiMethod(apiUrl));
+        return unmarshallList(Comment.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -1014,7 +1050,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_COMMENTS_BY_USER_TO_USER);
         String                apiUrl  = builder.withIds(userIds).withField("toid", String.valueOf(toUserId)).withTimePeriod(timePeriod).buildUrl();
 
-        return unmarshallList(Comment.class, callApiMethod(apiUrl));
+        return unmarshallList(Comment.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -1026,7 +1062,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_COMMENTS_BY_USER_TO_USER);
         String                apiUrl  = builder.withIds(userIds).withField("toid", String.valueOf(toUserId)).withPaging(paging).buildUrl();
 
-        return unmarshallList(Comment.class, callApiMethod(apiUrl));
+        return unmarshallList(Comment.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -1038,7 +1074,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_COMMENTS_BY_USER_TO_USER);
         String                apiUrl  = builder.withIds(userIds).withField("toid", String.valueOf(toUserId)).withSort(sort).withPaging(paging).withTimePeriod(timePeriod).buildUrl();
 
-        return unmarshallList(Comment.class, callApiMethod(apiUrl));
+        return unmarshallList(Comment.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -1047,9 +1083,8 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 	@Override
 	public PagedList<Comment> getComments(long... commentIds) {
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_COMMENT);
-        String                apiUrl  = builder.withIds(commentIds).buildUrl();
 
-        return unmarshallList(Comment.class, callApiMethod(apiUrl));
+        return getEntities(Comment.class, builder, commentIds);
 	}
 
 	/* (non-Javadoc)
@@ -1060,7 +1095,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_STATISTICS);
         String                apiUrl  = builder.buildUrl();
 
-        return unmarshallList(Statistics.class, callApiMethod(apiUrl));
+        return unmarshallList(Statistics.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	
 	/* (non-Javadoc)
@@ -1069,9 +1104,9 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 	@Override
 	public PagedList<Answer> getAnswers(Set<FilterOption> filterOptions, long... answerIds) {
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_ANSWER);
-        String                apiUrl  = builder.withIds(answerIds).withFetchOptions(filterOptions).buildUrl();
+        builder.withFetchOptions(filterOptions);
 
-        return unmarshallList(Answer.class, callApiMethod(apiUrl));
+        return getEntities(Answer.class, builder, answerIds);
 	}
 
 	/* (non-Javadoc)
@@ -1083,7 +1118,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_ANSWERS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).withFetchOptions(filterOptions).buildUrl();
 
-        return unmarshallList(Answer.class, callApiMethod(apiUrl));
+        return unmarshallList(Answer.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -1095,7 +1130,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_ANSWERS_BY_QUESTION);
         String                apiUrl  = builder.withIds(questionIds).withFetchOptions(filterOptions).buildUrl();
 
-        return unmarshallList(Answer.class, callApiMethod(apiUrl));
+        return unmarshallList(Answer.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	
 	/* (non-Javadoc)
@@ -1107,7 +1142,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_ANSWERS_BY_USER);
         String                apiUrl  = builder.withIds(userIds).withSort(sort).withFetchOptions(filterOptions).buildUrl();
 
-        return unmarshallList(Answer.class, callApiMethod(apiUrl));
+        return unmarshallList(Answer.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	
 	/* (non-Javadoc)
@@ -1119,7 +1154,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_ANSWERS_BY_QUESTION);
         String                apiUrl  = builder.withIds(questionIds).withSort(sort).withFetchOptions(filterOptions).buildUrl();
 
-        return unmarshallList(Answer.class, callApiMethod(apiUrl));
+        return unmarshallList(Answer.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	
 	/* (non-Javadoc)
@@ -1130,7 +1165,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_REVISIONS_FOR_POST);
         String                apiUrl  = builder.withId(postId).withField("revisionguid", revisionGuid).buildUrl();
 
-        PagedList<Revision> list = unmarshallList(Revision.class, callApiMethod(apiUrl));
+        PagedList<Revision> list = unmarshallList(Revision.class, callApiMethod(builder.getMethodName(), apiUrl));
         return (list.isEmpty())? null : list.get(0);
 	}
 
@@ -1142,7 +1177,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_REVISIONS_FOR_POST);
         String                apiUrl  = builder.withIds(postIds).buildUrl();
 
-        return unmarshallList(Revision.class, callApiMethod(apiUrl));
+        return unmarshallList(Revision.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -1153,7 +1188,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_REVISIONS_FOR_POST);
         String                apiUrl  = builder.withIds(postIds).withTimePeriod(timePeriod).buildUrl();
 
-        return unmarshallList(Revision.class, callApiMethod(apiUrl));
+        return unmarshallList(Revision.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 	
 	/* (non-Javadoc)
@@ -1164,7 +1199,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_BADGE_RECIPIENTS);
         String                apiUrl  = builder.withIds(badgeIds).buildUrl();
 
-        return unmarshallList(User.class, callApiMethod(apiUrl));
+        return unmarshallList(User.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 
 	/* (non-Javadoc)
@@ -1175,7 +1210,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.GET_BADGE_RECIPIENTS);
         String                apiUrl  = builder.withIds(badgeIds).withPaging(paging).buildUrl();
 
-        return unmarshallList(User.class, callApiMethod(apiUrl));
+        return unmarshallList(User.class, callApiMethod(builder.getMethodName(), apiUrl));
         
         
 	}
@@ -1188,7 +1223,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.SEARCH_QUESTIONS);
         String                apiUrl  = builder.withParameter("intitle", query).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
         
         
 	}
@@ -1202,7 +1237,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.SEARCH_QUESTIONS);
         String                apiUrl  = builder.withParameter("intitle", query).withSort(sort).withPaging(paging).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
         
         
 	}
@@ -1216,7 +1251,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.SEARCH_QUESTIONS);
         String                apiUrl  = builder.withParameter("intitle", query).withSort(sort).withRange(range).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
         
         
 	}
@@ -1230,7 +1265,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.SEARCH_QUESTIONS);
         String                apiUrl  = builder.withParameters("tagged", includeTags, ";").withParameters("nottagged", excludeTags, ";").buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
         
         
 	}
@@ -1244,7 +1279,7 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.SEARCH_QUESTIONS);
         String                apiUrl  = builder.withParameters("tagged", includeTags, ";").withParameters("nottagged", excludeTags, ";").withSort(sort).withPaging(paging).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
         
         
 	}
@@ -1259,6 +1294,6 @@ public abstract class BaseStackExchangeApiClient extends StackExchangeApiGateway
 		ApiUrlBuilder builder = createStackOverflowApiUrlBuilder(StackExchangeApiMethods.SEARCH_QUESTIONS);
         String                apiUrl  = builder.withParameter("intitle", query).withParameters("tagged", includeTags, ";").withParameters("nottagged", excludeTags, ";").withSort(sort).withPaging(paging).buildUrl();
 
-        return unmarshallList(Question.class, callApiMethod(apiUrl));
+        return unmarshallList(Question.class, callApiMethod(builder.getMethodName(), apiUrl));
 	}
 }
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The Class BoundedExecutorService.
+ *
+ * Runs at most a fixed number of tasks at a time on a delegate executor.
+ * Tasks beyond the limit wait in a queue instead of being given a thread, so
+ * a burst of calls never creates more than the limit of threads.
+ */
+public class BoundedExecutorService extends AbstractExecutorService {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = Logger.getLogger(BoundedExecutorService.class.getCanonicalName());
+
+	/** The delegate. */
+	private final ExecutorService delegate;
+
+	/** The max concurrency. */
+	private final int maxConcurrency;
+
+	/** The lock. */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/** The queued tasks. */
+	private final LinkedList<Runnable> queue = new LinkedList<Runnable>();
+
+	/** The number of running tasks. */
+	private int running;
+
+	/** The shutdown flag. */
+	private volatile boolean shutdown;
+
+	/**
+	 * Instantiates a new bounded executor service.
+	 *
+	 * @param delegate the executor that runs the tasks
+	 * @param maxConcurrency the max number of tasks running at once
+	 */
+	public BoundedExecutorService(ExecutorService delegate, int maxConcurrency) {
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("maxConcurrency cannot be less than one.");
+		}
+		this.delegate = delegate;
+		this.maxConcurrency = maxConcurrency;
+	}
+
+	/**
+	 * Creates an executor that starts a virtual thread per task when the JVM
+	 * supports them (Java 21 or later) and a daemon platform thread otherwise.
+	 *
+	 * @param maxConcurrency the max number of tasks running at once
+	 *
+	 * @return the bounded executor service
+	 */
+	public static BoundedExecutorService newVirtualThreadExecutor(int maxConcurrency) {
+		ExecutorService delegate = createVirtualThreadPerTaskExecutor();
+		if (delegate == null) {
+			delegate = Executors.newCachedThreadPool(new DaemonThreadFactory());
+		}
+		return new BoundedExecutorService(delegate, maxConcurrency);
+	}
+
+	/**
+	 * Checks if virtual threads are supported by this JVM.
+	 *
+	 * @return true, if virtual threads are supported
+	 */
+	public static boolean isVirtualThreadSupported() {
+		try {
+			Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Creates the virtual thread per task executor through reflection, as
+	 * the library is built for older JVMs.
+	 *
+	 * @return the executor service, or null if not supported
+	 */
+	private static ExecutorService createVirtualThreadPerTaskExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (NoSuchMethodException e) {
+			return null;
+		} catch (Exception e) {
+			LOG.log(Level.WARNING, "Could not create virtual thread executor, using platform threads.", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Gets the max concurrency.
+	 *
+	 * @return the max concurrency
+	 */
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	/**
+	 * Gets the number of running tasks.
+	 *
+	 * @return the running count
+	 */
+	public int getRunningCount() {
+		lock.lock();
+		try {
+			return running;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Gets the number of queued tasks.
+	 *
+	 * @return the queued count
+	 */
+	public int getQueuedCount() {
+		lock.lock();
+		try {
+			return queue.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.Executor#execute(java.lang.Runnable)
+	 */
+	@Override
+	public void execute(Runnable command) {
+		if (command == null) {
+			throw new NullPointerException();
+		}
+		lock.lock();
+		try {
+			if (shutdown) {
+				throw new RejectedExecutionException("Executor has been shut down.");
+			}
+			queue.addLast(command);
+		} finally {
+			lock.unlock();
+		}
+		dispatch();
+	}
+
+	/**
+	 * Starts queued tasks while below the limit.
+	 */
+	private void dispatch() {
+		while (true) {
+			Runnable task;
+			lock.lock();
+			try {
+				if (running >= maxConcurrency || queue.isEmpty()) {
+					return;
+				}
+				task = queue.removeFirst();
+				running++;
+			} finally {
+				lock.unlock();
+			}
+			try {
+				delegate.execute(new Worker(task));
+			} catch (RejectedExecutionException e) {
+				finished();
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Records the end of a task and shuts the delegate down once the queue
+	 * is drained after {@link #shutdown()}.
+	 */
+	private void finished() {
+		boolean terminate;
+		lock.lock();
+		try {
+			running--;
+			terminate = shutdown && running == 0 && queue.isEmpty();
+		} finally {
+			lock.unlock();
+		}
+		if (terminate) {
+			delegate.shutdown();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ExecutorService#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+		boolean terminate;
+		lock.lock();
+		try {
+			shutdown = true;
+			terminate = running == 0 && queue.isEmpty();
+		} finally {
+			lock.unlock();
+		}
+		if (terminate) {
+			delegate.shutdown();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ExecutorService#shutdownNow()
+	 */
+	@Override
+	public List<Runnable> shutdownNow() {
+		List<Runnable> pending;
+		lock.lock();
+		try {
+			shutdown = true;
+			pending = new ArrayList<Runnable>(queue);
+			queue.clear();
+		} finally {
+			lock.unlock();
+		}
+		delegate.shutdownNow();
+		return pending;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ExecutorService#isShutdown()
+	 */
+	@Override
+	public boolean isShutdown() {
+		return shutdown;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ExecutorService#isTerminated()
+	 */
+	@Override
+	public boolean isTerminated() {
+		return shutdown && delegate.isTerminated();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.concurrent.ExecutorService#awaitTermination(long, java.util.concurrent.TimeUnit)
+	 */
+	@Override
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		return delegate.awaitTermination(timeout, unit);
+	}
+
+	/**
+	 * The Class Worker.
+	 */
+	private class Worker implements Runnable {
+
+		/** The task. */
+		private final Runnable task;
+
+		/**
+		 * Instantiates a new worker.
+		 *
+		 * @param task the task
+		 */
+		Worker(Runnable task) {
+			this.task = task;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run() {
+			try {
+				task.run();
+			} finally {
+				finished();
+				dispatch();
+			}
+		}
+	}
+
+	/**
+	 * A factory for creating daemon threads.
+	 */
+	private static class DaemonThreadFactory implements ThreadFactory {
+
+		/** The thread count. */
+		private final AtomicInteger count = new AtomicInteger();
+
+		/* (non-Javadoc)
+		 * @see java.util.concurrent.ThreadFactory#newThread(java.lang.Runnable)
+		 */
+		@Override
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, "stackexchange-task-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
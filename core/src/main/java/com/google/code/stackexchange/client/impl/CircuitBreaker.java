@@ -0,0 +1,464 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.code.stackexchange.client.exception.CircuitOpenException;
+
+/**
+ * The Class CircuitBreaker.
+ *
+ * Keeps a circuit per api host. A circuit opens after a number of
+ * consecutive failures (I/O errors and 5xx responses) and while open, calls
+ * to the host fail at once with a {@link CircuitOpenException} instead of
+ * tying up a thread. After the open timeout the circuit is half open and
+ * lets a few trial calls through: if they succeed it closes again,
+ * otherwise it opens for another timeout.
+ *
+ * State changes are reported to the registered {@link Listener}s.
+ */
+public class CircuitBreaker {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = Logger.getLogger(CircuitBreaker.class.getCanonicalName());
+
+	/** The Constant DEFAULT_FAILURE_THRESHOLD. */
+	public static final int DEFAULT_FAILURE_THRESHOLD = 5;
+
+	/** The Constant DEFAULT_OPEN_TIMEOUT. */
+	public static final long DEFAULT_OPEN_TIMEOUT = 30000L;
+
+	/** The Constant DEFAULT_HALF_OPEN_CALLS. */
+	public static final int DEFAULT_HALF_OPEN_CALLS = 1;
+
+	/**
+	 * The Enum State.
+	 */
+	public enum State {
+
+		/** Calls go through. */
+		CLOSED,
+
+		/** Calls fail at once. */
+		OPEN,
+
+		/** A few trial calls go through. */
+		HALF_OPEN
+	}
+
+	/**
+	 * The listener interface for receiving circuit state changes.
+	 */
+	public interface Listener {
+
+		/**
+		 * Called after the circuit of a host changed state.
+		 *
+		 * @param event the event
+		 */
+		public void stateChanged(Event event);
+	}
+
+	/**
+	 * The Class Event.
+	 */
+	public static class Event {
+
+		/** The host. */
+		private final String host;
+
+		/** The previous state. */
+		private final State previousState;
+
+		/** The state. */
+		private final State state;
+
+		/** The timestamp. */
+		private final Date timestamp;
+
+		/**
+		 * Instantiates a new event.
+		 *
+		 * @param host the host
+		 * @param previousState the previous state
+		 * @param state the state
+		 */
+		public Event(String host, State previousState, State state) {
+			this.host = host;
+			this.previousState = previousState;
+			this.state = state;
+			this.timestamp = new Date();
+		}
+
+		/**
+		 * Gets the host.
+		 *
+		 * @return the host
+		 */
+		public String getHost() {
+			return host;
+		}
+
+		/**
+		 * Gets the previous state.
+		 *
+		 * @return the previous state
+		 */
+		public State getPreviousState() {
+			return previousState;
+		}
+
+		/**
+		 * Gets the state.
+		 *
+		 * @return the state
+		 */
+		public State getState() {
+			return state;
+		}
+
+		/**
+		 * Gets the timestamp.
+		 *
+		 * @return the timestamp
+		 */
+		public Date getTimestamp() {
+			return timestamp;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return "Circuit of " + host + " " + previousState + " -> " + state + " at " + timestamp;
+		}
+	}
+
+	/** The circuits keyed by host. */
+	private final ConcurrentMap<String, Circuit> circuits = new ConcurrentHashMap<String, Circuit>();
+
+	/** The listeners. */
+	private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+
+	/** The failure threshold. */
+	private volatile int failureThreshold = DEFAULT_FAILURE_THRESHOLD;
+
+	/** The open timeout. */
+	private volatile long openTimeout = DEFAULT_OPEN_TIMEOUT;
+
+	/** The half open calls. */
+	private volatile int halfOpenCalls = DEFAULT_HALF_OPEN_CALLS;
+
+	/**
+	 * Gets the failure threshold.
+	 *
+	 * @return the failure threshold
+	 */
+	public int getFailureThreshold() {
+		return failureThreshold;
+	}
+
+	/**
+	 * Sets the number of consecutive failures that opens a circuit.
+	 *
+	 * @param failureThreshold the new failure threshold
+	 */
+	public void setFailureThreshold(int failureThreshold) {
+		this.failureThreshold = failureThreshold;
+	}
+
+	/**
+	 * Gets the open timeout.
+	 *
+	 * @return the open timeout in milliseconds
+	 */
+	public long getOpenTimeout() {
+		return openTimeout;
+	}
+
+	/**
+	 * Sets how long a circuit stays open before trial calls are let through.
+	 *
+	 * @param openTimeout the new open timeout in milliseconds
+	 */
+	public void setOpenTimeout(long openTimeout) {
+		this.openTimeout = openTimeout;
+	}
+
+	/**
+	 * Gets the half open calls.
+	 *
+	 * @return the half open calls
+	 */
+	public int getHalfOpenCalls() {
+		return halfOpenCalls;
+	}
+
+	/**
+	 * Sets the number of trial calls that must succeed to close a half open
+	 * circuit.
+	 *
+	 * @param halfOpenCalls the new half open calls
+	 */
+	public void setHalfOpenCalls(int halfOpenCalls) {
+		this.halfOpenCalls = halfOpenCalls;
+	}
+
+	/**
+	 * Adds the listener.
+	 *
+	 * @param listener the listener
+	 */
+	public void addListener(Listener listener) {
+		listeners.add(listener);
+	}
+
+	/**
+	 * Removes the listener.
+	 *
+	 * @param listener the listener
+	 */
+	public void removeListener(Listener listener) {
+		listeners.remove(listener);
+	}
+
+	/**
+	 * Gets the state of the circuit of the host.
+	 *
+	 * @param host the host
+	 *
+	 * @return the state
+	 */
+	public State getState(String host) {
+		Circuit circuit = circuits.get(getKey(host));
+		return circuit == null ? State.CLOSED : circuit.getState();
+	}
+
+	/**
+	 * Asks to call the host. A call let through must be followed by
+	 * {@link #onSuccess(String)}, {@link #onFailure(String)} or, if it was
+	 * not sent after all, {@link #release(String)}.
+	 *
+	 * @param host the host
+	 *
+	 * @throws CircuitOpenException if the circuit of the host is open
+	 */
+	public void acquire(String host) {
+		State previous = getCircuit(host).acquire();
+		if (previous != null) {
+			fireStateChanged(host, previous, State.HALF_OPEN);
+		}
+	}
+
+	/**
+	 * Gives back a call that was let through but not sent.
+	 *
+	 * @param host the host
+	 */
+	public void release(String host) {
+		getCircuit(host).release();
+	}
+
+	/**
+	 * Records a successful call to the host.
+	 *
+	 * @param host the host
+	 */
+	public void onSuccess(String host) {
+		State previous = getCircuit(host).onSuccess();
+		if (previous != null) {
+			fireStateChanged(host, previous, State.CLOSED);
+		}
+	}
+
+	/**
+	 * Records a failed call to the host.
+	 *
+	 * @param host the host
+	 */
+	public void onFailure(String host) {
+		State previous = getCircuit(host).onFailure();
+		if (previous != null) {
+			fireStateChanged(host, previous, State.OPEN);
+		}
+	}
+
+	/**
+	 * Gets the circuit.
+	 *
+	 * @param host the host
+	 *
+	 * @return the circuit
+	 */
+	private Circuit getCircuit(String host) {
+		String key = getKey(host);
+		Circuit circuit = circuits.get(key);
+		if (circuit == null) {
+			Circuit newCircuit = new Circuit(host);
+			circuit = circuits.putIfAbsent(key, newCircuit);
+			if (circuit == null) {
+				circuit = newCircuit;
+			}
+		}
+		return circuit;
+	}
+
+	/**
+	 * Gets the key.
+	 *
+	 * @param host the host
+	 *
+	 * @return the key
+	 */
+	private static String getKey(String host) {
+		return host.toLowerCase(Locale.ENGLISH);
+	}
+
+	/**
+	 * Notifies the listeners.
+	 *
+	 * @param host the host
+	 * @param previousState the previous state
+	 * @param state the state
+	 */
+	private void fireStateChanged(String host, State previousState, State state) {
+		Event event = new Event(host, previousState, state);
+		LOG.info(event.toString());
+		for (Listener listener : listeners) {
+			try {
+				listener.stateChanged(event);
+			} catch (RuntimeException e) {
+				LOG.log(Level.WARNING, "Circuit breaker listener failed.", e);
+			}
+		}
+	}
+
+	/**
+	 * The Class Circuit.
+	 */
+	private class Circuit {
+
+		/** The host. */
+		private final String host;
+
+		/** The state. */
+		private State state = State.CLOSED;
+
+		/** The consecutive failures. */
+		private int failures;
+
+		/** The time the circuit opened. */
+		private long openedAt;
+
+		/** The trial calls let through while half open. */
+		private int trials;
+
+		/** The trial calls that succeeded. */
+		private int successes;
+
+		/**
+		 * Instantiates a new circuit.
+		 *
+		 * @param host the host
+		 */
+		Circuit(String host) {
+			this.host = host;
+		}
+
+		/**
+		 * Gets the state.
+		 *
+		 * @return the state
+		 */
+		synchronized State getState() {
+			return state;
+		}
+
+		/**
+		 * Lets a call through or rejects it.
+		 *
+		 * @return the previous state if the circuit became half open, otherwise null
+		 */
+		synchronized State acquire() {
+			State previous = null;
+			if (state == State.OPEN) {
+				if (System.currentTimeMillis() - openedAt < openTimeout) {
+					throw new CircuitOpenException("Circuit breaker for " + host + " is open.", new Date());
+				}
+				previous = state;
+				state = State.HALF_OPEN;
+				trials = 0;
+				successes = 0;
+			}
+			if (state == State.HALF_OPEN) {
+				if (trials >= halfOpenCalls) {
+					throw new CircuitOpenException("Circuit breaker for " + host + " is half open, waiting for trial calls.", new Date());
+				}
+				trials++;
+			}
+			return previous;
+		}
+
+		/**
+		 * Gives back a trial call.
+		 */
+		synchronized void release() {
+			if (state == State.HALF_OPEN && trials > 0) {
+				trials--;
+			}
+		}
+
+		/**
+		 * Records a success.
+		 *
+		 * @return the previous state if the circuit closed, otherwise null
+		 */
+		synchronized State onSuccess() {
+			failures = 0;
+			if (state == State.HALF_OPEN && ++successes >= halfOpenCalls) {
+				state = State.CLOSED;
+				return State.HALF_OPEN;
+			}
+			return null;
+		}
+
+		/**
+		 * Records a failure.
+		 *
+		 * @return the previous state if the circuit opened, otherwise null
+		 */
+		synchronized State onFailure() {
+			failures++;
+			if (state == State.HALF_OPEN || (state == State.CLOSED && failures >= failureThreshold)) {
+				State previous = state;
+				state = State.OPEN;
+				openedAt = System.currentTimeMillis();
+				return previous;
+			}
+			return null;
+		}
+	}
+}
@@ -0,0 +1,558 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+/**
+ * The Class ContentDecoder.
+ *
+ * Decodes response bodies sent with a gzip or deflate content encoding. The
+ * {@link Inflater}s and input buffers are pooled and reused across responses,
+ * and the body is inflated straight into the buffer of the reader, so a
+ * response costs no new native inflater and no copy through an intermediate
+ * buffer. Both zlib wrapped and raw deflate bodies are accepted, as servers
+ * differ on what deflate means.
+ *
+ * The decoder counts the bytes received and the bytes they decoded to.
+ */
+public class ContentDecoder {
+
+	/** The Constant DEFAULT_INSTANCE, shared by all clients and queries. */
+	private static final ContentDecoder DEFAULT_INSTANCE = new ContentDecoder();
+
+	/** The Constant DEFAULT_MAX_POOLED, the inflaters and buffers kept for reuse. */
+	public static final int DEFAULT_MAX_POOLED = 32;
+
+	/** The Constant BUFFER_SIZE. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** The Constant GZIP_MAGIC. */
+	private static final int GZIP_MAGIC = 0x8b1f;
+
+	/** The gzip header flags. */
+	private static final int FHCRC = 2, FEXTRA = 4, FNAME = 8, FCOMMENT = 16;
+
+	/** The pooled inflaters for raw deflate data, used by gzip too. */
+	private final Queue<Inflater> rawInflaters = new ConcurrentLinkedQueue<Inflater>();
+
+	/** The pooled inflaters for zlib wrapped data. */
+	private final Queue<Inflater> zlibInflaters = new ConcurrentLinkedQueue<Inflater>();
+
+	/** The pooled buffers. */
+	private final Queue<byte[]> buffers = new ConcurrentLinkedQueue<byte[]>();
+
+	/** The pooled inflaters and buffers, counted as the queues do not keep a size. */
+	private final AtomicInteger pooledRawInflaters = new AtomicInteger(), pooledZlibInflaters = new AtomicInteger(),
+			pooledBuffers = new AtomicInteger();
+
+	/** The max pooled. */
+	private final int maxPooled;
+
+	/** The encoded bytes received. */
+	private final AtomicLong encodedBytes = new AtomicLong();
+
+	/** The decoded bytes. */
+	private final AtomicLong decodedBytes = new AtomicLong();
+
+	/** The decoded responses. */
+	private final AtomicLong decodedResponses = new AtomicLong();
+
+	/**
+	 * Instantiates a new content decoder.
+	 */
+	public ContentDecoder() {
+		this(DEFAULT_MAX_POOLED);
+	}
+
+	/**
+	 * Instantiates a new content decoder.
+	 *
+	 * @param maxPooled the number of inflaters and buffers kept for reuse
+	 */
+	public ContentDecoder(int maxPooled) {
+		this.maxPooled = maxPooled;
+	}
+
+	/**
+	 * Gets the default decoder.
+	 *
+	 * @return the default decoder
+	 */
+	public static ContentDecoder getDefault() {
+		return DEFAULT_INSTANCE;
+	}
+
+	/**
+	 * Decodes the content.
+	 *
+	 * @param content the content as received
+	 * @param contentEncoding the content encoding, null for none
+	 *
+	 * @return the decoded content
+	 *
+	 * @throws IOException if the content encoding is not supported
+	 */
+	public InputStream decode(InputStream content, String contentEncoding) throws IOException {
+		if (contentEncoding == null) {
+			return content;
+		}
+		String encoding = contentEncoding.trim().toLowerCase(Locale.ENGLISH);
+		if (encoding.length() == 0 || "identity".equals(encoding)) {
+			return content;
+		} else if ("gzip".equals(encoding) || "x-gzip".equals(encoding)) {
+			return new InflatingInputStream(content, true);
+		} else if ("deflate".equals(encoding)) {
+			return new InflatingInputStream(content, false);
+		}
+		throw new IOException("Unsupported content encoding: " + contentEncoding);
+	}
+
+	/**
+	 * Gets the encoded bytes.
+	 *
+	 * @return the bytes of encoded content received
+	 */
+	public long getEncodedBytes() {
+		return encodedBytes.get();
+	}
+
+	/**
+	 * Gets the decoded bytes.
+	 *
+	 * @return the bytes the encoded content decoded to
+	 */
+	public long getDecodedBytes() {
+		return decodedBytes.get();
+	}
+
+	/**
+	 * Gets the decoded responses.
+	 *
+	 * @return the number of encoded responses read to the end or closed
+	 */
+	public long getDecodedResponses() {
+		return decodedResponses.get();
+	}
+
+	/**
+	 * Takes an inflater from the pool, or creates one.
+	 *
+	 * @param nowrap whether the data is raw deflate rather than zlib wrapped
+	 *
+	 * @return the inflater
+	 */
+	private Inflater takeInflater(boolean nowrap) {
+		Inflater inflater = (nowrap ? rawInflaters : zlibInflaters).poll();
+		if (inflater == null) {
+			return new Inflater(nowrap);
+		}
+		(nowrap ? pooledRawInflaters : pooledZlibInflaters).decrementAndGet();
+		return inflater;
+	}
+
+	/**
+	 * Gives an inflater back to the pool, or frees it if the pool is full.
+	 *
+	 * @param inflater the inflater
+	 * @param nowrap whether the inflater is for raw deflate data
+	 */
+	private void giveInflater(Inflater inflater, boolean nowrap) {
+		AtomicInteger pooled = nowrap ? pooledRawInflaters : pooledZlibInflaters;
+		if (pooled.incrementAndGet() <= maxPooled) {
+			inflater.reset();
+			(nowrap ? rawInflaters : zlibInflaters).offer(inflater);
+		} else {
+			pooled.decrementAndGet();
+			inflater.end();
+		}
+	}
+
+	/**
+	 * Takes a buffer from the pool, or allocates one.
+	 *
+	 * @return the buffer
+	 */
+	private byte[] takeBuffer() {
+		byte[] buffer = buffers.poll();
+		if (buffer == null) {
+			return new byte[BUFFER_SIZE];
+		}
+		pooledBuffers.decrementAndGet();
+		return buffer;
+	}
+
+	/**
+	 * Gives a buffer back to the pool.
+	 *
+	 * @param buffer the buffer
+	 */
+	private void giveBuffer(byte[] buffer) {
+		if (pooledBuffers.incrementAndGet() <= maxPooled) {
+			buffers.offer(buffer);
+		} else {
+			pooledBuffers.decrementAndGet();
+		}
+	}
+
+	/**
+	 * The Class InflatingInputStream.
+	 *
+	 * Inflates a gzip or deflate body. The inflater and buffer go back to the
+	 * pool when the body ends or the stream is closed.
+	 */
+	private class InflatingInputStream extends InputStream {
+
+		/** The source. */
+		private final InputStream source;
+
+		/** Whether the body is gzip. */
+		private final boolean gzip;
+
+		/** The buffer of received bytes. */
+		private byte[] buffer;
+
+		/** The number of bytes in the buffer. */
+		private int count;
+
+		/** The position of the next unread byte in the buffer. */
+		private int position;
+
+		/** The inflater, null until the header has been read. */
+		private Inflater inflater;
+
+		/** Whether the inflater is for raw deflate data. */
+		private boolean nowrap;
+
+		/** The checksum of a gzip member. */
+		private CRC32 crc;
+
+		/** The encoded bytes received. */
+		private long encoded;
+
+		/** The decoded bytes. */
+		private long decoded;
+
+		/** Whether the body has ended. */
+		private boolean eof;
+
+		/** Whether the stream has been released. */
+		private boolean released;
+
+		/**
+		 * Instantiates a new inflating input stream.
+		 *
+		 * @param source the source
+		 * @param gzip whether the body is gzip rather than deflate
+		 */
+		InflatingInputStream(InputStream source, boolean gzip) {
+			this.source = source;
+			this.gzip = gzip;
+			this.buffer = takeBuffer();
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.InputStream#read()
+		 */
+		@Override
+		public int read() throws IOException {
+			byte[] single = new byte[1];
+			return read(single, 0, 1) == -1 ? -1 : single[0] & 0xff;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.InputStream#read(byte[], int, int)
+		 */
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (released) {
+				if (eof) {
+					return -1;
+				}
+				throw new IOException("Stream closed.");
+			}
+			if (len == 0) {
+				return 0;
+			}
+			try {
+				if (inflater == null) {
+					start();
+				}
+				while (true) {
+					int inflated = inflater.inflate(b, off, len);
+					if (inflated > 0) {
+						decoded += inflated;
+						if (crc != null) {
+							crc.update(b, off, inflated);
+						}
+						return inflated;
+					}
+					if (inflater.finished()) {
+						if (!nextMember()) {
+							eof = true;
+							release();
+							return -1;
+						}
+					} else if (inflater.needsDictionary()) {
+						throw new ZipException("Deflate data needs a preset dictionary.");
+					} else if (inflater.needsInput()) {
+						if (!fill()) {
+							throw new EOFException("Unexpected end of " + (gzip ? "gzip" : "deflate") + " data.");
+						}
+						inflater.setInput(buffer, position, count - position);
+						position = count;
+					}
+				}
+			} catch (DataFormatException e) {
+				release();
+				throw new ZipException(e.getMessage());
+			} catch (IOException e) {
+				release();
+				throw e;
+			}
+		}
+
+		/**
+		 * Reads the gzip header, or looks at the first bytes of a deflate body
+		 * to tell zlib wrapped data from raw deflate, and sets up the inflater.
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private void start() throws IOException {
+			if (gzip) {
+				readGzipHeader();
+				nowrap = true;
+			} else {
+				if (!fill(2)) {
+					throw new EOFException("Unexpected end of deflate data.");
+				}
+				int cmf = buffer[position] & 0xff;
+				int flg = buffer[position + 1] & 0xff;
+				nowrap = (cmf & 0x0f) != 8 || ((cmf << 8) | flg) % 31 != 0;
+			}
+			inflater = takeInflater(nowrap);
+			if (position < count) {
+				inflater.setInput(buffer, position, count - position);
+				position = count;
+			}
+		}
+
+		/**
+		 * Reads a gzip member header.
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private void readGzipHeader() throws IOException {
+			if (readUnsignedShort() != GZIP_MAGIC) {
+				throw new ZipException("Not in gzip format.");
+			}
+			if (readUnsignedByte() != 8) {
+				throw new ZipException("Unsupported gzip compression method.");
+			}
+			int flags = readUnsignedByte();
+			skip(6);
+			if ((flags & FEXTRA) != 0) {
+				skip(readUnsignedShort());
+			}
+			if ((flags & FNAME) != 0) {
+				while (readUnsignedByte() != 0) {
+					// skip the file name
+				}
+			}
+			if ((flags & FCOMMENT) != 0) {
+				while (readUnsignedByte() != 0) {
+					// skip the comment
+				}
+			}
+			if ((flags & FHCRC) != 0) {
+				skip(2);
+			}
+			if (crc == null) {
+				crc = new CRC32();
+			} else {
+				crc.reset();
+			}
+		}
+
+		/**
+		 * Checks the trailer of a gzip member and starts the next member, if
+		 * any. A deflate body has a single stream.
+		 *
+		 * @return true, if another gzip member follows
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private boolean nextMember() throws IOException {
+			// the inflater may have been handed more bytes than the stream needed
+			position -= inflater.getRemaining();
+			if (!gzip) {
+				return false;
+			}
+			long expectedCrc = readUnsignedInt();
+			long expectedSize = readUnsignedInt();
+			if (expectedCrc != crc.getValue() || expectedSize != (inflater.getBytesWritten() & 0xffffffffL)) {
+				throw new ZipException("Corrupt gzip trailer.");
+			}
+			if (position == count && !fill()) {
+				return false;
+			}
+			readGzipHeader();
+			inflater.reset();
+			if (position < count) {
+				inflater.setInput(buffer, position, count - position);
+				position = count;
+			}
+			return true;
+		}
+
+		/**
+		 * Refills the buffer from the source.
+		 *
+		 * @return false, if the source has ended
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private boolean fill() throws IOException {
+			int read = source.read(buffer, 0, buffer.length);
+			if (read == -1) {
+				count = 0;
+				position = 0;
+				return false;
+			}
+			encoded += read;
+			count = read;
+			position = 0;
+			return true;
+		}
+
+		/**
+		 * Reads from the source until the buffer holds at least the given
+		 * number of unread bytes.
+		 *
+		 * @param bytes the bytes
+		 *
+		 * @return false, if the source ended first
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private boolean fill(int bytes) throws IOException {
+			if (position > 0) {
+				System.arraycopy(buffer, position, buffer, 0, count - position);
+				count -= position;
+				position = 0;
+			}
+			while (count < bytes) {
+				int read = source.read(buffer, count, buffer.length - count);
+				if (read == -1) {
+					return false;
+				}
+				encoded += read;
+				count += read;
+			}
+			return true;
+		}
+
+		/**
+		 * Reads an unsigned byte of a header or trailer.
+		 *
+		 * @return the byte
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private int readUnsignedByte() throws IOException {
+			if (position == count && !fill()) {
+				throw new EOFException("Unexpected end of " + (gzip ? "gzip" : "deflate") + " data.");
+			}
+			return buffer[position++] & 0xff;
+		}
+
+		/**
+		 * Reads a little endian unsigned short.
+		 *
+		 * @return the short
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private int readUnsignedShort() throws IOException {
+			return readUnsignedByte() | (readUnsignedByte() << 8);
+		}
+
+		/**
+		 * Reads a little endian unsigned int.
+		 *
+		 * @return the int
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private long readUnsignedInt() throws IOException {
+			return readUnsignedShort() | ((long) readUnsignedShort() << 16);
+		}
+
+		/**
+		 * Skips bytes of a header.
+		 *
+		 * @param bytes the bytes
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private void skip(int bytes) throws IOException {
+			for (int i = 0; i < bytes; i++) {
+				readUnsignedByte();
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.InputStream#close()
+		 */
+		@Override
+		public void close() throws IOException {
+			release();
+			source.close();
+		}
+
+		/**
+		 * Gives the inflater and buffer back to the pool and records the
+		 * counts, once.
+		 */
+		private void release() {
+			if (released) {
+				return;
+			}
+			released = true;
+			if (inflater != null) {
+				giveInflater(inflater, nowrap);
+				inflater = null;
+			}
+			giveBuffer(buffer);
+			buffer = null;
+			encodedBytes.addAndGet(encoded);
+			decodedBytes.addAndGet(decoded);
+			decodedResponses.incrementAndGet();
+		}
+	}
+}
@@ -0,0 +1,162 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.code.stackexchange.client.cache.EntityCache;
+import com.google.code.stackexchange.common.PagedArrayList;
+import com.google.code.stackexchange.common.PagedList;
+import com.google.code.stackexchange.schema.Answer;
+import com.google.code.stackexchange.schema.Comment;
+import com.google.code.stackexchange.schema.Question;
+import com.google.code.stackexchange.schema.User;
+
+/**
+ * The Class EntityRequest.
+ *
+ * A call for entities by id served partly from an entity cache. The ids
+ * that are cached are looked up when the request is created, the others
+ * are fetched and then merged with them in the order of the caller.
+ */
+class EntityRequest<T> {
+
+	/** The cache. */
+	private final EntityCache cache;
+
+	/** The type. */
+	private final Class<T> type;
+
+	/** The view. */
+	private final String view;
+
+	/** The ids in the order of the caller. */
+	private final long[] ids;
+
+	/** The ids to fetch. */
+	private final long[] missingIds;
+
+	/** The entities found so far keyed by id. */
+	private final Map<Long, T> found = new HashMap<Long, T>();
+
+	/**
+	 * Instantiates a new entity request and looks up the cached ids.
+	 *
+	 * @param cache the cache
+	 * @param type the type
+	 * @param view the canonical url of the call without its ids
+	 * @param ids the ids
+	 */
+	EntityRequest(EntityCache cache, Class<T> type, String view, long[] ids) {
+		this.cache = cache;
+		this.type = type;
+		this.view = view;
+		this.ids = ids;
+		Set<Long> missing = new LinkedHashSet<Long>();
+		for (long id : ids) {
+			if (found.containsKey(id) || missing.contains(id)) {
+				continue;
+			}
+			T entity = cache.get(type, view, id);
+			if (entity != null) {
+				found.put(id, entity);
+			} else {
+				missing.add(id);
+			}
+		}
+		long[] missingIds = new long[missing.size()];
+		int i = 0;
+		for (long id : missing) {
+			missingIds[i++] = id;
+		}
+		this.missingIds = missingIds;
+	}
+
+	/**
+	 * Gets the ids that were not cached.
+	 *
+	 * @return the ids to fetch, empty if all were cached
+	 */
+	long[] getMissingIds() {
+		return missingIds;
+	}
+
+	/**
+	 * Caches the fetched entities and merges them with the cached ones, in
+	 * the order of the ids of the caller. An id the caller repeated gets its
+	 * entity each time. Ids the api returned nothing for are left out, as
+	 * they are by the api. The total counts the cached
+	 * entities and the total of the fetched ones.
+	 *
+	 * @param fetched the fetched entities, empty if all were cached
+	 *
+	 * @return the entities
+	 */
+	PagedList<T> merge(List<T> fetched) {
+		int cached = found.size();
+		for (T entity : fetched) {
+			long id = getId(entity);
+			cache.put(type, view, id, entity);
+			found.put(id, entity);
+		}
+		PagedArrayList<T> list = new PagedArrayList<T>();
+		for (long id : ids) {
+			T entity = found.get(id);
+			if (entity != null) {
+				list.add(entity);
+			}
+		}
+		if (fetched instanceof PagedList<?>) {
+			PagedList<T> page = (PagedList<T>) fetched;
+			list.setTotal(page.getTotal() + cached);
+			list.setPage(page.getPage());
+			list.setPageSize(page.getPageSize());
+		} else {
+			list.setTotal(list.size());
+			list.setPage(1);
+			list.setPageSize(list.size());
+		}
+		return list;
+	}
+
+	/**
+	 * Gets the id of an entity.
+	 *
+	 * @param entity the entity
+	 *
+	 * @return the id
+	 */
+	private static long getId(Object entity) {
+		if (entity instanceof Question) {
+			return ((Question) entity).getQuestionId();
+		}
+		if (entity instanceof Answer) {
+			return ((Answer) entity).getAnswerId();
+		}
+		if (entity instanceof Comment) {
+			return ((Comment) entity).getCommentId();
+		}
+		if (entity instanceof User) {
+			return ((User) entity).getUserId();
+		}
+		throw new IllegalArgumentException("Entities of type " + entity.getClass().getName() + " have no id.");
+	}
+}
@@ -0,0 +1,480 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.code.stackexchange.client.transport.HttpRequest;
+import com.google.code.stackexchange.client.transport.HttpResponse;
+import com.google.code.stackexchange.client.transport.HttpTransport;
+
+/**
+ * The Class HedgingPolicy.
+ *
+ * Sends a second copy of an idempotent request when the first has not
+ * answered within a percentile of the recent response times, and uses
+ * whichever response arrives first. The other request is aborted and its
+ * response, if it still arrives, is closed so that its connection is
+ * released. Hedges are paid for from a budget that each call credits with a
+ * fraction of a request, which bounds the extra load.
+ *
+ * The request that was sent first runs on the calling thread. Hedges run on
+ * a pool of daemon threads owned by the policy.
+ */
+public class HedgingPolicy {
+
+	/** The Constant DEFAULT_PERCENTILE. */
+	public static final double DEFAULT_PERCENTILE = 95.0;
+
+	/** The Constant DEFAULT_MIN_DELAY. */
+	public static final long DEFAULT_MIN_DELAY = 20L;
+
+	/** The Constant DEFAULT_BUDGET_RATIO. */
+	public static final double DEFAULT_BUDGET_RATIO = 0.05;
+
+	/** The Constant DEFAULT_BUDGET_RESERVE. */
+	public static final int DEFAULT_BUDGET_RESERVE = 5;
+
+	/** The Constant DEFAULT_MIN_SAMPLES. */
+	public static final int DEFAULT_MIN_SAMPLES = 20;
+
+	/** The Constant WINDOW_SIZE, the number of response times kept. */
+	private static final int WINDOW_SIZE = 1000;
+
+	/** The Constant RECALCULATE_INTERVAL, the samples between threshold updates. */
+	private static final int RECALCULATE_INTERVAL = 50;
+
+	/** The response times, a ring buffer. */
+	private final long[] samples = new long[WINDOW_SIZE];
+
+	/** The number of samples. */
+	private int sampleCount;
+
+	/** The next sample index. */
+	private int nextSample;
+
+	/** The samples since the threshold was calculated. */
+	private int samplesSinceUpdate;
+
+	/** The percentile threshold, -1 until enough samples were taken. */
+	private long threshold = -1;
+
+	/** The percentile. */
+	private final double percentile;
+
+	/** The budget. */
+	private final RetryPolicy.RetryBudget budget;
+
+	/** The min delay. */
+	private volatile long minDelay = DEFAULT_MIN_DELAY;
+
+	/** The min samples. */
+	private volatile int minSamples = DEFAULT_MIN_SAMPLES;
+
+	/** The number of hedges sent. */
+	private final AtomicLong hedgesSent = new AtomicLong();
+
+	/** The number of hedges whose response was used. */
+	private final AtomicLong hedgesWon = new AtomicLong();
+
+	/** The timer that sends the hedges. */
+	private Timer timer;
+
+	/** The executor the hedges run on. */
+	private ExecutorService executor;
+
+	/**
+	 * Instantiates a new hedging policy with the default percentile and budget.
+	 */
+	public HedgingPolicy() {
+		this(DEFAULT_PERCENTILE, DEFAULT_BUDGET_RATIO, DEFAULT_BUDGET_RESERVE);
+	}
+
+	/**
+	 * Instantiates a new hedging policy.
+	 *
+	 * @param percentile the percentile of the response times after which a hedge is sent
+	 * @param budgetRatio the hedges earned per call, the max share of extra requests
+	 * @param budgetReserve the hedges that can be sent in a burst
+	 */
+	public HedgingPolicy(double percentile, double budgetRatio, int budgetReserve) {
+		if (percentile <= 0 || percentile > 100) {
+			throw new IllegalArgumentException("percentile must be greater than 0 and at most 100.");
+		}
+		this.percentile = percentile;
+		this.budget = new RetryPolicy.RetryBudget(budgetRatio, budgetReserve);
+	}
+
+	/**
+	 * Gets the percentile.
+	 *
+	 * @return the percentile
+	 */
+	public double getPercentile() {
+		return percentile;
+	}
+
+	/**
+	 * Gets the min delay.
+	 *
+	 * @return the min delay in milliseconds
+	 */
+	public long getMinDelay() {
+		return minDelay;
+	}
+
+	/**
+	 * Sets the shortest time to wait before sending a hedge.
+	 *
+	 * @param minDelay the new min delay in milliseconds
+	 */
+	public void setMinDelay(long minDelay) {
+		this.minDelay = minDelay;
+	}
+
+	/**
+	 * Gets the min samples.
+	 *
+	 * @return the min samples
+	 */
+	public int getMinSamples() {
+		return minSamples;
+	}
+
+	/**
+	 * Sets the number of response times to collect before hedging starts.
+	 *
+	 * @param minSamples the new min samples
+	 */
+	public void setMinSamples(int minSamples) {
+		this.minSamples = minSamples;
+	}
+
+	/**
+	 * Gets the number of hedges sent.
+	 *
+	 * @return the hedges sent
+	 */
+	public long getHedgesSent() {
+		return hedgesSent.get();
+	}
+
+	/**
+	 * Gets the number of hedges whose response was used.
+	 *
+	 * @return the hedges won
+	 */
+	public long getHedgesWon() {
+		return hedgesWon.get();
+	}
+
+	/**
+	 * Gets the time after which a hedge is sent.
+	 *
+	 * @return the hedge delay in milliseconds, -1 if not enough response
+	 * times were collected yet
+	 */
+	public synchronized long getHedgeDelay() {
+		return threshold < 0 ? -1 : Math.max(minDelay, threshold);
+	}
+
+	/**
+	 * Executes the request on the transport, hedging it if it is idempotent.
+	 *
+	 * @param transport the transport
+	 * @param request the request
+	 *
+	 * @return the first http response
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public HttpResponse execute(HttpTransport transport, HttpRequest request) throws IOException {
+		budget.deposit();
+		long delay = getHedgeDelay();
+		long start = System.currentTimeMillis();
+		if (delay < 0 || !request.isIdempotent()) {
+			HttpResponse response = transport.execute(request);
+			recordLatency(System.currentTimeMillis() - start);
+			return response;
+		}
+		final HedgedCall call = new HedgedCall(transport, request);
+		TimerTask hedge = new TimerTask() {
+			@Override
+			public void run() {
+				call.hedge();
+			}
+		};
+		getTimer().schedule(hedge, delay);
+		HttpResponse response = null;
+		try {
+			try {
+				response = call.primaryCompleted(transport.execute(call.primary));
+			} catch (IOException e) {
+				hedge.cancel();
+				response = call.primaryFailed(e);
+			}
+		} finally {
+			hedge.cancel();
+			if (response == null) {
+				// the call failed, unchecked failures of the primary included
+				call.abandon();
+			}
+		}
+		recordLatency(System.currentTimeMillis() - start);
+		return response;
+	}
+
+	/**
+	 * Records a response time.
+	 *
+	 * @param latency the latency
+	 */
+	private synchronized void recordLatency(long latency) {
+		samples[nextSample] = latency;
+		nextSample = (nextSample + 1) % samples.length;
+		if (sampleCount < samples.length) {
+			sampleCount++;
+		}
+		samplesSinceUpdate++;
+		if (sampleCount >= minSamples && (threshold < 0 || samplesSinceUpdate >= RECALCULATE_INTERVAL)) {
+			long[] sorted = Arrays.copyOf(samples, sampleCount);
+			Arrays.sort(sorted);
+			int index = (int) Math.ceil(percentile / 100 * sampleCount) - 1;
+			threshold = sorted[Math.max(0, index)];
+			samplesSinceUpdate = 0;
+		}
+	}
+
+	/**
+	 * Gets the timer.
+	 *
+	 * @return the timer
+	 */
+	private synchronized Timer getTimer() {
+		if (timer == null) {
+			timer = new Timer("stackexchange-hedging", true);
+		}
+		return timer;
+	}
+
+	/**
+	 * Gets the executor.
+	 *
+	 * @return the executor
+	 */
+	private synchronized ExecutorService getExecutor() {
+		if (executor == null) {
+			executor = Executors.newCachedThreadPool(new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "stackexchange-hedge-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return executor;
+	}
+
+	/**
+	 * The Class HedgedCall.
+	 *
+	 * Decides which of the two requests of a call wins.
+	 */
+	private class HedgedCall {
+
+		/** The transport. */
+		private final HttpTransport transport;
+
+		/** The request sent first. */
+		private final HttpRequest primary;
+
+		/** The hedge request. */
+		private final HttpRequest hedge;
+
+		/** Whether the hedge was sent. */
+		private boolean hedgeSent;
+
+		/** Whether the hedge has finished. */
+		private boolean hedgeDone;
+
+		/** Whether a winner was chosen. */
+		private boolean decided;
+
+		/** The hedge response, if the hedge won. */
+		private HttpResponse hedgeResponse;
+
+		/**
+		 * Instantiates a new hedged call. Both requests are copies, so that
+		 * aborting the loser leaves the request of the caller usable.
+		 *
+		 * @param transport the transport
+		 * @param request the request
+		 */
+		HedgedCall(HttpTransport transport, HttpRequest request) {
+			this.transport = transport;
+			this.primary = new HttpRequest(request);
+			this.hedge = new HttpRequest(request);
+		}
+
+		/**
+		 * Sends the hedge if the call is still undecided and the budget allows.
+		 */
+		void hedge() {
+			synchronized (this) {
+				if (decided || !budget.tryWithdraw()) {
+					return;
+				}
+				hedgeSent = true;
+			}
+			hedgesSent.incrementAndGet();
+			try {
+				getExecutor().execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							hedgeCompleted(transport.execute(hedge));
+						} catch (IOException e) {
+							hedgeFailed();
+						} catch (RuntimeException e) {
+							hedgeFailed();
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				hedgesSent.decrementAndGet();
+				hedgeFailed();
+			}
+		}
+
+		/**
+		 * Handles the response of the hedge.
+		 *
+		 * @param response the response
+		 */
+		private void hedgeCompleted(HttpResponse response) {
+			synchronized (this) {
+				hedgeDone = true;
+				if (!decided) {
+					decided = true;
+					hedgeResponse = response;
+					notifyAll();
+					response = null;
+				}
+			}
+			if (response != null) {
+				response.close();
+			} else {
+				hedgesWon.incrementAndGet();
+				primary.abort();
+			}
+		}
+
+		/**
+		 * Handles the failure of the hedge.
+		 */
+		private synchronized void hedgeFailed() {
+			hedgeDone = true;
+			notifyAll();
+		}
+
+		/**
+		 * Handles the response of the primary request.
+		 *
+		 * @param response the response
+		 *
+		 * @return the response of the call
+		 */
+		HttpResponse primaryCompleted(HttpResponse response) {
+			boolean abortHedge;
+			synchronized (this) {
+				if (decided) {
+					response.close();
+					return hedgeResponse;
+				}
+				decided = true;
+				abortHedge = hedgeSent && !hedgeDone;
+			}
+			if (abortHedge) {
+				hedge.abort();
+			}
+			return response;
+		}
+
+		/**
+		 * Handles the failure of the primary request, which is also how a
+		 * primary aborted by a winning hedge ends.
+		 *
+		 * @param failure the failure
+		 *
+		 * @return the response of the hedge, if it wins
+		 *
+		 * @throws IOException the failure, if the hedge does not win
+		 */
+		synchronized HttpResponse primaryFailed(IOException failure) throws IOException {
+			try {
+				while (!decided && hedgeSent && !hedgeDone) {
+					wait();
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				decided = true;
+				hedge.abort();
+				throw new InterruptedIOException("Interrupted while waiting for " + hedge + ".");
+			}
+			if (hedgeResponse != null) {
+				return hedgeResponse;
+			}
+			decided = true;
+			throw failure;
+		}
+
+		/**
+		 * Ends a call that failed: no hedge is sent any more, a hedge in
+		 * flight is aborted and the response of a hedge that won is closed,
+		 * as nobody will read it.
+		 */
+		void abandon() {
+			HttpResponse response;
+			boolean abortHedge;
+			synchronized (this) {
+				decided = true;
+				response = hedgeResponse;
+				hedgeResponse = null;
+				abortHedge = hedgeSent && !hedgeDone;
+			}
+			if (abortHedge) {
+				hedge.abort();
+			}
+			if (response != null) {
+				response.close();
+			}
+		}
+	}
+}
@@ -0,0 +1,250 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.lang.reflect.Type;
+import java.util.Date;
+
+import com.google.code.stackexchange.common.JsonAdapter;
+import com.google.code.stackexchange.common.JsonAdapters;
+import com.google.code.stackexchange.schema.BadgeRank;
+import com.google.code.stackexchange.schema.PostTimelineType;
+import com.google.code.stackexchange.schema.PostType;
+import com.google.code.stackexchange.schema.RevisionType;
+import com.google.code.stackexchange.schema.SiteState;
+import com.google.code.stackexchange.schema.TagRestriction;
+import com.google.code.stackexchange.schema.UserTimelineType;
+import com.google.code.stackexchange.schema.UserType;
+import com.google.gson.FieldNamingPolicy;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonDeserializationContext;
+import com.google.gson.JsonDeserializer;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParseException;
+
+/**
+ * The Class JsonCodec.
+ *
+ * Holds the Gson instance decoding the schema entities, with the
+ * deserializers of dates and enums registered. Building a Gson registers the
+ * deserializers and sets up its type adapters, so a codec is built once and
+ * then shared. It is immutable and safe to use from any number of threads.
+ *
+ * The default codec also reads entities with the json adapters generated for
+ * the schema at build time, which skip both the tree and reflection. A codec
+ * built from a custom builder leaves every entity to its Gson, so that type
+ * adapters registered on the builder are honoured.
+ *
+ * The generated adapters read the values that repeat across entities, e.g.
+ * tags and display names, through a {@link StringPool}, so that the
+ * entities decoded with one codec share their instances.
+ *
+ * Clients and queries share {@link #getDefault()} unless given their own.
+ */
+public class JsonCodec {
+
+	/** The Constant DEFAULT_INSTANCE. */
+	private static final JsonCodec DEFAULT_INSTANCE = new JsonCodec();
+
+	/** The gson. */
+	private final Gson gson;
+
+	/** Whether the generated json adapters are used. */
+	private final boolean generatedAdapters;
+
+	/** The string pool, null if values are not pooled. */
+	private final StringPool stringPool;
+
+	/**
+	 * Instantiates a new json codec with the default deserializers.
+	 */
+	public JsonCodec() {
+		this(new StringPool());
+	}
+
+	/**
+	 * Instantiates a new json codec with the default deserializers and the
+	 * given string pool, e.g. a larger one for a crawler keeping many
+	 * entities in memory.
+	 *
+	 * @param stringPool the string pool, null to not pool values
+	 */
+	public JsonCodec(StringPool stringPool) {
+		this.gson = createGsonBuilder().create();
+		this.generatedAdapters = true;
+		this.stringPool = stringPool;
+	}
+
+	/**
+	 * Instantiates a new json codec.
+	 *
+	 * @param builder the builder of the gson, e.g. one from
+	 * {@link #createGsonBuilder()} with more type adapters registered
+	 */
+	public JsonCodec(GsonBuilder builder) {
+		this.gson = builder.create();
+		this.generatedAdapters = false;
+		this.stringPool = null;
+	}
+
+	/**
+	 * Gets the codec shared by default.
+	 *
+	 * @return the default codec
+	 */
+	public static JsonCodec getDefault() {
+		return DEFAULT_INSTANCE;
+	}
+
+	/**
+	 * Gets the gson.
+	 *
+	 * @return the gson
+	 */
+	public Gson getGson() {
+		return gson;
+	}
+
+	/**
+	 * Decodes a json element.
+	 *
+	 * @param json the json
+	 * @param clazz the clazz
+	 *
+	 * @return the decoded object
+	 *
+	 * @throws JsonParseException if the element cannot be decoded
+	 */
+	public <T> T fromJson(JsonElement json, Class<T> clazz) {
+		return gson.fromJson(json, clazz);
+	}
+
+	/**
+	 * Gets the string pool.
+	 *
+	 * @return the string pool, null if values are not pooled
+	 */
+	public StringPool getStringPool() {
+		return stringPool;
+	}
+
+	/**
+	 * Gets the json adapter generated for a class.
+	 *
+	 * @param clazz the clazz
+	 *
+	 * @return the json adapter, null if the class has none or this codec
+	 * leaves it to Gson
+	 */
+	public <T> JsonAdapter<T> getAdapter(Class<T> clazz) {
+		return generatedAdapters ? JsonAdapters.getAdapter(clazz) : null;
+	}
+
+	/**
+	 * Creates a builder with the deserializers of the schema registered.
+	 *
+	 * @return the gson builder
+	 */
+	public static GsonBuilder createGsonBuilder() {
+		GsonBuilder builder = new GsonBuilder();
+		builder.registerTypeAdapter(Date.class, new JsonDeserializer<Date>() {
+
+			@Override
+			public Date deserialize(JsonElement source, Type arg1,
+					JsonDeserializationContext arg2) throws JsonParseException {
+				return new Date(source.getAsLong() * 1000);
+			}
+			
+		});
+		builder.registerTypeAdapter(BadgeRank.class, new JsonDeserializer<BadgeRank>() {
+
+			@Override
+			public BadgeRank deserialize(JsonElement arg0, Type arg1,
+					JsonDeserializationContext arg2) throws JsonParseException {
+				return BadgeRank.fromValue(arg0.getAsString());
+			}
+			
+		});
+		builder.registerTypeAdapter(PostType.class, new JsonDeserializer<PostType>() {
+
+			@Override
+			public PostType deserialize(JsonElement arg0, Type arg1,
+					JsonDeserializationContext arg2) throws JsonParseException {
+				return PostType.fromValue(arg0.getAsString());
+			}
+			
+		});
+		builder.registerTypeAdapter(PostTimelineType.class, new JsonDeserializer<PostTimelineType>() {
+
+			@Override
+			public PostTimelineType deserialize(JsonElement arg0, Type arg1,
+					JsonDeserializationContext arg2) throws JsonParseException {
+				return PostTimelineType.fromValue(arg0.getAsString());
+			}
+			
+		});
+		builder.registerTypeAdapter(UserTimelineType.class, new JsonDeserializer<UserTimelineType>() {
+
+			@Override
+			public UserTimelineType deserialize(JsonElement arg0, Type arg1,
+					JsonDeserializationContext arg2) throws JsonParseException {
+				return UserTimelineType.fromValue(arg0.getAsString());
+			}
+			
+		});
+		builder.registerTypeAdapter(UserType.class, new JsonDeserializer<UserType>() {
+
+			@Override
+			public UserType deserialize(JsonElement arg0, Type arg1,
+					JsonDeserializationContext arg2) throws JsonParseException {
+				return UserType.fromValue(arg0.getAsString());
+			}
+			
+		});
+		builder.registerTypeAdapter(RevisionType.class, new JsonDeserializer<RevisionType>() {
+
+			@Override
+			public RevisionType deserialize(JsonElement arg0, Type arg1,
+					JsonDeserializationContext arg2) throws JsonParseException {
+				return RevisionType.fromValue(arg0.getAsString());
+			}
+			
+		});
+		builder.registerTypeAdapter(TagRestriction.class, new JsonDeserializer<TagRestriction>() {
+
+			@Override
+			public TagRestriction deserialize(JsonElement arg0, Type arg1,
+					JsonDeserializationContext arg2) throws JsonParseException {
+				return TagRestriction.fromValue(arg0.getAsString());
+			}
+			
+		});
+		builder.registerTypeAdapter(SiteState.class, new JsonDeserializer<SiteState>() {
+
+			@Override
+			public SiteState deserialize(JsonElement arg0, Type arg1,
+					JsonDeserializationContext arg2) throws JsonParseException {
+				return SiteState.fromValue(arg0.getAsString());
+			}
+		});
+		
+		builder.setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES);
+		
+		return builder;
+	}
+}
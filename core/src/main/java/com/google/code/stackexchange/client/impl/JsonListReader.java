@@ -0,0 +1,1184 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.google.code.stackexchange.common.JsonAdapter;
+import com.google.code.stackexchange.common.JsonSource;
+import com.google.code.stackexchange.common.LazyPagedList;
+import com.google.code.stackexchange.common.PagedArrayList;
+import com.google.code.stackexchange.common.PagedList;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonNull;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonPrimitive;
+
+/**
+ * The Class JsonListReader.
+ *
+ * Reads a list response in one pass over the stream. The paging fields are
+ * read as they come and the elements of the list are decoded one at a time,
+ * so that only the tree of the current element is ever held in memory rather
+ * than the tree of the whole response. Other fields are skipped without being
+ * built. Elements with a generated {@link JsonAdapter} are read straight
+ * into the entity through this reader's {@link JsonSource} methods. Others
+ * are built into a tree the way the Gson parser builds them and decoded by
+ * Gson, so they decode the same either way.
+ *
+ * Lists can also be read lazily from content held in memory, in which case
+ * the elements are only located in the first pass and each is decoded when
+ * it is first read.
+ *
+ * A reader is meant to be used for one response by one thread.
+ */
+public class JsonListReader implements JsonSource {
+
+	/** The Constant BUFFER_SIZE. */
+	private static final int BUFFER_SIZE = 4096;
+
+	/** The Constant NULL. */
+	private static final JsonNull NULL = new JsonNull();
+
+	/** The Constant EMPTY, for an object or array with no member read yet. */
+	private static final int EMPTY = 0;
+
+	/** The Constant NONEMPTY, for an object or array expecting a comma or its end. */
+	private static final int NONEMPTY = 1;
+
+	/** The Constant NEXT, for an object or array whose comma has been read. */
+	private static final int NEXT = 2;
+
+	/** The reader, null if the whole content is in the buffer. */
+	private final Reader reader;
+
+	/** The buffer. */
+	private final char[] buffer;
+
+	/** The position of the next char in the buffer. */
+	private int position;
+
+	/** The number of chars in the buffer. */
+	private int limit;
+
+	/** The scratch builder for strings and numbers. */
+	private final StringBuilder text = new StringBuilder();
+
+	/** Whether each object or array read through the json source methods is an object. */
+	private boolean[] objects = new boolean[16];
+
+	/** The state of each object or array read through the json source methods. */
+	private int[] states = new int[16];
+
+	/** The number of objects and arrays open. */
+	private int depth;
+
+	/** The names of the fields read from each element, null to read them all. */
+	private String[] fields;
+
+	/** The name of the next member of the element, already read by hasNext. */
+	private String nextField;
+
+	/** The pool of the strings read with nextPooledString, null to not pool them. */
+	private StringPool stringPool;
+
+	/** The nested entities shared by class and id, null if they are not shared. */
+	private Map<Class<?>, Map<Object, Object>> sharedEntities;
+
+	/**
+	 * Instantiates a new json list reader.
+	 *
+	 * @param reader the reader
+	 */
+	public JsonListReader(Reader reader) {
+		this.reader = reader;
+		this.buffer = new char[BUFFER_SIZE];
+	}
+
+	/**
+	 * Instantiates a new json list reader of content held in memory.
+	 *
+	 * @param content the content
+	 * @param start the start of the content to read
+	 * @param end the end of the content to read
+	 */
+	private JsonListReader(char[] content, int start, int end) {
+		this.reader = null;
+		this.buffer = content;
+		this.position = start;
+		this.limit = end;
+	}
+
+	/**
+	 * Reads the whole content into memory, so that lists can be read lazily
+	 * with {@link #readLazyList(Class, String, JsonCodec)}.
+	 *
+	 * @param reader the reader
+	 *
+	 * @return the json list reader of the content
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static JsonListReader readContent(Reader reader) throws IOException {
+		char[] content = new char[BUFFER_SIZE];
+		int length = 0;
+		int count;
+		while ((count = reader.read(content, length, content.length - length)) != -1) {
+			length += count;
+			if (length == content.length) {
+				content = Arrays.copyOf(content, content.length * 2);
+			}
+		}
+		return new JsonListReader(content, 0, length);
+	}
+
+	/**
+	 * Sets the fields read from each element. The other members of the
+	 * elements are skipped without being built, so the fields they map to
+	 * keep their default values. Members of nested objects are all read.
+	 *
+	 * @param fields the json names of the fields, null to read every field
+	 */
+	public void setFields(Collection<String> fields) {
+		this.fields = fields == null ? null : fields.toArray(new String[fields.size()]);
+	}
+
+	/**
+	 * Sets whether the entities nested in the elements, e.g. the owners of
+	 * questions, are shared by id. An entity with an identity field read
+	 * again with the same id is then skipped and the one read first returned.
+	 * The elements themselves are never shared.
+	 *
+	 * @param identityMapping true to share nested entities by id
+	 */
+	public void setIdentityMapping(boolean identityMapping) {
+		this.sharedEntities = identityMapping ? new HashMap<Class<?>, Map<Object, Object>>() : null;
+	}
+
+	/**
+	 * Reads a list response.
+	 *
+	 * @param clazz the class of the elements
+	 * @param placeHolder the name of the field holding the elements
+	 * @param codec the codec decoding the elements
+	 *
+	 * @return the paged list
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws JsonParseException if the content is not a json object
+	 */
+	public <T> PagedList<T> readList(Class<T> clazz, String placeHolder, JsonCodec codec) throws IOException {
+		return readList(clazz, placeHolder, codec, false);
+	}
+
+	/**
+	 * Reads a list response whose elements are only decoded when they are
+	 * first read. The syntax of the whole response is checked at once, but an
+	 * element that does not fit its class fails when it is read. The list
+	 * holds on to the content until all its elements have been decoded.
+	 *
+	 * @param clazz the class of the elements
+	 * @param placeHolder the name of the field holding the elements
+	 * @param codec the codec decoding the elements
+	 *
+	 * @return the lazy paged list
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 * @throws JsonParseException if the content is not a json object
+	 * @throws IllegalStateException if the content is not in memory, see
+	 * {@link #readContent(Reader)}
+	 */
+	public <T> PagedList<T> readLazyList(Class<T> clazz, String placeHolder, JsonCodec codec) throws IOException {
+		if (reader != null) {
+			throw new IllegalStateException("Lazy lists need the whole content in memory.");
+		}
+		return readList(clazz, placeHolder, codec, true);
+	}
+
+	/**
+	 * Reads a list response.
+	 *
+	 * @param clazz the class of the elements
+	 * @param placeHolder the name of the field holding the elements
+	 * @param codec the codec decoding the elements
+	 * @param lazy whether to only note where the elements are
+	 *
+	 * @return the paged list
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private <T> PagedList<T> readList(Class<T> clazz, String placeHolder, JsonCodec codec, boolean lazy) throws IOException {
+		PagedList<T> elements = new PagedArrayList<T>();
+		JsonAdapter<T> adapter = codec.getAdapter(clazz);
+		stringPool = codec.getStringPool();
+		int[] bounds = new int[lazy ? 64 : 0];
+		int count = 0;
+		expect('{');
+		if (peek() == '}') {
+			position++;
+		} else {
+			do {
+				String name = readString();
+				expect(':');
+				if ("total".equals(name)) {
+					elements.setTotal(readValue().getAsLong());
+				} else if ("page".equals(name)) {
+					elements.setPage(readValue().getAsInt());
+				} else if ("pagesize".equals(name)) {
+					elements.setPageSize(readValue().getAsInt());
+				} else if (name.equals(placeHolder) && peek() == '[') {
+					elements.clear();
+					count = 0;
+					position++;
+					if (peek() == ']') {
+						position++;
+					} else {
+						do {
+							if (lazy) {
+								peek();
+								if (count * 2 == bounds.length) {
+									bounds = Arrays.copyOf(bounds, bounds.length * 2);
+								}
+								bounds[count * 2] = position;
+								skip();
+								bounds[count * 2 + 1] = position;
+								count++;
+							} else {
+								elements.add(readElement(clazz, adapter, codec));
+							}
+						} while (next(',', ']'));
+					}
+				} else {
+					skip();
+				}
+			} while (next(',', '}'));
+		}
+		if (!lazy) {
+			return elements;
+		}
+		PagedList<T> list = new LazyPagedList<T>(count, new ElementDecoder<T>(buffer, Arrays.copyOf(bounds, count * 2), clazz, codec, fields, sharedEntities));
+		list.setTotal(elements.getTotal());
+		list.setPage(elements.getPage());
+		list.setPageSize(elements.getPageSize());
+		return list;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.JsonSource#beginObject()
+	 */
+	@Override
+	public void beginObject() throws IOException {
+		beforeValue();
+		expect('{');
+		push(true);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.JsonSource#endObject()
+	 */
+	@Override
+	public void endObject() throws IOException {
+		end(true, '}');
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.JsonSource#beginArray()
+	 */
+	@Override
+	public void beginArray() throws IOException {
+		beforeValue();
+		expect('[');
+		push(false);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.JsonSource#endArray()
+	 */
+	@Override
+	public void endArray() throws IOException {
+		end(false, ']');
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.JsonSource#hasNext()
+	 */
+	@Override
+	public boolean hasNext() throws IOException {
+		if (depth == 0) {
+			throw new IllegalStateException("No object or array is open.");
+		}
+		if (fields != null && depth == 1 && objects[0]) {
+			return hasNextField();
+		}
+		return hasNextMember();
+	}
+
+	/**
+	 * Checks if the element has another of the fields read, skipping the
+	 * members before it. The name of the field is kept for nextName.
+	 *
+	 * @return true, if another field follows
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private boolean hasNextField() throws IOException {
+		while (nextField == null) {
+			if (!hasNextMember()) {
+				return false;
+			}
+			readStringText();
+			expect(':');
+			nextField = findField();
+			if (nextField == null) {
+				skip();
+				states[0] = NONEMPTY;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the field named by the scratch builder.
+	 *
+	 * @return the name of the field, null if it is not read
+	 */
+	private String findField() {
+		for (String field : fields) {
+			if (field.contentEquals(text)) {
+				return field;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Checks if the current object or array has another member or element,
+	 * reading the comma before it.
+	 *
+	 * @return true, if another member or element follows
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private boolean hasNextMember() throws IOException {
+		char end = objects[depth - 1] ? '}' : ']';
+		char c = peek();
+		switch (states[depth - 1]) {
+		case NONEMPTY:
+			if (c == end) {
+				return false;
+			}
+			if (c != ',') {
+				throw syntaxError("Expected ',' or '" + end + "' but found '" + c + "'");
+			}
+			position++;
+			states[depth - 1] = NEXT;
+			if (peek() == end) {
+				throw syntaxError("Unexpected '" + end + "' after ','");
+			}
+			return true;
+		case NEXT:
+			if (c == end) {
+				throw syntaxError("Unexpected '" + end + "' after ','");
+			}
+			return true;
+		default:
+			return c != end;
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.JsonSource#nextName()
+	 */
+	@Override
+	public String nextName() throws IOException {
+		if (depth == 0 || !objects[depth - 1]) {
+			throw new IllegalStateException("No object is open.");
+		}
+		if (!hasNext()) {
+			throw syntaxError("Expected a name but found '}'");
+		}
+		if (nextField != null) {
+			String name = nextField;
+			nextField = null;
+			return name;
+		}
+		String name = readString();
+		expect(':');
+		return name;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.JsonSource#nextNull()
+	 */
+	@Override
+	public boolean nextNull() throws IOException {
+		beforeValue();
+		if (peek() != 'n') {
+			return false;
+		}
+		readLiteral("null");
+		afterValue();
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.JsonSource#nextString()
+	 */
+	@Override
+	public String nextString() throws IOException {
+		beforeValue();
+		String value;
+		switch (peek()) {
+		case '"':
+			value = readString();
+			break;
+		case 't':
+			readLiteral("true");
+			value = "true";
+			break;
+		case 'f':
+			readLiteral("false");
+			value = "false";
+			break;
+		case '{':
+		case '[':
+		case 'n':
+			throw syntaxError("Expected a string but found '" + peek() + "'");
+		default:
+			value = readNumber().toString();
+		}
+		afterValue();
+		return value;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.JsonSource#nextPooledString()
+	 */
+	@Override
+	public String nextPooledString() throws IOException {
+		if (stringPool == null || !peekString()) {
+			return nextString();
+		}
+		readStringText();
+		afterValue();
+		return stringPool.get(text);
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.JsonSource#nextLong()
+	 */
+	@Override
+	public long nextLong() throws IOException {
+		beforeValue();
+		long value;
+		if (peek() == '"') {
+			value = Long.parseLong(readString());
+		} else {
+			String number = readNumberText();
+			value = isDecimal(number) || number.length() > 18 ? readNumber(number).longValue() : Long.parseLong(number);
+		}
+		afterValue();
+		return value;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.JsonSource#nextInt()
+	 */
+	@Override
+	public int nextInt() throws IOException {
+		if (peekString()) {
+			beforeValue();
+			int value = Integer.parseInt(readString());
+			afterValue();
+			return value;
+		}
+		return (int) nextLong();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.JsonSource#nextDouble()
+	 */
+	@Override
+	public double nextDouble() throws IOException {
+		beforeValue();
+		double value = Double.parseDouble(peek() == '"' ? readString() : readNumberText());
+		afterValue();
+		return value;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.JsonSource#nextBoolean()
+	 */
+	@Override
+	public boolean nextBoolean() throws IOException {
+		beforeValue();
+		boolean value;
+		switch (peek()) {
+		case 't':
+			readLiteral("true");
+			value = true;
+			break;
+		case 'f':
+			readLiteral("false");
+			value = false;
+			break;
+		case '"':
+			value = Boolean.parseBoolean(readString());
+			break;
+		default:
+			throw syntaxError("Expected a boolean but found '" + peek() + "'");
+		}
+		afterValue();
+		return value;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.JsonSource#skipValue()
+	 */
+	@Override
+	public void skipValue() throws IOException {
+		beforeValue();
+		skip();
+		afterValue();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.JsonSource#getShared(java.lang.Class, java.lang.Object)
+	 */
+	@Override
+	public <T> T getShared(Class<T> clazz, Object id) {
+		// the object of the entity itself is open, elements are at depth 1
+		if (sharedEntities == null || depth < 2) {
+			return null;
+		}
+		Map<Object, Object> entities = sharedEntities.get(clazz);
+		return entities == null ? null : clazz.cast(entities.get(id));
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.JsonSource#share(java.lang.Class, java.lang.Object, java.lang.Object)
+	 */
+	@Override
+	public <T> T share(Class<T> clazz, Object id, T entity) {
+		// the object of the entity is closed by now, elements are at depth 0
+		if (sharedEntities == null || depth < 1) {
+			return entity;
+		}
+		Map<Object, Object> entities = sharedEntities.get(clazz);
+		if (entities == null) {
+			entities = new HashMap<Object, Object>();
+			sharedEntities.put(clazz, entities);
+		}
+		Object shared = entities.get(id);
+		if (shared != null) {
+			return clazz.cast(shared);
+		}
+		entities.put(id, entity);
+		return entity;
+	}
+
+	/**
+	 * Checks if the next value is a string.
+	 *
+	 * @return true, if a string
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private boolean peekString() throws IOException {
+		beforeValue();
+		return peek() == '"';
+	}
+
+	/**
+	 * Reads the comma before an element of the current array, if any.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void beforeValue() throws IOException {
+		if (depth > 0 && !objects[depth - 1] && !hasNext()) {
+			throw syntaxError("Expected a value but found ']'");
+		}
+	}
+
+	/**
+	 * Notes that a member or element of the current object or array was read.
+	 */
+	private void afterValue() {
+		if (depth > 0) {
+			states[depth - 1] = NONEMPTY;
+		}
+	}
+
+	/**
+	 * Opens an object or an array.
+	 *
+	 * @param object whether an object
+	 */
+	private void push(boolean object) {
+		if (depth == states.length) {
+			states = Arrays.copyOf(states, depth * 2);
+			objects = Arrays.copyOf(objects, depth * 2);
+		}
+		objects[depth] = object;
+		states[depth] = EMPTY;
+		depth++;
+	}
+
+	/**
+	 * Closes the current object or array.
+	 *
+	 * @param object whether an object
+	 * @param end the end char
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void end(boolean object, char end) throws IOException {
+		if (depth == 0 || objects[depth - 1] != object) {
+			throw new IllegalStateException("No " + (object ? "object" : "array") + " is open.");
+		}
+		if (hasNext()) {
+			throw syntaxError("Expected '" + end + "' but found '" + peek() + "'");
+		}
+		position++;
+		depth--;
+		afterValue();
+	}
+
+	/**
+	 * Reads an element, with its generated adapter if it has one.
+	 *
+	 * @param clazz the clazz
+	 * @param adapter the adapter, null to decode a tree with Gson
+	 * @param codec the codec
+	 *
+	 * @return the element
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private <T> T readElement(Class<T> clazz, JsonAdapter<T> adapter, JsonCodec codec) throws IOException {
+		if (adapter != null) {
+			return adapter.read(this);
+		}
+		if (fields != null && peek() == '{') {
+			JsonObject element = new JsonObject();
+			beginObject();
+			while (hasNext()) {
+				String name = nextName();
+				element.add(name, readValue());
+				afterValue();
+			}
+			endObject();
+			return codec.fromJson(element, clazz);
+		}
+		return codec.fromJson(readValue(), clazz);
+	}
+
+	/**
+	 * Reads a value into a tree.
+	 *
+	 * @return the json element
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private JsonElement readValue() throws IOException {
+		char c = peek();
+		switch (c) {
+		case '{':
+			position++;
+			JsonObject object = new JsonObject();
+			if (peek() == '}') {
+				position++;
+				return object;
+			}
+			do {
+				String name = readString();
+				expect(':');
+				object.add(name, readValue());
+			} while (next(',', '}'));
+			return object;
+		case '[':
+			position++;
+			JsonArray array = new JsonArray();
+			if (peek() == ']') {
+				position++;
+				return array;
+			}
+			do {
+				array.add(readValue());
+			} while (next(',', ']'));
+			return array;
+		case '"':
+			return new JsonPrimitive(readString());
+		case 't':
+			readLiteral("true");
+			return new JsonPrimitive(Boolean.TRUE);
+		case 'f':
+			readLiteral("false");
+			return new JsonPrimitive(Boolean.FALSE);
+		case 'n':
+			readLiteral("null");
+			return NULL;
+		default:
+			return new JsonPrimitive(readNumber());
+		}
+	}
+
+	/**
+	 * Skips a value without building it.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void skip() throws IOException {
+		char c = peek();
+		switch (c) {
+		case '{':
+			position++;
+			if (peek() == '}') {
+				position++;
+				return;
+			}
+			do {
+				skipString();
+				expect(':');
+				skip();
+			} while (next(',', '}'));
+			return;
+		case '[':
+			position++;
+			if (peek() == ']') {
+				position++;
+				return;
+			}
+			do {
+				skip();
+			} while (next(',', ']'));
+			return;
+		case '"':
+			skipString();
+			return;
+		case 't':
+			readLiteral("true");
+			return;
+		case 'f':
+			readLiteral("false");
+			return;
+		case 'n':
+			readLiteral("null");
+			return;
+		default:
+			skipNumber();
+		}
+	}
+
+	/**
+	 * Reads a string.
+	 *
+	 * @return the string
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private String readString() throws IOException {
+		readStringText();
+		return text.toString();
+	}
+
+	/**
+	 * Reads a string into the scratch builder.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void readStringText() throws IOException {
+		expect('"');
+		text.setLength(0);
+		while (true) {
+			int start = position;
+			while (position < limit) {
+				char c = buffer[position];
+				if (c == '"' || c == '\\') {
+					break;
+				}
+				position++;
+			}
+			text.append(buffer, start, position - start);
+			if (position == limit) {
+				if (!fill()) {
+					throw syntaxError("Unterminated string");
+				}
+				continue;
+			}
+			if (buffer[position++] == '"') {
+				return;
+			}
+			text.append(readEscape());
+		}
+	}
+
+	/**
+	 * Skips a string.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void skipString() throws IOException {
+		expect('"');
+		while (true) {
+			if (position == limit && !fill()) {
+				throw syntaxError("Unterminated string");
+			}
+			char c = buffer[position++];
+			if (c == '"') {
+				return;
+			}
+			if (c == '\\') {
+				readEscape();
+			}
+		}
+	}
+
+	/**
+	 * Reads the escape sequence following a backslash.
+	 *
+	 * @return the escaped char
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private char readEscape() throws IOException {
+		char c = read();
+		switch (c) {
+		case 'b':
+			return '\b';
+		case 'f':
+			return '\f';
+		case 'n':
+			return '\n';
+		case 'r':
+			return '\r';
+		case 't':
+			return '\t';
+		case 'u':
+			int value = 0;
+			for (int i = 0; i < 4; i++) {
+				int digit = Character.digit(read(), 16);
+				if (digit == -1) {
+					throw syntaxError("Invalid unicode escape");
+				}
+				value = (value << 4) | digit;
+			}
+			return (char) value;
+		case '"':
+		case '\\':
+		case '/':
+			return c;
+		default:
+			throw syntaxError("Invalid escape \\" + c);
+		}
+	}
+
+	/**
+	 * Reads a number, as a BigDecimal if it has a fraction or an exponent and as
+	 * a BigInteger otherwise.
+	 *
+	 * @return the number
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private Number readNumber() throws IOException {
+		return readNumber(readNumberText());
+	}
+
+	/**
+	 * Builds a number, as a BigDecimal if it has a fraction or an exponent and
+	 * as a BigInteger otherwise.
+	 *
+	 * @param number the text of the number
+	 *
+	 * @return the number
+	 */
+	private Number readNumber(String number) {
+		try {
+			return isDecimal(number) ? new BigDecimal(number) : new BigInteger(number);
+		} catch (NumberFormatException e) {
+			throw syntaxError("Invalid number " + number);
+		}
+	}
+
+	/**
+	 * Reads the text of a number.
+	 *
+	 * @return the text
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private String readNumberText() throws IOException {
+		text.setLength(0);
+		while (position < limit || fill()) {
+			char c = buffer[position];
+			if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+				text.append(c);
+			} else {
+				break;
+			}
+			position++;
+		}
+		if (text.length() == 0) {
+			throw syntaxError(position < limit ? "Unexpected char '" + buffer[position] + "'" : "Unexpected end of content");
+		}
+		return text.toString();
+	}
+
+	/**
+	 * Skips a number without building it.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void skipNumber() throws IOException {
+		int length = 0;
+		while (position < limit || fill()) {
+			char c = buffer[position];
+			if ((c >= '0' && c <= '9') || c == '-' || c == '+' || c == '.' || c == 'e' || c == 'E') {
+				length++;
+			} else {
+				break;
+			}
+			position++;
+		}
+		if (length == 0) {
+			throw syntaxError(position < limit ? "Unexpected char '" + buffer[position] + "'" : "Unexpected end of content");
+		}
+	}
+
+	/**
+	 * Checks if the number has a fraction or an exponent.
+	 *
+	 * @param number the text of the number
+	 *
+	 * @return true, if decimal
+	 */
+	private static boolean isDecimal(String number) {
+		for (int i = 0; i < number.length(); i++) {
+			char c = number.charAt(i);
+			if (c == '.' || c == 'e' || c == 'E') {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Reads a literal.
+	 *
+	 * @param literal the literal
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void readLiteral(String literal) throws IOException {
+		for (int i = 0; i < literal.length(); i++) {
+			if (read() != literal.charAt(i)) {
+				throw syntaxError("Expected " + literal);
+			}
+		}
+	}
+
+	/**
+	 * Reads the separator following a member or an element.
+	 *
+	 * @param separator the separator
+	 * @param end the end of the enclosing object or array
+	 *
+	 * @return true, if another member or element follows
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private boolean next(char separator, char end) throws IOException {
+		char c = peek();
+		position++;
+		if (c == separator) {
+			return true;
+		}
+		if (c == end) {
+			return false;
+		}
+		throw syntaxError("Expected '" + separator + "' or '" + end + "' but found '" + c + "'");
+	}
+
+	/**
+	 * Skips whitespace and reads the expected char.
+	 *
+	 * @param expected the expected char
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void expect(char expected) throws IOException {
+		char c = peek();
+		if (c != expected) {
+			throw syntaxError("Expected '" + expected + "' but found '" + c + "'");
+		}
+		position++;
+	}
+
+	/**
+	 * Skips whitespace and gets the next char without consuming it.
+	 *
+	 * @return the char
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private char peek() throws IOException {
+		while (true) {
+			if (position == limit && !fill()) {
+				throw syntaxError("Unexpected end of content");
+			}
+			char c = buffer[position];
+			if (c != ' ' && c != '\t' && c != '\n' && c != '\r') {
+				return c;
+			}
+			position++;
+		}
+	}
+
+	/**
+	 * Reads the next char as is.
+	 *
+	 * @return the char
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private char read() throws IOException {
+		if (position == limit && !fill()) {
+			throw syntaxError("Unexpected end of content");
+		}
+		return buffer[position++];
+	}
+
+	/**
+	 * Refills the buffer once it has been consumed.
+	 *
+	 * @return true, if chars were read, false at the end of the content
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private boolean fill() throws IOException {
+		if (reader == null) {
+			return false;
+		}
+		int count;
+		do {
+			count = reader.read(buffer, 0, buffer.length);
+		} while (count == 0);
+		position = 0;
+		limit = Math.max(count, 0);
+		return count > 0;
+	}
+
+	/**
+	 * Creates a syntax error.
+	 *
+	 * @param message the message
+	 *
+	 * @return the json parse exception
+	 */
+	private JsonParseException syntaxError(String message) {
+		return new JsonParseException(message);
+	}
+
+	/**
+	 * The Class ElementDecoder.
+	 *
+	 * Decodes the elements of a lazy list from the content of the response,
+	 * once each, and lets go of the content when all have been decoded.
+	 */
+	private static class ElementDecoder<T> implements LazyPagedList.ElementDecoder<T> {
+
+		/** The content, null once every element is decoded. */
+		private char[] content;
+
+		/** The start and end of each element in the content. */
+		private final int[] bounds;
+
+		/** The clazz. */
+		private final Class<T> clazz;
+
+		/** The codec. */
+		private final JsonCodec codec;
+
+		/** The fields read from each element, null to read them all. */
+		private final String[] fields;
+
+		/** The nested entities shared by the elements, null if they are not shared. */
+		private final Map<Class<?>, Map<Object, Object>> sharedEntities;
+
+		/** The decoded elements. */
+		private final Object[] decoded;
+
+		/** The number of elements not decoded yet. */
+		private int pending;
+
+		/**
+		 * Instantiates a new element decoder.
+		 *
+		 * @param content the content
+		 * @param bounds the bounds of the elements
+		 * @param clazz the clazz
+		 * @param codec the codec
+		 * @param fields the fields read from each element
+		 * @param sharedEntities the nested entities shared by the elements
+		 */
+		ElementDecoder(char[] content, int[] bounds, Class<T> clazz, JsonCodec codec, String[] fields,
+				Map<Class<?>, Map<Object, Object>> sharedEntities) {
+			this.content = content;
+			this.bounds = bounds;
+			this.clazz = clazz;
+			this.codec = codec;
+			this.fields = fields;
+			this.sharedEntities = sharedEntities;
+			this.decoded = new Object[bounds.length / 2];
+			this.pending = decoded.length;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.google.code.stackexchange.common.LazyPagedList.ElementDecoder#decode(int)
+		 */
+		@SuppressWarnings("unchecked")
+		@Override
+		public synchronized T decode(int index) {
+			if (decoded[index] == null) {
+				try {
+					JsonListReader reader = new JsonListReader(content, bounds[index * 2], bounds[index * 2 + 1]);
+					reader.fields = fields;
+					reader.stringPool = codec.getStringPool();
+					reader.sharedEntities = sharedEntities;
+					T element = reader.readElement(clazz, codec.getAdapter(clazz), codec);
+					decoded[index] = element == null ? NULL : element;
+				} catch (IOException e) {
+					throw new JsonParseException(e);
+				}
+				if (--pending == 0) {
+					content = null;
+				}
+			}
+			return decoded[index] == NULL ? null : (T) decoded[index];
+		}
+	}
+}
@@ -0,0 +1,256 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.code.stackexchange.client.RateLimit;
+import com.google.code.stackexchange.client.constant.ApplicationConstants;
+
+/**
+ * The Class QuotaScheduler.
+ *
+ * Paces outgoing calls so that they stay within the quota reported by the
+ * rate limit headers. Each host and application key has a token bucket that
+ * holds the requests left and refills at the max rate limit per quota window.
+ * A call takes a token, waiting for the refill if the bucket is empty, so a
+ * client that would run out of quota slows down instead of failing with a
+ * {@link com.google.code.stackexchange.client.exception.RequestLimitExceededException}.
+ *
+ * Until a host has reported its limits, calls to it are not paced. One
+ * scheduler is meant to be shared by all clients using the same key.
+ */
+public class QuotaScheduler {
+
+	/** The Constant DEFAULT_QUOTA_WINDOW, one day. */
+	public static final long DEFAULT_QUOTA_WINDOW = 24L * 60 * 60 * 1000;
+
+	/** The Constant DEFAULT_MAX_WAIT, one minute. */
+	public static final long DEFAULT_MAX_WAIT = 60L * 1000;
+
+	/** The buckets keyed by host and application key. */
+	private final ConcurrentMap<String, TokenBucket> buckets = new ConcurrentHashMap<String, TokenBucket>();
+
+	/** The quota window. */
+	private final long quotaWindow;
+
+	/** The max wait. */
+	private volatile long maxWait =
+		ApplicationConstants.MAX_QUOTA_WAIT != 0 ? ApplicationConstants.MAX_QUOTA_WAIT : DEFAULT_MAX_WAIT;
+
+	/**
+	 * Instantiates a new quota scheduler with the configured quota window.
+	 */
+	public QuotaScheduler() {
+		this(ApplicationConstants.QUOTA_WINDOW > 0 ? ApplicationConstants.QUOTA_WINDOW : DEFAULT_QUOTA_WINDOW);
+	}
+
+	/**
+	 * Instantiates a new quota scheduler.
+	 *
+	 * @param quotaWindow the period in milliseconds over which the max rate limit applies
+	 */
+	public QuotaScheduler(long quotaWindow) {
+		if (quotaWindow <= 0) {
+			throw new IllegalArgumentException("quotaWindow must be greater than zero.");
+		}
+		this.quotaWindow = quotaWindow;
+	}
+
+	/**
+	 * Gets the quota window.
+	 *
+	 * @return the quota window in milliseconds
+	 */
+	public long getQuotaWindow() {
+		return quotaWindow;
+	}
+
+	/**
+	 * Gets the max wait.
+	 *
+	 * @return the max wait in milliseconds, -1 for no limit
+	 */
+	public long getMaxWait() {
+		return maxWait;
+	}
+
+	/**
+	 * Sets the longest a call may wait for quota. Calls that would have to
+	 * wait longer fail at once.
+	 *
+	 * @param maxWait the new max wait in milliseconds, -1 for no limit
+	 */
+	public void setMaxWait(long maxWait) {
+		this.maxWait = maxWait;
+	}
+
+	/**
+	 * Reserves a request for the host and application key.
+	 *
+	 * @param host the host
+	 * @param applicationKey the application key
+	 *
+	 * @return the time in milliseconds to wait before sending the request, or
+	 * -1 if that would exceed the max wait, in which case nothing is reserved
+	 */
+	public long reserve(String host, String applicationKey) {
+		return reserve(host, applicationKey, maxWait);
+	}
+
+	/**
+	 * Reserves a request for the host and application key, waiting at most
+	 * the given time instead of the max wait.
+	 *
+	 * @param host the host
+	 * @param applicationKey the application key
+	 * @param maxWait the max wait in milliseconds, -1 for no limit
+	 *
+	 * @return the time in milliseconds to wait before sending the request, or
+	 * -1 if that would exceed the max wait, in which case nothing is reserved
+	 */
+	public long reserve(String host, String applicationKey, long maxWait) {
+		TokenBucket bucket = buckets.get(getKey(host, applicationKey));
+		return bucket == null ? 0 : bucket.reserve(maxWait);
+	}
+
+	/**
+	 * Updates the bucket from the limits reported by a response.
+	 *
+	 * @param rateLimit the rate limit
+	 */
+	public void update(RateLimit rateLimit) {
+		String key = getKey(rateLimit.getHost(), rateLimit.getApplicationKey());
+		TokenBucket bucket = buckets.get(key);
+		if (bucket == null) {
+			TokenBucket newBucket = new TokenBucket();
+			bucket = buckets.putIfAbsent(key, newBucket);
+			if (bucket == null) {
+				bucket = newBucket;
+			}
+		}
+		bucket.update(rateLimit.getMaxRateLimit(), rateLimit.getCurrentRateLimit());
+	}
+
+	/**
+	 * Gets the tokens left for the host and application key.
+	 *
+	 * @param host the host
+	 * @param applicationKey the application key
+	 *
+	 * @return the tokens left, negative if calls are waiting, or -1 if the
+	 * host has not reported its limits
+	 */
+	public double getAvailableTokens(String host, String applicationKey) {
+		TokenBucket bucket = buckets.get(getKey(host, applicationKey));
+		return bucket == null ? -1 : bucket.getTokens();
+	}
+
+	/**
+	 * Gets the key.
+	 *
+	 * @param host the host
+	 * @param applicationKey the application key
+	 *
+	 * @return the key
+	 */
+	private static String getKey(String host, String applicationKey) {
+		return host.toLowerCase(Locale.ENGLISH) + "#" + (applicationKey == null ? "" : applicationKey);
+	}
+
+	/**
+	 * The Class TokenBucket.
+	 */
+	private class TokenBucket {
+
+		/** The capacity, the max rate limit. */
+		private double capacity = -1;
+
+		/** The tokens, negative while reservations wait for the refill. */
+		private double tokens;
+
+		/** The refill rate per millisecond. */
+		private double refillRate;
+
+		/** The last refill. */
+		private long lastRefill = System.currentTimeMillis();
+
+		/**
+		 * Reserves one token.
+		 *
+		 * @param maxWait the max wait
+		 *
+		 * @return the wait in milliseconds, or -1 if longer than the max wait
+		 */
+		synchronized long reserve(long maxWait) {
+			if (capacity <= 0) {
+				return 0;
+			}
+			refill();
+			long wait = tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / refillRate);
+			if (maxWait >= 0 && wait > maxWait) {
+				return -1;
+			}
+			tokens--;
+			return wait;
+		}
+
+		/**
+		 * Updates the bucket. The server count only ever lowers the estimate,
+		 * as it does not include the calls still in flight.
+		 *
+		 * @param maxRateLimit the max rate limit
+		 * @param currentRateLimit the current rate limit
+		 */
+		synchronized void update(int maxRateLimit, int currentRateLimit) {
+			refill();
+			if (maxRateLimit > 0) {
+				if (capacity <= 0 && currentRateLimit >= 0) {
+					tokens = currentRateLimit;
+				}
+				capacity = maxRateLimit;
+				refillRate = maxRateLimit / (double) quotaWindow;
+			}
+			if (currentRateLimit >= 0 && currentRateLimit < tokens) {
+				tokens = currentRateLimit;
+			}
+		}
+
+		/**
+		 * Adds the tokens accrued since the last refill.
+		 */
+		private void refill() {
+			long now = System.currentTimeMillis();
+			if (capacity > 0) {
+				tokens = Math.min(capacity, tokens + (now - lastRefill) * refillRate);
+			}
+			lastRefill = now;
+		}
+
+		/**
+		 * Gets the tokens.
+		 *
+		 * @return the tokens
+		 */
+		synchronized double getTokens() {
+			refill();
+			return capacity <= 0 ? -1 : tokens;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.google.code.stackexchange.client.RateLimit;
+
+/**
+ * The Class RateLimitTracker.
+ *
+ * Keeps the latest quota reported by each api host for each application key.
+ * Every update replaces an immutable {@link RateLimit}, so readers always see
+ * a consistent pair of values.
+ */
+public class RateLimitTracker {
+
+	/** The Constant DEFAULT_INSTANCE, shared by all clients and queries. */
+	private static final RateLimitTracker DEFAULT_INSTANCE = new RateLimitTracker();
+
+	/** The rate limits keyed by host and application key. */
+	private final ConcurrentMap<String, RateLimit> rateLimits = new ConcurrentHashMap<String, RateLimit>();
+
+	/**
+	 * Gets the default tracker.
+	 *
+	 * @return the default tracker
+	 */
+	public static RateLimitTracker getDefault() {
+		return DEFAULT_INSTANCE;
+	}
+
+	/**
+	 * Records the limits reported by a response.
+	 *
+	 * @param host the host
+	 * @param applicationKey the application key
+	 * @param maxRateLimit the max rate limit
+	 * @param currentRateLimit the current rate limit
+	 *
+	 * @return the recorded rate limit
+	 */
+	public RateLimit update(String host, String applicationKey, int maxRateLimit, int currentRateLimit) {
+		RateLimit rateLimit = new RateLimit(host, applicationKey, maxRateLimit, currentRateLimit, System.currentTimeMillis());
+		rateLimits.put(getKey(host, applicationKey), rateLimit);
+		return rateLimit;
+	}
+
+	/**
+	 * Gets the rate limit.
+	 *
+	 * @param host the host
+	 * @param applicationKey the application key
+	 *
+	 * @return the rate limit, null if the host has not reported one yet
+	 */
+	public RateLimit getRateLimit(String host, String applicationKey) {
+		return rateLimits.get(getKey(host, applicationKey));
+	}
+
+	/**
+	 * Gets a snapshot of all rate limits.
+	 *
+	 * @return the rate limits
+	 */
+	public List<RateLimit> getRateLimits() {
+		return new ArrayList<RateLimit>(rateLimits.values());
+	}
+
+	/**
+	 * Clear.
+	 */
+	public void clear() {
+		rateLimits.clear();
+	}
+
+	/**
+	 * Gets the key.
+	 *
+	 * @param host the host
+	 * @param applicationKey the application key
+	 *
+	 * @return the key
+	 */
+	private static String getKey(String host, String applicationKey) {
+		return host.toLowerCase(Locale.ENGLISH) + "#" + (applicationKey == null ? "" : applicationKey);
+	}
+}
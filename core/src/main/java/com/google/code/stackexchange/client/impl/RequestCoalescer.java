@@ -0,0 +1,332 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.io.ByteArrayInputStream;
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.code.stackexchange.client.exception.StackExchangeApiException;
+import com.google.code.stackexchange.client.provider.url.DefaultApiUrlBuilder;
+import com.google.code.stackexchange.common.LazyPagedList;
+import com.google.code.stackexchange.common.PagedArrayList;
+import com.google.code.stackexchange.common.PagedList;
+
+/**
+ * The Class RequestCoalescer.
+ *
+ * Lets concurrent GET calls of the same url share one network call. The
+ * first caller of a url makes the call while later callers wait for its
+ * response, and all of them get the same content and, for callers decoding
+ * it the same way, the same decoded elements. Urls are compared with their
+ * query parameters sorted, so the order in which they were added does not
+ * matter. Nothing is cached: once the call is done the next caller of the url
+ * makes a new one.
+ *
+ * One coalescer is meant to be shared by all clients and queries using the
+ * same application key.
+ */
+public class RequestCoalescer {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = Logger.getLogger(RequestCoalescer.class.getCanonicalName());
+
+	/** The flights in progress keyed by canonical url. */
+	private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<String, Flight>();
+
+	/**
+	 * Joins the call of the url in progress, or starts a new one. The caller
+	 * must then {@link Flight#start()} it to know whether it makes the call.
+	 *
+	 * @param url the url
+	 *
+	 * @return the flight
+	 */
+	public Flight join(String url) {
+		String key = getKey(url);
+		Flight flight = flights.get(key);
+		if (flight == null) {
+			Flight newFlight = new Flight(key);
+			flight = flights.putIfAbsent(key, newFlight);
+			if (flight == null) {
+				flight = newFlight;
+			}
+		}
+		return flight;
+	}
+
+	/**
+	 * Gets the number of calls in progress.
+	 *
+	 * @return the number of calls in progress
+	 */
+	public int getFlightCount() {
+		return flights.size();
+	}
+
+	/**
+	 * Gets the canonical form of the url, with its query parameters sorted.
+	 *
+	 * @param url the url
+	 *
+	 * @return the key
+	 */
+	static String getKey(String url) {
+		return DefaultApiUrlBuilder.getCanonicalUrl(url);
+	}
+
+	/**
+	 * The Class Flight.
+	 *
+	 * One call shared by the callers of a url.
+	 */
+	public class Flight {
+
+		/** The key. */
+		private final String key;
+
+		/** Whether a caller has started the call. */
+		private boolean started;
+
+		/** Whether the call is done. */
+		private boolean done;
+
+		/** The content, null until the call succeeded. */
+		private byte[] content;
+
+		/** The failure, null unless the call failed. */
+		private RuntimeException failure;
+
+		/** The listeners to run once the call is done. */
+		private List<Runnable> listeners = new ArrayList<Runnable>();
+
+		/** The decoded results keyed by how they were decoded. */
+		private final Map<Object, PagedList<?>> decoded = new HashMap<Object, PagedList<?>>();
+
+		/**
+		 * Instantiates a new flight.
+		 *
+		 * @param key the key
+		 */
+		Flight(String key) {
+			this.key = key;
+		}
+
+		/**
+		 * Claims the call. Exactly one caller gets true and must then
+		 * {@link #complete(byte[])} or {@link #fail(RuntimeException)} it.
+		 *
+		 * @return true, if the caller makes the call
+		 */
+		public synchronized boolean start() {
+			if (started) {
+				return false;
+			}
+			started = true;
+			return true;
+		}
+
+		/**
+		 * Completes the call with the content of the response.
+		 *
+		 * @param content the content
+		 */
+		public void complete(byte[] content) {
+			finish(content, null);
+		}
+
+		/**
+		 * Fails the call. Every waiting caller gets the same exception.
+		 *
+		 * @param failure the failure
+		 */
+		public void fail(RuntimeException failure) {
+			finish(null, failure);
+		}
+
+		/**
+		 * Records the outcome, wakes up the waiting callers and runs the
+		 * listeners. Only the first outcome counts.
+		 *
+		 * @param content the content
+		 * @param failure the failure
+		 */
+		private void finish(byte[] content, RuntimeException failure) {
+			List<Runnable> toRun;
+			synchronized (this) {
+				if (done) {
+					return;
+				}
+				done = true;
+				this.content = content;
+				this.failure = failure;
+				toRun = listeners;
+				listeners = null;
+				notifyAll();
+			}
+			flights.remove(key, this);
+			for (Runnable listener : toRun) {
+				runListener(listener);
+			}
+		}
+
+		/**
+		 * Checks if the call is done.
+		 *
+		 * @return true, if done
+		 */
+		public synchronized boolean isDone() {
+			return done;
+		}
+
+		/**
+		 * Adds a listener to run once the call is done, at once if it already
+		 * is. Listeners run on the thread that completes the call and should
+		 * hand any real work to an executor.
+		 *
+		 * @param listener the listener
+		 */
+		public void addListener(Runnable listener) {
+			synchronized (this) {
+				if (!done) {
+					listeners.add(listener);
+					return;
+				}
+			}
+			runListener(listener);
+		}
+
+		/**
+		 * Runs a listener, logging its failures.
+		 *
+		 * @param listener the listener
+		 */
+		private void runListener(Runnable listener) {
+			try {
+				listener.run();
+			} catch (RuntimeException e) {
+				LOG.log(Level.WARNING, "Request coalescer listener failed.", e);
+			}
+		}
+
+		/**
+		 * Waits for the call and gets its content.
+		 *
+		 * @param deadline the time in milliseconds since the epoch to wait until, -1 for no limit
+		 *
+		 * @return the content, as a stream tied to this flight
+		 *
+		 * @throws StackExchangeApiException the failure of the call, or a
+		 * timeout if the deadline passed first
+		 */
+		public SharedContent getContent(long deadline) {
+			synchronized (this) {
+				try {
+					while (!done) {
+						if (deadline < 0) {
+							wait();
+						} else {
+							long remaining = deadline - System.currentTimeMillis();
+							if (remaining <= 0) {
+								throw new StackExchangeApiException(new SocketTimeoutException("Deadline exceeded waiting for " + key));
+							}
+							wait(remaining);
+						}
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new StackExchangeApiException(e);
+				}
+				if (failure != null) {
+					throw failure;
+				}
+			}
+			return new SharedContent(this, content);
+		}
+
+		/**
+		 * Decodes the content once for all callers decoding it the same way.
+		 * Each caller gets its own list holding the shared elements. Lazy lists
+		 * are copied without decoding their elements, which are still decoded
+		 * once for all the copies.
+		 *
+		 * @param decoderKey the key of the decoder, e.g. the element type
+		 * @param decoder the decoder of the content of the caller
+		 *
+		 * @return the paged list
+		 *
+		 * @throws Exception if the decoder fails
+		 */
+		@SuppressWarnings("unchecked")
+		public synchronized <T> PagedList<T> decode(Object decoderKey, Callable<PagedList<T>> decoder) throws Exception {
+			PagedList<T> list = (PagedList<T>) decoded.get(decoderKey);
+			if (list == null) {
+				list = decoder.call();
+				decoded.put(decoderKey, list);
+			}
+			if (list instanceof LazyPagedList<?>) {
+				return new LazyPagedList<T>((LazyPagedList<T>) list);
+			}
+			PagedArrayList<T> copy = new PagedArrayList<T>();
+			copy.addAll(list);
+			copy.setTotal(list.getTotal());
+			copy.setPage(list.getPage());
+			copy.setPageSize(list.getPageSize());
+			return copy;
+		}
+	}
+
+	/**
+	 * The Class SharedContent.
+	 *
+	 * The content of a coalesced call, tied to its flight so that decoders can
+	 * share their result.
+	 */
+	public static class SharedContent extends ByteArrayInputStream {
+
+		/** The flight. */
+		private final Flight flight;
+
+		/**
+		 * Instantiates a new shared content.
+		 *
+		 * @param flight the flight
+		 * @param content the content
+		 */
+		SharedContent(Flight flight, byte[] content) {
+			super(content);
+			this.flight = flight;
+		}
+
+		/**
+		 * Gets the flight.
+		 *
+		 * @return the flight
+		 */
+		public Flight getFlight() {
+			return flight;
+		}
+	}
+}
@@ -0,0 +1,450 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.io.IOException;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.LinkedHashSet;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.TimeZone;
+
+import com.google.code.stackexchange.client.exception.InternalServerException;
+import com.google.code.stackexchange.client.exception.RequestLimitExceededException;
+import com.google.code.stackexchange.client.exception.StackExchangeApiException;
+import com.google.code.stackexchange.client.transport.HttpRequest;
+import com.google.code.stackexchange.client.transport.HttpResponse;
+
+/**
+ * The Class RetryPolicy.
+ *
+ * Decides whether a failed call is tried again and how long to wait first.
+ * Calls are retried when they fail with one of the retryable exceptions
+ * (by default {@link InternalServerException} and
+ * {@link RequestLimitExceededException}) or, if enabled, with an I/O error.
+ * The wait grows exponentially from the initial backoff up to the max
+ * backoff, with random jitter so that clients do not retry in lock step. A
+ * Retry-After header sent by the server is honored; if it asks for a wait
+ * longer than the max retry after the call is not retried.
+ *
+ * Each client also keeps a {@link RetryBudget}, so that retries cannot add
+ * more than a fraction of the load of first attempts.
+ */
+public class RetryPolicy {
+
+	/** The Constant DEFAULT_MAX_RETRIES. */
+	public static final int DEFAULT_MAX_RETRIES = 3;
+
+	/** The Constant DEFAULT_INITIAL_BACKOFF. */
+	public static final long DEFAULT_INITIAL_BACKOFF = 200L;
+
+	/** The Constant DEFAULT_MAX_BACKOFF. */
+	public static final long DEFAULT_MAX_BACKOFF = 10000L;
+
+	/** The Constant DEFAULT_MAX_RETRY_AFTER. */
+	public static final long DEFAULT_MAX_RETRY_AFTER = 60000L;
+
+	/** The Constant DEFAULT_BUDGET_RATIO. */
+	public static final double DEFAULT_BUDGET_RATIO = 0.1;
+
+	/** The Constant DEFAULT_BUDGET_RESERVE. */
+	public static final int DEFAULT_BUDGET_RESERVE = 10;
+
+	/** The Constant RETRY_AFTER_HEADER. */
+	private static final String RETRY_AFTER_HEADER = "Retry-After";
+
+	/** The Constant HTTP_DATE_FORMAT. */
+	private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+	/** The random. */
+	private final Random random = new Random();
+
+	/** The retryable exceptions. */
+	private final Set<Class<? extends StackExchangeApiException>> retryableExceptions =
+		new LinkedHashSet<Class<? extends StackExchangeApiException>>();
+
+	/** The max retries. */
+	private int maxRetries = DEFAULT_MAX_RETRIES;
+
+	/** The initial backoff. */
+	private long initialBackoff = DEFAULT_INITIAL_BACKOFF;
+
+	/** The max backoff. */
+	private long maxBackoff = DEFAULT_MAX_BACKOFF;
+
+	/** The backoff multiplier. */
+	private double multiplier = 2.0;
+
+	/** The jitter, the fraction of the backoff that is randomized. */
+	private double jitter = 0.5;
+
+	/** The max retry after. */
+	private long maxRetryAfter = DEFAULT_MAX_RETRY_AFTER;
+
+	/** Whether I/O errors are retried. */
+	private boolean retryOnIOException = true;
+
+	/** The budget ratio. */
+	private double budgetRatio = DEFAULT_BUDGET_RATIO;
+
+	/** The budget reserve. */
+	private int budgetReserve = DEFAULT_BUDGET_RESERVE;
+
+	/**
+	 * Instantiates a new retry policy with the default retryable exceptions.
+	 */
+	public RetryPolicy() {
+		retryableExceptions.add(InternalServerException.class);
+		retryableExceptions.add(RequestLimitExceededException.class);
+	}
+
+	/**
+	 * Gets the max retries.
+	 *
+	 * @return the max retries
+	 */
+	public int getMaxRetries() {
+		return maxRetries;
+	}
+
+	/**
+	 * Sets the max retries.
+	 *
+	 * @param maxRetries the new max retries
+	 */
+	public void setMaxRetries(int maxRetries) {
+		this.maxRetries = maxRetries;
+	}
+
+	/**
+	 * Gets the initial backoff.
+	 *
+	 * @return the initial backoff in milliseconds
+	 */
+	public long getInitialBackoff() {
+		return initialBackoff;
+	}
+
+	/**
+	 * Sets the initial backoff.
+	 *
+	 * @param initialBackoff the new initial backoff in milliseconds
+	 */
+	public void setInitialBackoff(long initialBackoff) {
+		this.initialBackoff = initialBackoff;
+	}
+
+	/**
+	 * Gets the max backoff.
+	 *
+	 * @return the max backoff in milliseconds
+	 */
+	public long getMaxBackoff() {
+		return maxBackoff;
+	}
+
+	/**
+	 * Sets the max backoff.
+	 *
+	 * @param maxBackoff the new max backoff in milliseconds
+	 */
+	public void setMaxBackoff(long maxBackoff) {
+		this.maxBackoff = maxBackoff;
+	}
+
+	/**
+	 * Gets the multiplier.
+	 *
+	 * @return the multiplier
+	 */
+	public double getMultiplier() {
+		return multiplier;
+	}
+
+	/**
+	 * Sets the factor the backoff grows by after each retry.
+	 *
+	 * @param multiplier the new multiplier
+	 */
+	public void setMultiplier(double multiplier) {
+		this.multiplier = multiplier;
+	}
+
+	/**
+	 * Gets the jitter.
+	 *
+	 * @return the jitter
+	 */
+	public double getJitter() {
+		return jitter;
+	}
+
+	/**
+	 * Sets the fraction of the backoff that is randomized, from 0 (none) to
+	 * 1 (anywhere between zero and the backoff).
+	 *
+	 * @param jitter the new jitter
+	 */
+	public void setJitter(double jitter) {
+		if (jitter < 0 || jitter > 1) {
+			throw new IllegalArgumentException("jitter must be between 0 and 1.");
+		}
+		this.jitter = jitter;
+	}
+
+	/**
+	 * Gets the max retry after.
+	 *
+	 * @return the max retry after in milliseconds
+	 */
+	public long getMaxRetryAfter() {
+		return maxRetryAfter;
+	}
+
+	/**
+	 * Sets the longest Retry-After the client is willing to wait for.
+	 *
+	 * @param maxRetryAfter the new max retry after in milliseconds
+	 */
+	public void setMaxRetryAfter(long maxRetryAfter) {
+		this.maxRetryAfter = maxRetryAfter;
+	}
+
+	/**
+	 * Checks if I/O errors are retried.
+	 *
+	 * @return true, if I/O errors are retried
+	 */
+	public boolean isRetryOnIOException() {
+		return retryOnIOException;
+	}
+
+	/**
+	 * Sets whether I/O errors are retried.
+	 *
+	 * @param retryOnIOException the new retry on io exception
+	 */
+	public void setRetryOnIOException(boolean retryOnIOException) {
+		this.retryOnIOException = retryOnIOException;
+	}
+
+	/**
+	 * Gets the budget ratio.
+	 *
+	 * @return the budget ratio
+	 */
+	public double getBudgetRatio() {
+		return budgetRatio;
+	}
+
+	/**
+	 * Sets the number of retries earned by each call, which bounds the
+	 * sustained retries to that fraction of the calls.
+	 *
+	 * @param budgetRatio the new budget ratio
+	 */
+	public void setBudgetRatio(double budgetRatio) {
+		this.budgetRatio = budgetRatio;
+	}
+
+	/**
+	 * Gets the budget reserve.
+	 *
+	 * @return the budget reserve
+	 */
+	public int getBudgetReserve() {
+		return budgetReserve;
+	}
+
+	/**
+	 * Sets the number of retries a client can make in a burst.
+	 *
+	 * @param budgetReserve the new budget reserve
+	 */
+	public void setBudgetReserve(int budgetReserve) {
+		this.budgetReserve = budgetReserve;
+	}
+
+	/**
+	 * Adds a retryable exception. Subclasses of it are retried as well.
+	 *
+	 * @param exceptionClass the exception class
+	 */
+	public void addRetryableException(Class<? extends StackExchangeApiException> exceptionClass) {
+		synchronized (retryableExceptions) {
+			retryableExceptions.add(exceptionClass);
+		}
+	}
+
+	/**
+	 * Removes a retryable exception.
+	 *
+	 * @param exceptionClass the exception class
+	 */
+	public void removeRetryableException(Class<? extends StackExchangeApiException> exceptionClass) {
+		synchronized (retryableExceptions) {
+			retryableExceptions.remove(exceptionClass);
+		}
+	}
+
+	/**
+	 * Creates a new retry budget for a client.
+	 *
+	 * @return the retry budget
+	 */
+	public RetryBudget newRetryBudget() {
+		return new RetryBudget(budgetRatio, budgetReserve);
+	}
+
+	/**
+	 * Checks if the failure is retryable.
+	 *
+	 * @param request the request
+	 * @param failure the failure
+	 *
+	 * @return true, if the failure is retryable
+	 */
+	public boolean isRetryable(HttpRequest request, StackExchangeApiException failure) {
+		if (!request.isIdempotent()) {
+			return false;
+		}
+		if (failure.getCause() instanceof IOException) {
+			return retryOnIOException;
+		}
+		synchronized (retryableExceptions) {
+			for (Class<? extends StackExchangeApiException> exceptionClass : retryableExceptions) {
+				if (exceptionClass.isInstance(failure)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Gets the time to wait before the next attempt.
+	 *
+	 * @param request the request
+	 * @param response the response of the failed attempt, null if none was received
+	 * @param failure the failure
+	 * @param attempt the number of the failed attempt, starting at 1
+	 *
+	 * @return the delay in milliseconds, or -1 if the call should not be retried
+	 */
+	public long getRetryDelay(HttpRequest request, HttpResponse response, StackExchangeApiException failure, int attempt) {
+		if (attempt > maxRetries || !isRetryable(request, failure)) {
+			return -1;
+		}
+		double backoff = Math.min(maxBackoff, initialBackoff * Math.pow(multiplier, attempt - 1));
+		long delay = (long) (backoff * (1 - jitter * random.nextDouble()));
+		long retryAfter = response == null ? -1 : getRetryAfter(response);
+		if (retryAfter > maxRetryAfter) {
+			return -1;
+		}
+		return Math.max(delay, retryAfter);
+	}
+
+	/**
+	 * Gets the wait asked for by the Retry-After header, given either in
+	 * seconds or as an http date.
+	 *
+	 * @param response the response
+	 *
+	 * @return the retry after in milliseconds, -1 if absent or invalid
+	 */
+	protected long getRetryAfter(HttpResponse response) {
+		String value = response.getHeader(RETRY_AFTER_HEADER);
+		if (value == null) {
+			return -1;
+		}
+		value = value.trim();
+		try {
+			return Math.max(0, Long.parseLong(value) * 1000);
+		} catch (NumberFormatException e) {
+			SimpleDateFormat format = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+			format.setTimeZone(TimeZone.getTimeZone("GMT"));
+			try {
+				Date date = format.parse(value);
+				return Math.max(0, date.getTime() - System.currentTimeMillis());
+			} catch (ParseException pe) {
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * The Class RetryBudget.
+	 *
+	 * Every call deposits a fraction of a retry and every retry withdraws a
+	 * whole one, up to a reserve that allows short bursts.
+	 */
+	public static class RetryBudget {
+
+		/** The ratio. */
+		private final double ratio;
+
+		/** The reserve. */
+		private final int reserve;
+
+		/** The balance. */
+		private double balance;
+
+		/**
+		 * Instantiates a new retry budget.
+		 *
+		 * @param ratio the retries earned per call
+		 * @param reserve the max retries saved up
+		 */
+		public RetryBudget(double ratio, int reserve) {
+			this.ratio = ratio;
+			this.reserve = reserve;
+			this.balance = reserve;
+		}
+
+		/**
+		 * Records a call.
+		 */
+		public synchronized void deposit() {
+			balance = Math.min(reserve, balance + ratio);
+		}
+
+		/**
+		 * Takes one retry from the budget.
+		 *
+		 * @return true, if the budget allows the retry
+		 */
+		public synchronized boolean tryWithdraw() {
+			if (balance < 1) {
+				return false;
+			}
+			balance--;
+			return true;
+		}
+
+		/**
+		 * Gets the balance.
+		 *
+		 * @return the retries left
+		 */
+		public synchronized double getBalance() {
+			return balance;
+		}
+	}
+}
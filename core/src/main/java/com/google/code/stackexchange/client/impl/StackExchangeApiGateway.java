@@ -16,21 +16,29 @@
  */
 package com.google.code.stackexchange.client.impl;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.io.PrintStream;
 import java.net.HttpURLConnection;
+import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.util.Date;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.zip.GZIPInputStream;
 
+import com.google.code.stackexchange.client.ClientConfiguration;
+import com.google.code.stackexchange.client.RateLimit;
+import com.google.code.stackexchange.client.cache.CachedResponse;
+import com.google.code.stackexchange.client.cache.ResponseCache;
 import com.google.code.stackexchange.client.constant.ApplicationConstants;
 import com.google.code.stackexchange.client.constant.ErrorCodes;
 import com.google.code.stackexchange.client.exception.InternalServerException;
@@ -46,6 +54,10 @@ import com.google.code.stackexchange.client.exception.TooManyIdsException;
 import com.google.code.stackexchange.client.exception.UnconstrainedSearchException;
 import com.google.code.stackexchange.client.provider.ApiProvider;
 import com.google.code.stackexchange.client.provider.StackOverflowApiProvider;
+import com.google.code.stackexchange.client.transport.HttpRequest;
+import com.google.code.stackexchange.client.transport.HttpResponse;
+import com.google.code.stackexchange.client.transport.HttpTransport;
+import com.google.code.stackexchange.client.transport.impl.PooledHttpTransport;
 import com.google.code.stackexchange.common.PagedList;
 import com.google.code.stackexchange.schema.Error;
 
@@ -60,6 +72,15 @@ public abstract class StackExchangeApiGateway {
 	/** The Constant GZIP_ENCODING. */
 	private static final String GZIP_ENCODING = "gzip";
 	
+	/**
+	 * The Constant DEFAULT_HTTP_TRANSPORT, shared by all clients and queries so
+	 * that they reuse the same keep-alive connections.
+	 */
+	private static final HttpTransport DEFAULT_HTTP_TRANSPORT = new PooledHttpTransport();
+	
+	/** The executor of the refreshes of stale cached responses, shared by all clients and queries. */
+	private static ExecutorService refreshExecutor;
+	
 	/** The request headers. */
 	protected Map<String, String> requestHeaders;
 	
@@ -72,11 +93,29 @@ public abstract class StackExchangeApiGateway {
 	/** The api version. */
 	protected String apiVersion = ApplicationConstants.DEFAULT_API_VERSION;
 	
-	/** The max rate limit. */
-	private int maxRateLimit = -1;
+	/** The http transport. */
+	private HttpTransport httpTransport = DEFAULT_HTTP_TRANSPORT;
+	
+	/** The rate limit tracker. */
+	private RateLimitTracker rateLimitTracker = RateLimitTracker.getDefault();
+	
+	/** The content decoder. */
+	private ContentDecoder contentDecoder = ContentDecoder.getDefault();
+	
+	/** The json codec. */
+	private JsonCodec jsonCodec = JsonCodec.getDefault();
+	
+	/** The host of the last call that reported rate limits. */
+	private volatile String rateLimitHost;
 	
-	/** The current rate limit. */
-	private int currentRateLimit = -1;
+	/** The configuration. */
+	private volatile ClientConfiguration configuration = new ClientConfiguration();
+	
+	/** The retry policy the retry budget was taken from. */
+	private RetryPolicy retryBudgetPolicy;
+	
+	/** The retry budget of this client. */
+	private RetryPolicy.RetryBudget retryBudget;
 
 	/**
 	 * Gets the api version.
@@ -169,13 +208,32 @@ public abstract class StackExchangeApiGateway {
 		this.apiProvider = apiProvider;
 	}
 	
+	/**
+	 * Gets the http transport.
+	 * 
+	 * @return the http transport
+	 */
+	public HttpTransport getHttpTransport() {
+		return httpTransport;
+	}
+
+	/**
+	 * Sets the http transport.
+	 * 
+	 * @param httpTransport the new http transport
+	 */
+	public void setHttpTransport(HttpTransport httpTransport) {
+		this.httpTransport = httpTransport;
+	}
+	
     /**
      * Gets the max rate limit.
      * 
      * @return the max rate limit
      */
     public int getMaxRateLimit() {
-    	return maxRateLimit;
+    	RateLimit rateLimit = getRateLimit();
+    	return rateLimit == null ? -1 : rateLimit.getMaxRateLimit();
     }
     
     /**
@@ -184,7 +242,98 @@ public abstract class StackExchangeApiGateway {
      * @return the current rate limit
      */
     public int getCurrentRateLimit() {
-    	return currentRateLimit;
+    	RateLimit rateLimit = getRateLimit();
+    	return rateLimit == null ? -1 : rateLimit.getCurrentRateLimit();
+    }
+    
+    /**
+     * Gets the latest rate limit of the host this client last called, for its
+     * application key.
+     * 
+     * @return the rate limit, null if none was reported yet
+     */
+    public RateLimit getRateLimit() {
+    	String host = rateLimitHost;
+    	return host == null ? null : rateLimitTracker.getRateLimit(host, applicationKey);
+    }
+    
+    /**
+     * Gets the rate limit tracker.
+     * 
+     * @return the rate limit tracker
+     */
+    public RateLimitTracker getRateLimitTracker() {
+    	return rateLimitTracker;
+    }
+    
+    /**
+     * Sets the rate limit tracker. By default all clients share
+     * {@link RateLimitTracker#getDefault()}.
+     * 
+     * @param rateLimitTracker the new rate limit tracker
+     */
+    public void setRateLimitTracker(RateLimitTracker rateLimitTracker) {
+    	this.rateLimitTracker = rateLimitTracker;
+    }
+    
+    /**
+     * Gets the content decoder.
+     * 
+     * @return the content decoder
+     */
+    public ContentDecoder getContentDecoder() {
+    	return contentDecoder;
+    }
+    
+    /**
+     * Sets the content decoder. By default all clients share
+     * {@link ContentDecoder#getDefault()}.
+     * 
+     * @param contentDecoder the new content decoder
+     */
+    public void setContentDecoder(ContentDecoder contentDecoder) {
+    	this.contentDecoder = contentDecoder;
+    }
+    
+    /**
+     * Gets the json codec.
+     * 
+     * @return the json codec
+     */
+    public JsonCodec getJsonCodec() {
+    	return jsonCodec;
+    }
+    
+    /**
+     * Sets the json codec decoding the responses. By default all clients and
+     * queries share {@link JsonCodec#getDefault()}.
+     * 
+     * @param jsonCodec the new json codec
+     */
+    public void setJsonCodec(JsonCodec jsonCodec) {
+    	this.jsonCodec = jsonCodec;
+    }
+    
+    /**
+     * Gets the configuration.
+     * 
+     * @return the configuration
+     */
+    public ClientConfiguration getConfiguration() {
+    	return configuration;
+    }
+    
+    /**
+     * Sets the configuration of the calls. It may be shared with other
+     * clients, each of them takes its own retry budget from the retry policy.
+     * 
+     * @param configuration the new configuration
+     */
+    public void setConfiguration(ClientConfiguration configuration) {
+    	if (configuration == null) {
+    		throw new IllegalArgumentException("configuration cannot be null.");
+    	}
+    	this.configuration = configuration;
     }
 
 	/**
@@ -225,123 +374,479 @@ public abstract class StackExchangeApiGateway {
 	/**
 	 * Call api method.
 	 * 
+	 * @param methodName the name of the api method the url was built for
 	 * @param apiUrl the api url
 	 * 
 	 * @return the input stream
 	 */
-	protected InputStream callApiMethod(String apiUrl) {
-		return callApiMethod(apiUrl, HttpURLConnection.HTTP_OK);
+	protected InputStream callApiMethod(String methodName, String apiUrl) {
+		return callApiMethod(methodName, apiUrl, HttpURLConnection.HTTP_OK);
+	}
+
+	/**
+	 * Call api method.
+	 * 
+	 * @param methodName the name of the api method the url was built for
+	 * @param apiUrl the api url
+	 * @param expected the expected
+	 * 
+	 * @return the input stream
+	 */
+	protected InputStream callApiMethod(String methodName, String apiUrl, int expected) {
+		ResponseCache cache = configuration.getResponseCache();
+		if (cache != null) {
+			CachedResponse cached = cache.lookup(apiUrl);
+			if (cached != null) {
+				if (cached.isNotFound()) {
+					throw new NotFoundException(cached.getNotFoundMessage(), new Date());
+				}
+				if (cached.isRefreshNeeded()) {
+					refresh(methodName, apiUrl, cache);
+				}
+				return new ByteArrayInputStream(cached.getContent());
+			}
+		}
+		HttpRequest request = createHttpRequest(apiUrl, HttpRequest.GET);
+		RequestCoalescer coalescer = configuration.getRequestCoalescer();
+		if (coalescer == null) {
+			if (cache == null) {
+				return executeRequest(request, expected);
+			}
+			byte[] content;
+			try {
+				content = readContent(executeRequest(request, expected));
+			} catch (StackExchangeApiException e) {
+				cacheNotFound(apiUrl, e);
+				throw e;
+			}
+			cache.put(methodName, apiUrl, content);
+			return new ByteArrayInputStream(content);
+		}
+		RequestCoalescer.Flight flight = coalescer.join(apiUrl);
+		if (flight.start()) {
+			try {
+				byte[] content = readContent(executeRequest(request, expected));
+				if (cache != null) {
+					cache.put(methodName, apiUrl, content);
+				}
+				flight.complete(content);
+			} catch (RuntimeException e) {
+				if (e instanceof StackExchangeApiException) {
+					cacheNotFound(apiUrl, (StackExchangeApiException) e);
+				}
+				flight.fail(e);
+				throw e;
+			} finally {
+				flight.fail(new StackExchangeApiException("The call of " + apiUrl + " was abandoned."));
+			}
+		}
+		
+		return flight.getContent(request.getDeadline());
+	}
+
+	/**
+	 * Fetches the url again in the background and caches the response, so
+	 * that the callers of a stale cached response are not held up by it. A
+	 * refresh that fails leaves the stale response, to be refreshed by a
+	 * later caller once the refresh timeout of the cache runs out.
+	 * 
+	 * @param methodName the name of the api method the url was built for
+	 * @param apiUrl the api url
+	 * @param cache the cache
+	 */
+	protected void refresh(final String methodName, final String apiUrl, final ResponseCache cache) {
+		try {
+			getRefreshExecutor().execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						byte[] content = readContent(executeRequest(createHttpRequest(apiUrl, HttpRequest.GET),
+								HttpURLConnection.HTTP_OK));
+						cache.put(methodName, apiUrl, content);
+					} catch (StackExchangeApiException e) {
+						cacheNotFound(apiUrl, e);
+						LOG.log(Level.FINE, "Could not refresh " + apiUrl + ".", e);
+					} catch (RuntimeException e) {
+						LOG.log(Level.FINE, "Could not refresh " + apiUrl + ".", e);
+					}
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			LOG.log(Level.FINE, "Could not refresh " + apiUrl + ".", e);
+		}
+	}
+
+	/**
+	 * Caches that the url was not found if the failure of its call says so,
+	 * so that repeated lookups of deleted questions or users do not each
+	 * cost a call.
+	 * 
+	 * @param apiUrl the api url
+	 * @param failure the failure
+	 */
+	protected void cacheNotFound(String apiUrl, StackExchangeApiException failure) {
+		ResponseCache cache = configuration.getResponseCache();
+		if (cache != null && failure instanceof NotFoundException) {
+			cache.putNotFound(apiUrl, failure.getMessage());
+		}
+	}
+
+	/**
+	 * Gets the executor of the refreshes of stale cached responses.
+	 * 
+	 * @return the refresh executor
+	 */
+	private static synchronized ExecutorService getRefreshExecutor() {
+		if (refreshExecutor == null) {
+			refreshExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+				private final AtomicInteger count = new AtomicInteger();
+
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "stackexchange-refresh-" + count.incrementAndGet());
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+		return refreshExecutor;
+	}
+
+	/**
+	 * Reads the content of a response into memory, so that it can be shared.
+	 * 
+	 * @param is the is
+	 * 
+	 * @return the content
+	 */
+	protected byte[] readContent(InputStream is) {
+		try {
+			ByteArrayOutputStream content = new ByteArrayOutputStream(8192);
+			byte[] buffer = new byte[8192];
+			int count;
+			while ((count = is.read(buffer)) != -1) {
+				content.write(buffer, 0, count);
+			}
+			return content.toByteArray();
+		} catch (IOException e) {
+			throw new StackExchangeApiException(e);
+		} finally {
+			closeStream(is);
+		}
 	}
 
 	/**
 	 * Call api method.
 	 * 
 	 * @param apiUrl the api url
+	 * @param xmlContent the xml content
+	 * @param contentType the content type
+	 * @param method the method
 	 * @param expected the expected
 	 * 
 	 * @return the input stream
 	 */
-	protected InputStream callApiMethod(String apiUrl, int expected) {
+	protected InputStream callApiMethod(String apiUrl, String xmlContent, String contentType,
+			String method, int expected) {
 	    try {
-	        URL               url     = new URL(apiUrl);
-	        HttpURLConnection request = (HttpURLConnection) url.openConnection();
+	        HttpRequest request = createHttpRequest(apiUrl, method);
 	
-	        if (ApplicationConstants.CONNECT_TIMEOUT > -1) {
-	            request.setConnectTimeout(ApplicationConstants.CONNECT_TIMEOUT);
+	        if (contentType != null) {
+	            request.addHeader("Content-Type", contentType);
 	        }
 	
-	        if (ApplicationConstants.READ_TIMEOUT > -1) {
-	            request.setReadTimeout(ApplicationConstants.READ_TIMEOUT);
+	        if (xmlContent != null) {
+	            request.setContent(xmlContent.getBytes(ApplicationConstants.CONTENT_ENCODING));
 	        }
-	
-	        for (String headerName : requestHeaders.keySet()) {
-	            request.setRequestProperty(headerName, requestHeaders.get(headerName));
-	        }
-	        
-	        request.connect();
-	        maxRateLimit = request.getHeaderFieldInt(ApplicationConstants.MAX_RATE_LIMIT_HEADER, -1);
-	        currentRateLimit = request.getHeaderFieldInt(ApplicationConstants.CURRENT_RATE_LIMIT_HEADER, -1);
 	        
-	        if (request.getResponseCode() != expected) {
-	            Error error = unmarshallObject(Error.class,
-	                    getWrappedInputStream(request.getErrorStream(),
-	                        GZIP_ENCODING.equalsIgnoreCase(request.getContentEncoding())));
-	            error.setStatusCode(request.getResponseCode());
-	        	
-	            throw createStackOverflowApiClientException(error);
-	        } else {
-	            return getWrappedInputStream(request.getInputStream(),
-	                                         GZIP_ENCODING.equalsIgnoreCase(request.getContentEncoding()));
-	        }
+	        return executeRequest(request, expected);
 	    } catch (IOException e) {
 	        throw new StackExchangeApiException(e);
 	    }
 	}
-
+	
 	/**
-	 * Call api method.
+	 * Creates the http request.
 	 * 
 	 * @param apiUrl the api url
-	 * @param xmlContent the xml content
-	 * @param contentType the content type
 	 * @param method the method
+	 * 
+	 * @return the http request
+	 */
+	protected HttpRequest createHttpRequest(String apiUrl, String method) {
+		ClientConfiguration configuration = this.configuration;
+		HttpRequest request = new HttpRequest(apiUrl, method);
+		request.setConnectTimeout(configuration.getConnectTimeout());
+		request.setReadTimeout(configuration.getReadTimeout());
+		request.setFirstByteTimeout(configuration.getFirstByteTimeout());
+		if (configuration.getRequestTimeout() > 0) {
+			request.setDeadline(System.currentTimeMillis() + configuration.getRequestTimeout());
+		}
+		request.addHeaders(requestHeaders);
+		
+		return request;
+	}
+
+	/**
+	 * Executes the request on the http transport, retrying it as allowed by
+	 * the retry policy.
+	 * 
+	 * @param request the request
 	 * @param expected the expected
 	 * 
 	 * @return the input stream
 	 */
-	protected InputStream callApiMethod(String apiUrl, String xmlContent, String contentType,
-			String method, int expected) {
-			    try {
-			        URL               url     = new URL(apiUrl);
-			        HttpURLConnection request = (HttpURLConnection) url.openConnection();
-			
-			        if (ApplicationConstants.CONNECT_TIMEOUT > -1) {
-			            request.setConnectTimeout(ApplicationConstants.CONNECT_TIMEOUT);
-			        }
-			
-			        if (ApplicationConstants.READ_TIMEOUT > -1) {
-			            request.setReadTimeout(ApplicationConstants.READ_TIMEOUT);
-			        }
-			
-			        for (String headerName : requestHeaders.keySet()) {
-			            request.setRequestProperty(headerName, requestHeaders.get(headerName));
-			        }
-			
-			        request.setRequestMethod(method);
-			        request.setDoOutput(true);
-			
-			        if (contentType != null) {
-			            request.setRequestProperty("Content-Type", contentType);
-			        }
-			
-			        if (xmlContent != null) {
-			            PrintStream out = new PrintStream(new BufferedOutputStream(request.getOutputStream()));
-			
-			            out.print(xmlContent);
-			            out.flush();
-			            out.close();
-			        }
-			
-			        request.connect();
-			        
-			        maxRateLimit = request.getHeaderFieldInt(ApplicationConstants.MAX_RATE_LIMIT_HEADER, -1);
-			        currentRateLimit = request.getHeaderFieldInt(ApplicationConstants.CURRENT_RATE_LIMIT_HEADER, -1);
-			        
-			        if (request.getResponseCode() != expected) {
-			            Error error = unmarshallObject(Error.class,
-			                    getWrappedInputStream(request.getErrorStream(),
-			                        GZIP_ENCODING.equalsIgnoreCase(request.getContentEncoding())));
-			            error.setStatusCode(request.getResponseCode());
-			            
-			            throw createStackOverflowApiClientException(error);
-			        } else {
-			            return getWrappedInputStream(request.getInputStream(),
-			                                         GZIP_ENCODING.equalsIgnoreCase(request.getContentEncoding()));
-			        }
-			    } catch (IOException e) {
-			        throw new StackExchangeApiException(e);
-			    }
+	protected InputStream executeRequest(HttpRequest request, int expected) {
+		depositRetryBudget();
+		for (int attempt = 1; ; attempt++) {
+			String circuitHost;
+			try {
+				circuitHost = acquireCircuit(request);
+			} catch (IOException e) {
+				throw new StackExchangeApiException(e);
+			}
+			try {
+				awaitQuota(request);
+			} catch (IOException e) {
+				releaseCircuit(circuitHost);
+				throw new StackExchangeApiException(e);
+			} catch (RuntimeException e) {
+				releaseCircuit(circuitHost);
+				throw e;
+			}
+			HttpResponse response = null;
+			StackExchangeApiException failure;
+		    try {
+		        HedgingPolicy hedging = configuration.getHedgingPolicy();
+		        response = hedging == null ? httpTransport.execute(request) : hedging.execute(httpTransport, request);
+		        InputStream content = handleResponse(request, response, expected);
+		        recordCircuitResult(circuitHost, response, null);
+		        
+		        return content;
+		    } catch (IOException e) {
+		    	if (response != null) {
+		    		response.close();
+		    	}
+		        failure = new StackExchangeApiException(e);
+		    } catch (StackExchangeApiException e) {
+		    	failure = e;
+		    } catch (RuntimeException e) {
+		    	releaseCircuit(circuitHost);
+		    	throw e;
+		    }
+		    recordCircuitResult(circuitHost, response, failure);
+		    long delay = getRetryDelay(request, response, failure, attempt);
+		    if (delay < 0) {
+		    	throw failure;
+		    }
+		    LOG.log(Level.FINE, "Retrying " + request.getUrl() + " in " + delay + "ms.", failure);
+		    try {
+		    	Thread.sleep(delay);
+		    } catch (InterruptedException e) {
+		    	Thread.currentThread().interrupt();
+		    	throw failure;
+		    }
+		}
+	}
+
+	/**
+	 * Asks the circuit breaker to call the host of the request.
+	 * 
+	 * @param request the request
+	 * 
+	 * @return the host to report the result of the call for, null if there
+	 * is no circuit breaker
+	 * 
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	protected String acquireCircuit(HttpRequest request) throws IOException {
+		CircuitBreaker breaker = configuration.getCircuitBreaker();
+		if (breaker == null) {
+			return null;
+		}
+		String host = new URL(request.getUrl()).getHost();
+		breaker.acquire(host);
+		return host;
+	}
+
+	/**
+	 * Gives back a call to the circuit breaker that was not sent.
+	 * 
+	 * @param host the host returned by {@link #acquireCircuit(HttpRequest)}
+	 */
+	protected void releaseCircuit(String host) {
+		CircuitBreaker breaker = configuration.getCircuitBreaker();
+		if (host != null && breaker != null) {
+			breaker.release(host);
+		}
+	}
+
+	/**
+	 * Reports the result of a call to the circuit breaker. Only I/O errors
+	 * and server errors count as failures of the host.
+	 * 
+	 * @param host the host returned by {@link #acquireCircuit(HttpRequest)}
+	 * @param response the response, null if none was received
+	 * @param failure the failure, null if the call succeeded
+	 */
+	protected void recordCircuitResult(String host, HttpResponse response, StackExchangeApiException failure) {
+		CircuitBreaker breaker = configuration.getCircuitBreaker();
+		if (host == null || breaker == null) {
+			return;
+		}
+		if (failure != null && (response == null || failure.getCause() instanceof IOException
+				|| response.getStatusCode() >= HttpURLConnection.HTTP_INTERNAL_ERROR)) {
+			breaker.onFailure(host);
+		} else {
+			breaker.onSuccess(host);
+		}
+	}
+
+	/**
+	 * Credits the retry budget of this client with a new call.
+	 */
+	protected void depositRetryBudget() {
+		RetryPolicy.RetryBudget budget = getRetryBudget(configuration.getRetryPolicy());
+		if (budget != null) {
+			budget.deposit();
+		}
+	}
+
+	/**
+	 * Gets the time to wait before retrying a failed attempt, taking the
+	 * retry from the budget of this client. A retry that could not start
+	 * before the deadline of the request is not made.
+	 * 
+	 * @param request the request
+	 * @param response the response of the failed attempt, null if none was received
+	 * @param failure the failure
+	 * @param attempt the number of the failed attempt, starting at 1
+	 * 
+	 * @return the delay in milliseconds, or -1 if the call should not be retried
+	 */
+	protected long getRetryDelay(HttpRequest request, HttpResponse response, StackExchangeApiException failure, int attempt) {
+		RetryPolicy policy = configuration.getRetryPolicy();
+		if (policy == null) {
+			return -1;
+		}
+		RetryPolicy.RetryBudget budget = getRetryBudget(policy);
+		long delay = policy.getRetryDelay(request, response, failure, attempt);
+		if (delay < 0 || (request.getDeadline() >= 0 && System.currentTimeMillis() + delay >= request.getDeadline())
+				|| !budget.tryWithdraw()) {
+			return -1;
+		}
+		return delay;
+	}
+
+	/**
+	 * Gets the retry budget of this client, taking a new one when the retry
+	 * policy of the configuration changed.
+	 * 
+	 * @param policy the retry policy
+	 * 
+	 * @return the retry budget, null if there is no retry policy
+	 */
+	private synchronized RetryPolicy.RetryBudget getRetryBudget(RetryPolicy policy) {
+		if (policy != retryBudgetPolicy) {
+			retryBudget = (policy == null) ? null : policy.newRetryBudget();
+			retryBudgetPolicy = policy;
+		}
+		return retryBudget;
+	}
+
+	/**
+	 * Waits until the quota scheduler lets the request through.
+	 * 
+	 * @param request the request
+	 * 
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	protected void awaitQuota(HttpRequest request) throws IOException {
+		long wait = reserveQuota(request);
+		if (wait > 0) {
+			try {
+				Thread.sleep(wait);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new StackExchangeApiException(e);
+			}
+		}
+	}
+
+	/**
+	 * Reserves quota for the request.
+	 * 
+	 * @param request the request
+	 * 
+	 * @return the time in milliseconds to wait before sending the request
+	 * 
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	protected long reserveQuota(HttpRequest request) throws IOException {
+		QuotaScheduler scheduler = configuration.getQuotaScheduler();
+		if (scheduler == null) {
+			return 0;
+		}
+		String host = new URL(request.getUrl()).getHost();
+		long maxWait = scheduler.getMaxWait();
+		boolean deadline = false;
+		if (request.getDeadline() >= 0) {
+			long remaining = request.getDeadline() - System.currentTimeMillis();
+			if (maxWait < 0 || remaining < maxWait) {
+				maxWait = Math.max(remaining, 0);
+				deadline = true;
 			}
+		}
+		long wait = scheduler.reserve(host, applicationKey, maxWait);
+		if (wait < 0) {
+			if (deadline) {
+				throw new SocketTimeoutException("Quota for " + host + " would not be available before the deadline.");
+			}
+			throw new RequestLimitExceededException("Quota for " + host + " would not be available within "
+					+ maxWait + "ms.", new Date());
+		}
+		return wait;
+	}
+
+	/**
+	 * Handles the response, records the rate limits and turns an unexpected
+	 * status into an exception.
+	 * 
+	 * @param request the request
+	 * @param response the response
+	 * @param expected the expected
+	 * 
+	 * @return the input stream
+	 * 
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	protected InputStream handleResponse(HttpRequest request, HttpResponse response, int expected) throws IOException {
+        int maxRateLimit = response.getIntHeader(ApplicationConstants.MAX_RATE_LIMIT_HEADER, -1);
+        int currentRateLimit = response.getIntHeader(ApplicationConstants.CURRENT_RATE_LIMIT_HEADER, -1);
+        if (maxRateLimit != -1 || currentRateLimit != -1) {
+        	String host = new URL(request.getUrl()).getHost();
+        	RateLimit rateLimit = rateLimitTracker.update(host, applicationKey, maxRateLimit, currentRateLimit);
+        	rateLimitHost = host;
+        	QuotaScheduler scheduler = configuration.getQuotaScheduler();
+        	if (scheduler != null) {
+        		scheduler.update(rateLimit);
+        	}
+        }
+        
+        if (response.getStatusCode() != expected) {
+        	try {
+	            Error error = unmarshallObject(Error.class,
+	                    getWrappedInputStream(response.getContent(), response.getContentEncoding()));
+	            error.setStatusCode(response.getStatusCode());
+	        	
+	            throw createStackOverflowApiClientException(error);
+        	} finally {
+        		response.close();
+        	}
+        } else {
+            return getWrappedInputStream(response.getContent(), response.getContentEncoding());
+        }
+	}
 
 	/**
 	 * Close stream.
@@ -429,12 +934,23 @@ public abstract class StackExchangeApiGateway {
 	 */
 	protected InputStream getWrappedInputStream(InputStream is, boolean gzip)
 			throws IOException {
-			    if (gzip) {
-			        return new BufferedInputStream(new GZIPInputStream(is));
-			    } else {
-			        return new BufferedInputStream(is);
-			    }
-			}
+		return getWrappedInputStream(is, gzip ? GZIP_ENCODING : null);
+	}
+
+	/**
+	 * Gets the input stream decoding the content encoding of a response.
+	 * 
+	 * @param is the is
+	 * @param contentEncoding the content encoding, null for none
+	 * 
+	 * @return the wrapped input stream
+	 * 
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	protected InputStream getWrappedInputStream(InputStream is, String contentEncoding)
+			throws IOException {
+		return contentDecoder.decode(is, contentEncoding);
+	}
 
     /**
      * Unmarshall object.
@@ -17,48 +17,35 @@
 package com.google.code.stackexchange.client.impl;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.io.StringWriter;
-import java.lang.reflect.Type;
 import java.nio.charset.Charset;
-import java.util.Date;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
+import com.google.code.stackexchange.client.ClientConfiguration;
 import com.google.code.stackexchange.client.constant.ApplicationConstants;
 import com.google.code.stackexchange.client.exception.StackExchangeApiException;
 import com.google.code.stackexchange.client.provider.url.ApiUrlBuilder;
-import com.google.code.stackexchange.common.PagedArrayList;
 import com.google.code.stackexchange.common.PagedList;
 import com.google.code.stackexchange.schema.Answer;
 import com.google.code.stackexchange.schema.Badge;
-import com.google.code.stackexchange.schema.BadgeRank;
 import com.google.code.stackexchange.schema.Comment;
 import com.google.code.stackexchange.schema.Error;
 import com.google.code.stackexchange.schema.PostTimeline;
-import com.google.code.stackexchange.schema.PostTimelineType;
-import com.google.code.stackexchange.schema.PostType;
 import com.google.code.stackexchange.schema.Question;
 import com.google.code.stackexchange.schema.Reputation;
 import com.google.code.stackexchange.schema.Revision;
-import com.google.code.stackexchange.schema.RevisionType;
 import com.google.code.stackexchange.schema.SchemaEntity;
-import com.google.code.stackexchange.schema.SiteState;
 import com.google.code.stackexchange.schema.Statistics;
 import com.google.code.stackexchange.schema.Tag;
-import com.google.code.stackexchange.schema.TagRestriction;
 import com.google.code.stackexchange.schema.User;
 import com.google.code.stackexchange.schema.UserTimeline;
-import com.google.code.stackexchange.schema.UserTimelineType;
-import com.google.code.stackexchange.schema.UserType;
-import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.JsonArray;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
 
 
@@ -107,37 +94,48 @@ public class StackExchangeApiJsonClient extends BaseStackExchangeApiClient {
         super(applicationKey, apiVersion);
     }
     
-    protected <T> PagedList<T> unmarshallList(Class<T> clazz, InputStream jsonContent) {
-        try {
-        	JsonElement response = parser.parse(new InputStreamReader(jsonContent, UTF_8_CHAR_SET));
-        	if (response.isJsonObject()) {
-        		JsonObject adaptee = response.getAsJsonObject();
-        		PagedList<T> list = new PagedArrayList<T>();
-        		if (adaptee.has("total")) {
-            		list.setTotal(adaptee.get("total").getAsLong());
-        		}
-        		if (adaptee.has("page")) {
-            		list.setPage(adaptee.get("page").getAsInt());
-        		}
-        		if (adaptee.has("pagesize")) {
-            		list.setPageSize(adaptee.get("pagesize").getAsInt());
-        		}
-        		String placeHolder = LIST_PLACE_HOLDERS.get(clazz);
-        		if (adaptee.has(placeHolder)) {
-            		JsonArray elements = adaptee.get(placeHolder).getAsJsonArray();
-            		if (elements != null) {
-            			Gson gson = getGsonBuilder().create();
-            			for (JsonElement o : elements) {			
-            				list.add(gson.fromJson(o, clazz));
-            			}
+    protected <T> PagedList<T> unmarshallList(final Class<T> clazz, final InputStream jsonContent) {
+        if (jsonContent instanceof RequestCoalescer.SharedContent) {
+            try {
+            	Object decoderKey = getConfiguration().isIdentityMapping() ? Arrays.asList(clazz, "identity mapped") : clazz;
+            	return ((RequestCoalescer.SharedContent) jsonContent).getFlight().decode(decoderKey, new Callable<PagedList<T>>() {
+            		@Override
+            		public PagedList<T> call() {
+            			return parseList(clazz, jsonContent);
             		}
-        		}
-        		return list;
+            	});
+            } catch (RuntimeException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new StackExchangeApiException(e);
+            }
+        }
+        return parseList(clazz, jsonContent);
+    }
+    
+    /**
+     * Parses the list.
+     * 
+     * @param clazz the clazz
+     * @param jsonContent the json content
+     * 
+     * @return the paged list< t>
+     */
+    private <T> PagedList<T> parseList(Class<T> clazz, InputStream jsonContent) {
+        try {
+        	ClientConfiguration configuration = getConfiguration();
+        	Reader content = new InputStreamReader(jsonContent, UTF_8_CHAR_SET);
+        	JsonListReader reader = configuration.isLazyDecoding() ? JsonListReader.readContent(content) : new JsonListReader(content);
+        	reader.setIdentityMapping(configuration.isIdentityMapping());
+        	if (configuration.isLazyDecoding()) {
+        		return reader.readLazyList(clazz, LIST_PLACE_HOLDERS.get(clazz), getJsonCodec());
         	}
-        	throw new StackExchangeApiException("Unknown content found in response:" + response.toString());
+        	return reader.readList(clazz, LIST_PLACE_HOLDERS.get(clazz), getJsonCodec());
         } catch (Exception e) {
             throw new StackExchangeApiException(e);
-        }
+        } finally {
+	        closeStream(jsonContent);
+	    }
     }
 
     protected <T> T unmarshallObject(Class<T> clazz, InputStream jsonContent) {
@@ -146,12 +144,14 @@ public class StackExchangeApiJsonClient extends BaseStackExchangeApiClient {
             	JsonElement response = parser.parse(new InputStreamReader(jsonContent, UTF_8_CHAR_SET));
             	if (response.isJsonObject()) {
             		JsonObject adaptee = response.getAsJsonObject();
-            		Gson gson = getGsonBuilder().create();
+            		Gson gson = getJsonCodec().getGson();
             		return gson.fromJson(adaptee.get("error"), clazz);
             	}
             } catch (Exception e) {
                 throw new StackExchangeApiException(e);
-            }
+            } finally {
+    	        closeStream(jsonContent);
+    	    }
     	}
     	return null;
     }
@@ -175,92 +175,5 @@ public class StackExchangeApiJsonClient extends BaseStackExchangeApiClient {
     protected ApiUrlBuilder createStackOverflowApiUrlBuilder(String methodName) {
         return getApiProvider().createApiUrlBuilder(methodName, getApplicationKey(), getApiVersion());
     }
-    
-	protected GsonBuilder getGsonBuilder() {
-		GsonBuilder builder = new GsonBuilder();
-		builder.registerTypeAdapter(Date.class, new JsonDeserializer<Date>() {
-
-			@Override
-			public Date deserialize(JsonElement source, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return new Date(source.getAsLong() * 1000);
-			}
-			
-		});
-		builder.registerTypeAdapter(BadgeRank.class, new JsonDeserializer<BadgeRank>() {
-
-			@Override
-			public BadgeRank deserialize(JsonElement arg0, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return BadgeRank.fromValue(arg0.getAsString());
-			}
-			
-		});
-		builder.registerTypeAdapter(PostType.class, new JsonDeserializer<PostType>() {
-
-			@Override
-			public PostType deserialize(JsonElement arg0, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return PostType.fromValue(arg0.getAsString());
-			}
-			
-		});
-		builder.registerTypeAdapter(PostTimelineType.class, new JsonDeserializer<PostTimelineType>() {
 
-			@Override
-			public PostTimelineType deserialize(JsonElement arg0, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return PostTimelineType.fromValue(arg0.getAsString());
-			}
-			
-		});
-		builder.registerTypeAdapter(UserTimelineType.class, new JsonDeserializer<UserTimelineType>() {
-
-			@Override
-			public UserTimelineType deserialize(JsonElement arg0, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return UserTimelineType.fromValue(arg0.getAsString());
-			}
-			
-		});
-		builder.registerTypeAdapter(UserType.class, new JsonDeserializer<UserType>() {
-
-			@Override
-			public UserType deserialize(JsonElement arg0, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return UserType.fromValue(arg0.getAsString());
-			}
-			
-		});
-		builder.registerTypeAdapter(RevisionType.class, new JsonDeserializer<RevisionType>() {
-
-			@Override
-			public RevisionType deserialize(JsonElement arg0, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return RevisionType.fromValue(arg0.getAsString());
-			}
-			
-		});
-		builder.registerTypeAdapter(TagRestriction.class, new JsonDeserializer<TagRestriction>() {
-
-			@Override
-			public TagRestriction deserialize(JsonElement arg0, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return TagRestriction.fromValue(arg0.getAsString());
-			}
-			
-		});
-		builder.registerTypeAdapter(SiteState.class, new JsonDeserializer<SiteState>() {
-
-			@Override
-			public SiteState deserialize(JsonElement arg0, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return SiteState.fromValue(arg0.getAsString());
-			}
-		});
-		
-		builder.setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES);
-		
-		return builder;		
-	}
 }
@@ -0,0 +1,145 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The Class StringPool.
+ *
+ * A bounded table of strings letting equal values decoded from different
+ * responses share one instance, e.g. the same few hundred tags across
+ * thousands of questions. Lookups take the chars being decoded, so a value
+ * already in the pool costs no allocation at all.
+ *
+ * Each value may sit in one of two neighbouring slots picked by its hash.
+ * A new value takes a free one, or replaces the value in the first, so the
+ * pool never grows and never locks. A lost value only costs a duplicate. Values longer than
+ * {@link #MAX_LENGTH} chars are never pooled.
+ */
+public class StringPool {
+
+	/** The Constant DEFAULT_CAPACITY. */
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	/** The Constant MAX_LENGTH. */
+	public static final int MAX_LENGTH = 64;
+
+	/** The slots. */
+	private final AtomicReferenceArray<String> slots;
+
+	/** The mask wrapping slot indexes. */
+	private final int mask;
+
+	/** The shift picking a slot from the top bits of a mixed hash. */
+	private final int shift;
+
+	/**
+	 * Instantiates a new string pool with the default capacity.
+	 */
+	public StringPool() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Instantiates a new string pool.
+	 *
+	 * @param capacity the max number of values held, rounded up to a power of two
+	 */
+	public StringPool(int capacity) {
+		if (capacity <= 0) {
+			throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+		}
+		int size = Integer.highestOneBit(capacity);
+		if (size < capacity) {
+			size <<= 1;
+		}
+		this.slots = new AtomicReferenceArray<String>(size);
+		this.mask = size - 1;
+		this.shift = 32 - Integer.numberOfTrailingZeros(size);
+	}
+
+	/**
+	 * Gets the pooled instance of a value, adding it if missing.
+	 *
+	 * @param chars the chars of the value
+	 *
+	 * @return the value
+	 */
+	public String get(CharSequence chars) {
+		int length = chars.length();
+		if (length > MAX_LENGTH) {
+			return chars.toString();
+		}
+		int hash = 0;
+		for (int i = 0; i < length; i++) {
+			hash = 31 * hash + chars.charAt(i);
+		}
+		// similar values, e.g. tag-1 and tag-2, have close hashes, which the
+		// multiplication spreads over the table
+		int index = shift == 32 ? 0 : (hash * 0x9E3779B9) >>> shift;
+		int other = (index + 1) & mask;
+		String first = slots.get(index);
+		if (matches(first, hash, chars)) {
+			return first;
+		}
+		String second = slots.get(other);
+		if (matches(second, hash, chars)) {
+			return second;
+		}
+		String value = chars.toString();
+		slots.lazySet(first != null && second == null ? other : index, value);
+		return value;
+	}
+
+	/**
+	 * Checks if a pooled value equals the chars.
+	 *
+	 * @param value the value, may be null
+	 * @param hash the hash of the chars
+	 * @param chars the chars
+	 *
+	 * @return true, if equal
+	 */
+	private static boolean matches(String value, int hash, CharSequence chars) {
+		return value != null && value.hashCode() == hash && value.contentEquals(chars);
+	}
+
+	/**
+	 * Gets the number of values held, for monitoring.
+	 *
+	 * @return the size
+	 */
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < slots.length(); i++) {
+			if (slots.get(i) != null) {
+				size++;
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Drops every value.
+	 */
+	public void clear() {
+		for (int i = 0; i < slots.length(); i++) {
+			slots.set(i, null);
+		}
+	}
+}
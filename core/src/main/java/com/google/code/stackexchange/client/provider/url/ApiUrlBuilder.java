@@ -229,4 +229,12 @@ public interface ApiUrlBuilder {
 	 */
 	public String buildUrl();
 
+	/**
+	 * Gets the method name.
+	 * 
+	 * @return the name of the api method the url is built for, see
+	 * {@link com.google.code.stackexchange.client.constant.StackExchangeApiMethods}
+	 */
+	public String getMethodName();
+
 }
\ No newline at end of file
@@ -19,6 +19,7 @@ package com.google.code.stackexchange.client.provider.url;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -57,6 +58,9 @@ public class DefaultApiUrlBuilder implements ApiUrlBuilder {
 	/** The Constant DEFAULT_VERSION. */
 	private static final String DEFAULT_VERSION = ApplicationConstants.DEFAULT_API_VERSION;
 
+	/** The method name. */
+	private String methodName;
+
 	/** The url format. */
 	private String urlFormat;
 
@@ -86,6 +90,7 @@ public class DefaultApiUrlBuilder implements ApiUrlBuilder {
 	 */
 	public DefaultApiUrlBuilder(String methodName, String applicationId, String providerHost) {
 		if (stackOverflowApiUrls.containsKey(methodName)) {
+			this.methodName = methodName;
 			this.urlFormat = stackOverflowApiUrls.getProperty(methodName);
 			if (applicationId != null) {
 				parametersMap.put("key", applicationId);
@@ -108,6 +113,7 @@ public class DefaultApiUrlBuilder implements ApiUrlBuilder {
 	public DefaultApiUrlBuilder(String methodName, String applicationId, String providerHost,
 			String apiVersion) {
 		if (stackOverflowApiUrls.containsKey(methodName)) {
+			this.methodName = methodName;
 			this.urlFormat = stackOverflowApiUrls.getProperty(methodName);
 			if (applicationId != null) {
 				parametersMap.put("key", applicationId);
@@ -128,6 +134,7 @@ public class DefaultApiUrlBuilder implements ApiUrlBuilder {
 	 */
 	public ApiUrlBuilder withMethod(String methodName) {
 		if (stackOverflowApiUrls.containsKey(methodName)) {
+			this.methodName = methodName;
 			this.urlFormat = stackOverflowApiUrls.getProperty(methodName);
 		} else {
 			throw new UnsupportedOperationException("Method '" + methodName + "' not supported.");
@@ -136,6 +143,12 @@ public class DefaultApiUrlBuilder implements ApiUrlBuilder {
 		return this;
 	}
 	
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.provider.url.ApiUrlBuilder#getMethodName()
+	 */
+	public String getMethodName() {
+		return methodName;
+	}
 
 	/* (non-Javadoc)
 	 * @see com.google.code.stackexchange.client.provider.url.ApiUrlBuilder#withParameter(java.lang.String, java.lang.String)
@@ -459,6 +472,33 @@ public class DefaultApiUrlBuilder implements ApiUrlBuilder {
 		return urlBuilder.toString();
 	}
 
+	/**
+	 * Gets the canonical form of an api url, with its query parameters
+	 * sorted, so that urls built with the parameters in a different order
+	 * compare equal.
+	 * 
+	 * @param url the url
+	 * 
+	 * @return the canonical url
+	 */
+	public static String getCanonicalUrl(String url) {
+		int query = url.indexOf('?');
+		if (query == -1 || url.indexOf('&', query) == -1) {
+			return url;
+		}
+		String[] parameters = url.substring(query + 1).split("&");
+		Arrays.sort(parameters);
+		StringBuilder canonicalUrl = new StringBuilder(url.length());
+		canonicalUrl.append(url, 0, query + 1);
+		for (int i = 0; i < parameters.length; i++) {
+			if (i > 0) {
+				canonicalUrl.append('&');
+			}
+			canonicalUrl.append(parameters[i]);
+		}
+		return canonicalUrl.toString();
+	}
+
 	/**
 	 * Encode url.
 	 * 
@@ -40,6 +40,20 @@ public interface StackExchangeApiQuery<T> extends StackExchangeAuthenticationCli
 	 */
 	public PagedList<T> list();
 	
+	/**
+	 * Reads only the given fields of the elements of the response, named as
+	 * in the json, e.g. "question_id", "score" and "tags". The other members
+	 * are skipped without being decoded, so their fields keep their default
+	 * values. Members of nested objects, e.g. the owner, are read in full.
+	 * Queries whose responses are not read one element at a time read every
+	 * field.
+	 * 
+	 * @param fields the fields, none to read every field
+	 * 
+	 * @return the query
+	 */
+	public StackExchangeApiQuery<T> withFields(String... fields);
+	
 	/**
 	 * Adds the resonse handler.
 	 * 
@@ -16,6 +16,8 @@
  */
 package com.google.code.stackexchange.client.query;
 
+import com.google.code.stackexchange.client.ClientConfiguration;
+import com.google.code.stackexchange.client.StackExchangeCommunicationClient;
 import com.google.code.stackexchange.client.query.impl.AnswerApiQueryImpl;
 import com.google.code.stackexchange.client.query.impl.BadgeApiQueryImpl;
 import com.google.code.stackexchange.client.query.impl.CommentApiQueryImpl;
@@ -29,6 +31,7 @@ import com.google.code.stackexchange.client.query.impl.StatisticsApiQueryImpl;
 import com.google.code.stackexchange.client.query.impl.TagApiQueryImpl;
 import com.google.code.stackexchange.client.query.impl.UserApiQueryImpl;
 import com.google.code.stackexchange.client.query.impl.UserTimelineApiQueryImpl;
+import com.google.code.stackexchange.client.transport.HttpTransport;
 
 
 /**
@@ -39,6 +42,12 @@ public class StackExchangeApiQueryFactory {
     /** The application key. */
     private String applicationKey;
 
+    /** The http transport, null for the shared default. */
+    private HttpTransport httpTransport;
+
+    /** The configuration of the calls, shared by the created queries. */
+    private ClientConfiguration configuration = new ClientConfiguration();
+
     /**
      * Instantiates a new stack exchange api query factory.
      * 
@@ -58,6 +67,34 @@ public class StackExchangeApiQueryFactory {
     public static StackExchangeApiQueryFactory newInstance(String applicationKey) {
         return new StackExchangeApiQueryFactory(applicationKey);
     }
+
+    /**
+     * Sets the http transport used by the queries created by this factory.
+     * 
+     * @param httpTransport the new http transport
+     */
+	public void setHttpTransport(HttpTransport httpTransport) {
+        this.httpTransport = httpTransport;
+	}
+
+    /**
+     * Gets the configuration shared by the queries created by this factory.
+     * 
+     * @return the configuration
+     */
+	public ClientConfiguration getConfiguration() {
+        return configuration;
+	}
+
+    /**
+     * Sets the configuration shared by the queries created by this factory,
+     * i.e. the settings of their calls.
+     * 
+     * @param configuration the new configuration
+     */
+	public void setConfiguration(ClientConfiguration configuration) {
+        this.configuration = configuration;
+	}
     
     /**
      * New answer api query.
@@ -65,7 +102,7 @@ public class StackExchangeApiQueryFactory {
      * @return the answer api query
      */
     public AnswerApiQuery newAnswerApiQuery() {
-    	return new AnswerApiQueryImpl(applicationKey);
+    	return configure(new AnswerApiQueryImpl(applicationKey));
     }
     
     /**
@@ -74,7 +111,7 @@ public class StackExchangeApiQueryFactory {
      * @return the badge api query
      */
     public BadgeApiQuery newBadgeApiQuery() {
-    	return new BadgeApiQueryImpl(applicationKey);
+    	return configure(new BadgeApiQueryImpl(applicationKey));
     }
     
     /**
@@ -83,7 +120,7 @@ public class StackExchangeApiQueryFactory {
      * @return the comment api query
      */
     public CommentApiQuery newCommentApiQuery() {
-    	return new CommentApiQueryImpl(applicationKey);
+    	return configure(new CommentApiQueryImpl(applicationKey));
     }
     
     /**
@@ -92,7 +129,7 @@ public class StackExchangeApiQueryFactory {
      * @return the question api query
      */
     public QuestionApiQuery newQuestionApiQuery() {
-    	return new QuestionApiQueryImpl(applicationKey);
+    	return configure(new QuestionApiQueryImpl(applicationKey));
     }
     
     /**
@@ -101,7 +138,7 @@ public class StackExchangeApiQueryFactory {
      * @return the search api query
      */
     public SearchApiQuery newSearchApiQuery() {
-    	return new SearchApiQueryImpl(applicationKey);
+    	return configure(new SearchApiQueryImpl(applicationKey));
     }
 
     /**
@@ -110,7 +147,7 @@ public class StackExchangeApiQueryFactory {
      * @return the question timeline api query
      */
     public QuestionTimelineApiQuery newQuestionTimelineApiQuery() {
-    	return new QuestionTimelineApiQueryImpl(applicationKey);
+    	return configure(new QuestionTimelineApiQueryImpl(applicationKey));
     }
 
     /**
@@ -119,7 +156,7 @@ public class StackExchangeApiQueryFactory {
      * @return the reputation api query
      */
     public ReputationApiQuery newReputationApiQuery() {
-    	return new ReputationApiQueryImpl(applicationKey);
+    	return configure(new ReputationApiQueryImpl(applicationKey));
     }
 
     /**
@@ -128,7 +165,7 @@ public class StackExchangeApiQueryFactory {
      * @return the revision api query
      */
     public RevisionApiQuery newRevisionApiQuery() {
-    	return new RevisionApiQueryImpl(applicationKey);
+    	return configure(new RevisionApiQueryImpl(applicationKey));
     }
 
     /**
@@ -137,7 +174,7 @@ public class StackExchangeApiQueryFactory {
      * @return the statistics api query
      */
     public StatisticsApiQuery newStatisticsApiQuery() {
-    	return new StatisticsApiQueryImpl(applicationKey);
+    	return configure(new StatisticsApiQueryImpl(applicationKey));
     }
 
     /**
@@ -146,7 +183,7 @@ public class StackExchangeApiQueryFactory {
      * @return the tag api query
      */
     public TagApiQuery newTagApiQuery() {
-    	return new TagApiQueryImpl(applicationKey);
+    	return configure(new TagApiQueryImpl(applicationKey));
     }
 
     /**
@@ -155,7 +192,7 @@ public class StackExchangeApiQueryFactory {
      * @return the user api query
      */
     public UserApiQuery newUserApiQuery() {
-    	return new UserApiQueryImpl(applicationKey);
+    	return configure(new UserApiQueryImpl(applicationKey));
     }
 
     /**
@@ -164,7 +201,7 @@ public class StackExchangeApiQueryFactory {
      * @return the user timeline api query
      */
     public UserTimelineApiQuery newUserTimelineApiQuery() {
-    	return new UserTimelineApiQueryImpl(applicationKey);
+    	return configure(new UserTimelineApiQueryImpl(applicationKey));
     }
     
     /**
@@ -173,7 +210,21 @@ public class StackExchangeApiQueryFactory {
      * @return the user timeline api query
      */
     public StackAuthApiQuery newStackAuthApiQuery() {
-    	return new StackAuthApiQueryImpl(applicationKey);
+    	return configure(new StackAuthApiQueryImpl(applicationKey));
+    }
+
+    /**
+     * Configure.
+     * 
+     * @param query the query
+     * 
+     * @return the query
+     */
+    private <Q extends StackExchangeCommunicationClient> Q configure(Q query) {
+    	if (httpTransport != null) {
+    		query.setHttpTransport(httpTransport);
+    	}
+    	query.setConfiguration(configuration);
+    	return query;
     }
-    
 }
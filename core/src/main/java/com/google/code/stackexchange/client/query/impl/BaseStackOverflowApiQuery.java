@@ -16,19 +16,29 @@
  */
 package com.google.code.stackexchange.client.query.impl;
 
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.Reader;
+import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
-import java.util.Date;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
 
 import com.google.code.stackexchange.client.AsyncResponseHandler;
+import com.google.code.stackexchange.client.ClientConfiguration;
 import com.google.code.stackexchange.client.constant.ApplicationConstants;
 import com.google.code.stackexchange.client.exception.StackExchangeApiException;
+import com.google.code.stackexchange.client.impl.JsonListReader;
+import com.google.code.stackexchange.client.impl.RequestCoalescer;
 import com.google.code.stackexchange.client.impl.StackExchangeApiGateway;
 import com.google.code.stackexchange.client.provider.ApiProvider;
 import com.google.code.stackexchange.client.provider.url.ApiUrlBuilder;
@@ -37,35 +47,22 @@ import com.google.code.stackexchange.common.PagedArrayList;
 import com.google.code.stackexchange.common.PagedList;
 import com.google.code.stackexchange.schema.Answer;
 import com.google.code.stackexchange.schema.Badge;
-import com.google.code.stackexchange.schema.BadgeRank;
 import com.google.code.stackexchange.schema.Comment;
 import com.google.code.stackexchange.schema.Error;
 import com.google.code.stackexchange.schema.PostTimeline;
-import com.google.code.stackexchange.schema.PostTimelineType;
-import com.google.code.stackexchange.schema.PostType;
 import com.google.code.stackexchange.schema.Question;
 import com.google.code.stackexchange.schema.Reputation;
 import com.google.code.stackexchange.schema.Revision;
-import com.google.code.stackexchange.schema.RevisionType;
 import com.google.code.stackexchange.schema.SchemaEntity;
 import com.google.code.stackexchange.schema.Site;
-import com.google.code.stackexchange.schema.SiteState;
 import com.google.code.stackexchange.schema.Statistics;
 import com.google.code.stackexchange.schema.Tag;
-import com.google.code.stackexchange.schema.TagRestriction;
 import com.google.code.stackexchange.schema.User;
 import com.google.code.stackexchange.schema.UserTimeline;
-import com.google.code.stackexchange.schema.UserTimelineType;
-import com.google.code.stackexchange.schema.UserType;
-import com.google.gson.FieldNamingPolicy;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonArray;
-import com.google.gson.JsonDeserializationContext;
-import com.google.gson.JsonDeserializer;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParseException;
 import com.google.gson.JsonParser;
 
 /**
@@ -98,6 +95,12 @@ public abstract class BaseStackOverflowApiQuery<T> extends StackExchangeApiGatew
 		LIST_PLACE_HOLDERS.put(Site.class, "api_sites");
 	}
     
+    /** The type of the elements, null if it cannot be told from the class. */
+    private final Class<T> elementType = resolveElementType(getClass());
+    
+    /** The json names of the fields read from each element, null to read them all. */
+    private Set<String> fields;
+    
     /** The handlers. */
     private List<AsyncResponseHandler<PagedList<T>>> handlers = new ArrayList<AsyncResponseHandler<PagedList<T>>>();
 	
@@ -132,6 +135,19 @@ public abstract class BaseStackOverflowApiQuery<T> extends StackExchangeApiGatew
 		super.setApiVersion(apiVersion);
 	}
 	
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.query.StackExchangeApiQuery#withFields(java.lang.String[])
+	 */
+	@Override
+	public StackExchangeApiQuery<T> withFields(String... fields) {
+		if (fields == null || fields.length == 0) {
+			this.fields = null;
+		} else {
+			this.fields = Collections.unmodifiableSet(new LinkedHashSet<String>(Arrays.asList(fields)));
+		}
+		return this;
+	}
+	
 	/* (non-Javadoc)
 	 * @see com.google.code.stackexchange.client.query.StackOverflowApiQuery#list()
 	 */
@@ -139,14 +155,10 @@ public abstract class BaseStackOverflowApiQuery<T> extends StackExchangeApiGatew
 	public PagedList<T> list() {
 		InputStream jsonContent = null;
         try {
-        	jsonContent = callApiMethod(apiUrlBuilder.buildUrl());
-        	JsonElement response = parser.parse(new InputStreamReader(jsonContent, UTF_8_CHAR_SET));
-        	if (response.isJsonObject()) {
-        		PagedList<T> responseList = unmarshall(response.getAsJsonObject());
-        		notifyObservers(responseList);
-				return responseList;
-        	}
-        	throw new StackExchangeApiException("Unknown content found in response:" + response.toString());
+        	jsonContent = callApiMethod(apiUrlBuilder.getMethodName(), apiUrlBuilder.buildUrl());
+        	PagedList<T> responseList = unmarshallList(jsonContent);
+        	notifyObservers(responseList);
+        	return responseList;
         } catch (Exception e) {
             throw new StackExchangeApiException(e);
         } finally {
@@ -161,14 +173,10 @@ public abstract class BaseStackOverflowApiQuery<T> extends StackExchangeApiGatew
 	public T singleResult() {
 		InputStream jsonContent = null;
         try {
-        	jsonContent = callApiMethod(apiUrlBuilder.buildUrl());
-        	JsonElement response = parser.parse(new InputStreamReader(jsonContent, UTF_8_CHAR_SET));
-        	if (response.isJsonObject()) {
-        		PagedList<T> responseList = unmarshall(response.getAsJsonObject());
-        		notifyObservers(responseList);
-				return getFirstElement(responseList);
-        	}
-        	throw new StackExchangeApiException("Unknown content found in response:" + response.toString());
+        	jsonContent = callApiMethod(apiUrlBuilder.getMethodName(), apiUrlBuilder.buildUrl());
+        	PagedList<T> responseList = unmarshallList(jsonContent);
+        	notifyObservers(responseList);
+        	return getFirstElement(responseList);
         } catch (Exception e) {
             throw new StackExchangeApiException(e);
         } finally {
@@ -176,6 +184,98 @@ public abstract class BaseStackOverflowApiQuery<T> extends StackExchangeApiGatew
 	    }
 	}
 	
+	/**
+	 * Unmarshalls the response, sharing the result with the callers of the
+	 * same coalesced call.
+	 * 
+	 * @param jsonContent the json content
+	 * 
+	 * @return the paged list
+	 * 
+	 * @throws Exception the exception
+	 */
+	private PagedList<T> unmarshallList(final InputStream jsonContent) throws Exception {
+		if (jsonContent instanceof RequestCoalescer.SharedContent) {
+			Object decoderKey = Arrays.asList(getClass(), fields, getConfiguration().isIdentityMapping());
+			return ((RequestCoalescer.SharedContent) jsonContent).getFlight().decode(decoderKey, new Callable<PagedList<T>>() {
+				@Override
+				public PagedList<T> call() {
+					return parseList(jsonContent);
+				}
+			});
+		}
+		return parseList(jsonContent);
+	}
+	
+	/**
+	 * Parses the list.
+	 * 
+	 * @param jsonContent the json content
+	 * 
+	 * @return the paged list
+	 */
+	private PagedList<T> parseList(InputStream jsonContent) {
+		Class<T> clazz = getElementType();
+		if (clazz != null && LIST_PLACE_HOLDERS.containsKey(clazz)) {
+			try {
+				ClientConfiguration configuration = getConfiguration();
+				Reader content = new InputStreamReader(jsonContent, UTF_8_CHAR_SET);
+				JsonListReader reader = configuration.isLazyDecoding() ? JsonListReader.readContent(content) : new JsonListReader(content);
+				reader.setFields(fields);
+				reader.setIdentityMapping(configuration.isIdentityMapping());
+				if (configuration.isLazyDecoding()) {
+					return reader.readLazyList(clazz, LIST_PLACE_HOLDERS.get(clazz), getJsonCodec());
+				}
+				return reader.readList(clazz, LIST_PLACE_HOLDERS.get(clazz), getJsonCodec());
+			} catch (IOException e) {
+				throw new StackExchangeApiException(e);
+			}
+		}
+    	JsonElement response = parser.parse(new InputStreamReader(jsonContent, UTF_8_CHAR_SET));
+    	if (response.isJsonObject()) {
+    		return unmarshall(response.getAsJsonObject());
+    	}
+    	throw new StackExchangeApiException("Unknown content found in response:" + response.toString());
+	}
+	
+	/**
+	 * Gets the type of the elements of the list. Responses of the known list
+	 * types are then read one element at a time rather than parsed into a tree
+	 * for {@link #unmarshall(JsonObject)}. Queries that unmarshall their
+	 * response in their own way return null.
+	 * 
+	 * @return the element type, null to unmarshall the parsed response
+	 */
+	protected Class<T> getElementType() {
+		return elementType;
+	}
+	
+	/**
+	 * Resolves the type of the elements from the type argument the query class
+	 * gives this class.
+	 * 
+	 * @param queryClass the query class
+	 * 
+	 * @return the element type, null if it is not a class
+	 */
+	@SuppressWarnings("unchecked")
+	private static <T> Class<T> resolveElementType(Class<?> queryClass) {
+		while (queryClass.getSuperclass() != BaseStackOverflowApiQuery.class) {
+			if (queryClass.getSuperclass() == null) {
+				return null;
+			}
+			queryClass = queryClass.getSuperclass();
+		}
+		Type type = queryClass.getGenericSuperclass();
+		if (type instanceof ParameterizedType) {
+			Type argument = ((ParameterizedType) type).getActualTypeArguments()[0];
+			if (argument instanceof Class<?>) {
+				return (Class<T>) argument;
+			}
+		}
+		return null;
+	}
+	
 	/**
 	 * Notify observers.
 	 * 
@@ -201,7 +301,7 @@ public abstract class BaseStackOverflowApiQuery<T> extends StackExchangeApiGatew
             	JsonElement response = parser.parse(new InputStreamReader(jsonContent, UTF_8_CHAR_SET));
             	if (response.isJsonObject()) {
             		JsonObject adaptee = response.getAsJsonObject();
-            		Gson gson = getGsonBuilder().create();
+            		Gson gson = getJsonCodec().getGson();
             		return gson.fromJson(adaptee.get("error"), clazz);
             	}
             } catch (Exception e) {
@@ -245,7 +345,7 @@ public abstract class BaseStackOverflowApiQuery<T> extends StackExchangeApiGatew
 		if (adaptee.has(placeHolder)) {
 			JsonArray elements = adaptee.get(placeHolder).getAsJsonArray();
 			if (elements != null) {
-				Gson gson = getGsonBuilder().create();
+				Gson gson = getJsonCodec().getGson();
 				for (JsonElement o : elements) {			
 					list.add(gson.fromJson(o, clazz));
 				}
@@ -283,92 +383,5 @@ public abstract class BaseStackOverflowApiQuery<T> extends StackExchangeApiGatew
 		}
 		return list.get(0);
 	}
-	
-	protected GsonBuilder getGsonBuilder() {
-		GsonBuilder builder = new GsonBuilder();
-		builder.registerTypeAdapter(Date.class, new JsonDeserializer<Date>() {
-
-			@Override
-			public Date deserialize(JsonElement source, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return new Date(source.getAsLong() * 1000);
-			}
-			
-		});
-		builder.registerTypeAdapter(BadgeRank.class, new JsonDeserializer<BadgeRank>() {
-
-			@Override
-			public BadgeRank deserialize(JsonElement arg0, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return BadgeRank.fromValue(arg0.getAsString());
-			}
-			
-		});
-		builder.registerTypeAdapter(PostType.class, new JsonDeserializer<PostType>() {
-
-			@Override
-			public PostType deserialize(JsonElement arg0, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return PostType.fromValue(arg0.getAsString());
-			}
-			
-		});
-		builder.registerTypeAdapter(PostTimelineType.class, new JsonDeserializer<PostTimelineType>() {
-
-			@Override
-			public PostTimelineType deserialize(JsonElement arg0, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return PostTimelineType.fromValue(arg0.getAsString());
-			}
-			
-		});
-		builder.registerTypeAdapter(UserTimelineType.class, new JsonDeserializer<UserTimelineType>() {
-
-			@Override
-			public UserTimelineType deserialize(JsonElement arg0, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return UserTimelineType.fromValue(arg0.getAsString());
-			}
-			
-		});
-		builder.registerTypeAdapter(UserType.class, new JsonDeserializer<UserType>() {
 
-			@Override
-			public UserType deserialize(JsonElement arg0, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return UserType.fromValue(arg0.getAsString());
-			}
-			
-		});
-		builder.registerTypeAdapter(RevisionType.class, new JsonDeserializer<RevisionType>() {
-
-			@Override
-			public RevisionType deserialize(JsonElement arg0, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return RevisionType.fromValue(arg0.getAsString());
-			}
-			
-		});
-		builder.registerTypeAdapter(TagRestriction.class, new JsonDeserializer<TagRestriction>() {
-
-			@Override
-			public TagRestriction deserialize(JsonElement arg0, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return TagRestriction.fromValue(arg0.getAsString());
-			}
-			
-		});
-		builder.registerTypeAdapter(SiteState.class, new JsonDeserializer<SiteState>() {
-
-			@Override
-			public SiteState deserialize(JsonElement arg0, Type arg1,
-					JsonDeserializationContext arg2) throws JsonParseException {
-				return SiteState.fromValue(arg0.getAsString());
-			}
-		});
-		
-		builder.setFieldNamingPolicy(FieldNamingPolicy.LOWER_CASE_WITH_UNDERSCORES);
-		
-		return builder;		
-	}
 }
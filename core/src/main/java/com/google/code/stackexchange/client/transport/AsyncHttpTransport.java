@@ -0,0 +1,38 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.transport;
+
+/**
+ * The Interface AsyncHttpTransport.
+ *
+ * A transport that can execute a request without blocking the calling
+ * thread. The callback is invoked once, either with the response or with
+ * the failure.
+ */
+public interface AsyncHttpTransport extends HttpTransport {
+
+	/**
+	 * Executes the request asynchronously.
+	 *
+	 * Callbacks may run on the transport's I/O thread and should hand any
+	 * lengthy work to another thread.
+	 *
+	 * @param request the request
+	 * @param callback the callback
+	 */
+	public void executeAsync(HttpRequest request, HttpResponseCallback callback);
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.transport;
+
+/**
+ * The Class ConnectionPoolStats.
+ *
+ * An immutable snapshot of the counters of a pooled transport.
+ */
+public class ConnectionPoolStats {
+
+	/** The leased connections. */
+	private final int leased;
+
+	/** The idle connections. */
+	private final int available;
+
+	/** The requests waiting for a connection. */
+	private final int pending;
+
+	/** The connections opened so far. */
+	private final long created;
+
+	/** The leases served by an idle connection. */
+	private final long reused;
+
+	/** The connections closed because they were idle for too long. */
+	private final long evicted;
+
+	/**
+	 * Instantiates a new connection pool stats.
+	 *
+	 * @param leased the leased
+	 * @param available the available
+	 * @param pending the pending
+	 * @param created the created
+	 * @param reused the reused
+	 * @param evicted the evicted
+	 */
+	public ConnectionPoolStats(int leased, int available, int pending, long created, long reused, long evicted) {
+		this.leased = leased;
+		this.available = available;
+		this.pending = pending;
+		this.created = created;
+		this.reused = reused;
+		this.evicted = evicted;
+	}
+
+	/**
+	 * Gets the leased.
+	 *
+	 * @return the number of connections currently in use
+	 */
+	public int getLeased() {
+		return leased;
+	}
+
+	/**
+	 * Gets the available.
+	 *
+	 * @return the number of idle keep-alive connections
+	 */
+	public int getAvailable() {
+		return available;
+	}
+
+	/**
+	 * Gets the pending.
+	 *
+	 * @return the number of requests waiting for a connection
+	 */
+	public int getPending() {
+		return pending;
+	}
+
+	/**
+	 * Gets the created.
+	 *
+	 * @return the number of connections opened so far
+	 */
+	public long getCreated() {
+		return created;
+	}
+
+	/**
+	 * Gets the reused.
+	 *
+	 * @return the number of requests served by an already open connection
+	 */
+	public long getReused() {
+		return reused;
+	}
+
+	/**
+	 * Gets the evicted.
+	 *
+	 * @return the number of idle connections closed by the pool
+	 */
+	public long getEvicted() {
+		return evicted;
+	}
+
+	/**
+	 * Adds the counters of another snapshot to this one.
+	 *
+	 * @param other the other
+	 *
+	 * @return the combined stats
+	 */
+	public ConnectionPoolStats add(ConnectionPoolStats other) {
+		return new ConnectionPoolStats(leased + other.leased, available + other.available, pending + other.pending,
+				created + other.created, reused + other.reused, evicted + other.evicted);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "[leased: " + leased + "; available: " + available + "; pending: " + pending
+				+ "; created: " + created + "; reused: " + reused + "; evicted: " + evicted + "]";
+	}
+}
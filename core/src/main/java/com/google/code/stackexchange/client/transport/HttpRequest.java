@@ -0,0 +1,367 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The Class HttpRequest.
+ */
+public class HttpRequest {
+
+	/** The Constant GET. */
+	public static final String GET = "GET";
+
+	/** The Constant POST. */
+	public static final String POST = "POST";
+
+	/** The url. */
+	private final String url;
+
+	/** The method. */
+	private String method = GET;
+
+	/** The headers. */
+	private final Map<String, String> headers = new HashMap<String, String>();
+
+	/** The content. */
+	private byte[] content;
+
+	/** The connect timeout. */
+	private int connectTimeout = -1;
+
+	/** The read timeout. */
+	private int readTimeout = -1;
+
+	/** The first byte timeout. */
+	private int firstByteTimeout = -1;
+
+	/** The deadline. */
+	private long deadline = -1;
+
+	/** The handle closed to abort the exchange in progress. */
+	private Closeable abortHandle;
+
+	/** Whether the request was aborted. */
+	private boolean aborted;
+
+	/**
+	 * Instantiates a new http request.
+	 *
+	 * @param url the url
+	 */
+	public HttpRequest(String url) {
+		this.url = url;
+	}
+
+	/**
+	 * Instantiates a new http request.
+	 *
+	 * @param url the url
+	 * @param method the method
+	 */
+	public HttpRequest(String url, String method) {
+		this.url = url;
+		this.method = method;
+	}
+
+	/**
+	 * Instantiates a copy of an http request, which can be sent and aborted
+	 * independently of the original.
+	 *
+	 * @param request the request to copy
+	 */
+	public HttpRequest(HttpRequest request) {
+		this.url = request.url;
+		this.method = request.method;
+		this.headers.putAll(request.headers);
+		this.content = request.content;
+		this.connectTimeout = request.connectTimeout;
+		this.readTimeout = request.readTimeout;
+		this.firstByteTimeout = request.firstByteTimeout;
+		this.deadline = request.deadline;
+	}
+
+	/**
+	 * Gets the url.
+	 *
+	 * @return the url
+	 */
+	public String getUrl() {
+		return url;
+	}
+
+	/**
+	 * Gets the method.
+	 *
+	 * @return the method
+	 */
+	public String getMethod() {
+		return method;
+	}
+
+	/**
+	 * Sets the method.
+	 *
+	 * @param method the new method
+	 */
+	public void setMethod(String method) {
+		this.method = method;
+	}
+
+	/**
+	 * Gets the headers.
+	 *
+	 * @return the headers
+	 */
+	public Map<String, String> getHeaders() {
+		return headers;
+	}
+
+	/**
+	 * Adds the header.
+	 *
+	 * @param headerName the header name
+	 * @param headerValue the header value
+	 */
+	public void addHeader(String headerName, String headerValue) {
+		headers.put(headerName, headerValue);
+	}
+
+	/**
+	 * Adds the headers.
+	 *
+	 * @param headers the headers
+	 */
+	public void addHeaders(Map<String, String> headers) {
+		if (headers != null) {
+			this.headers.putAll(headers);
+		}
+	}
+
+	/**
+	 * Gets the content.
+	 *
+	 * @return the content
+	 */
+	public byte[] getContent() {
+		return content;
+	}
+
+	/**
+	 * Sets the content.
+	 *
+	 * @param content the new content
+	 */
+	public void setContent(byte[] content) {
+		this.content = content;
+	}
+
+	/**
+	 * Gets the connect timeout.
+	 *
+	 * @return the connect timeout in milliseconds, -1 if none
+	 */
+	public int getConnectTimeout() {
+		return connectTimeout;
+	}
+
+	/**
+	 * Sets the connect timeout.
+	 *
+	 * @param connectTimeout the new connect timeout in milliseconds
+	 */
+	public void setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+	}
+
+	/**
+	 * Gets the read timeout.
+	 *
+	 * @return the read timeout in milliseconds, -1 if none
+	 */
+	public int getReadTimeout() {
+		return readTimeout;
+	}
+
+	/**
+	 * Sets the read timeout.
+	 *
+	 * @param readTimeout the new read timeout in milliseconds
+	 */
+	public void setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+	}
+
+	/**
+	 * Gets the first byte timeout.
+	 *
+	 * @return the first byte timeout in milliseconds, -1 to use the read timeout
+	 */
+	public int getFirstByteTimeout() {
+		return firstByteTimeout;
+	}
+
+	/**
+	 * Sets how long to wait for the response to start once the request has
+	 * been sent, which may differ from the timeout between reads of the body.
+	 *
+	 * @param firstByteTimeout the new first byte timeout in milliseconds, -1 to use the read timeout
+	 */
+	public void setFirstByteTimeout(int firstByteTimeout) {
+		this.firstByteTimeout = firstByteTimeout;
+	}
+
+	/**
+	 * Gets the deadline.
+	 *
+	 * @return the deadline in milliseconds since the epoch, -1 if none
+	 */
+	public long getDeadline() {
+		return deadline;
+	}
+
+	/**
+	 * Sets the time by which the whole exchange, body included, must be done.
+	 * Transports cap every connect and read by the time left and close the
+	 * connection once it runs out.
+	 *
+	 * @param deadline the new deadline in milliseconds since the epoch, -1 for none
+	 */
+	public void setDeadline(long deadline) {
+		this.deadline = deadline;
+	}
+
+	/**
+	 * Gets the timeout for the next blocking step of the exchange, which is the
+	 * given timeout capped by the time left before the deadline.
+	 *
+	 * @param timeout the timeout of the step in milliseconds, -1 or 0 for none
+	 *
+	 * @return the timeout in milliseconds, -1 for none
+	 *
+	 * @throws SocketTimeoutException if the deadline has passed
+	 */
+	public int getTimeout(int timeout) throws SocketTimeoutException {
+		if (deadline < 0) {
+			return timeout;
+		}
+		long remaining = deadline - System.currentTimeMillis();
+		if (remaining <= 0) {
+			throw new SocketTimeoutException("Deadline exceeded: " + this);
+		}
+		return timeout > 0 && timeout < remaining ? timeout : (int) Math.min(remaining, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Checks if the deadline has passed.
+	 *
+	 * @return true, if the request has a deadline and it has passed
+	 */
+	public boolean isExpired() {
+		return deadline >= 0 && System.currentTimeMillis() >= deadline;
+	}
+
+	/**
+	 * Checks if is idempotent.
+	 *
+	 * @return true, if the request may safely be sent more than once
+	 */
+	public boolean isIdempotent() {
+		return GET.equalsIgnoreCase(method) || "HEAD".equalsIgnoreCase(method);
+	}
+
+	/**
+	 * Aborts the request. A transport that supports it closes the connection
+	 * the request is using, so that the thread waiting for the response fails
+	 * with an I/O error. Transports that cannot abort a single exchange let
+	 * it complete.
+	 */
+	public void abort() {
+		Closeable handle;
+		synchronized (this) {
+			aborted = true;
+			handle = abortHandle;
+			abortHandle = null;
+		}
+		closeQuietly(handle);
+	}
+
+	/**
+	 * Checks if the request was aborted.
+	 *
+	 * @return true, if aborted
+	 */
+	public synchronized boolean isAborted() {
+		return aborted;
+	}
+
+	/**
+	 * Sets the handle that aborts the exchange in progress. Transports set it
+	 * when they start the exchange and clear it when it ends.
+	 *
+	 * @param abortHandle the abort handle
+	 *
+	 * @throws IOException if the request was already aborted, in which case
+	 * the handle is closed
+	 */
+	public void setAbortHandle(Closeable abortHandle) throws IOException {
+		synchronized (this) {
+			if (!aborted) {
+				this.abortHandle = abortHandle;
+				return;
+			}
+		}
+		closeQuietly(abortHandle);
+		throw new InterruptedIOException("Request aborted: " + this);
+	}
+
+	/**
+	 * Clears the abort handle once the exchange has ended.
+	 */
+	public synchronized void clearAbortHandle() {
+		abortHandle = null;
+	}
+
+	/**
+	 * Closes the handle, ignoring errors.
+	 *
+	 * @param handle the handle
+	 */
+	private static void closeQuietly(Closeable handle) {
+		if (handle != null) {
+			try {
+				handle.close();
+			} catch (IOException e) {
+				// the exchange is being abandoned anyway
+			}
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return method + " " + url;
+	}
+}
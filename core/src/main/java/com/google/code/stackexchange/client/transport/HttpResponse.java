@@ -0,0 +1,156 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.transport;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * The Class HttpResponse.
+ */
+public class HttpResponse {
+
+	/** The status code. */
+	private final int statusCode;
+
+	/** The headers, keyed by lower case header name. */
+	private final Map<String, String> headers = new HashMap<String, String>();
+
+	/** The content. */
+	private InputStream content;
+
+	/**
+	 * Instantiates a new http response.
+	 *
+	 * @param statusCode the status code
+	 */
+	public HttpResponse(int statusCode) {
+		this.statusCode = statusCode;
+	}
+
+	/**
+	 * Gets the status code.
+	 *
+	 * @return the status code
+	 */
+	public int getStatusCode() {
+		return statusCode;
+	}
+
+	/**
+	 * Adds the header. Header names are case insensitive, if a header is
+	 * repeated the values are joined with a comma.
+	 *
+	 * @param headerName the header name
+	 * @param headerValue the header value
+	 */
+	public void addHeader(String headerName, String headerValue) {
+		String key = headerName.toLowerCase(Locale.ENGLISH);
+		String existing = headers.get(key);
+		if (existing == null) {
+			headers.put(key, headerValue);
+		} else {
+			headers.put(key, existing + ", " + headerValue);
+		}
+	}
+
+	/**
+	 * Gets the header.
+	 *
+	 * @param headerName the header name
+	 *
+	 * @return the header value or null
+	 */
+	public String getHeader(String headerName) {
+		return headers.get(headerName.toLowerCase(Locale.ENGLISH));
+	}
+
+	/**
+	 * Gets the header as int.
+	 *
+	 * @param headerName the header name
+	 * @param defaultValue the default value
+	 *
+	 * @return the header value or the default value if missing or malformed
+	 */
+	public int getIntHeader(String headerName, int defaultValue) {
+		String value = getHeader(headerName);
+		if (value != null) {
+			try {
+				return Integer.parseInt(value.trim());
+			} catch (NumberFormatException e) {
+				return defaultValue;
+			}
+		}
+		return defaultValue;
+	}
+
+	/**
+	 * Gets the headers.
+	 *
+	 * @return the headers
+	 */
+	public Map<String, String> getHeaders() {
+		return Collections.unmodifiableMap(headers);
+	}
+
+	/**
+	 * Gets the content encoding.
+	 *
+	 * @return the content encoding
+	 */
+	public String getContentEncoding() {
+		return getHeader("Content-Encoding");
+	}
+
+	/**
+	 * Gets the content.
+	 *
+	 * @return the content
+	 */
+	public InputStream getContent() {
+		return content;
+	}
+
+	/**
+	 * Sets the content.
+	 *
+	 * @param content the new content
+	 */
+	public void setContent(InputStream content) {
+		this.content = content;
+	}
+
+	/**
+	 * Close.
+	 *
+	 * Closes the content stream, which releases the underlying connection.
+	 */
+	public void close() {
+		if (content != null) {
+			try {
+				content.close();
+			} catch (IOException e) {
+				// nothing left to release
+			}
+		}
+	}
+}
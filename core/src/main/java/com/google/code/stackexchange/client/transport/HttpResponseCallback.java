@@ -0,0 +1,39 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.transport;
+
+import java.io.IOException;
+
+/**
+ * The Interface HttpResponseCallback.
+ */
+public interface HttpResponseCallback {
+
+	/**
+	 * Called when the response, including its content, has been received.
+	 *
+	 * @param response the response
+	 */
+	public void completed(HttpResponse response);
+
+	/**
+	 * Called when the request could not be completed.
+	 *
+	 * @param e the exception
+	 */
+	public void failed(IOException e);
+}
@@ -0,0 +1,50 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.transport;
+
+import java.io.IOException;
+
+/**
+ * The Interface HttpTransport.
+ *
+ * A transport is responsible for sending a single {@link HttpRequest} and
+ * handing back the raw {@link HttpResponse}. Implementations must be thread
+ * safe as one transport is normally shared by every client and query.
+ */
+public interface HttpTransport {
+
+	/**
+	 * Executes the request.
+	 *
+	 * The caller owns the returned response and must close it (or its content
+	 * stream) so that the underlying connection can be released.
+	 *
+	 * @param request the request
+	 *
+	 * @return the http response
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public HttpResponse execute(HttpRequest request) throws IOException;
+
+	/**
+	 * Shutdown.
+	 *
+	 * Releases any connections or threads held by this transport.
+	 */
+	public void shutdown();
+}
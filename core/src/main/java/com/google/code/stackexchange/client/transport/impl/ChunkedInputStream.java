@@ -0,0 +1,146 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.transport.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The Class ChunkedInputStream.
+ *
+ * Decodes a response body sent with <code>Transfer-Encoding: chunked</code>.
+ */
+class ChunkedInputStream extends InputStream {
+
+	/** The connection. */
+	private final HttpConnection connection;
+
+	/** The in. */
+	private final InputStream in;
+
+	/** The bytes left in the current chunk. */
+	private int chunkRemaining;
+
+	/** The first chunk flag. */
+	private boolean firstChunk = true;
+
+	/** The complete flag. */
+	private boolean complete;
+
+	/**
+	 * Instantiates a new chunked input stream.
+	 *
+	 * @param connection the connection
+	 */
+	ChunkedInputStream(HttpConnection connection) {
+		this.connection = connection;
+		this.in = connection.getInputStream();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#read()
+	 */
+	@Override
+	public int read() throws IOException {
+		if (!ensureChunk()) {
+			return -1;
+		}
+		int b = in.read();
+		if (b == -1) {
+			throw new EOFException("Premature end of chunked response body.");
+		}
+		chunkRemaining--;
+		return b;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#read(byte[], int, int)
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (!ensureChunk()) {
+			return -1;
+		}
+		int count = in.read(b, off, Math.min(len, chunkRemaining));
+		if (count == -1) {
+			throw new EOFException("Premature end of chunked response body.");
+		}
+		chunkRemaining -= count;
+		return count;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#available()
+	 */
+	@Override
+	public int available() throws IOException {
+		return complete ? 0 : Math.min(in.available(), chunkRemaining);
+	}
+
+	/**
+	 * Moves to the next chunk if the current one is exhausted.
+	 *
+	 * @return true, if there is data left to read
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private boolean ensureChunk() throws IOException {
+		if (complete) {
+			return false;
+		}
+		if (chunkRemaining > 0) {
+			return true;
+		}
+		if (!firstChunk) {
+			// CRLF terminating the previous chunk
+			connection.readLine();
+		}
+		firstChunk = false;
+		String sizeLine = connection.readLine();
+		if (sizeLine == null) {
+			throw new EOFException("Premature end of chunked response body.");
+		}
+		int extension = sizeLine.indexOf(';');
+		if (extension != -1) {
+			sizeLine = sizeLine.substring(0, extension);
+		}
+		try {
+			chunkRemaining = Integer.parseInt(sizeLine.trim(), 16);
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid chunk size: " + sizeLine);
+		}
+		if (chunkRemaining == 0) {
+			// skip the trailers
+			String trailer;
+			while ((trailer = connection.readLine()) != null && trailer.length() > 0) {
+				continue;
+			}
+			complete = true;
+			return false;
+		}
+		return true;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#close()
+	 */
+	@Override
+	public void close() {
+		// the connection stream is owned by the pool
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.transport.impl;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The Class ContentLengthInputStream.
+ *
+ * Reads exactly <code>Content-Length</code> bytes of a response body and
+ * leaves the rest of the connection stream untouched.
+ */
+class ContentLengthInputStream extends InputStream {
+
+	/** The in. */
+	private final InputStream in;
+
+	/** The remaining. */
+	private long remaining;
+
+	/**
+	 * Instantiates a new content length input stream.
+	 *
+	 * @param in the in
+	 * @param length the length
+	 */
+	ContentLengthInputStream(InputStream in, long length) {
+		this.in = in;
+		this.remaining = length;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#read()
+	 */
+	@Override
+	public int read() throws IOException {
+		if (remaining <= 0) {
+			return -1;
+		}
+		int b = in.read();
+		if (b == -1) {
+			throw new EOFException("Premature end of response body, " + remaining + " bytes missing.");
+		}
+		remaining--;
+		return b;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#read(byte[], int, int)
+	 */
+	@Override
+	public int read(byte[] b, int off, int len) throws IOException {
+		if (remaining <= 0) {
+			return -1;
+		}
+		int count = in.read(b, off, (int) Math.min(len, remaining));
+		if (count == -1) {
+			throw new EOFException("Premature end of response body, " + remaining + " bytes missing.");
+		}
+		remaining -= count;
+		return count;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#available()
+	 */
+	@Override
+	public int available() throws IOException {
+		if (remaining <= 0) {
+			return 0;
+		}
+		return (int) Math.min(in.available(), remaining);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.io.InputStream#close()
+	 */
+	@Override
+	public void close() {
+		// the connection stream is owned by the pool
+	}
+}
@@ -0,0 +1,453 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.transport.impl;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLPeerUnverifiedException;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+import com.google.code.stackexchange.client.transport.HttpRequest;
+import com.google.code.stackexchange.client.transport.HttpResponse;
+
+/**
+ * The Class HttpConnection.
+ *
+ * A single persistent HTTP/1.1 connection to one host. Instances are not
+ * thread safe, a connection is only ever leased to one request at a time.
+ */
+class HttpConnection {
+
+	/** The Constant HEADER_CHARSET. */
+	static final String HEADER_CHARSET = "ISO-8859-1";
+
+	/** The Constant USER_AGENT. */
+	private static final String USER_AGENT = "Java/" + System.getProperty("java.version");
+
+	/** The Constant BUFFER_SIZE. */
+	private static final int BUFFER_SIZE = 8192;
+
+	/** The route. */
+	private final String route;
+
+	/** The socket. */
+	private final Socket socket;
+
+	/** The input. */
+	private final InputStream in;
+
+	/** The output. */
+	private final OutputStream out;
+
+	/** The time this connection was last returned to the pool. */
+	private long lastUsed;
+
+	/** The number of requests sent over this connection. */
+	private int requestCount;
+
+	/** The protocol version of the last response. */
+	private String responseVersion;
+
+	/** Whether the body of the last response has a known end. */
+	private boolean bodyDelimited;
+
+	/**
+	 * Instantiates a new http connection.
+	 *
+	 * @param route the route
+	 * @param socket the socket
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private HttpConnection(String route, Socket socket) throws IOException {
+		this.route = route;
+		this.socket = socket;
+		this.in = new BufferedInputStream(socket.getInputStream(), BUFFER_SIZE);
+		this.out = new BufferedOutputStream(socket.getOutputStream(), BUFFER_SIZE);
+		this.lastUsed = System.currentTimeMillis();
+	}
+
+	/**
+	 * Opens a new connection for the given url.
+	 *
+	 * @param route the route
+	 * @param url the url
+	 * @param connectTimeout the connect timeout, -1 for none
+	 *
+	 * @return the http connection
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	static HttpConnection open(String route, URL url, int connectTimeout) throws IOException {
+		boolean secure = "https".equalsIgnoreCase(url.getProtocol());
+		String host = url.getHost();
+		int port = getPort(url);
+		Socket socket = new Socket();
+		try {
+			socket.setTcpNoDelay(true);
+			socket.setKeepAlive(true);
+			socket.connect(new InetSocketAddress(host, port), connectTimeout > -1 ? connectTimeout : 0);
+			if (secure) {
+				SSLSocketFactory factory = (SSLSocketFactory) SSLSocketFactory.getDefault();
+				SSLSocket sslSocket = (SSLSocket) factory.createSocket(socket, host, port, true);
+				sslSocket.startHandshake();
+				if (!HttpsURLConnection.getDefaultHostnameVerifier().verify(host, sslSocket.getSession())) {
+					sslSocket.close();
+					throw new SSLPeerUnverifiedException("Host name '" + host + "' does not match the server certificate.");
+				}
+				socket = sslSocket;
+			}
+			return new HttpConnection(route, socket);
+		} catch (IOException e) {
+			closeQuietly(socket);
+			throw e;
+		}
+	}
+
+	/**
+	 * Gets the route key for an url, i.e. scheme, host and port.
+	 *
+	 * @param url the url
+	 *
+	 * @return the route
+	 */
+	static String getRoute(URL url) {
+		return url.getProtocol().toLowerCase(Locale.ENGLISH) + "://"
+				+ url.getHost().toLowerCase(Locale.ENGLISH) + ":" + getPort(url);
+	}
+
+	/**
+	 * Gets the port.
+	 *
+	 * @param url the url
+	 *
+	 * @return the port
+	 */
+	private static int getPort(URL url) {
+		return url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+	}
+
+	/**
+	 * Sets the read timeout.
+	 *
+	 * @param readTimeout the read timeout, -1 for none
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void setReadTimeout(int readTimeout) throws IOException {
+		socket.setSoTimeout(readTimeout > -1 ? readTimeout : 0);
+	}
+
+	/**
+	 * Sends the request line, headers and content.
+	 *
+	 * @param request the request
+	 * @param url the url
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	void sendRequest(HttpRequest request, URL url) throws IOException {
+		requestCount++;
+		out.write(encodeRequest(request, url));
+		out.flush();
+	}
+
+	/**
+	 * Encodes the request line, headers and content as sent on the wire.
+	 *
+	 * @param request the request
+	 * @param url the url
+	 *
+	 * @return the request bytes
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	static byte[] encodeRequest(HttpRequest request, URL url) throws IOException {
+		String path = url.getFile();
+		if (path == null || path.length() == 0) {
+			path = "/";
+		}
+		StringBuilder head = new StringBuilder(256);
+		head.append(request.getMethod()).append(' ').append(path).append(" HTTP/1.1\r\n");
+		head.append("Host: ").append(url.getHost());
+		if (url.getPort() != -1 && url.getPort() != url.getDefaultPort()) {
+			head.append(':').append(url.getPort());
+		}
+		head.append("\r\n");
+		boolean userAgent = false;
+		for (Map.Entry<String, String> header : request.getHeaders().entrySet()) {
+			if ("Host".equalsIgnoreCase(header.getKey()) || "Content-Length".equalsIgnoreCase(header.getKey())
+					|| "Connection".equalsIgnoreCase(header.getKey())) {
+				continue;
+			}
+			userAgent |= "User-Agent".equalsIgnoreCase(header.getKey());
+			head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+		}
+		if (!userAgent) {
+			head.append("User-Agent: ").append(USER_AGENT).append("\r\n");
+		}
+		byte[] content = request.getContent();
+		if (content != null) {
+			head.append("Content-Length: ").append(content.length).append("\r\n");
+		}
+		head.append("\r\n");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(head.length() + (content == null ? 0 : content.length));
+		bytes.write(head.toString().getBytes(HEADER_CHARSET));
+		if (content != null) {
+			bytes.write(content);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Reads the status line and headers of the response. The returned response
+	 * has no content yet, see {@link #getInputStream()}.
+	 *
+	 * @return the http response
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	HttpResponse readResponseHead() throws IOException {
+		while (true) {
+			String statusLine = readLine();
+			if (statusLine == null) {
+				throw new EOFException("The server closed the connection without sending a response.");
+			}
+			if (statusLine.length() == 0) {
+				// tolerate a stray CRLF left over from a previous response
+				continue;
+			}
+			HttpResponse response = new HttpResponse(parseStatusCode(statusLine));
+			String line;
+			while ((line = readLine()) != null && line.length() > 0) {
+				int colon = line.indexOf(':');
+				if (colon > 0) {
+					response.addHeader(line.substring(0, colon).trim(), line.substring(colon + 1).trim());
+				}
+			}
+			if (response.getStatusCode() >= 100 && response.getStatusCode() < 200) {
+				// interim response, the final one follows
+				continue;
+			}
+			responseVersion = statusLine.substring(0, statusLine.indexOf(' '));
+			return response;
+		}
+	}
+
+	/**
+	 * Parses the status code.
+	 *
+	 * @param statusLine the status line
+	 *
+	 * @return the int
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	static int parseStatusCode(String statusLine) throws IOException {
+		int start = statusLine.indexOf(' ');
+		if (!statusLine.startsWith("HTTP/") || start == -1) {
+			throw new IOException("Invalid status line: " + statusLine);
+		}
+		int end = statusLine.indexOf(' ', start + 1);
+		try {
+			return Integer.parseInt(statusLine.substring(start + 1, end == -1 ? statusLine.length() : end).trim());
+		} catch (NumberFormatException e) {
+			throw new IOException("Invalid status line: " + statusLine);
+		}
+	}
+
+	/**
+	 * Reads a CRLF (or LF) terminated line.
+	 *
+	 * @return the line without terminator, or null on end of stream
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	String readLine() throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream(64);
+		int c;
+		while ((c = in.read()) != -1) {
+			if (c == '\n') {
+				byte[] bytes = line.toByteArray();
+				int length = bytes.length;
+				if (length > 0 && bytes[length - 1] == '\r') {
+					length--;
+				}
+				return new String(bytes, 0, length, HEADER_CHARSET);
+			}
+			line.write(c);
+		}
+		return line.size() == 0 ? null : line.toString(HEADER_CHARSET);
+	}
+
+	/**
+	 * Checks if the last response allows the connection to be kept alive.
+	 *
+	 * @param response the response
+	 *
+	 * @return true, if the connection may be reused
+	 */
+	boolean isKeepAlive(HttpResponse response) {
+		return isKeepAlive(responseVersion, response);
+	}
+
+	/**
+	 * Checks if a response allows the connection to be kept alive.
+	 *
+	 * @param version the protocol version of the status line
+	 * @param response the response
+	 *
+	 * @return true, if the connection may be reused
+	 */
+	static boolean isKeepAlive(String version, HttpResponse response) {
+		String connection = response.getHeader("Connection");
+		if ("HTTP/1.0".equals(version)) {
+			return connection != null && connection.toLowerCase(Locale.ENGLISH).indexOf("keep-alive") != -1;
+		}
+		return connection == null || connection.toLowerCase(Locale.ENGLISH).indexOf("close") == -1;
+	}
+
+	/**
+	 * Checks if the connection can serve another request once the body of the
+	 * last response has been read.
+	 *
+	 * @param response the response
+	 *
+	 * @return true, if reusable
+	 */
+	boolean isReusable(HttpResponse response) {
+		return bodyDelimited && isKeepAlive(response);
+	}
+
+	/**
+	 * Gets the stream for the body of the response whose head was just read.
+	 * The stream ends with the body, or with the connection if the server did
+	 * not announce the body length.
+	 *
+	 * @param request the request
+	 * @param response the response
+	 *
+	 * @return the body stream
+	 */
+	InputStream getBodyStream(HttpRequest request, HttpResponse response) {
+		int status = response.getStatusCode();
+		bodyDelimited = true;
+		if ("HEAD".equalsIgnoreCase(request.getMethod()) || status == 204 || status == 304) {
+			return new ContentLengthInputStream(in, 0);
+		}
+		String transferEncoding = response.getHeader("Transfer-Encoding");
+		if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ENGLISH).indexOf("chunked") != -1) {
+			return new ChunkedInputStream(this);
+		}
+		String contentLength = response.getHeader("Content-Length");
+		if (contentLength != null) {
+			try {
+				return new ContentLengthInputStream(in, Long.parseLong(contentLength.trim()));
+			} catch (NumberFormatException e) {
+				// fall through and read until the server closes the connection
+			}
+		}
+		bodyDelimited = false;
+		return in;
+	}
+
+	/**
+	 * Gets the input stream.
+	 *
+	 * @return the input stream
+	 */
+	InputStream getInputStream() {
+		return in;
+	}
+
+	/**
+	 * Gets the route.
+	 *
+	 * @return the route
+	 */
+	String getRoute() {
+		return route;
+	}
+
+	/**
+	 * Gets the last used.
+	 *
+	 * @return the last used
+	 */
+	long getLastUsed() {
+		return lastUsed;
+	}
+
+	/**
+	 * Marks the connection as idle.
+	 */
+	void markIdle() {
+		lastUsed = System.currentTimeMillis();
+	}
+
+	/**
+	 * Checks if the connection has already served a request.
+	 *
+	 * @return true, if reused
+	 */
+	boolean isReused() {
+		return requestCount > 1;
+	}
+
+	/**
+	 * Checks if is open.
+	 *
+	 * @return true, if is open
+	 */
+	boolean isOpen() {
+		return !socket.isClosed() && !socket.isInputShutdown() && !socket.isOutputShutdown();
+	}
+
+	/**
+	 * Close.
+	 */
+	void close() {
+		closeQuietly(socket);
+	}
+
+	/**
+	 * Close quietly.
+	 *
+	 * @param socket the socket
+	 */
+	private static void closeQuietly(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// already closed
+		}
+	}
+
+}
@@ -0,0 +1,1128 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.transport.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.InetSocketAddress;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.code.stackexchange.client.constant.ApplicationConstants;
+import com.google.code.stackexchange.client.transport.AsyncHttpTransport;
+import com.google.code.stackexchange.client.transport.HttpRequest;
+import com.google.code.stackexchange.client.transport.HttpResponse;
+import com.google.code.stackexchange.client.transport.HttpResponseCallback;
+import com.google.code.stackexchange.client.transport.HttpTransport;
+
+/**
+ * The Class NioHttpTransport.
+ *
+ * A non-blocking transport that drives every connection from a single I/O
+ * thread with a {@link Selector}. Requests are queued per host and sent over
+ * pooled keep-alive connections as they become free, so any number of
+ * requests can be in flight without a thread waiting on each of them.
+ * Response bodies are buffered in memory before the callback is invoked.
+ *
+ * Only plain http is handled on the selector; https requests are handed to
+ * the fallback transport on a small worker pool. Connections are opened
+ * straight to the host, without consulting the JDK proxy settings.
+ */
+public class NioHttpTransport implements AsyncHttpTransport {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = Logger.getLogger(NioHttpTransport.class.getCanonicalName());
+
+	/** The Constant SELECT_TIMEOUT, how often timeouts and idle connections are checked. */
+	private static final long SELECT_TIMEOUT = 250L;
+
+	/** The Constant BUFFER_SIZE. */
+	private static final int BUFFER_SIZE = 16384;
+
+	/** The Constant MAX_LINE_LENGTH. */
+	private static final int MAX_LINE_LENGTH = 16384;
+
+	/** The Constant FALLBACK_THREADS. */
+	private static final int FALLBACK_THREADS = 4;
+
+	/** The Constant ADDRESS_TTL, how long the resolved address of a host is used for new connections. */
+	private static final long ADDRESS_TTL = 30000L;
+
+	/** The selector. */
+	private final Selector selector;
+
+	/** The tasks to run on the I/O thread. */
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<Runnable>();
+
+	/** The routes, only accessed from the I/O thread. */
+	private final Map<String, Route> routes = new HashMap<String, Route>();
+
+	/** The read buffer, only accessed from the I/O thread. */
+	private final ByteBuffer readBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+	/** The fallback transport. */
+	private final HttpTransport fallbackTransport;
+
+	/** Whether the fallback transport was created by, and is shut down with, this transport. */
+	private final boolean ownsFallbackTransport;
+
+	/** The fallback executor. */
+	private final ExecutorService fallbackExecutor;
+
+	/** The max connections per host. */
+	private volatile int maxConnectionsPerHost =
+		ApplicationConstants.MAX_CONNECTIONS_PER_HOST > 0 ? ApplicationConstants.MAX_CONNECTIONS_PER_HOST : PooledHttpTransport.DEFAULT_MAX_CONNECTIONS_PER_HOST;
+
+	/** The max idle time. */
+	private volatile long maxIdleTime =
+		ApplicationConstants.CONNECTION_MAX_IDLE_TIME > 0 ? ApplicationConstants.CONNECTION_MAX_IDLE_TIME : PooledHttpTransport.DEFAULT_MAX_IDLE_TIME;
+
+	/** The shutdown flag. */
+	private volatile boolean shutdown;
+
+	/**
+	 * Instantiates a new nio http transport.
+	 */
+	public NioHttpTransport() {
+		this(new PooledHttpTransport(), true);
+	}
+
+	/**
+	 * Instantiates a new nio http transport.
+	 *
+	 * @param fallbackTransport the transport used for https requests, left running
+	 * when this transport is shut down
+	 */
+	public NioHttpTransport(HttpTransport fallbackTransport) {
+		this(fallbackTransport, false);
+	}
+
+	/**
+	 * Instantiates a new nio http transport.
+	 *
+	 * @param fallbackTransport the fallback transport
+	 * @param ownsFallbackTransport whether to shut the fallback transport down with this transport
+	 */
+	private NioHttpTransport(HttpTransport fallbackTransport, boolean ownsFallbackTransport) {
+		this.fallbackTransport = fallbackTransport;
+		this.ownsFallbackTransport = ownsFallbackTransport;
+		try {
+			this.selector = Selector.open();
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not open selector.", e);
+		}
+		this.fallbackExecutor = Executors.newFixedThreadPool(FALLBACK_THREADS);
+		Thread ioThread = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				runLoop();
+			}
+		}, "stackexchange-nio-transport");
+		ioThread.setDaemon(true);
+		ioThread.start();
+	}
+
+	/**
+	 * Gets the max connections per host.
+	 *
+	 * @return the max connections per host
+	 */
+	public int getMaxConnectionsPerHost() {
+		return maxConnectionsPerHost;
+	}
+
+	/**
+	 * Sets the max connections per host. Requests beyond the limit are queued
+	 * until a connection is free.
+	 *
+	 * @param maxConnectionsPerHost the new max connections per host
+	 */
+	public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+		if (maxConnectionsPerHost < 1) {
+			throw new IllegalArgumentException("maxConnectionsPerHost cannot be less than one.");
+		}
+		this.maxConnectionsPerHost = maxConnectionsPerHost;
+	}
+
+	/**
+	 * Gets the max idle time.
+	 *
+	 * @return the max idle time in milliseconds
+	 */
+	public long getMaxIdleTime() {
+		return maxIdleTime;
+	}
+
+	/**
+	 * Sets the max idle time after which an unused connection is closed.
+	 *
+	 * @param maxIdleTime the new max idle time in milliseconds
+	 */
+	public void setMaxIdleTime(long maxIdleTime) {
+		this.maxIdleTime = maxIdleTime;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.transport.HttpTransport#execute(com.google.code.stackexchange.client.transport.HttpRequest)
+	 */
+	@Override
+	public HttpResponse execute(HttpRequest request) throws IOException {
+		final BlockingCallback callback = new BlockingCallback(request);
+		request.setAbortHandle(new Closeable() {
+			@Override
+			public void close() {
+				callback.abort();
+			}
+		});
+		try {
+			executeAsync(request, callback);
+			return callback.await();
+		} finally {
+			request.clearAbortHandle();
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.transport.AsyncHttpTransport#executeAsync(com.google.code.stackexchange.client.transport.HttpRequest, com.google.code.stackexchange.client.transport.HttpResponseCallback)
+	 */
+	@Override
+	public void executeAsync(final HttpRequest request, final HttpResponseCallback callback) {
+		if (shutdown) {
+			throw new IllegalStateException("Transport has been shut down.");
+		}
+		final URL url;
+		final byte[] encoded;
+		try {
+			url = new URL(request.getUrl());
+			encoded = HttpConnection.encodeRequest(request, url);
+		} catch (IOException e) {
+			callback.failed(e);
+			return;
+		}
+		if (!"http".equalsIgnoreCase(url.getProtocol())) {
+			fallbackExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					HttpResponse response;
+					try {
+						response = fallbackTransport.execute(request);
+					} catch (IOException e) {
+						callback.failed(e);
+						return;
+					}
+					callback.completed(response);
+				}
+			});
+			return;
+		}
+		final Exchange exchange = new Exchange(request, url, encoded, callback);
+		tasks.add(new Runnable() {
+			@Override
+			public void run() {
+				Route route = routes.get(exchange.route);
+				if (route == null) {
+					route = new Route(exchange.route, exchange.url);
+					routes.put(exchange.route, route);
+				}
+				route.queue.addLast(exchange);
+				dispatch(route);
+			}
+		});
+		selector.wakeup();
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.transport.HttpTransport#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+		shutdown = true;
+		selector.wakeup();
+		fallbackExecutor.shutdown();
+		if (ownsFallbackTransport) {
+			fallbackTransport.shutdown();
+		}
+	}
+
+	/**
+	 * The I/O loop.
+	 */
+	private void runLoop() {
+		try {
+			while (!shutdown) {
+				selector.select(SELECT_TIMEOUT);
+				Runnable task;
+				while ((task = tasks.poll()) != null) {
+					task.run();
+				}
+				Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+				while (keys.hasNext()) {
+					SelectionKey key = keys.next();
+					keys.remove();
+					Connection connection = (Connection) key.attachment();
+					if (key.isValid()) {
+						connection.handle(key);
+					}
+				}
+				checkTimeouts();
+			}
+		} catch (IOException e) {
+			LOG.log(Level.SEVERE, "Selector failed, shutting down transport.", e);
+		} catch (ClosedSelectorException e) {
+			LOG.log(Level.SEVERE, "Selector closed, shutting down transport.", e);
+		} finally {
+			shutdown = true;
+			closeAll();
+		}
+	}
+
+	/**
+	 * Assigns queued exchanges of the route to idle or new connections.
+	 *
+	 * @param route the route
+	 */
+	private void dispatch(Route route) {
+		while (!shutdown && !route.queue.isEmpty()) {
+			Connection connection = route.idle.poll();
+			if (connection == null) {
+				if (route.connections >= maxConnectionsPerHost) {
+					return;
+				}
+				if (!route.isResolved()) {
+					resolve(route);
+					return;
+				}
+				Exchange exchange = route.queue.removeFirst();
+				try {
+					connection = new Connection(route);
+				} catch (IOException e) {
+					complete(exchange, null, e);
+					continue;
+				}
+				connection.start(exchange);
+			} else {
+				connection.start(route.queue.removeFirst());
+			}
+		}
+	}
+
+	/**
+	 * Resolves the host of the route on the fallback executor, so that a slow
+	 * name lookup does not hold up the I/O thread, and dispatches the queued
+	 * exchanges once the address is known.
+	 *
+	 * @param route the route
+	 */
+	private void resolve(final Route route) {
+		if (route.resolving) {
+			return;
+		}
+		route.resolving = true;
+		try {
+			fallbackExecutor.execute(new Runnable() {
+				@Override
+				public void run() {
+					final InetSocketAddress address = new InetSocketAddress(route.host, route.port);
+					tasks.add(new Runnable() {
+						@Override
+						public void run() {
+							resolved(route, address);
+						}
+					});
+					selector.wakeup();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// the transport is shutting down, the queued exchanges are failed by closeAll
+			route.resolving = false;
+		}
+	}
+
+	/**
+	 * Takes the resolved address of the route, failing the queued exchanges
+	 * if the host could not be resolved.
+	 *
+	 * @param route the route
+	 * @param address the address
+	 */
+	private void resolved(Route route, InetSocketAddress address) {
+		route.resolving = false;
+		if (address.isUnresolved()) {
+			route.address = null;
+			while (!route.queue.isEmpty()) {
+				complete(route.queue.removeFirst(), null, new UnknownHostException(route.host));
+			}
+			return;
+		}
+		route.address = address;
+		route.resolvedAt = System.currentTimeMillis();
+		dispatch(route);
+	}
+
+	/**
+	 * Fails exchanges that exceeded their timeout or deadline and closes
+	 * expired idle connections.
+	 */
+	private void checkTimeouts() {
+		long now = System.currentTimeMillis();
+		for (Route route : routes.values()) {
+			for (Iterator<Connection> iterator = route.idle.iterator(); iterator.hasNext();) {
+				Connection connection = iterator.next();
+				if (connection.lastUsed <= now - maxIdleTime) {
+					iterator.remove();
+					connection.close();
+				}
+			}
+			for (Iterator<Exchange> iterator = route.queue.iterator(); iterator.hasNext();) {
+				Exchange exchange = iterator.next();
+				if (exchange.request.isExpired()) {
+					iterator.remove();
+					complete(exchange, null, new SocketTimeoutException("Deadline exceeded: " + exchange.request));
+				}
+			}
+			for (Connection connection : new ArrayList<Connection>(route.active)) {
+				if (connection.deadline > 0 && connection.deadline <= now) {
+					connection.fail(new SocketTimeoutException(connection.exchange.request.isExpired()
+							? "Deadline exceeded: " + connection.exchange.request
+							: connection.connected ? "Read timed out" : "Connect timed out"));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Close all connections and fail every pending exchange.
+	 */
+	private void closeAll() {
+		IOException closed = new IOException("Transport has been shut down.");
+		Runnable task;
+		while ((task = tasks.poll()) != null) {
+			task.run();
+		}
+		for (Route route : routes.values()) {
+			for (Connection connection : route.idle) {
+				connection.close();
+			}
+			route.idle.clear();
+			for (Connection connection : new ArrayList<Connection>(route.active)) {
+				connection.fail(closed);
+			}
+			while (!route.queue.isEmpty()) {
+				complete(route.queue.removeFirst(), null, closed);
+			}
+		}
+		try {
+			selector.close();
+		} catch (IOException e) {
+			LOG.log(Level.FINE, "An error occurred while closing selector.", e);
+		}
+	}
+
+	/**
+	 * Invokes the callback of the exchange.
+	 *
+	 * @param exchange the exchange
+	 * @param response the response
+	 * @param failure the failure
+	 */
+	private static void complete(Exchange exchange, HttpResponse response, IOException failure) {
+		try {
+			if (failure != null) {
+				exchange.callback.failed(failure);
+			} else {
+				exchange.callback.completed(response);
+			}
+		} catch (RuntimeException e) {
+			LOG.log(Level.SEVERE, "Response callback failed for " + exchange.request + ".", e);
+		}
+	}
+
+	/**
+	 * The Class BlockingCallback.
+	 *
+	 * Hands the outcome of an exchange to the thread waiting in
+	 * {@link NioHttpTransport#execute(HttpRequest)}. If the request is aborted
+	 * the waiting thread fails at once and the response, when it arrives, is
+	 * closed.
+	 */
+	private static class BlockingCallback implements HttpResponseCallback {
+
+		/** The request. */
+		private final HttpRequest request;
+
+		/** The done latch. */
+		private final CountDownLatch done = new CountDownLatch(1);
+
+		/** The response. */
+		private HttpResponse response;
+
+		/** The failure. */
+		private IOException failure;
+
+		/**
+		 * Instantiates a new blocking callback.
+		 *
+		 * @param request the request
+		 */
+		BlockingCallback(HttpRequest request) {
+			this.request = request;
+		}
+
+		/* (non-Javadoc)
+		 * @see com.google.code.stackexchange.client.transport.HttpResponseCallback#completed(com.google.code.stackexchange.client.transport.HttpResponse)
+		 */
+		@Override
+		public void completed(HttpResponse result) {
+			synchronized (this) {
+				if (done.getCount() > 0) {
+					response = result;
+					done.countDown();
+					return;
+				}
+			}
+			result.close();
+		}
+
+		/* (non-Javadoc)
+		 * @see com.google.code.stackexchange.client.transport.HttpResponseCallback#failed(java.io.IOException)
+		 */
+		@Override
+		public synchronized void failed(IOException e) {
+			if (done.getCount() > 0) {
+				failure = e;
+				done.countDown();
+			}
+		}
+
+		/**
+		 * Fails the waiting thread because the request was aborted.
+		 */
+		void abort() {
+			failed(new InterruptedIOException("Request aborted: " + request));
+		}
+
+		/**
+		 * Waits for the outcome.
+		 *
+		 * @return the http response
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		HttpResponse await() throws IOException {
+			try {
+				done.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for " + request + ".");
+			}
+			synchronized (this) {
+				if (failure != null) {
+					throw failure;
+				}
+				return response;
+			}
+		}
+	}
+
+	/**
+	 * The Class Route.
+	 *
+	 * The connections and queued exchanges of one host.
+	 */
+	private static class Route {
+
+		/** The route. */
+		private final String route;
+
+		/** The host. */
+		private final String host;
+
+		/** The port. */
+		private final int port;
+
+		/** The resolved address of the host, null until resolved. */
+		private InetSocketAddress address;
+
+		/** When the address was resolved. */
+		private long resolvedAt;
+
+		/** Whether the host is being resolved. */
+		private boolean resolving;
+
+		/** The queued exchanges. */
+		private final LinkedList<Exchange> queue = new LinkedList<Exchange>();
+
+		/** The idle connections, most recently used first. */
+		private final LinkedList<Connection> idle = new LinkedList<Connection>();
+
+		/** The connections carrying an exchange. */
+		private final List<Connection> active = new ArrayList<Connection>();
+
+		/** The number of open connections. */
+		private int connections;
+
+		/**
+		 * Instantiates a new route.
+		 *
+		 * @param route the route
+		 * @param url the url of the first exchange of the route
+		 */
+		Route(String route, URL url) {
+			this.route = route;
+			this.host = url.getHost();
+			this.port = url.getPort() == -1 ? url.getDefaultPort() : url.getPort();
+		}
+
+		/**
+		 * Checks if the address of the host is known and recent enough to open
+		 * a connection to.
+		 *
+		 * @return true, if resolved
+		 */
+		boolean isResolved() {
+			return address != null && resolvedAt > System.currentTimeMillis() - ADDRESS_TTL;
+		}
+	}
+
+	/**
+	 * The Class Exchange.
+	 *
+	 * A request waiting for, or being sent over, a connection.
+	 */
+	private static class Exchange {
+
+		/** The request. */
+		private final HttpRequest request;
+
+		/** The url. */
+		private final URL url;
+
+		/** The route. */
+		private final String route;
+
+		/** The encoded request. */
+		private final byte[] encoded;
+
+		/** The callback. */
+		private final HttpResponseCallback callback;
+
+		/** Whether the exchange has already been retried. */
+		private boolean retried;
+
+		/**
+		 * Instantiates a new exchange.
+		 *
+		 * @param request the request
+		 * @param url the url
+		 * @param encoded the encoded request
+		 * @param callback the callback
+		 */
+		Exchange(HttpRequest request, URL url, byte[] encoded, HttpResponseCallback callback) {
+			this.request = request;
+			this.url = url;
+			this.route = HttpConnection.getRoute(url);
+			this.encoded = encoded;
+			this.callback = callback;
+		}
+	}
+
+	/**
+	 * The Class Connection.
+	 *
+	 * A non-blocking connection serving one exchange at a time.
+	 */
+	private class Connection {
+
+		/** The route. */
+		private final Route route;
+
+		/** The channel. */
+		private final SocketChannel channel;
+
+		/** The selection key. */
+		private final SelectionKey key;
+
+		/** The exchange. */
+		private Exchange exchange;
+
+		/** The pending output. */
+		private ByteBuffer output;
+
+		/** The response parser. */
+		private ResponseParser parser;
+
+		/** The connected flag. */
+		private boolean connected;
+
+		/** The number of exchanges started on this connection. */
+		private int requestCount;
+
+		/** The deadline of the current step, capped by the deadline of the request, 0 for none. */
+		private long deadline;
+
+		/** The last used. */
+		private long lastUsed;
+
+		/**
+		 * Opens a connection to the resolved address of the route.
+		 *
+		 * @param route the route
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		Connection(Route route) throws IOException {
+			this.route = route;
+			this.channel = SocketChannel.open();
+			try {
+				channel.configureBlocking(false);
+				channel.socket().setTcpNoDelay(true);
+				channel.socket().setKeepAlive(true);
+				connected = channel.connect(route.address);
+				key = channel.register(selector, connected ? 0 : SelectionKey.OP_CONNECT, this);
+			} catch (IOException e) {
+				channel.close();
+				throw e;
+			}
+			route.connections++;
+		}
+
+		/**
+		 * Starts sending the exchange.
+		 *
+		 * @param exchange the exchange
+		 */
+		void start(Exchange exchange) {
+			this.exchange = exchange;
+			this.output = ByteBuffer.wrap(exchange.encoded);
+			this.parser = new ResponseParser("HEAD".equalsIgnoreCase(exchange.request.getMethod()));
+			requestCount++;
+			route.active.add(this);
+			if (connected) {
+				setDeadline(exchange.request.getReadTimeout());
+				key.interestOps(SelectionKey.OP_WRITE);
+			} else {
+				setDeadline(exchange.request.getConnectTimeout());
+			}
+		}
+
+		/**
+		 * Sets the deadline of the current step.
+		 *
+		 * @param timeout the timeout, -1 or 0 for none
+		 */
+		private void setDeadline(int timeout) {
+			deadline = timeout > 0 ? System.currentTimeMillis() + timeout : 0;
+			long requestDeadline = exchange.request.getDeadline();
+			if (requestDeadline >= 0 && (deadline == 0 || requestDeadline < deadline)) {
+				deadline = Math.max(requestDeadline, 1);
+			}
+		}
+
+		/**
+		 * Handles a ready selection key.
+		 *
+		 * @param key the key
+		 */
+		void handle(SelectionKey key) {
+			try {
+				if (key.isConnectable()) {
+					if (!channel.finishConnect()) {
+						return;
+					}
+					connected = true;
+					setDeadline(exchange.request.getReadTimeout());
+					key.interestOps(SelectionKey.OP_WRITE);
+				}
+				if (key.isValid() && key.isWritable()) {
+					channel.write(output);
+					if (!output.hasRemaining()) {
+						int firstByteTimeout = exchange.request.getFirstByteTimeout();
+						setDeadline(firstByteTimeout > -1 ? firstByteTimeout : exchange.request.getReadTimeout());
+						key.interestOps(SelectionKey.OP_READ);
+					}
+				}
+				if (key.isValid() && key.isReadable()) {
+					read();
+				}
+			} catch (IOException e) {
+				fail(e);
+			}
+		}
+
+		/**
+		 * Reads available bytes and feeds them to the parser.
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private void read() throws IOException {
+			if (exchange == null) {
+				// an idle connection only becomes readable when the server closes it
+				route.idle.remove(this);
+				close();
+				return;
+			}
+			readBuffer.clear();
+			int count = channel.read(readBuffer);
+			if (count == -1) {
+				if (!parser.endOfStream()) {
+					throw new EOFException("The server closed the connection before the response was complete.");
+				}
+			} else {
+				readBuffer.flip();
+				parser.feed(readBuffer);
+				setDeadline(exchange.request.getReadTimeout());
+			}
+			if (parser.isComplete()) {
+				Exchange completed = exchange;
+				HttpResponse response = parser.getResponse();
+				boolean reusable = count != -1 && parser.isReusable() && !readBuffer.hasRemaining();
+				release(reusable);
+				complete(completed, response, null);
+				dispatch(route);
+			}
+		}
+
+		/**
+		 * Detaches the exchange and keeps or closes the connection.
+		 *
+		 * @param reusable whether the connection can serve another exchange
+		 */
+		private void release(boolean reusable) {
+			route.active.remove(this);
+			exchange = null;
+			output = null;
+			parser = null;
+			deadline = 0;
+			if (reusable && !shutdown) {
+				lastUsed = System.currentTimeMillis();
+				key.interestOps(SelectionKey.OP_READ);
+				route.idle.addFirst(this);
+			} else {
+				close();
+			}
+		}
+
+		/**
+		 * Fails the current exchange, retrying it once on a new connection if a
+		 * kept-alive connection turned out to be closed.
+		 *
+		 * @param e the exception
+		 */
+		void fail(IOException e) {
+			Exchange failed = exchange;
+			boolean received = parser != null && parser.hasStarted();
+			route.active.remove(this);
+			exchange = null;
+			close();
+			if (failed == null) {
+				return;
+			}
+			if (!shutdown && !received && requestCount > 1 && !failed.retried && failed.request.isIdempotent()
+					&& !(e instanceof SocketTimeoutException)) {
+				LOG.log(Level.FINE, "Retrying " + failed.request + " on a new connection.", e);
+				failed.retried = true;
+				route.queue.addFirst(failed);
+			} else {
+				if (e instanceof SocketTimeoutException || e instanceof ConnectException) {
+					LOG.log(Level.FINE, "Request failed: " + failed.request, e);
+				}
+				complete(failed, null, e);
+			}
+			dispatch(route);
+		}
+
+		/**
+		 * Close.
+		 */
+		void close() {
+			if (channel.isOpen()) {
+				route.connections--;
+				key.cancel();
+				try {
+					channel.close();
+				} catch (IOException e) {
+					LOG.log(Level.FINE, "An error occurred while closing connection to " + route.route + ".", e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * The Class ResponseParser.
+	 *
+	 * An incremental parser for one HTTP/1.1 response, fed with whatever bytes
+	 * the channel returned.
+	 */
+	private static class ResponseParser {
+
+		/** The parser states. */
+		private static final int STATUS_LINE = 0, HEADERS = 1, BODY = 2, BODY_UNTIL_CLOSE = 3,
+				CHUNK_SIZE = 4, CHUNK_DATA = 5, CHUNK_END = 6, TRAILERS = 7, DONE = 8;
+
+		/** The head only flag, true for responses to HEAD. */
+		private final boolean headOnly;
+
+		/** The line being read. */
+		private final ByteArrayOutputStream line = new ByteArrayOutputStream(128);
+
+		/** The body. */
+		private final ByteArrayOutputStream body = new ByteArrayOutputStream(BUFFER_SIZE);
+
+		/** The state. */
+		private int state = STATUS_LINE;
+
+		/** The version of the status line. */
+		private String version;
+
+		/** The response. */
+		private HttpResponse response;
+
+		/** The bytes remaining in the body or chunk. */
+		private long remaining;
+
+		/** Whether any byte has been received. */
+		private boolean started;
+
+		/**
+		 * Instantiates a new response parser.
+		 *
+		 * @param headOnly the head only flag
+		 */
+		ResponseParser(boolean headOnly) {
+			this.headOnly = headOnly;
+		}
+
+		/**
+		 * Consumes bytes from the buffer until it is empty or the response is
+		 * complete.
+		 *
+		 * @param buffer the buffer
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		void feed(ByteBuffer buffer) throws IOException {
+			started |= buffer.hasRemaining();
+			while (buffer.hasRemaining() && state != DONE) {
+				switch (state) {
+				case BODY:
+				case CHUNK_DATA:
+					int count = (int) Math.min(remaining, buffer.remaining());
+					body.write(buffer.array(), buffer.arrayOffset() + buffer.position(), count);
+					buffer.position(buffer.position() + count);
+					remaining -= count;
+					if (remaining == 0) {
+						state = state == BODY ? DONE : CHUNK_END;
+					}
+					break;
+				case BODY_UNTIL_CLOSE:
+					body.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+					buffer.position(buffer.limit());
+					break;
+				default:
+					String text = readLine(buffer);
+					if (text != null) {
+						handleLine(text);
+					}
+				}
+			}
+		}
+
+		/**
+		 * Reads a line from the buffer.
+		 *
+		 * @param buffer the buffer
+		 *
+		 * @return the line without terminator, or null if the buffer ended first
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private String readLine(ByteBuffer buffer) throws IOException {
+			while (buffer.hasRemaining()) {
+				byte b = buffer.get();
+				if (b == '\n') {
+					byte[] bytes = line.toByteArray();
+					line.reset();
+					int length = bytes.length;
+					if (length > 0 && bytes[length - 1] == '\r') {
+						length--;
+					}
+					return new String(bytes, 0, length, HttpConnection.HEADER_CHARSET);
+				}
+				if (line.size() >= MAX_LINE_LENGTH) {
+					throw new IOException("Response line exceeds " + MAX_LINE_LENGTH + " bytes.");
+				}
+				line.write(b);
+			}
+			return null;
+		}
+
+		/**
+		 * Handles a complete line.
+		 *
+		 * @param text the text
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private void handleLine(String text) throws IOException {
+			switch (state) {
+			case STATUS_LINE:
+				if (text.length() > 0) {
+					response = new HttpResponse(HttpConnection.parseStatusCode(text));
+					version = text.substring(0, text.indexOf(' '));
+					state = HEADERS;
+				}
+				break;
+			case HEADERS:
+				if (text.length() > 0) {
+					int colon = text.indexOf(':');
+					if (colon > 0) {
+						response.addHeader(text.substring(0, colon).trim(), text.substring(colon + 1).trim());
+					}
+				} else {
+					startBody();
+				}
+				break;
+			case CHUNK_SIZE:
+				int extension = text.indexOf(';');
+				try {
+					remaining = Long.parseLong((extension == -1 ? text : text.substring(0, extension)).trim(), 16);
+				} catch (NumberFormatException e) {
+					throw new IOException("Invalid chunk size: " + text);
+				}
+				state = remaining == 0 ? TRAILERS : CHUNK_DATA;
+				break;
+			case CHUNK_END:
+				state = CHUNK_SIZE;
+				break;
+			case TRAILERS:
+				if (text.length() == 0) {
+					state = DONE;
+				}
+				break;
+			default:
+				throw new IllegalStateException("Unexpected parser state " + state);
+			}
+		}
+
+		/**
+		 * Decides how the body is delimited once the headers are read.
+		 */
+		private void startBody() {
+			int status = response.getStatusCode();
+			if (status >= 100 && status < 200) {
+				// interim response, the final one follows
+				state = STATUS_LINE;
+				return;
+			}
+			if (headOnly || status == 204 || status == 304) {
+				state = DONE;
+				return;
+			}
+			String transferEncoding = response.getHeader("Transfer-Encoding");
+			if (transferEncoding != null && transferEncoding.toLowerCase(Locale.ENGLISH).indexOf("chunked") != -1) {
+				state = CHUNK_SIZE;
+				return;
+			}
+			String contentLength = response.getHeader("Content-Length");
+			if (contentLength != null) {
+				try {
+					remaining = Long.parseLong(contentLength.trim());
+					state = remaining == 0 ? DONE : BODY;
+					return;
+				} catch (NumberFormatException e) {
+					// fall through and read until the server closes the connection
+				}
+			}
+			state = BODY_UNTIL_CLOSE;
+		}
+
+		/**
+		 * Signals the end of the stream.
+		 *
+		 * @return true, if the response is complete
+		 */
+		boolean endOfStream() {
+			if (state == BODY_UNTIL_CLOSE) {
+				state = DONE;
+			}
+			return state == DONE;
+		}
+
+		/**
+		 * Checks if is complete.
+		 *
+		 * @return true, if is complete
+		 */
+		boolean isComplete() {
+			return state == DONE;
+		}
+
+		/**
+		 * Checks if any part of the response has been received.
+		 *
+		 * @return true, if started
+		 */
+		boolean hasStarted() {
+			return started;
+		}
+
+		/**
+		 * Checks if the connection can be reused after this response.
+		 *
+		 * @return true, if reusable
+		 */
+		boolean isReusable() {
+			return HttpConnection.isKeepAlive(version, response);
+		}
+
+		/**
+		 * Gets the response with its buffered content.
+		 *
+		 * @return the response
+		 */
+		HttpResponse getResponse() {
+			response.setContent(new ByteArrayInputStream(body.toByteArray()));
+			return response;
+		}
+	}
+}
@@ -0,0 +1,615 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.transport.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.code.stackexchange.client.constant.ApplicationConstants;
+import com.google.code.stackexchange.client.transport.ConnectionPoolStats;
+import com.google.code.stackexchange.client.transport.HttpRequest;
+import com.google.code.stackexchange.client.transport.HttpResponse;
+import com.google.code.stackexchange.client.transport.HttpTransport;
+
+/**
+ * The Class PipelinedHttpTransport.
+ *
+ * Sends concurrent GET requests back to back over a small number of
+ * connections per host using HTTP/1.1 pipelining, so that a burst of
+ * asynchronous calls against one provider does not open one socket per call.
+ * Responses come back in request order; each caller waits for its turn and
+ * reads its response body into memory so the next caller can proceed.
+ *
+ * Pipelining stands in for HTTP/2 multiplexing, which the api hosts do not
+ * offer. Many proxies and servers mishandle it, so this transport is never
+ * a default and has to be chosen explicitly. Requests that are not
+ * idempotent are never pipelined and are handed to the fallback transport,
+ * as is a request whose pipelined connection breaks. A host that closes a
+ * pipelined connection while requests are queued on it is not pipelined
+ * again; all its requests go to the fallback transport from then on.
+ */
+public class PipelinedHttpTransport implements HttpTransport {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = Logger.getLogger(PipelinedHttpTransport.class.getCanonicalName());
+
+	/** The Constant DEFAULT_MAX_PIPELINE_DEPTH. */
+	public static final int DEFAULT_MAX_PIPELINE_DEPTH = 16;
+
+	/** The pipelines keyed by route. */
+	private final ConcurrentMap<String, RoutePipelines> routes = new ConcurrentHashMap<String, RoutePipelines>();
+
+	/** The fallback transport. */
+	private final HttpTransport fallbackTransport;
+
+	/** Whether the fallback transport was created by, and is shut down with, this transport. */
+	private final boolean ownsFallbackTransport;
+
+	/** The max connections per host. */
+	private volatile int maxConnectionsPerHost = 1;
+
+	/** The max pipeline depth. */
+	private volatile int maxPipelineDepth = DEFAULT_MAX_PIPELINE_DEPTH;
+
+	/** The max idle time. */
+	private volatile long maxIdleTime =
+		ApplicationConstants.CONNECTION_MAX_IDLE_TIME > 0 ? ApplicationConstants.CONNECTION_MAX_IDLE_TIME : PooledHttpTransport.DEFAULT_MAX_IDLE_TIME;
+
+	/** The shutdown flag. */
+	private volatile boolean shutdown;
+
+	/**
+	 * Instantiates a new pipelined http transport.
+	 */
+	public PipelinedHttpTransport() {
+		this(new PooledHttpTransport(), true);
+	}
+
+	/**
+	 * Instantiates a new pipelined http transport.
+	 *
+	 * @param fallbackTransport the transport used for requests that cannot be pipelined, left running
+	 * when this transport is shut down
+	 */
+	public PipelinedHttpTransport(HttpTransport fallbackTransport) {
+		this(fallbackTransport, false);
+	}
+
+	/**
+	 * Instantiates a new pipelined http transport.
+	 *
+	 * @param fallbackTransport the fallback transport
+	 * @param ownsFallbackTransport whether to shut the fallback transport down with this transport
+	 */
+	private PipelinedHttpTransport(HttpTransport fallbackTransport, boolean ownsFallbackTransport) {
+		this.fallbackTransport = fallbackTransport;
+		this.ownsFallbackTransport = ownsFallbackTransport;
+	}
+
+	/**
+	 * Gets the max connections per host.
+	 *
+	 * @return the max connections per host
+	 */
+	public int getMaxConnectionsPerHost() {
+		return maxConnectionsPerHost;
+	}
+
+	/**
+	 * Sets the max connections per host. The default of one sends every call
+	 * to a host over the same socket.
+	 *
+	 * @param maxConnectionsPerHost the new max connections per host
+	 */
+	public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+		if (maxConnectionsPerHost < 1) {
+			throw new IllegalArgumentException("maxConnectionsPerHost cannot be less than one.");
+		}
+		this.maxConnectionsPerHost = maxConnectionsPerHost;
+	}
+
+	/**
+	 * Gets the max pipeline depth.
+	 *
+	 * @return the max pipeline depth
+	 */
+	public int getMaxPipelineDepth() {
+		return maxPipelineDepth;
+	}
+
+	/**
+	 * Sets the max number of requests in flight on one connection. Further
+	 * requests wait until a response has been read.
+	 *
+	 * @param maxPipelineDepth the new max pipeline depth
+	 */
+	public void setMaxPipelineDepth(int maxPipelineDepth) {
+		if (maxPipelineDepth < 1) {
+			throw new IllegalArgumentException("maxPipelineDepth cannot be less than one.");
+		}
+		this.maxPipelineDepth = maxPipelineDepth;
+	}
+
+	/**
+	 * Gets the max idle time.
+	 *
+	 * @return the max idle time in milliseconds
+	 */
+	public long getMaxIdleTime() {
+		return maxIdleTime;
+	}
+
+	/**
+	 * Sets the max idle time after which an unused connection is closed.
+	 *
+	 * @param maxIdleTime the new max idle time in milliseconds
+	 */
+	public void setMaxIdleTime(long maxIdleTime) {
+		this.maxIdleTime = maxIdleTime;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.transport.HttpTransport#execute(com.google.code.stackexchange.client.transport.HttpRequest)
+	 */
+	@Override
+	public HttpResponse execute(HttpRequest request) throws IOException {
+		if (shutdown) {
+			throw new IllegalStateException("Transport has been shut down.");
+		}
+		if (!request.isIdempotent() || request.getContent() != null) {
+			return fallbackTransport.execute(request);
+		}
+		URL url = new URL(request.getUrl());
+		RoutePipelines pipelines = getRoutePipelines(HttpConnection.getRoute(url));
+		if (!pipelines.pipelining) {
+			return fallbackTransport.execute(request);
+		}
+		Pipeline pipeline = pipelines.acquire(request, url);
+		try {
+			Exchange exchange = pipeline.send(request, url);
+			return pipeline.receive(exchange, request);
+		} catch (IOException e) {
+			// a broken pipeline fails every request queued behind it, send them on their own connections
+			LOG.log(Level.FINE, "Pipelined request failed, sending it without pipelining: " + request, e);
+			if (pipeline.closedEarly) {
+				pipelines.disablePipelining();
+			}
+		} finally {
+			pipelines.release(pipeline);
+		}
+		return fallbackTransport.execute(request);
+	}
+
+	/**
+	 * Checks if requests to a host are pipelined.
+	 *
+	 * @param route the route (scheme://host:port)
+	 *
+	 * @return false, if the host closed a pipelined connection early and its requests go to the fallback transport
+	 */
+	public boolean isPipelining(String route) {
+		RoutePipelines pipelines = routes.get(route);
+		return pipelines == null || pipelines.pipelining;
+	}
+
+	/**
+	 * Gets the route pipelines.
+	 *
+	 * @param route the route
+	 *
+	 * @return the route pipelines
+	 */
+	private RoutePipelines getRoutePipelines(String route) {
+		RoutePipelines pipelines = routes.get(route);
+		if (pipelines == null) {
+			RoutePipelines newPipelines = new RoutePipelines(route);
+			pipelines = routes.putIfAbsent(route, newPipelines);
+			if (pipelines == null) {
+				pipelines = newPipelines;
+			}
+		}
+		return pipelines;
+	}
+
+	/**
+	 * Gets the pool stats, summed over all hosts. Leased counts the requests
+	 * in flight and available the open connections.
+	 *
+	 * @return the pool stats
+	 */
+	public ConnectionPoolStats getPoolStats() {
+		ConnectionPoolStats total = new ConnectionPoolStats(0, 0, 0, 0, 0, 0);
+		for (RoutePipelines pipelines : routes.values()) {
+			total = total.add(pipelines.getStats());
+		}
+		return total;
+	}
+
+	/**
+	 * Gets the pool stats per host.
+	 *
+	 * @return the pool stats keyed by route (scheme://host:port)
+	 */
+	public Map<String, ConnectionPoolStats> getPoolStatsByHost() {
+		Map<String, ConnectionPoolStats> stats = new HashMap<String, ConnectionPoolStats>();
+		for (RoutePipelines pipelines : routes.values()) {
+			stats.put(pipelines.route, pipelines.getStats());
+		}
+		return stats;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.transport.HttpTransport#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+		shutdown = true;
+		for (RoutePipelines pipelines : routes.values()) {
+			pipelines.closeAll();
+		}
+		if (ownsFallbackTransport) {
+			fallbackTransport.shutdown();
+		}
+	}
+
+	/**
+	 * The Class RoutePipelines.
+	 *
+	 * The pipelined connections of one host and the number of requests each
+	 * of them carries.
+	 */
+	private class RoutePipelines {
+
+		/** The route. */
+		private final String route;
+
+		/** The pipelines. */
+		private final List<Pipeline> pipelines = new ArrayList<Pipeline>();
+
+		/** The connections being opened. */
+		private int opening;
+
+		/** The pending. */
+		private int pending;
+
+		/** The created. */
+		private long created;
+
+		/** The requests sent over an already open connection. */
+		private long reused;
+
+		/** The evicted. */
+		private long evicted;
+
+		/** Whether requests to the host are pipelined. */
+		private volatile boolean pipelining = true;
+
+		/**
+		 * Instantiates a new route pipelines.
+		 *
+		 * @param route the route
+		 */
+		RoutePipelines(String route) {
+			this.route = route;
+		}
+
+		/**
+		 * Reserves a place on the least loaded pipeline, opening a new
+		 * connection if the host limit allows it.
+		 *
+		 * @param request the request
+		 * @param url the url
+		 *
+		 * @return the pipeline
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		Pipeline acquire(HttpRequest request, URL url) throws IOException {
+			synchronized (this) {
+				while (true) {
+					removeStale();
+					Pipeline candidate = null;
+					for (Pipeline pipeline : pipelines) {
+						if (pipeline.inFlight < maxPipelineDepth
+								&& (candidate == null || pipeline.inFlight < candidate.inFlight)) {
+							candidate = pipeline;
+						}
+					}
+					boolean canOpen = pipelines.size() + opening < maxConnectionsPerHost;
+					if (candidate != null && (candidate.inFlight == 0 || !canOpen)) {
+						candidate.inFlight++;
+						reused++;
+						return candidate;
+					}
+					if (canOpen) {
+						opening++;
+						break;
+					}
+					pending++;
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Interrupted while waiting for a connection to " + route + ".");
+					} finally {
+						pending--;
+					}
+				}
+			}
+			Pipeline pipeline = null;
+			try {
+				pipeline = new Pipeline(HttpConnection.open(route, url, request.getTimeout(request.getConnectTimeout())));
+			} finally {
+				synchronized (this) {
+					opening--;
+					if (pipeline != null) {
+						created++;
+						pipeline.inFlight++;
+						pipelines.add(pipeline);
+					}
+					notifyAll();
+				}
+			}
+			return pipeline;
+		}
+
+		/**
+		 * Gives back the place reserved on a pipeline.
+		 *
+		 * @param pipeline the pipeline
+		 */
+		synchronized void release(Pipeline pipeline) {
+			pipeline.inFlight--;
+			pipeline.lastUsed = System.currentTimeMillis();
+			if (shutdown && pipeline.inFlight == 0) {
+				pipeline.close();
+			}
+			notifyAll();
+		}
+
+		/**
+		 * Removes broken pipelines and closes connections idle for too long.
+		 */
+		private void removeStale() {
+			long expiry = System.currentTimeMillis() - maxIdleTime;
+			for (Iterator<Pipeline> iterator = pipelines.iterator(); iterator.hasNext();) {
+				Pipeline pipeline = iterator.next();
+				if (pipeline.inFlight == 0 && (pipeline.broken || pipeline.lastUsed <= expiry)) {
+					iterator.remove();
+					pipeline.close();
+					evicted++;
+				} else if (pipeline.broken) {
+					// stop handing out a broken pipeline, its requests are failing over
+					iterator.remove();
+				}
+			}
+		}
+
+		/**
+		 * Sends the later requests to the host through the fallback transport.
+		 */
+		void disablePipelining() {
+			if (pipelining) {
+				pipelining = false;
+				LOG.warning("The host " + route + " closed a pipelined connection early, it is no longer pipelined.");
+			}
+		}
+
+		/**
+		 * Close all.
+		 */
+		synchronized void closeAll() {
+			for (Pipeline pipeline : pipelines) {
+				if (pipeline.inFlight == 0) {
+					pipeline.close();
+				}
+			}
+		}
+
+		/**
+		 * Gets the stats.
+		 *
+		 * @return the stats
+		 */
+		synchronized ConnectionPoolStats getStats() {
+			int inFlight = 0;
+			for (Pipeline pipeline : pipelines) {
+				inFlight += pipeline.inFlight;
+			}
+			return new ConnectionPoolStats(inFlight, pipelines.size(), pending, created, reused, evicted);
+		}
+	}
+
+	/**
+	 * The Class Pipeline.
+	 *
+	 * One connection and the exchanges written to it, in the order their
+	 * responses will arrive.
+	 */
+	private static class Pipeline {
+
+		/** The connection. */
+		private final HttpConnection connection;
+
+		/** The exchanges awaiting a response. */
+		private final LinkedList<Exchange> exchanges = new LinkedList<Exchange>();
+
+		/** The requests reserved on this pipeline, guarded by the route. */
+		private int inFlight;
+
+		/** The last used, guarded by the route. */
+		private long lastUsed = System.currentTimeMillis();
+
+		/** The broken flag. */
+		private volatile boolean broken;
+
+		/** Whether the connection broke with requests queued behind the one being read. */
+		private volatile boolean closedEarly;
+
+		/**
+		 * Instantiates a new pipeline.
+		 *
+		 * @param connection the connection
+		 */
+		Pipeline(HttpConnection connection) {
+			this.connection = connection;
+		}
+
+		/**
+		 * Writes the request and queues its exchange.
+		 *
+		 * @param request the request
+		 * @param url the url
+		 *
+		 * @return the exchange
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		synchronized Exchange send(HttpRequest request, URL url) throws IOException {
+			if (broken) {
+				throw new IOException("Pipelined connection to " + connection.getRoute() + " is closed.");
+			}
+			Exchange exchange = new Exchange();
+			exchanges.addLast(exchange);
+			try {
+				connection.sendRequest(request, url);
+			} catch (IOException e) {
+				exchanges.remove(exchange);
+				fail();
+				throw e;
+			}
+			return exchange;
+		}
+
+		/**
+		 * Waits until the exchange is at the head of the pipeline and reads its
+		 * response.
+		 *
+		 * @param exchange the exchange
+		 * @param request the request
+		 *
+		 * @return the http response, with its body in memory
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		HttpResponse receive(Exchange exchange, HttpRequest request) throws IOException {
+			synchronized (this) {
+				while (!broken && exchanges.getFirst() != exchange) {
+					try {
+						wait();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						exchanges.remove(exchange);
+						fail();
+						throw new InterruptedIOException("Interrupted while waiting for a pipelined response.");
+					}
+				}
+				if (broken) {
+					exchanges.remove(exchange);
+					throw new IOException("Pipelined connection to " + connection.getRoute() + " was closed.");
+				}
+			}
+			try {
+				int firstByteTimeout = request.getFirstByteTimeout();
+				connection.setReadTimeout(request.getTimeout(firstByteTimeout > -1 ? firstByteTimeout : request.getReadTimeout()));
+				HttpResponse response = connection.readResponseHead();
+				byte[] body = readFully(connection.getBodyStream(request, response), request);
+				boolean reusable = connection.isReusable(response);
+				response.setContent(new ByteArrayInputStream(body));
+				synchronized (this) {
+					exchanges.removeFirst();
+					if (!reusable) {
+						closedEarly = !exchanges.isEmpty();
+						fail();
+					}
+					notifyAll();
+				}
+				return response;
+			} catch (IOException e) {
+				synchronized (this) {
+					exchanges.remove(exchange);
+					closedEarly = !exchanges.isEmpty();
+					fail();
+				}
+				throw e;
+			}
+		}
+
+		/**
+		 * Marks the pipeline as broken and wakes up every waiting exchange.
+		 */
+		private synchronized void fail() {
+			broken = true;
+			connection.close();
+			notifyAll();
+		}
+
+		/**
+		 * Close.
+		 */
+		void close() {
+			connection.close();
+		}
+
+		/**
+		 * Reads the body, capping each read by the time left before the
+		 * deadline of the request.
+		 *
+		 * @param in the in
+		 * @param request the request
+		 *
+		 * @return the byte[]
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private byte[] readFully(InputStream in, HttpRequest request) throws IOException {
+			ByteArrayOutputStream out = new ByteArrayOutputStream(8192);
+			byte[] buffer = new byte[8192];
+			int count;
+			while (true) {
+				connection.setReadTimeout(request.getTimeout(request.getReadTimeout()));
+				if ((count = in.read(buffer)) == -1) {
+					break;
+				}
+				out.write(buffer, 0, count);
+			}
+			return out.toByteArray();
+		}
+	}
+
+	/**
+	 * The Class Exchange.
+	 *
+	 * Marks the position of one request in a pipeline.
+	 */
+	private static class Exchange {
+	}
+}
@@ -0,0 +1,812 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.transport.impl;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.SocketTimeoutException;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.code.stackexchange.client.constant.ApplicationConstants;
+import com.google.code.stackexchange.client.transport.ConnectionPoolStats;
+import com.google.code.stackexchange.client.transport.HttpRequest;
+import com.google.code.stackexchange.client.transport.HttpResponse;
+import com.google.code.stackexchange.client.transport.HttpTransport;
+
+/**
+ * The Class PooledHttpTransport.
+ *
+ * An HTTP/1.1 transport that keeps connections alive and reuses them across
+ * requests. Connections are pooled per host (scheme, host and port), the
+ * number of connections per host is capped and connections that stay idle
+ * longer than the configured time are closed by a background evictor.
+ *
+ * The deadline of a request bounds the wait for a connection, the connect
+ * and every read, so a request never blocks past it. A connection that times
+ * out is closed.
+ *
+ * The JDK proxy settings are honoured: requests that the default
+ * {@link ProxySelector} (which reads <code>http.proxyHost</code> and the
+ * related properties) routes through a proxy are handed to a
+ * {@link UrlConnectionHttpTransport}, only direct routes are pooled.
+ */
+public class PooledHttpTransport implements HttpTransport {
+
+	/** The Constant LOG. */
+	private static final Logger LOG = Logger.getLogger(PooledHttpTransport.class.getCanonicalName());
+
+	/** The Constant DEFAULT_MAX_CONNECTIONS_PER_HOST. */
+	public static final int DEFAULT_MAX_CONNECTIONS_PER_HOST = 10;
+
+	/** The Constant DEFAULT_MAX_IDLE_TIME. */
+	public static final long DEFAULT_MAX_IDLE_TIME = 30000L;
+
+	/** The Constant MAX_DRAIN_BYTES. */
+	private static final int MAX_DRAIN_BYTES = 64 * 1024;
+
+	/** The Constant MIN_EVICTION_INTERVAL. */
+	private static final long MIN_EVICTION_INTERVAL = 1000L;
+
+	/** The pools keyed by route. */
+	private final ConcurrentMap<String, RoutePool> pools = new ConcurrentHashMap<String, RoutePool>();
+
+	/** The max connections per host. */
+	private volatile int maxConnectionsPerHost =
+		ApplicationConstants.MAX_CONNECTIONS_PER_HOST > 0 ? ApplicationConstants.MAX_CONNECTIONS_PER_HOST : DEFAULT_MAX_CONNECTIONS_PER_HOST;
+
+	/** The max connections configured for individual hosts. */
+	private final ConcurrentMap<String, Integer> hostConnectionLimits = new ConcurrentHashMap<String, Integer>();
+
+	/** The max idle time. */
+	private volatile long maxIdleTime =
+		ApplicationConstants.CONNECTION_MAX_IDLE_TIME > 0 ? ApplicationConstants.CONNECTION_MAX_IDLE_TIME : DEFAULT_MAX_IDLE_TIME;
+
+	/** The connection request timeout. */
+	private volatile long connectionRequestTimeout = ApplicationConstants.CONNECTION_REQUEST_TIMEOUT;
+
+	/** The transport of the requests routed through a proxy. */
+	private final HttpTransport proxyTransport = new UrlConnectionHttpTransport();
+
+	/** The evictor. */
+	private final Timer evictor = new Timer("stackexchange-connection-evictor", true);
+
+	/** The eviction task, scheduled at half the max idle time. */
+	private TimerTask evictionTask;
+
+	/** The shutdown flag. */
+	private volatile boolean shutdown;
+
+	/**
+	 * Instantiates a new pooled http transport.
+	 */
+	public PooledHttpTransport() {
+		scheduleEviction();
+	}
+
+	/**
+	 * Instantiates a new pooled http transport.
+	 *
+	 * @param maxConnectionsPerHost the max connections per host
+	 * @param maxIdleTime the max idle time in milliseconds
+	 */
+	public PooledHttpTransport(int maxConnectionsPerHost, long maxIdleTime) {
+		this();
+		setMaxConnectionsPerHost(maxConnectionsPerHost);
+		setMaxIdleTime(maxIdleTime);
+	}
+
+	/**
+	 * Gets the max connections per host.
+	 *
+	 * @return the max connections per host
+	 */
+	public int getMaxConnectionsPerHost() {
+		return maxConnectionsPerHost;
+	}
+
+	/**
+	 * Sets the max connections per host. Requests beyond this limit wait for a
+	 * connection to be released.
+	 *
+	 * @param maxConnectionsPerHost the new max connections per host
+	 */
+	public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+		if (maxConnectionsPerHost < 1) {
+			throw new IllegalArgumentException("maxConnectionsPerHost cannot be less than one.");
+		}
+		this.maxConnectionsPerHost = maxConnectionsPerHost;
+	}
+
+	/**
+	 * Gets the max idle time.
+	 *
+	 * @return the max idle time in milliseconds
+	 */
+	public long getMaxIdleTime() {
+		return maxIdleTime;
+	}
+
+	/**
+	 * Sets the max idle time. Connections idle for longer are closed.
+	 *
+	 * @param maxIdleTime the new max idle time in milliseconds
+	 */
+	public void setMaxIdleTime(long maxIdleTime) {
+		this.maxIdleTime = maxIdleTime;
+		scheduleEviction();
+	}
+
+	/**
+	 * Schedules the closing of idle connections at half the max idle time,
+	 * replacing the task scheduled for the previous max idle time.
+	 */
+	private synchronized void scheduleEviction() {
+		if (shutdown) {
+			return;
+		}
+		if (evictionTask != null) {
+			evictionTask.cancel();
+		}
+		long interval = Math.max(MIN_EVICTION_INTERVAL, maxIdleTime / 2);
+		evictionTask = new TimerTask() {
+			@Override
+			public void run() {
+				closeIdleConnections();
+			}
+		};
+		evictor.schedule(evictionTask, interval, interval);
+	}
+
+	/**
+	 * Gets the connection request timeout.
+	 *
+	 * @return the connection request timeout in milliseconds, -1 if none
+	 */
+	public long getConnectionRequestTimeout() {
+		return connectionRequestTimeout;
+	}
+
+	/**
+	 * Sets the time a request waits for a free connection when the host limit
+	 * is reached.
+	 *
+	 * @param connectionRequestTimeout the new connection request timeout in milliseconds, -1 for none
+	 */
+	public void setConnectionRequestTimeout(long connectionRequestTimeout) {
+		this.connectionRequestTimeout = connectionRequestTimeout;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.transport.HttpTransport#execute(com.google.code.stackexchange.client.transport.HttpRequest)
+	 */
+	@Override
+	public HttpResponse execute(HttpRequest request) throws IOException {
+		if (shutdown) {
+			throw new IllegalStateException("Transport has been shut down.");
+		}
+		URL url = new URL(request.getUrl());
+		if (isProxied(url)) {
+			return proxyTransport.execute(request);
+		}
+		RoutePool pool = getPool(HttpConnection.getRoute(url));
+		HttpConnection connection = pool.lease(request, url);
+		try {
+			return sendRequest(pool, connection, request, url);
+		} catch (IOException e) {
+			if (connection.isReused() && request.isIdempotent() && !request.isAborted()) {
+				// the server may have closed an idle keep-alive connection, try once on a fresh one
+				LOG.log(Level.FINE, "Retrying request on a new connection: " + request, e);
+				HttpConnection retry = pool.leaseNew(request, url);
+				return sendRequest(pool, retry, request, url);
+			}
+			throw e;
+		}
+	}
+
+	/**
+	 * Checks if the default proxy selector routes the url through a proxy.
+	 *
+	 * @param url the url
+	 *
+	 * @return true, if the url is not fetched directly
+	 */
+	private static boolean isProxied(URL url) {
+		ProxySelector selector = ProxySelector.getDefault();
+		if (selector == null) {
+			return false;
+		}
+		try {
+			List<Proxy> proxies = selector.select(url.toURI());
+			return proxies != null && !proxies.isEmpty() && proxies.get(0).type() != Proxy.Type.DIRECT;
+		} catch (URISyntaxException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Sends the request and wraps the response body.
+	 *
+	 * @param pool the pool
+	 * @param connection the connection
+	 * @param request the request
+	 * @param url the url
+	 *
+	 * @return the http response
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private HttpResponse sendRequest(RoutePool pool, final HttpConnection connection, HttpRequest request, URL url)
+			throws IOException {
+		try {
+			request.setAbortHandle(new Closeable() {
+				@Override
+				public void close() {
+					connection.close();
+				}
+			});
+			int firstByteTimeout = request.getFirstByteTimeout();
+			connection.setReadTimeout(request.getTimeout(firstByteTimeout > -1 ? firstByteTimeout : request.getReadTimeout()));
+			connection.sendRequest(request, url);
+			HttpResponse response = connection.readResponseHead();
+			connection.setReadTimeout(request.getTimeout(request.getReadTimeout()));
+			response.setContent(createContentStream(pool, connection, request, response));
+			return response;
+		} catch (IOException e) {
+			request.clearAbortHandle();
+			pool.release(connection, false);
+			throw e;
+		} catch (RuntimeException e) {
+			request.clearAbortHandle();
+			pool.release(connection, false);
+			throw e;
+		}
+	}
+
+	/**
+	 * Creates the content stream, which releases the connection once the body
+	 * has been consumed or the stream is closed.
+	 *
+	 * @param pool the pool
+	 * @param connection the connection
+	 * @param request the request
+	 * @param response the response
+	 *
+	 * @return the input stream
+	 */
+	private InputStream createContentStream(RoutePool pool, HttpConnection connection, HttpRequest request,
+			HttpResponse response) {
+		InputStream body = connection.getBodyStream(request, response);
+
+		return new ResponseContentStream(pool, connection, request, body, connection.isReusable(response));
+	}
+
+	/**
+	 * Gets the pool.
+	 *
+	 * @param route the route
+	 *
+	 * @return the pool
+	 */
+	private RoutePool getPool(String route) {
+		RoutePool pool = pools.get(route);
+		if (pool == null) {
+			RoutePool newPool = new RoutePool(route);
+			pool = pools.putIfAbsent(route, newPool);
+			if (pool == null) {
+				pool = newPool;
+			}
+		}
+		return pool;
+	}
+
+	/**
+	 * Sets the max connections for a single host, overriding
+	 * {@link #setMaxConnectionsPerHost(int)}.
+	 *
+	 * @param host the host, e.g. api.stackoverflow.com
+	 * @param maxConnections the max connections
+	 */
+	public void setMaxConnectionsForHost(String host, int maxConnections) {
+		if (maxConnections < 1) {
+			throw new IllegalArgumentException("maxConnections cannot be less than one.");
+		}
+		hostConnectionLimits.put(host.toLowerCase(Locale.ENGLISH), maxConnections);
+	}
+
+	/**
+	 * Gets the max connections allowed for a route.
+	 *
+	 * @param route the route
+	 *
+	 * @return the max connections
+	 */
+	private int getMaxConnections(String route) {
+		if (!hostConnectionLimits.isEmpty()) {
+			String host = route.substring(route.indexOf("://") + 3, route.lastIndexOf(':'));
+			Integer limit = hostConnectionLimits.get(host);
+			if (limit != null) {
+				return limit;
+			}
+		}
+		return maxConnectionsPerHost;
+	}
+
+	/**
+	 * Close idle connections that have exceeded the max idle time.
+	 */
+	public void closeIdleConnections() {
+		long expiry = System.currentTimeMillis() - maxIdleTime;
+		for (RoutePool pool : pools.values()) {
+			pool.closeIdle(expiry);
+		}
+	}
+
+	/**
+	 * Gets the pool stats, summed over all hosts.
+	 *
+	 * @return the pool stats
+	 */
+	public ConnectionPoolStats getPoolStats() {
+		ConnectionPoolStats total = new ConnectionPoolStats(0, 0, 0, 0, 0, 0);
+		for (RoutePool pool : pools.values()) {
+			total = total.add(pool.getStats());
+		}
+		return total;
+	}
+
+	/**
+	 * Gets the pool stats per host.
+	 *
+	 * @return the pool stats keyed by route (scheme://host:port)
+	 */
+	public Map<String, ConnectionPoolStats> getPoolStatsByHost() {
+		Map<String, ConnectionPoolStats> stats = new HashMap<String, ConnectionPoolStats>();
+		for (RoutePool pool : pools.values()) {
+			stats.put(pool.route, pool.getStats());
+		}
+		return stats;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.transport.HttpTransport#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+		synchronized (this) {
+			shutdown = true;
+			evictor.cancel();
+		}
+		for (RoutePool pool : pools.values()) {
+			pool.closeIdle(Long.MAX_VALUE);
+		}
+		proxyTransport.shutdown();
+	}
+
+	/**
+	 * The Class RoutePool.
+	 *
+	 * The connections of a single host. Idle connections are kept most recently
+	 * used first so that warm connections are reused and cold ones expire.
+	 */
+	private class RoutePool {
+
+		/** The route. */
+		private final String route;
+
+		/** The lock, a {@link ReentrantLock} so that waiting virtual threads do not pin their carrier. */
+		private final ReentrantLock lock = new ReentrantLock();
+
+		/** Signalled when a connection is released. */
+		private final Condition released = lock.newCondition();
+
+		/** The idle connections. */
+		private final LinkedList<HttpConnection> idle = new LinkedList<HttpConnection>();
+
+		/** The leased. */
+		private int leased;
+
+		/** The pending. */
+		private int pending;
+
+		/** The created. */
+		private long created;
+
+		/** The reused. */
+		private long reused;
+
+		/** The evicted. */
+		private long evicted;
+
+		/**
+		 * Instantiates a new route pool.
+		 *
+		 * @param route the route
+		 */
+		RoutePool(String route) {
+			this.route = route;
+		}
+
+		/**
+		 * Leases an idle connection or opens a new one.
+		 *
+		 * @param request the request
+		 * @param url the url
+		 *
+		 * @return the http connection
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		HttpConnection lease(HttpRequest request, URL url) throws IOException {
+			HttpConnection connection = acquire(request, true);
+			return connection != null ? connection : open(request, url);
+		}
+
+		/**
+		 * Leases a newly opened connection, bypassing idle ones.
+		 *
+		 * @param request the request
+		 * @param url the url
+		 *
+		 * @return the http connection
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		HttpConnection leaseNew(HttpRequest request, URL url) throws IOException {
+			acquire(request, false);
+			return open(request, url);
+		}
+
+		/**
+		 * Opens a connection for a slot that has already been acquired.
+		 *
+		 * @param request the request
+		 * @param url the url
+		 *
+		 * @return the http connection
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private HttpConnection open(HttpRequest request, URL url) throws IOException {
+			try {
+				HttpConnection connection = HttpConnection.open(route, url, request.getTimeout(request.getConnectTimeout()));
+				lock.lock();
+				try {
+					created++;
+				} finally {
+					lock.unlock();
+				}
+				return connection;
+			} catch (IOException e) {
+				release(null, false);
+				throw e;
+			} catch (RuntimeException e) {
+				release(null, false);
+				throw e;
+			}
+		}
+
+		/**
+		 * Acquires a slot, waiting while the host limit is reached.
+		 *
+		 * @param request the request
+		 * @param reuse whether an idle connection may be handed out
+		 *
+		 * @return an idle connection, or null if the caller should open one
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private HttpConnection acquire(HttpRequest request, boolean reuse) throws IOException {
+			lock.lock();
+			try {
+				return acquireLocked(request, reuse);
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Acquires a slot while holding the lock.
+		 *
+		 * @param request the request
+		 * @param reuse whether an idle connection may be handed out
+		 *
+		 * @return an idle connection, or null if the caller should open one
+		 *
+		 * @throws IOException Signals that an I/O exception has occurred.
+		 */
+		private HttpConnection acquireLocked(HttpRequest request, boolean reuse) throws IOException {
+			long timeout = connectionRequestTimeout;
+			long deadline = timeout > 0 ? System.currentTimeMillis() + timeout : 0;
+			if (request.getDeadline() > 0 && (deadline == 0 || request.getDeadline() < deadline)) {
+				deadline = request.getDeadline();
+			}
+			while (true) {
+				if (reuse) {
+					long expiry = System.currentTimeMillis() - maxIdleTime;
+					while (!idle.isEmpty()) {
+						HttpConnection connection = idle.removeFirst();
+						if (connection.getLastUsed() > expiry && connection.isOpen()) {
+							leased++;
+							reused++;
+							return connection;
+						}
+						evicted++;
+						connection.close();
+					}
+				} else if (!idle.isEmpty() && leased + idle.size() >= getMaxConnections(route)) {
+					// make room for a fresh connection by dropping an idle one
+					idle.removeLast().close();
+				}
+				if (leased + idle.size() < getMaxConnections(route)) {
+					leased++;
+					return null;
+				}
+				long wait = 0;
+				if (deadline > 0) {
+					wait = deadline - System.currentTimeMillis();
+					if (wait <= 0) {
+						if (request.isExpired()) {
+							throw new SocketTimeoutException("Deadline exceeded waiting for a connection to " + route + ".");
+						}
+						throw new IOException("Timeout waiting for a connection to " + route + ".");
+					}
+				} else if (timeout == 0) {
+					throw new IOException("No connection available for " + route + ".");
+				}
+				pending++;
+				try {
+					if (wait > 0) {
+						released.await(wait, TimeUnit.MILLISECONDS);
+					} else {
+						released.await();
+					}
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new InterruptedIOException("Interrupted while waiting for a connection to " + route + ".");
+				} finally {
+					pending--;
+				}
+			}
+		}
+
+		/**
+		 * Returns a leased connection to the pool.
+		 *
+		 * @param connection the connection, null if it could not be opened
+		 * @param reusable whether the connection can serve another request
+		 */
+		void release(HttpConnection connection, boolean reusable) {
+			lock.lock();
+			try {
+				leased--;
+				if (connection != null) {
+					if (reusable && !shutdown && connection.isOpen()) {
+						connection.markIdle();
+						idle.addFirst(connection);
+					} else {
+						connection.close();
+					}
+				}
+				released.signalAll();
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Close idle connections last used before the given time.
+		 *
+		 * @param expiry the expiry
+		 */
+		void closeIdle(long expiry) {
+			lock.lock();
+			try {
+				for (Iterator<HttpConnection> iterator = idle.iterator(); iterator.hasNext();) {
+					HttpConnection connection = iterator.next();
+					if (connection.getLastUsed() <= expiry || !connection.isOpen()) {
+						iterator.remove();
+						connection.close();
+						evicted++;
+					}
+				}
+			} finally {
+				lock.unlock();
+			}
+		}
+
+		/**
+		 * Gets the stats.
+		 *
+		 * @return the stats
+		 */
+		ConnectionPoolStats getStats() {
+			lock.lock();
+			try {
+				return new ConnectionPoolStats(leased, idle.size(), pending, created, reused, evicted);
+			} finally {
+				lock.unlock();
+			}
+		}
+	}
+
+	/**
+	 * The Class ResponseContentStream.
+	 *
+	 * Hands the connection back to its pool when the body is fully read, or
+	 * when the stream is closed. A connection whose body was not consumed is
+	 * drained if that is cheap and closed otherwise. Reads are capped by the
+	 * time left before the deadline of the request.
+	 */
+	private static class ResponseContentStream extends InputStream {
+
+		/** The pool. */
+		private final RoutePool pool;
+
+		/** The connection. */
+		private final HttpConnection connection;
+
+		/** The request. */
+		private final HttpRequest request;
+
+		/** The body. */
+		private final InputStream body;
+
+		/** The keep alive. */
+		private final boolean keepAlive;
+
+		/** The released. */
+		private boolean released;
+
+		/**
+		 * Instantiates a new response content stream.
+		 *
+		 * @param pool the pool
+		 * @param connection the connection
+		 * @param request the request
+		 * @param body the body
+		 * @param keepAlive the keep alive
+		 */
+		ResponseContentStream(RoutePool pool, HttpConnection connection, HttpRequest request, InputStream body,
+				boolean keepAlive) {
+			this.pool = pool;
+			this.connection = connection;
+			this.request = request;
+			this.body = body;
+			this.keepAlive = keepAlive;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.InputStream#read()
+		 */
+		@Override
+		public int read() throws IOException {
+			if (released) {
+				return -1;
+			}
+			try {
+				checkDeadline();
+				int b = body.read();
+				if (b == -1) {
+					release(keepAlive);
+				}
+				return b;
+			} catch (IOException e) {
+				release(false);
+				throw e;
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.InputStream#read(byte[], int, int)
+		 */
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			if (released) {
+				return -1;
+			}
+			try {
+				checkDeadline();
+				int count = body.read(b, off, len);
+				if (count == -1) {
+					release(keepAlive);
+				}
+				return count;
+			} catch (IOException e) {
+				release(false);
+				throw e;
+			}
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.InputStream#available()
+		 */
+		@Override
+		public int available() throws IOException {
+			return released ? 0 : body.available();
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.InputStream#close()
+		 */
+		@Override
+		public void close() {
+			if (released) {
+				return;
+			}
+			if (!keepAlive) {
+				release(false);
+				return;
+			}
+			try {
+				checkDeadline();
+				byte[] buffer = new byte[4096];
+				int drained = 0;
+				int count;
+				while (drained < MAX_DRAIN_BYTES && (count = body.read(buffer)) != -1) {
+					drained += count;
+				}
+				release(drained < MAX_DRAIN_BYTES);
+			} catch (IOException e) {
+				release(false);
+			}
+		}
+
+		/**
+		 * Caps the read timeout by the time left before the deadline.
+		 *
+		 * @throws SocketTimeoutException if the deadline has passed
+		 */
+		private void checkDeadline() throws IOException {
+			if (request.getDeadline() >= 0) {
+				connection.setReadTimeout(request.getTimeout(request.getReadTimeout()));
+			}
+		}
+
+		/**
+		 * Release.
+		 *
+		 * @param reusable the reusable
+		 */
+		private void release(boolean reusable) {
+			if (!released) {
+				released = true;
+				request.clearAbortHandle();
+				pool.release(connection, reusable);
+			}
+		}
+	}
+}
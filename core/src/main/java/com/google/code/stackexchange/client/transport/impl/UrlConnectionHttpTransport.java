@@ -0,0 +1,103 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.transport.impl;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.List;
+import java.util.Map;
+
+import com.google.code.stackexchange.client.transport.HttpRequest;
+import com.google.code.stackexchange.client.transport.HttpResponse;
+import com.google.code.stackexchange.client.transport.HttpTransport;
+
+/**
+ * The Class UrlConnectionHttpTransport.
+ *
+ * A transport backed by {@link HttpURLConnection}, which leaves connection
+ * reuse to the JDK. Useful when the JDK networking properties (proxies,
+ * <code>http.keepAlive</code>, ...) have to be honoured. The deadline of a
+ * request only caps the connect and read timeouts, as the JDK cannot change
+ * them once the response is being read.
+ */
+public class UrlConnectionHttpTransport implements HttpTransport {
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.transport.HttpTransport#execute(com.google.code.stackexchange.client.transport.HttpRequest)
+	 */
+	@Override
+	public HttpResponse execute(HttpRequest request) throws IOException {
+        URL               url     = new URL(request.getUrl());
+        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+
+        int connectTimeout = request.getTimeout(request.getConnectTimeout());
+        if (connectTimeout > -1) {
+            connection.setConnectTimeout(connectTimeout);
+        }
+
+        // the JDK has a single read timeout, use the longer of first byte and read, capped by the deadline
+        int readTimeout = request.getTimeout(Math.max(request.getFirstByteTimeout(), request.getReadTimeout()));
+        if (readTimeout > -1) {
+            connection.setReadTimeout(readTimeout);
+        }
+
+        for (String headerName : request.getHeaders().keySet()) {
+            connection.setRequestProperty(headerName, request.getHeaders().get(headerName));
+        }
+
+        connection.setRequestMethod(request.getMethod());
+
+        if (request.getContent() != null) {
+            connection.setDoOutput(true);
+            OutputStream out = new BufferedOutputStream(connection.getOutputStream());
+
+            out.write(request.getContent());
+            out.flush();
+            out.close();
+        }
+
+        connection.connect();
+
+        HttpResponse response = new HttpResponse(connection.getResponseCode());
+        for (Map.Entry<String, List<String>> header : connection.getHeaderFields().entrySet()) {
+        	if (header.getKey() != null) {
+        		for (String value : header.getValue()) {
+        			response.addHeader(header.getKey(), value);
+        		}
+        	}
+        }
+        InputStream content = connection.getErrorStream();
+        if (content == null) {
+        	content = connection.getInputStream();
+        }
+        response.setContent(content);
+
+        return response;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.client.transport.HttpTransport#shutdown()
+	 */
+	@Override
+	public void shutdown() {
+		// connections are managed by the JDK
+	}
+}
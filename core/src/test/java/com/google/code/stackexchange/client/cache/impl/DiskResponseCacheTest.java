@@ -0,0 +1,337 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.cache.impl;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.code.stackexchange.client.constant.StackExchangeApiMethods;
+
+/**
+ * The Class DiskResponseCacheTest.
+ */
+public class DiskResponseCacheTest extends TestCase {
+
+	/** The Constant SEGMENT_SIZE, small enough for a few responses per segment. */
+	private static final int SEGMENT_SIZE = 4096;
+
+	/** The directory. */
+	private File directory;
+
+	/** The cache. */
+	private DiskResponseCache cache;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Before
+	public void setUp() throws Exception {
+		directory = File.createTempFile("disk-response-cache", "");
+		if (!directory.delete() || !directory.mkdir()) {
+			throw new IOException("Could not create " + directory);
+		}
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@After
+	public void tearDown() throws Exception {
+		if (cache != null) {
+			cache.close();
+		}
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files) {
+				file.delete();
+			}
+		}
+		directory.delete();
+	}
+
+	/**
+	 * Test the responses are answered again after the cache is reopened.
+	 */
+	@Test
+	public void testReload() {
+		cache = open(1024 * 1024);
+		for (int i = 0; i < 50; i++) {
+			cache.put(StackExchangeApiMethods.GET_QUESTION, getUrl(i), getContent(i, 0));
+		}
+		cache = reopen(1024 * 1024);
+		assertEquals(50, cache.getStats().getEntries());
+		for (int i = 0; i < 50; i++) {
+			assertTrue(Arrays.equals(getContent(i, 0), cache.get(getUrl(i))));
+		}
+	}
+
+	/**
+	 * Test a replaced response is not loaded again.
+	 */
+	@Test
+	public void testReloadReplaced() {
+		cache = open(1024 * 1024);
+		cache.put(StackExchangeApiMethods.GET_QUESTION, getUrl(1), getContent(1, 0));
+		cache.put(StackExchangeApiMethods.GET_QUESTION, getUrl(1), getContent(1, 1));
+		cache = reopen(1024 * 1024);
+		assertTrue(Arrays.equals(getContent(1, 1), cache.get(getUrl(1))));
+		assertEquals(1, cache.getStats().getEntries());
+	}
+
+	/**
+	 * Test a response that was replaced and then removed stays removed after
+	 * the cache is reopened.
+	 */
+	@Test
+	public void testReloadReplacedAndRemoved() {
+		cache = open(1024 * 1024);
+		cache.put(StackExchangeApiMethods.GET_QUESTION, getUrl(1), getContent(1, 0));
+		cache.put(StackExchangeApiMethods.GET_QUESTION, getUrl(1), getContent(1, 1));
+		cache.remove(getUrl(1));
+		assertNull(cache.get(getUrl(1)));
+		cache = reopen(1024 * 1024);
+		assertNull(cache.get(getUrl(1)));
+		assertEquals(0, cache.getStats().getEntries());
+	}
+
+	/**
+	 * Test a response replaced by a not found error is not answered again
+	 * once the error expired, even after the cache is reopened.
+	 */
+	@Test
+	public void testReloadReplacedByExpiredNotFound() throws Exception {
+		cache = open(1024 * 1024);
+		cache.setNegativeTimeToLive(100);
+		cache.put(StackExchangeApiMethods.GET_QUESTION, getUrl(1), getContent(1, 0));
+		cache.putNotFound(getUrl(1), "not found");
+		assertTrue(cache.lookup(getUrl(1)).isNotFound());
+		Thread.sleep(200);
+		assertNull(cache.lookup(getUrl(1)));
+		cache = reopen(1024 * 1024);
+		assertNull(cache.lookup(getUrl(1)));
+		assertNull(cache.get(getUrl(1)));
+	}
+
+	/**
+	 * Test a not found error is answered again after the cache is reopened.
+	 */
+	@Test
+	public void testReloadNotFound() {
+		cache = open(1024 * 1024);
+		cache.setNegativeTimeToLive(60000);
+		cache.put(StackExchangeApiMethods.GET_QUESTION, getUrl(1), getContent(1, 0));
+		cache.putNotFound(getUrl(1), "not found");
+		cache = reopen(1024 * 1024);
+		assertEquals("not found", cache.lookup(getUrl(1)).getNotFoundMessage());
+	}
+
+	/**
+	 * Test compacting keeps the last response of each url in fewer segments.
+	 */
+	@Test
+	public void testCompaction() {
+		cache = open(1024 * 1024);
+		cache.setCompactionThreshold(0);
+		for (int version = 0; version < 10; version++) {
+			for (int i = 0; i < 5; i++) {
+				cache.put(StackExchangeApiMethods.GET_QUESTION, getUrl(i), getContent(i, version));
+			}
+		}
+		int before = countSegments();
+		assertTrue("Should fill several segments: " + before, before > 3);
+		assertTrue(cache.compact() > 0);
+		assertTrue("Should drop segments: " + countSegments(), countSegments() < before);
+		assertLatest(5, 9);
+		cache = reopen(1024 * 1024);
+		assertEquals(5, cache.getStats().getEntries());
+		assertLatest(5, 9);
+	}
+
+	/**
+	 * Test the oldest segments are evicted to stay within the max bytes.
+	 */
+	@Test
+	public void testEviction() {
+		cache = open(3 * SEGMENT_SIZE);
+		for (int i = 0; i < 100; i++) {
+			cache.put(StackExchangeApiMethods.GET_QUESTION, getUrl(i), getContent(i, 0));
+		}
+		assertTrue(countSegments() <= 3);
+		assertTrue(cache.getStats().getEvicted() > 0);
+		assertNull(cache.get(getUrl(0)));
+		assertTrue(Arrays.equals(getContent(99, 0), cache.get(getUrl(99))));
+		int entries = cache.getStats().getEntries();
+		cache = reopen(3 * SEGMENT_SIZE);
+		assertEquals(entries, cache.getStats().getEntries());
+		assertNull(cache.get(getUrl(0)));
+		assertTrue(Arrays.equals(getContent(99, 0), cache.get(getUrl(99))));
+	}
+
+	/**
+	 * Test deleted segments and a closed cache leave no file open or mapped,
+	 * where the open files of the process can be listed.
+	 */
+	@Test
+	public void testSegmentsReleased() throws Exception {
+		if (!new File("/proc/self/fd").isDirectory()) {
+			return;
+		}
+		cache = open(3 * SEGMENT_SIZE);
+		for (int i = 0; i < 100; i++) {
+			cache.put(StackExchangeApiMethods.GET_QUESTION, getUrl(i), getContent(i, 0));
+		}
+		assertTrue(cache.getStats().getEvicted() > 0);
+		assertEquals(countSegments(), countOpenSegments());
+		cache.close();
+		cache = null;
+		assertEquals(0, countOpenSegments());
+	}
+
+	/**
+	 * Counts the open file descriptors and the mappings of segment files,
+	 * deleted ones included.
+	 *
+	 * @return the number of open segments
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private int countOpenSegments() throws IOException {
+		String path = directory.getCanonicalPath();
+		int open = 0;
+		File[] descriptors = new File("/proc/self/fd").listFiles();
+		for (int i = 0; descriptors != null && i < descriptors.length; i++) {
+			try {
+				if (isSegment(descriptors[i].getCanonicalPath(), path)) {
+					open++;
+				}
+			} catch (IOException e) {
+				// closed while listing
+			}
+		}
+		BufferedReader maps = new BufferedReader(new FileReader("/proc/self/maps"));
+		try {
+			String line;
+			while ((line = maps.readLine()) != null) {
+				if (isSegment(line, path)) {
+					open++;
+				}
+			}
+		} finally {
+			maps.close();
+		}
+		return open;
+	}
+
+	/**
+	 * Checks if a file name is that of a segment of the directory.
+	 *
+	 * @param name the name
+	 * @param path the path of the directory
+	 *
+	 * @return true, if it is a segment
+	 */
+	private static boolean isSegment(String name, String path) {
+		return name.contains(path + File.separator) && name.contains(".seg");
+	}
+
+	/**
+	 * Asserts each url answers its latest content.
+	 *
+	 * @param urls the number of urls
+	 * @param version the latest version
+	 */
+	private void assertLatest(int urls, int version) {
+		for (int i = 0; i < urls; i++) {
+			assertTrue(Arrays.equals(getContent(i, version), cache.get(getUrl(i))));
+		}
+	}
+
+	/**
+	 * Opens the cache.
+	 *
+	 * @param maxBytes the max bytes
+	 *
+	 * @return the disk response cache
+	 */
+	private DiskResponseCache open(long maxBytes) {
+		return new DiskResponseCache(directory, maxBytes, SEGMENT_SIZE);
+	}
+
+	/**
+	 * Closes the cache and opens it again.
+	 *
+	 * @param maxBytes the max bytes
+	 *
+	 * @return the disk response cache
+	 */
+	private DiskResponseCache reopen(long maxBytes) {
+		cache.close();
+		cache = null;
+		return open(maxBytes);
+	}
+
+	/**
+	 * Counts the segment files.
+	 *
+	 * @return the number of segments
+	 */
+	private int countSegments() {
+		return directory.list(new FilenameFilter() {
+			@Override
+			public boolean accept(File dir, String name) {
+				return name.endsWith(".seg");
+			}
+		}).length;
+	}
+
+	/**
+	 * Gets the url of a response.
+	 *
+	 * @param i the index of the response
+	 *
+	 * @return the url
+	 */
+	private static String getUrl(int i) {
+		return "http://api.stackoverflow.com/1.1/questions/" + i + "?key=k";
+	}
+
+	/**
+	 * Gets content that does not compress, so that a segment holds only a
+	 * few responses.
+	 *
+	 * @param i the index of the response
+	 * @param version the version
+	 *
+	 * @return the content
+	 */
+	private static byte[] getContent(int i, int version) {
+		byte[] content = new byte[300];
+		new Random(i * 1000 + version).nextBytes(content);
+		return content;
+	}
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.cache.impl;
+
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.code.stackexchange.client.ClientConfiguration;
+import com.google.code.stackexchange.client.StackExchangeApiClient;
+import com.google.code.stackexchange.client.cache.CachedResponse;
+import com.google.code.stackexchange.client.cache.ResponseCacheStats;
+import com.google.code.stackexchange.client.constant.StackExchangeApiMethods;
+import com.google.code.stackexchange.client.impl.StackExchangeApiJsonClient;
+import com.google.code.stackexchange.client.provider.CustomApiProvider;
+import com.google.code.stackexchange.client.transport.impl.StubHttpServer;
+
+/**
+ * The Class InMemoryResponseCacheTest.
+ */
+public class InMemoryResponseCacheTest extends TestCase {
+
+	/** The Constant URL, a url of a single question. */
+	private static final String URL = "http://api.stackoverflow.com/1.1/questions/";
+
+	/** The Constant CONTENT. */
+	private static final byte[] CONTENT = "{\"total\":1,\"questions\":[{\"question_id\":1}]}".getBytes();
+
+	/** The Constant TIME_TO_LIVE. */
+	private static final long TIME_TO_LIVE = 100L;
+
+	/** The cache. */
+	private InMemoryResponseCache cache;
+
+	/** The server. */
+	private StubHttpServer server;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Before
+	public void setUp() throws Exception {
+		cache = new InMemoryResponseCache();
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@After
+	public void tearDown() throws Exception {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Test a response is answered until its time to live runs out.
+	 */
+	@Test
+	public void testTimeToLive() throws Exception {
+		cache.setTimeToLive(StackExchangeApiMethods.GET_QUESTION, TIME_TO_LIVE);
+		cache.put(StackExchangeApiMethods.GET_QUESTION, URL + 1, CONTENT);
+		assertTrue(Arrays.equals(CONTENT, cache.get(URL + 1)));
+		Thread.sleep(TIME_TO_LIVE + 50);
+		assertNull(cache.get(URL + 1));
+		assertNull(cache.lookup(URL + 1));
+		assertEquals(0, cache.getStats().getEntries());
+	}
+
+	/**
+	 * Test a time to live of 0 keeps the responses of the method out of the
+	 * cache.
+	 */
+	@Test
+	public void testZeroTimeToLive() {
+		cache.setTimeToLive(StackExchangeApiMethods.GET_QUESTION, 0);
+		cache.put(StackExchangeApiMethods.GET_QUESTION, URL + 1, CONTENT);
+		cache.put(StackExchangeApiMethods.GET_ANSWER, URL + 2, CONTENT);
+		assertNull(cache.get(URL + 1));
+		assertNotNull(cache.get(URL + 2));
+		assertEquals(1, cache.getStats().getEntries());
+	}
+
+	/**
+	 * Test the time to live is the one of the method the response is put
+	 * for, whatever method its url looks like.
+	 */
+	@Test
+	public void testTimeToLiveOfCallingMethod() throws Exception {
+		cache.setTimeToLive(StackExchangeApiMethods.GET_QUESTION, TIME_TO_LIVE);
+		cache.setTimeToLive(StackExchangeApiMethods.GET_QUESTIONS, 60000);
+		cache.put(StackExchangeApiMethods.GET_QUESTIONS, URL + 1, CONTENT);
+		cache.put(StackExchangeApiMethods.GET_QUESTION, URL + 2, CONTENT);
+		Thread.sleep(TIME_TO_LIVE + 50);
+		assertNotNull(cache.get(URL + 1));
+		assertNull(cache.get(URL + 2));
+	}
+
+	/**
+	 * Test the max stale is the one of the method the response is put for,
+	 * whatever method its url looks like.
+	 */
+	@Test
+	public void testMaxStaleOfCallingMethod() throws Exception {
+		cache.setDefaultTimeToLive(TIME_TO_LIVE);
+		cache.setMaxStale(StackExchangeApiMethods.GET_QUESTION, 0);
+		cache.setMaxStale(StackExchangeApiMethods.GET_QUESTIONS, 60000);
+		cache.put(StackExchangeApiMethods.GET_QUESTIONS, URL + 1, CONTENT);
+		cache.put(StackExchangeApiMethods.GET_QUESTION, URL + 2, CONTENT);
+		Thread.sleep(TIME_TO_LIVE + 50);
+		CachedResponse stale = cache.lookup(URL + 1);
+		assertTrue(stale.isStale());
+		assertTrue(stale.isRefreshNeeded());
+		assertNull(cache.lookup(URL + 2));
+	}
+
+	/**
+	 * Test the least recently used responses are evicted once the cache is
+	 * full.
+	 */
+	@Test
+	public void testEviction() {
+		long entrySize = (URL + 1).length() + CONTENT.length;
+		cache = new InMemoryResponseCache(3 * entrySize);
+		for (int i = 1; i <= 3; i++) {
+			cache.put(StackExchangeApiMethods.GET_QUESTION, URL + i, CONTENT);
+		}
+		assertNotNull(cache.lookup(URL + 1));
+		cache.put(StackExchangeApiMethods.GET_QUESTION, URL + 4, CONTENT);
+		assertNull(cache.lookup(URL + 2));
+		assertNotNull(cache.lookup(URL + 1));
+		assertNotNull(cache.lookup(URL + 3));
+		assertNotNull(cache.lookup(URL + 4));
+		ResponseCacheStats stats = cache.getStats();
+		assertEquals(3, stats.getEntries());
+		assertEquals(3 * entrySize, stats.getBytes());
+		assertEquals(1, stats.getEvicted());
+	}
+
+	/**
+	 * Test a response larger than the cache is not cached.
+	 */
+	@Test
+	public void testResponseLargerThanCache() {
+		cache = new InMemoryResponseCache(CONTENT.length);
+		cache.put(StackExchangeApiMethods.GET_QUESTION, URL + 1, CONTENT);
+		assertEquals(0, cache.getStats().getEntries());
+		assertEquals(0, cache.getStats().getEvicted());
+	}
+
+	/**
+	 * Test hits, stale hits and misses are counted.
+	 */
+	@Test
+	public void testStats() throws Exception {
+		cache.setTimeToLive(StackExchangeApiMethods.GET_QUESTION, TIME_TO_LIVE);
+		cache.setMaxStale(StackExchangeApiMethods.GET_QUESTION, 60000);
+		assertNull(cache.lookup(URL + 1));
+		cache.put(StackExchangeApiMethods.GET_QUESTION, URL + 1, CONTENT);
+		assertFalse(cache.lookup(URL + 1).isStale());
+		assertNotNull(cache.get(URL + 1));
+		Thread.sleep(TIME_TO_LIVE + 50);
+		CachedResponse stale = cache.lookup(URL + 1);
+		assertTrue(stale.isStale());
+		assertTrue(Arrays.equals(CONTENT, stale.getContent()));
+		ResponseCacheStats stats = cache.getStats();
+		assertEquals(2, stats.getHits());
+		assertEquals(1, stats.getStaleHits());
+		assertEquals(1, stats.getMisses());
+	}
+
+	/**
+	 * Test a client caches its calls with the time to live of the api method
+	 * it calls: the questions of getQuestions() are kept for the time to live
+	 * of GET_QUESTIONS even though the url of GET_QUESTION has the same form.
+	 */
+	@Test
+	public void testClientUsesTimeToLiveOfMethod() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return StubHttpServer.response(new String(CONTENT), "");
+			}
+		});
+		cache.setTimeToLive(StackExchangeApiMethods.GET_QUESTIONS, 60000);
+		cache.setTimeToLive(StackExchangeApiMethods.GET_QUESTION, 0);
+		StackExchangeApiClient client = new StackExchangeApiJsonClient("key");
+		client.setApiProvider(new CustomApiProvider(server.getUrl("")));
+		ClientConfiguration configuration = new ClientConfiguration();
+		configuration.setResponseCache(cache);
+		client.setConfiguration(configuration);
+
+		assertEquals(1, client.getQuestions().get(0).getQuestionId());
+		assertEquals(1, client.getQuestions().get(0).getQuestionId());
+		assertEquals(1, server.getRequests());
+
+		client.getQuestions(1L);
+		client.getQuestions(1L);
+		assertEquals(3, server.getRequests());
+	}
+}
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.code.stackexchange.client.ClientConfiguration;
+import com.google.code.stackexchange.client.exception.CircuitOpenException;
+import com.google.code.stackexchange.client.exception.InternalServerException;
+import com.google.code.stackexchange.client.impl.CircuitBreaker.State;
+import com.google.code.stackexchange.client.provider.CustomApiProvider;
+import com.google.code.stackexchange.client.transport.impl.StubHttpServer;
+
+/**
+ * The Class CircuitBreakerTest.
+ */
+public class CircuitBreakerTest extends TestCase {
+
+	/** The Constant HOST. */
+	private static final String HOST = "api.stackoverflow.com";
+
+	/** The Constant OPEN_TIMEOUT. */
+	private static final long OPEN_TIMEOUT = 300L;
+
+	/** The breaker. */
+	private CircuitBreaker breaker;
+
+	/** The events. */
+	private List<CircuitBreaker.Event> events;
+
+	/** The server. */
+	private StubHttpServer server;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Before
+	public void setUp() throws Exception {
+		breaker = new CircuitBreaker();
+		breaker.setFailureThreshold(3);
+		breaker.setOpenTimeout(OPEN_TIMEOUT);
+		events = new ArrayList<CircuitBreaker.Event>();
+		breaker.addListener(new CircuitBreaker.Listener() {
+			@Override
+			public void stateChanged(CircuitBreaker.Event event) {
+				synchronized (events) {
+					events.add(event);
+				}
+			}
+		});
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@After
+	public void tearDown() throws Exception {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Test the circuit opens at the failure threshold, counting consecutive
+	 * failures only.
+	 */
+	@Test
+	public void testOpensAtThreshold() {
+		fail(2);
+		succeed();
+		fail(2);
+		assertEquals(State.CLOSED, breaker.getState(HOST));
+		fail(1);
+		assertEquals(State.OPEN, breaker.getState(HOST));
+		assertOpen();
+	}
+
+	/**
+	 * Test the circuit lets a trial call through once the open timeout has
+	 * passed, and closes when it succeeds.
+	 */
+	@Test
+	public void testOpenTimeout() throws Exception {
+		fail(3);
+		assertOpen();
+		Thread.sleep(OPEN_TIMEOUT + 50);
+		breaker.acquire(HOST);
+		assertEquals(State.HALF_OPEN, breaker.getState(HOST));
+		breaker.onSuccess(HOST);
+		assertEquals(State.CLOSED, breaker.getState(HOST));
+	}
+
+	/**
+	 * Test a failed trial call opens the circuit for another timeout.
+	 */
+	@Test
+	public void testFailedTrialReopens() throws Exception {
+		fail(3);
+		Thread.sleep(OPEN_TIMEOUT + 50);
+		breaker.acquire(HOST);
+		breaker.onFailure(HOST);
+		assertEquals(State.OPEN, breaker.getState(HOST));
+		assertOpen();
+	}
+
+	/**
+	 * Test a half open circuit lets only the trial calls through, and closes
+	 * once they all succeeded.
+	 */
+	@Test
+	public void testHalfOpenTrialLimit() throws Exception {
+		breaker.setHalfOpenCalls(2);
+		fail(3);
+		Thread.sleep(OPEN_TIMEOUT + 50);
+		breaker.acquire(HOST);
+		breaker.acquire(HOST);
+		assertOpen();
+		breaker.onSuccess(HOST);
+		assertEquals(State.HALF_OPEN, breaker.getState(HOST));
+		breaker.onSuccess(HOST);
+		assertEquals(State.CLOSED, breaker.getState(HOST));
+	}
+
+	/**
+	 * Test a trial call that was not sent can be given back for another
+	 * caller.
+	 */
+	@Test
+	public void testReleaseGivesBackTrial() throws Exception {
+		fail(3);
+		Thread.sleep(OPEN_TIMEOUT + 50);
+		breaker.acquire(HOST);
+		assertOpen();
+		breaker.release(HOST);
+		breaker.acquire(HOST);
+		assertEquals(State.HALF_OPEN, breaker.getState(HOST));
+	}
+
+	/**
+	 * Test every state change is reported to the listeners, once.
+	 */
+	@Test
+	public void testListenerEvents() throws Exception {
+		fail(3);
+		Thread.sleep(OPEN_TIMEOUT + 50);
+		breaker.acquire(HOST);
+		breaker.onSuccess(HOST);
+		assertEquals(3, events.size());
+		assertEvent(events.get(0), State.CLOSED, State.OPEN);
+		assertEvent(events.get(1), State.OPEN, State.HALF_OPEN);
+		assertEvent(events.get(2), State.HALF_OPEN, State.CLOSED);
+	}
+
+	/**
+	 * Test circuits are kept per host, ignoring case.
+	 */
+	@Test
+	public void testCircuitPerHost() {
+		fail(3);
+		assertEquals(State.OPEN, breaker.getState(HOST.toUpperCase()));
+		assertEquals(State.CLOSED, breaker.getState("api.superuser.com"));
+		breaker.acquire("api.superuser.com");
+	}
+
+	/**
+	 * Test a client stops calling a host answering with 503 once the circuit
+	 * is open.
+	 */
+	@Test
+	public void testClientFailsFast() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return StubHttpServer.response("503 Service Unavailable",
+						"{\"error\":{\"code\":500,\"message\":\"unavailable\"}}", "");
+			}
+		});
+		StackExchangeApiJsonClient client = new StackExchangeApiJsonClient("key");
+		client.setApiProvider(new CustomApiProvider(server.getUrl("")));
+		ClientConfiguration configuration = new ClientConfiguration();
+		configuration.setCircuitBreaker(breaker);
+		client.setConfiguration(configuration);
+		for (int i = 0; i < 3; i++) {
+			try {
+				client.getQuestions(7);
+				fail("Should fail.");
+			} catch (InternalServerException e) {
+				// expected
+			}
+		}
+		try {
+			client.getQuestions(7);
+			fail("Should fail fast.");
+		} catch (CircuitOpenException e) {
+			// expected
+		}
+		assertEquals(3, server.getRequests());
+	}
+
+	/**
+	 * Records failed calls.
+	 *
+	 * @param count the count
+	 */
+	private void fail(int count) {
+		for (int i = 0; i < count; i++) {
+			breaker.acquire(HOST);
+			breaker.onFailure(HOST);
+		}
+	}
+
+	/**
+	 * Records a successful call.
+	 */
+	private void succeed() {
+		breaker.acquire(HOST);
+		breaker.onSuccess(HOST);
+	}
+
+	/**
+	 * Asserts calls to the host are rejected.
+	 */
+	private void assertOpen() {
+		try {
+			breaker.acquire(HOST);
+			fail("Should reject the call.");
+		} catch (CircuitOpenException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Asserts an event.
+	 *
+	 * @param event the event
+	 * @param previousState the previous state
+	 * @param state the state
+	 */
+	private static void assertEvent(CircuitBreaker.Event event, State previousState, State state) {
+		assertEquals(HOST, event.getHost());
+		assertEquals(previousState, event.getPreviousState());
+		assertEquals(state, event.getState());
+	}
+}
@@ -0,0 +1,336 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipException;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+/**
+ * The Class ContentDecoderTest.
+ */
+public class ContentDecoderTest extends TestCase {
+
+	/** The content, larger than the buffer of the decoder and compressible. */
+	private static final byte[] CONTENT = createContent();
+
+	/**
+	 * Test gzip content is decoded, in one read or trickled a byte at a time.
+	 */
+	@Test
+	public void testGzip() throws Exception {
+		ContentDecoder decoder = new ContentDecoder();
+		assertDecoded(decoder, gzip(CONTENT), "gzip");
+		assertDecoded(decoder, gzip(CONTENT), "x-gzip");
+		assertTrue(Arrays.equals(CONTENT, read(decoder.decode(new TricklingInputStream(gzip(CONTENT)), "gzip"))));
+	}
+
+	/**
+	 * Test a gzip header with extra field, file name, comment and header
+	 * checksum is skipped.
+	 */
+	@Test
+	public void testGzipOptionalHeaderFields() throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		out.write(new byte[] { 0x1f, (byte) 0x8b, 8, 2 | 4 | 8 | 16, 0, 0, 0, 0, 0, (byte) 0xff });
+		out.write(new byte[] { 3, 0, 'a', 'b', 'c' });
+		out.write("name.json\0".getBytes("ISO-8859-1"));
+		out.write("a comment\0".getBytes("ISO-8859-1"));
+		out.write(new byte[] { 0, 0 });
+		out.write(deflate(CONTENT, true));
+		CRC32 crc = new CRC32();
+		crc.update(CONTENT);
+		writeInt(out, crc.getValue());
+		writeInt(out, CONTENT.length);
+		assertDecoded(new ContentDecoder(), out.toByteArray(), "gzip");
+	}
+
+	/**
+	 * Test concatenated gzip members are decoded as one body.
+	 */
+	@Test
+	public void testGzipMembers() throws Exception {
+		byte[] first = gzip(CONTENT);
+		byte[] second = gzip("tail".getBytes("UTF-8"));
+		byte[] both = new byte[first.length + second.length];
+		System.arraycopy(first, 0, both, 0, first.length);
+		System.arraycopy(second, 0, both, first.length, second.length);
+		byte[] decoded = read(new ContentDecoder().decode(new ByteArrayInputStream(both), "gzip"));
+		assertEquals(CONTENT.length + 4, decoded.length);
+		assertTrue(Arrays.equals(CONTENT, Arrays.copyOf(decoded, CONTENT.length)));
+		assertEquals("tail", new String(decoded, CONTENT.length, 4, "UTF-8"));
+	}
+
+	/**
+	 * Test zlib wrapped deflate content is decoded.
+	 */
+	@Test
+	public void testZlib() throws Exception {
+		ContentDecoder decoder = new ContentDecoder();
+		assertDecoded(decoder, deflate(CONTENT, false), "deflate");
+		assertTrue(Arrays.equals(CONTENT, read(decoder.decode(new TricklingInputStream(deflate(CONTENT, false)), "deflate"))));
+	}
+
+	/**
+	 * Test raw deflate content, sent by servers that take deflate literally,
+	 * is decoded.
+	 */
+	@Test
+	public void testRawDeflate() throws Exception {
+		ContentDecoder decoder = new ContentDecoder();
+		assertDecoded(decoder, deflate(CONTENT, true), "Deflate");
+		assertTrue(Arrays.equals(CONTENT, read(decoder.decode(new TricklingInputStream(deflate(CONTENT, true)), "deflate"))));
+	}
+
+	/**
+	 * Test pooled inflaters are reset between responses, alternating between
+	 * the encodings.
+	 */
+	@Test
+	public void testPooledInflaters() throws Exception {
+		ContentDecoder decoder = new ContentDecoder(1);
+		for (int i = 0; i < 10; i++) {
+			byte[] content = Arrays.copyOf(CONTENT, CONTENT.length - i * 100);
+			assertTrue(Arrays.equals(content, read(decoder.decode(new ByteArrayInputStream(gzip(content)), "gzip"))));
+			assertTrue(Arrays.equals(content, read(decoder.decode(new ByteArrayInputStream(deflate(content, false)), "deflate"))));
+			assertTrue(Arrays.equals(content, read(decoder.decode(new ByteArrayInputStream(deflate(content, true)), "deflate"))));
+		}
+		assertEquals(30, decoder.getDecodedResponses());
+	}
+
+	/**
+	 * Test truncated content fails with an end of file instead of returning
+	 * a partial body, for each encoding.
+	 */
+	@Test
+	public void testTruncated() throws Exception {
+		assertTruncated(gzip(CONTENT), "gzip");
+		assertTruncated(deflate(CONTENT, false), "deflate");
+		assertTruncated(deflate(CONTENT, true), "deflate");
+	}
+
+	/**
+	 * Test a gzip body whose trailer does not match the content fails.
+	 */
+	@Test
+	public void testCorruptGzipTrailer() throws Exception {
+		byte[] encoded = gzip(CONTENT);
+		encoded[encoded.length - 8] ^= 1;
+		try {
+			read(new ContentDecoder().decode(new ByteArrayInputStream(encoded), "gzip"));
+			fail("Should fail on a corrupt trailer.");
+		} catch (ZipException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Test content without an encoding is passed through and unknown
+	 * encodings are refused.
+	 */
+	@Test
+	public void testIdentity() throws Exception {
+		ContentDecoder decoder = new ContentDecoder();
+		InputStream content = new ByteArrayInputStream(CONTENT);
+		assertSame(content, decoder.decode(content, null));
+		assertSame(content, decoder.decode(content, " identity "));
+		try {
+			decoder.decode(content, "br");
+			fail("Should refuse an unknown encoding.");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Test the encoded and decoded bytes are counted once per response.
+	 */
+	@Test
+	public void testCounts() throws Exception {
+		ContentDecoder decoder = new ContentDecoder();
+		byte[] encoded = gzip(CONTENT);
+		InputStream in = decoder.decode(new ByteArrayInputStream(encoded), "gzip");
+		read(in);
+		in.close();
+		assertEquals(1, decoder.getDecodedResponses());
+		assertEquals(encoded.length, decoder.getEncodedBytes());
+		assertEquals(CONTENT.length, decoder.getDecodedBytes());
+	}
+
+	/**
+	 * Asserts the encoded content decodes to the content.
+	 *
+	 * @param decoder the decoder
+	 * @param encoded the encoded content
+	 * @param contentEncoding the content encoding
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void assertDecoded(ContentDecoder decoder, byte[] encoded, String contentEncoding)
+			throws IOException {
+		assertTrue(Arrays.equals(CONTENT, read(decoder.decode(new ByteArrayInputStream(encoded), contentEncoding))));
+	}
+
+	/**
+	 * Asserts the encoded content cut at several points fails to decode.
+	 *
+	 * @param encoded the encoded content
+	 * @param contentEncoding the content encoding
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void assertTruncated(byte[] encoded, String contentEncoding) throws IOException {
+		int[] lengths = { 0, 1, 5, encoded.length / 2, encoded.length - 1 };
+		for (int length : lengths) {
+			InputStream in = new ContentDecoder().decode(new ByteArrayInputStream(encoded, 0, length), contentEncoding);
+			try {
+				read(in);
+				fail("Should fail on " + contentEncoding + " cut at " + length + " of " + encoded.length + " bytes.");
+			} catch (EOFException e) {
+				// expected
+			}
+		}
+	}
+
+	/**
+	 * Reads a stream to its end.
+	 *
+	 * @param in the in
+	 *
+	 * @return the bytes
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static byte[] read(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1000];
+		int count;
+		while ((count = in.read(buffer)) != -1) {
+			out.write(buffer, 0, count);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Gzips the content.
+	 *
+	 * @param content the content
+	 *
+	 * @return the gzip member
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static byte[] gzip(byte[] content) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		GZIPOutputStream gzip = new GZIPOutputStream(out);
+		gzip.write(content);
+		gzip.close();
+		return out.toByteArray();
+	}
+
+	/**
+	 * Deflates the content.
+	 *
+	 * @param content the content
+	 * @param nowrap true for raw deflate, false for zlib wrapped
+	 *
+	 * @return the deflated content
+	 */
+	private static byte[] deflate(byte[] content, boolean nowrap) {
+		Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap);
+		deflater.setInput(content);
+		deflater.finish();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1000];
+		while (!deflater.finished()) {
+			out.write(buffer, 0, deflater.deflate(buffer));
+		}
+		deflater.end();
+		return out.toByteArray();
+	}
+
+	/**
+	 * Writes a little endian int.
+	 *
+	 * @param out the out
+	 * @param value the value
+	 */
+	private static void writeInt(ByteArrayOutputStream out, long value) {
+		for (int i = 0; i < 4; i++) {
+			out.write((int) (value >> (8 * i)) & 0xff);
+		}
+	}
+
+	/**
+	 * Creates the content, a json like text with some noise.
+	 *
+	 * @return the content
+	 */
+	private static byte[] createContent() {
+		StringBuilder content = new StringBuilder("{\"questions\":[");
+		Random random = new Random(42);
+		for (int i = 0; i < 2000; i++) {
+			content.append("{\"question_id\":").append(random.nextInt()).append(",\"title\":\"question ").append(i)
+					.append("\"},");
+		}
+		content.append("{}]}");
+		try {
+			return content.toString().getBytes("UTF-8");
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * The Class TricklingInputStream.
+	 *
+	 * Hands out a single byte per read, so that every header, trailer and
+	 * buffer boundary falls between reads.
+	 */
+	private static class TricklingInputStream extends FilterInputStream {
+
+		/**
+		 * Instantiates a new trickling input stream.
+		 *
+		 * @param content the content
+		 */
+		TricklingInputStream(byte[] content) {
+			super(new ByteArrayInputStream(content));
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.FilterInputStream#read(byte[], int, int)
+		 */
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException {
+			return super.read(b, off, Math.min(len, 1));
+		}
+	}
+}
@@ -0,0 +1,121 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.code.stackexchange.client.cache.EntityCache;
+import com.google.code.stackexchange.client.cache.impl.InMemoryEntityCache;
+import com.google.code.stackexchange.common.PagedArrayList;
+import com.google.code.stackexchange.common.PagedList;
+import com.google.code.stackexchange.schema.Question;
+
+/**
+ * The Class EntityRequestTest.
+ */
+public class EntityRequestTest extends TestCase {
+
+	/** The Constant VIEW. */
+	private static final String VIEW = "http://api.stackoverflow.com/1.1/questions";
+
+	/** The cache. */
+	private EntityCache cache;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Before
+	public void setUp() throws Exception {
+		cache = new InMemoryEntityCache();
+		cache.put(Question.class, VIEW, 1L, newQuestion(1L));
+		cache.put(Question.class, VIEW, 2L, newQuestion(2L));
+	}
+
+	/**
+	 * Test only the ids that are not cached are fetched, each once.
+	 */
+	@Test
+	public void testMissingIds() {
+		EntityRequest<Question> request = new EntityRequest<Question>(cache, Question.class, VIEW, new long[] {3, 1, 4, 3, 2});
+		assertTrue(Arrays.equals(new long[] {3, 4}, request.getMissingIds()));
+	}
+
+	/**
+	 * Test the merged entities follow the order of the ids, repeated ids
+	 * included.
+	 */
+	@Test
+	public void testMergeKeepsRepeatedIds() {
+		EntityRequest<Question> request = new EntityRequest<Question>(cache, Question.class, VIEW, new long[] {2, 3, 1, 2, 3, 404});
+		PagedArrayList<Question> fetched = new PagedArrayList<Question>();
+		fetched.add(newQuestion(3L));
+		fetched.setTotal(1);
+		fetched.setPage(1);
+		fetched.setPageSize(30);
+
+		PagedList<Question> merged = request.merge(fetched);
+		assertEquals(Arrays.asList(2L, 3L, 1L, 2L, 3L), getIds(merged));
+		assertSame(merged.get(1), merged.get(4));
+		assertEquals(3, merged.getTotal());
+		assertNotNull(cache.get(Question.class, VIEW, 3L));
+	}
+
+	/**
+	 * Test a call whose ids are all cached is merged without fetching.
+	 */
+	@Test
+	public void testAllCached() {
+		EntityRequest<Question> request = new EntityRequest<Question>(cache, Question.class, VIEW, new long[] {1, 1, 2});
+		assertEquals(0, request.getMissingIds().length);
+		assertEquals(Arrays.asList(1L, 1L, 2L), getIds(request.merge(new ArrayList<Question>())));
+	}
+
+	/**
+	 * New question.
+	 *
+	 * @param id the id
+	 *
+	 * @return the question
+	 */
+	private static Question newQuestion(long id) {
+		Question question = new Question();
+		question.setQuestionId(id);
+		return question;
+	}
+
+	/**
+	 * Gets the ids.
+	 *
+	 * @param questions the questions
+	 *
+	 * @return the ids
+	 */
+	private static List<Long> getIds(List<Question> questions) {
+		List<Long> ids = new ArrayList<Long>();
+		for (Question question : questions) {
+			ids.add(question.getQuestionId());
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.code.stackexchange.client.transport.HttpRequest;
+import com.google.code.stackexchange.client.transport.HttpResponse;
+import com.google.code.stackexchange.client.transport.HttpTransport;
+
+/**
+ * The Class HedgingPolicyTest.
+ */
+public class HedgingPolicyTest extends TestCase {
+
+	/** The Constant URL. */
+	private static final String URL = "http://api.stackoverflow.com/1.1/questions";
+
+	/** The Constant HEDGE_DELAY. */
+	private static final long HEDGE_DELAY = 50L;
+
+	/** The policy. */
+	private HedgingPolicy policy;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Before
+	public void setUp() throws Exception {
+		policy = new HedgingPolicy();
+		policy.setMinSamples(1);
+		policy.setMinDelay(HEDGE_DELAY);
+		// one fast call gives the policy a response time to hedge after
+		policy.execute(new HttpTransport() {
+			@Override
+			public HttpResponse execute(HttpRequest request) {
+				return new HttpResponse(200);
+			}
+
+			@Override
+			public void shutdown() {
+			}
+		}, new HttpRequest(URL));
+		assertEquals(HEDGE_DELAY, policy.getHedgeDelay());
+	}
+
+	/**
+	 * Test an unchecked failure of the request sent first closes the response
+	 * of a hedge nobody will read.
+	 */
+	@Test
+	public void testUncheckedFailureClosesHedgeResponse() throws Exception {
+		final CountDownLatch hedgeSent = new CountDownLatch(1);
+		final CountDownLatch hedgeClosed = new CountDownLatch(1);
+		HttpTransport transport = new HttpTransport() {
+			@Override
+			public HttpResponse execute(HttpRequest request) throws IOException {
+				if (Thread.currentThread().getName().startsWith("stackexchange-hedge-")) {
+					HttpResponse response = new HttpResponse(200);
+					response.setContent(new ByteArrayInputStream(new byte[0]) {
+						@Override
+						public void close() {
+							hedgeClosed.countDown();
+						}
+					});
+					hedgeSent.countDown();
+					return response;
+				}
+				await(hedgeSent);
+				throw new IllegalStateException("primary failed");
+			}
+
+			@Override
+			public void shutdown() {
+			}
+		};
+		try {
+			policy.execute(transport, new HttpRequest(URL));
+			fail("Should rethrow the failure of the primary.");
+		} catch (IllegalStateException e) {
+			assertEquals("primary failed", e.getMessage());
+		}
+		assertTrue("Hedge response should be closed.", hedgeClosed.await(5, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Test an unchecked failure of the request sent first, before the hedge
+	 * delay, cancels the hedge.
+	 */
+	@Test
+	public void testUncheckedFailureCancelsHedge() throws Exception {
+		HttpTransport transport = new HttpTransport() {
+			@Override
+			public HttpResponse execute(HttpRequest request) {
+				throw new IllegalStateException("primary failed");
+			}
+
+			@Override
+			public void shutdown() {
+			}
+		};
+		try {
+			policy.execute(transport, new HttpRequest(URL));
+			fail("Should rethrow the failure of the primary.");
+		} catch (IllegalStateException e) {
+			// expected
+		}
+		Thread.sleep(HEDGE_DELAY * 3);
+		assertEquals(0, policy.getHedgesSent());
+	}
+
+	/**
+	 * Waits for a latch.
+	 *
+	 * @param latch the latch
+	 *
+	 * @throws IOException if the wait is interrupted or times out
+	 */
+	private static void await(CountDownLatch latch) throws IOException {
+		try {
+			if (!latch.await(5, TimeUnit.SECONDS)) {
+				throw new IOException("Timed out waiting for the hedge.");
+			}
+		} catch (InterruptedException e) {
+			throw new IOException("Interrupted waiting for the hedge.");
+		}
+	}
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.google.code.stackexchange.client.impl.JsonPayloads.Payload;
+import com.google.code.stackexchange.common.PagedList;
+import com.google.code.stackexchange.schema.Question;
+import com.google.code.stackexchange.schema.Tag;
+import com.google.code.stackexchange.schema.User;
+
+/**
+ * The Class JsonCodecTest.
+ *
+ * Checks the json adapters generated for the schema against Gson decoding
+ * the tree of the same payloads.
+ */
+public class JsonCodecTest extends TestCase {
+
+	/**
+	 * Test every entity of the payloads has a generated adapter, and that a
+	 * codec built from a custom builder leaves them to Gson.
+	 */
+	@Test
+	public void testAdapters() {
+		JsonCodec codec = new JsonCodec();
+		for (Payload payload : JsonPayloads.PAYLOADS) {
+			assertNotNull(payload.toString(), codec.getAdapter(payload.clazz));
+			assertNull(payload.toString(), JsonPayloads.GSON_CODEC.getAdapter(payload.clazz));
+		}
+	}
+
+	/**
+	 * Test every payload decodes the same with the generated adapters as with
+	 * Gson.
+	 */
+	@Test
+	public void testMatchesGson() throws Exception {
+		for (Payload payload : JsonPayloads.PAYLOADS) {
+			String content = JsonPayloads.read(payload);
+			JsonPayloads.assertSameList(payload.toString(), JsonPayloads.readWithGson(content, payload),
+					readList(content, payload, new JsonCodec()));
+		}
+	}
+
+	/**
+	 * Test every payload decodes the same with the generated adapters when
+	 * read lazily.
+	 */
+	@Test
+	public void testLazyMatchesGson() throws Exception {
+		for (Payload payload : JsonPayloads.PAYLOADS) {
+			String content = JsonPayloads.read(payload);
+			JsonListReader reader = JsonListReader.readContent(new StringReader(content));
+			JsonPayloads.assertSameList(payload.toString(), JsonPayloads.readWithGson(content, payload),
+					reader.readLazyList(payload.clazz, payload.placeHolder, new JsonCodec()));
+		}
+	}
+
+	/**
+	 * Test values of another json type than their field are converted the way
+	 * Gson converts them.
+	 */
+	@Test
+	public void testConvertedValues() throws Exception {
+		assertMatchesGson(Tag.class, "tags", "{\"tags\":[{\"name\":12,\"count\":\"340000\",\"user_id\":1.0,"
+				+ "\"fulfills_required\":\"true\"},{\"name\":true,\"count\":2.5e3,\"fulfills_required\":\"no\"}]}");
+		assertMatchesGson(Question.class, "questions", "{\"questions\":[{\"question_id\":\"7\","
+				+ "\"creation_date\":\"1280000000\",\"score\":-0,\"owner\":null,\"tags\":null,\"title\":null},"
+				+ "{\"question_id\":1e2,\"tags\":[\"a\",3,false]}]}");
+		assertMatchesGson(User.class, "users", "{\"users\":[{\"user_id\":\"22656\",\"accept_rate\":\"87.5\","
+				+ "\"age\":\"40\",\"badge_counts\":{\"gold\":\"1\"}}]}");
+	}
+
+	/**
+	 * Test the decoded strings that repeat across entities are shared, and that
+	 * they are equal to those Gson decodes.
+	 */
+	@Test
+	public void testPooledStrings() throws Exception {
+		Payload payload = JsonPayloads.PAYLOADS[0];
+		PagedList<?> questions = readList(JsonPayloads.read(payload), payload, new JsonCodec());
+		Question first = (Question) questions.get(0);
+		Question second = (Question) questions.get(1);
+		assertEquals("C\u00e9sar \"Quoted\" O\u2019Brien", first.getOwner().getDisplayName());
+		assertSame(first.getOwner().getDisplayName(), second.getOwner().getDisplayName());
+		assertSame(first.getOwner().getDisplayName(), first.getAnswers().get(1).getOwner().getDisplayName());
+	}
+
+	/**
+	 * Asserts content decodes the same with the generated adapters as with
+	 * Gson.
+	 *
+	 * @param clazz the class of the elements
+	 * @param placeHolder the name of the field holding the elements
+	 * @param content the content
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void assertMatchesGson(Class<?> clazz, String placeHolder, String content) throws IOException {
+		Payload payload = new Payload(clazz, placeHolder);
+		JsonPayloads.assertSameList(content, JsonPayloads.readWithGson(content, payload),
+				readList(content, payload, new JsonCodec()));
+	}
+
+	/**
+	 * Reads the list of a payload.
+	 *
+	 * @param content the content
+	 * @param payload the payload
+	 * @param codec the codec
+	 *
+	 * @return the paged list
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static PagedList<?> readList(String content, Payload payload, JsonCodec codec) throws IOException {
+		return new JsonListReader(new StringReader(content)).readList(payload.clazz, payload.placeHolder, codec);
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import org.junit.Test;
+
+import com.google.code.stackexchange.client.impl.JsonPayloads.Payload;
+import com.google.code.stackexchange.common.PagedList;
+import com.google.code.stackexchange.schema.Question;
+import com.google.gson.JsonParseException;
+
+/**
+ * The Class JsonListReaderTest.
+ *
+ * Checks the reader against Gson decoding the tree of the same payloads,
+ * with the elements themselves left to Gson.
+ */
+public class JsonListReaderTest extends TestCase {
+
+	/**
+	 * Test every payload reads the same as with Gson.
+	 */
+	@Test
+	public void testMatchesGson() throws Exception {
+		for (Payload payload : JsonPayloads.PAYLOADS) {
+			String content = JsonPayloads.read(payload);
+			JsonPayloads.assertSameList(payload.toString(), JsonPayloads.readWithGson(content, payload),
+					readList(new JsonListReader(new StringReader(content)), payload));
+		}
+	}
+
+	/**
+	 * Test every payload reads the same when the reader hands out a single
+	 * character at a time, so that every token spans a refill of the buffer.
+	 */
+	@Test
+	public void testSmallReads() throws Exception {
+		for (Payload payload : JsonPayloads.PAYLOADS) {
+			String content = JsonPayloads.read(payload);
+			JsonPayloads.assertSameList(payload.toString(), JsonPayloads.readWithGson(content, payload),
+					readList(new JsonListReader(new TricklingReader(content)), payload));
+		}
+	}
+
+	/**
+	 * Test every payload reads the same when read lazily.
+	 */
+	@Test
+	public void testLazyList() throws Exception {
+		for (Payload payload : JsonPayloads.PAYLOADS) {
+			String content = JsonPayloads.read(payload);
+			JsonListReader reader = JsonListReader.readContent(new StringReader(content));
+			PagedList<?> list = reader.readLazyList(payload.clazz, payload.placeHolder, JsonPayloads.GSON_CODEC);
+			JsonPayloads.assertSameList(payload.toString(), JsonPayloads.readWithGson(content, payload), list);
+		}
+	}
+
+	/**
+	 * Test only the selected fields of the elements are read.
+	 */
+	@Test
+	public void testFields() throws Exception {
+		Payload payload = JsonPayloads.PAYLOADS[0];
+		JsonListReader reader = new JsonListReader(new StringReader(JsonPayloads.read(payload)));
+		reader.setFields(Arrays.asList("question_id", "title"));
+		PagedList<Question> questions = reader.readList(Question.class, payload.placeHolder, JsonPayloads.GSON_CODEC);
+		assertEquals(3, questions.size());
+		assertEquals(12345, questions.getTotal());
+		Question question = questions.get(0);
+		assertEquals(100, question.getQuestionId());
+		assertEquals("How do I parse \\ and / in \"json\"?\tTabbed", question.getTitle());
+		assertEquals(0, question.getScore());
+		assertNull(question.getOwner());
+		assertNull(question.getCreationDate());
+	}
+
+	/**
+	 * Test empty and missing lists read as empty lists with their paging.
+	 */
+	@Test
+	public void testEmptyList() throws Exception {
+		assertEmpty("{}", 0);
+		assertEmpty("{\"total\":0,\"page\":1,\"pagesize\":30,\"questions\":[]}", 0);
+		assertEmpty(" { \"total\" : 5 , \"other\" : [ { } ] } ", 5);
+		assertEmpty("{\"questions\":null,\"total\":7}", 7);
+	}
+
+	/**
+	 * Test malformed content is refused, as it is by Gson.
+	 */
+	@Test
+	public void testMalformed() throws Exception {
+		String[] contents = {
+			"",
+			"[]",
+			"{\"questions\":[{\"question_id\":1}",
+			"{\"questions\":[{\"question_id\":1},]}",
+			"{\"questions\":[{\"question_id\" 1}]}",
+			"{\"questions\":[{\"title\":\"unterminated}]}",
+			"{\"questions\":[{\"title\":\"\\x\"}]}",
+			"{\"total\":12,}"
+		};
+		for (String content : contents) {
+			try {
+				new JsonListReader(new StringReader(content)).readList(Question.class, "questions",
+						JsonPayloads.GSON_CODEC);
+				fail("Should refuse " + content);
+			} catch (JsonParseException e) {
+				// expected
+			}
+		}
+	}
+
+	/**
+	 * Asserts the content reads as an empty list.
+	 *
+	 * @param content the content
+	 * @param total the total
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static void assertEmpty(String content, long total) throws IOException {
+		PagedList<Question> questions = new JsonListReader(new StringReader(content)).readList(Question.class,
+				"questions", JsonPayloads.GSON_CODEC);
+		assertEquals(0, questions.size());
+		assertEquals(total, questions.getTotal());
+	}
+
+	/**
+	 * Reads the list of a payload.
+	 *
+	 * @param reader the reader
+	 * @param payload the payload
+	 *
+	 * @return the paged list
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static PagedList<?> readList(JsonListReader reader, Payload payload) throws IOException {
+		return reader.readList(payload.clazz, payload.placeHolder, JsonPayloads.GSON_CODEC);
+	}
+
+	/**
+	 * The Class TricklingReader.
+	 *
+	 * Hands out a single character per read.
+	 */
+	private static class TricklingReader extends StringReader {
+
+		/**
+		 * Instantiates a new trickling reader.
+		 *
+		 * @param content the content
+		 */
+		TricklingReader(String content) {
+			super(content);
+		}
+
+		/* (non-Javadoc)
+		 * @see java.io.StringReader#read(char[], int, int)
+		 */
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException {
+			return super.read(cbuf, off, Math.min(len, 1));
+		}
+	}
+}
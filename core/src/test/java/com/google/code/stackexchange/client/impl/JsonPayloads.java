@@ -0,0 +1,210 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+
+import junit.framework.Assert;
+
+import com.google.code.stackexchange.common.PagedArrayList;
+import com.google.code.stackexchange.common.PagedList;
+import com.google.code.stackexchange.schema.Answer;
+import com.google.code.stackexchange.schema.Badge;
+import com.google.code.stackexchange.schema.Comment;
+import com.google.code.stackexchange.schema.PostTimeline;
+import com.google.code.stackexchange.schema.Question;
+import com.google.code.stackexchange.schema.Reputation;
+import com.google.code.stackexchange.schema.Revision;
+import com.google.code.stackexchange.schema.Site;
+import com.google.code.stackexchange.schema.Statistics;
+import com.google.code.stackexchange.schema.Tag;
+import com.google.code.stackexchange.schema.User;
+import com.google.gson.Gson;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+
+/**
+ * The Class JsonPayloads.
+ *
+ * List responses of every schema entity, read from the json files next to
+ * this class, and the reference decoding they are checked against: the
+ * whole response parsed into a tree and each element decoded by Gson, the
+ * way list responses were decoded before {@link JsonListReader}.
+ */
+final class JsonPayloads {
+
+	/** The payloads. */
+	static final Payload[] PAYLOADS = {
+		new Payload(Question.class, "questions"),
+		new Payload(Answer.class, "answers"),
+		new Payload(User.class, "users"),
+		new Payload(Badge.class, "badges"),
+		new Payload(Comment.class, "comments"),
+		new Payload(Tag.class, "tags"),
+		new Payload(Reputation.class, "rep_changes"),
+		new Payload(PostTimeline.class, "post_timelines"),
+		new Payload(Revision.class, "revisions"),
+		new Payload(Statistics.class, "statistics"),
+		new Payload(Site.class, "api_sites")
+	};
+
+	/** The codec decoding every entity with Gson. */
+	static final JsonCodec GSON_CODEC = new JsonCodec(JsonCodec.createGsonBuilder());
+
+	/** The gson writing entities out for comparison. */
+	private static final Gson WRITER = new Gson();
+
+	/**
+	 * Instantiates a new json payloads.
+	 */
+	private JsonPayloads() {}
+
+	/**
+	 * Reads a payload.
+	 *
+	 * @param payload the payload
+	 *
+	 * @return the content
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	static String read(Payload payload) throws IOException {
+		InputStream in = JsonPayloads.class.getResourceAsStream(payload.placeHolder + ".json");
+		Assert.assertNotNull("Missing payload " + payload.placeHolder, in);
+		try {
+			Reader reader = new InputStreamReader(in, "UTF-8");
+			StringBuilder content = new StringBuilder();
+			char[] buffer = new char[4096];
+			int count;
+			while ((count = reader.read(buffer)) != -1) {
+				content.append(buffer, 0, count);
+			}
+			return content.toString();
+		} finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Decodes a list response the reference way, as a tree decoded by Gson.
+	 *
+	 * @param content the content
+	 * @param payload the payload
+	 *
+	 * @return the paged list
+	 */
+	static PagedList<?> readWithGson(String content, Payload payload) {
+		JsonObject response = new JsonParser().parse(new StringReader(content)).getAsJsonObject();
+		PagedList<Object> list = new PagedArrayList<Object>();
+		if (response.has("total")) {
+			list.setTotal(response.get("total").getAsLong());
+		}
+		if (response.has("page")) {
+			list.setPage(response.get("page").getAsInt());
+		}
+		if (response.has("pagesize")) {
+			list.setPageSize(response.get("pagesize").getAsInt());
+		}
+		if (response.has(payload.placeHolder)) {
+			for (JsonElement element : response.get(payload.placeHolder).getAsJsonArray()) {
+				list.add(GSON_CODEC.fromJson(element, payload.clazz));
+			}
+		}
+		return list;
+	}
+
+	/**
+	 * Asserts two lists hold the same paging and entities, compared field by
+	 * field through their json form.
+	 *
+	 * @param message the message
+	 * @param expected the expected list
+	 * @param actual the actual list
+	 */
+	static void assertSameList(String message, PagedList<?> expected, PagedList<?> actual) {
+		Assert.assertEquals(message + " total", expected.getTotal(), actual.getTotal());
+		Assert.assertEquals(message + " page", expected.getPage(), actual.getPage());
+		Assert.assertEquals(message + " pagesize", expected.getPageSize(), actual.getPageSize());
+		Assert.assertEquals(message + " size", expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			Assert.assertEquals(message + " element " + i, toJson(expected.get(i)), toJson(actual.get(i)));
+		}
+	}
+
+	/**
+	 * Writes the fields of a list out for comparison.
+	 *
+	 * @param list the list
+	 *
+	 * @return the json
+	 */
+	static String toJson(List<?> list) {
+		StringBuilder json = new StringBuilder();
+		for (Object element : list) {
+			json.append(toJson(element)).append('\n');
+		}
+		return json.toString();
+	}
+
+	/**
+	 * Writes the fields of an entity out for comparison.
+	 *
+	 * @param entity the entity
+	 *
+	 * @return the json
+	 */
+	static String toJson(Object entity) {
+		return WRITER.toJson(entity);
+	}
+
+	/**
+	 * The Class Payload.
+	 */
+	static final class Payload {
+
+		/** The class of the elements. */
+		final Class<?> clazz;
+
+		/** The name of the field holding the elements, also the name of the file. */
+		final String placeHolder;
+
+		/**
+		 * Instantiates a new payload.
+		 *
+		 * @param clazz the clazz
+		 * @param placeHolder the place holder
+		 */
+		Payload(Class<?> clazz, String placeHolder) {
+			this.clazz = clazz;
+			this.placeHolder = placeHolder;
+		}
+
+		/* (non-Javadoc)
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return placeHolder;
+		}
+	}
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.net.SocketTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.code.stackexchange.client.ClientConfiguration;
+import com.google.code.stackexchange.client.exception.InternalServerException;
+import com.google.code.stackexchange.client.exception.StackExchangeApiException;
+import com.google.code.stackexchange.client.provider.CustomApiProvider;
+import com.google.code.stackexchange.client.transport.impl.StubHttpServer;
+import com.google.code.stackexchange.common.PagedArrayList;
+import com.google.code.stackexchange.common.PagedList;
+import com.google.code.stackexchange.schema.Question;
+
+/**
+ * The Class RequestCoalescerTest.
+ */
+public class RequestCoalescerTest extends TestCase {
+
+	/** The Constant URL. */
+	private static final String URL = "http://api.stackoverflow.com/1.1/questions?pagesize=10&page=2";
+
+	/** The Constant QUESTIONS. */
+	private static final String QUESTIONS = "{\"total\":1,\"page\":1,\"pagesize\":30,\"questions\":[{\"question_id\":7}]}";
+
+	/** The Constant CALLERS. */
+	private static final int CALLERS = 8;
+
+	/** The Constant RESPONSE_DELAY, long enough for every caller to join the call. */
+	private static final long RESPONSE_DELAY = 500L;
+
+	/** The coalescer. */
+	private RequestCoalescer coalescer;
+
+	/** The server. */
+	private StubHttpServer server;
+
+	/** The executor. */
+	private ExecutorService executor;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Before
+	public void setUp() throws Exception {
+		coalescer = new RequestCoalescer();
+		executor = Executors.newFixedThreadPool(CALLERS);
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Test urls differing only in the order of their query parameters share
+	 * a call.
+	 */
+	@Test
+	public void testCanonicalUrl() {
+		RequestCoalescer.Flight flight = coalescer.join(URL);
+		assertSame(flight, coalescer.join("http://api.stackoverflow.com/1.1/questions?page=2&pagesize=10"));
+		assertNotSame(flight, coalescer.join("http://api.stackoverflow.com/1.1/questions?page=3&pagesize=10"));
+	}
+
+	/**
+	 * Test concurrent calls of the same url make one request, and that the
+	 * callers get their own lists of the same elements.
+	 */
+	@Test
+	public void testConcurrentCallsShareOneRequest() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				sleep(RESPONSE_DELAY);
+				return StubHttpServer.response(QUESTIONS, "");
+			}
+		});
+		List<Future<PagedList<Question>>> results = callConcurrently();
+		PagedList<Question> first = results.get(0).get(10, TimeUnit.SECONDS);
+		for (Future<PagedList<Question>> result : results) {
+			PagedList<Question> questions = result.get(10, TimeUnit.SECONDS);
+			assertEquals(7, questions.get(0).getQuestionId());
+			assertSame(first.get(0), questions.get(0));
+		}
+		assertEquals(1, server.getRequests());
+		assertEquals(0, coalescer.getFlightCount());
+	}
+
+	/**
+	 * Test the failure of a coalesced call is thrown to every caller.
+	 */
+	@Test
+	public void testFailureFansOut() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				sleep(RESPONSE_DELAY);
+				return StubHttpServer.response("503 Service Unavailable",
+						"{\"error\":{\"code\":500,\"message\":\"unavailable\"}}", "");
+			}
+		});
+		for (Future<PagedList<Question>> result : callConcurrently()) {
+			try {
+				result.get(10, TimeUnit.SECONDS);
+				fail("Should fail.");
+			} catch (ExecutionException e) {
+				assertTrue("Unexpected failure: " + e.getCause(), e.getCause() instanceof InternalServerException);
+			}
+		}
+		assertEquals(1, server.getRequests());
+		assertEquals(0, coalescer.getFlightCount());
+	}
+
+	/**
+	 * Test the waiters of a failed flight get the failure of the caller
+	 * making the call.
+	 */
+	@Test
+	public void testFailureSharedByWaiters() throws Exception {
+		final RequestCoalescer.Flight flight = coalescer.join(URL);
+		assertTrue(flight.start());
+		List<Future<Object>> waiters = new ArrayList<Future<Object>>();
+		for (int i = 0; i < CALLERS; i++) {
+			assertFalse(coalescer.join(URL).start());
+			waiters.add(executor.submit(new Callable<Object>() {
+				@Override
+				public Object call() {
+					return flight.getContent(-1);
+				}
+			}));
+		}
+		StackExchangeApiException failure = new StackExchangeApiException("failed");
+		flight.fail(failure);
+		for (Future<Object> waiter : waiters) {
+			try {
+				waiter.get(10, TimeUnit.SECONDS);
+				fail("Should fail.");
+			} catch (ExecutionException e) {
+				assertSame(failure, e.getCause());
+			}
+		}
+	}
+
+	/**
+	 * Test a caller waiting on a call stops at its own deadline, while the
+	 * call goes on for the others.
+	 */
+	@Test
+	public void testFollowerDeadline() throws Exception {
+		RequestCoalescer.Flight flight = coalescer.join(URL);
+		assertTrue(flight.start());
+		long start = System.currentTimeMillis();
+		try {
+			coalescer.join(URL).getContent(start + 100);
+			fail("Should time out.");
+		} catch (StackExchangeApiException e) {
+			assertTrue(e.getCause() instanceof SocketTimeoutException);
+		}
+		long waited = System.currentTimeMillis() - start;
+		assertTrue("Waited " + waited + "ms.", waited >= 100 && waited < 5000);
+		assertFalse(flight.isDone());
+		flight.complete(QUESTIONS.getBytes());
+		assertEquals(QUESTIONS.length(), flight.getContent(-1).available());
+	}
+
+	/**
+	 * Test the content is decoded once per decoder key, and that each caller
+	 * gets a list of its own.
+	 */
+	@Test
+	public void testDecodeCopiesIsolated() throws Exception {
+		RequestCoalescer.Flight flight = coalescer.join(URL);
+		flight.start();
+		flight.complete(QUESTIONS.getBytes());
+		final AtomicInteger decodes = new AtomicInteger();
+		Callable<PagedList<Question>> decoder = new Callable<PagedList<Question>>() {
+			@Override
+			public PagedList<Question> call() {
+				decodes.incrementAndGet();
+				PagedArrayList<Question> list = new PagedArrayList<Question>();
+				Question question = new Question();
+				question.setQuestionId(7);
+				list.add(question);
+				list.setTotal(1);
+				return list;
+			}
+		};
+		PagedList<Question> first = flight.decode(Question.class, decoder);
+		PagedList<Question> second = flight.decode(Question.class, decoder);
+		assertEquals(1, decodes.get());
+		assertNotSame(first, second);
+		assertSame(first.get(0), second.get(0));
+		assertEquals(1, second.getTotal());
+		first.clear();
+		assertEquals(1, second.size());
+		assertEquals(1, flight.decode(Question.class, decoder).size());
+		flight.decode("another decoder", decoder);
+		assertEquals(2, decodes.get());
+	}
+
+	/**
+	 * Calls the same url from concurrent clients sharing the coalescer.
+	 *
+	 * @return the results
+	 */
+	private List<Future<PagedList<Question>>> callConcurrently() {
+		final ClientConfiguration configuration = new ClientConfiguration();
+		configuration.setRequestCoalescer(coalescer);
+		final CyclicBarrier barrier = new CyclicBarrier(CALLERS);
+		List<Future<PagedList<Question>>> results = new ArrayList<Future<PagedList<Question>>>();
+		for (int i = 0; i < CALLERS; i++) {
+			results.add(executor.submit(new Callable<PagedList<Question>>() {
+				@Override
+				public PagedList<Question> call() throws Exception {
+					StackExchangeApiJsonClient client = new StackExchangeApiJsonClient("key");
+					client.setApiProvider(new CustomApiProvider(server.getUrl("")));
+					client.setConfiguration(configuration);
+					barrier.await();
+					return client.getQuestions(7);
+				}
+			}));
+		}
+		return results;
+	}
+
+	/**
+	 * Sleep.
+	 *
+	 * @param millis the millis
+	 */
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
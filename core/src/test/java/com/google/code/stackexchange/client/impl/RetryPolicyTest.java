@@ -0,0 +1,301 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Set;
+import java.util.TimeZone;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.code.stackexchange.client.ClientConfiguration;
+import com.google.code.stackexchange.client.exception.InternalServerException;
+import com.google.code.stackexchange.client.exception.RequestLimitExceededException;
+import com.google.code.stackexchange.client.exception.StackExchangeApiException;
+import com.google.code.stackexchange.client.provider.CustomApiProvider;
+import com.google.code.stackexchange.client.transport.HttpRequest;
+import com.google.code.stackexchange.client.transport.HttpResponse;
+import com.google.code.stackexchange.client.transport.impl.StubHttpServer;
+import com.google.code.stackexchange.common.PagedList;
+import com.google.code.stackexchange.schema.Question;
+
+/**
+ * The Class RetryPolicyTest.
+ */
+public class RetryPolicyTest extends TestCase {
+
+	/** The Constant URL. */
+	private static final String URL = "http://api.stackoverflow.com/1.1/questions";
+
+	/** The Constant QUESTIONS. */
+	private static final String QUESTIONS = "{\"total\":1,\"page\":1,\"pagesize\":30,\"questions\":[{\"question_id\":7}]}";
+
+	/** The Constant UNAVAILABLE. */
+	private static final String UNAVAILABLE = "503 Service Unavailable";
+
+	/** The Constant TOO_MANY_REQUESTS. */
+	private static final String TOO_MANY_REQUESTS = "429 Too Many Requests";
+
+	/** The Constant SERVER_ERROR. */
+	private static final String SERVER_ERROR = "{\"error\":{\"code\":500,\"message\":\"unavailable\"}}";
+
+	/** The Constant LIMIT_EXCEEDED. */
+	private static final String LIMIT_EXCEEDED = "{\"error\":{\"code\":4004,\"message\":\"throttled\"}}";
+
+	/** The policy. */
+	private RetryPolicy policy;
+
+	/** The server. */
+	private StubHttpServer server;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Before
+	public void setUp() throws Exception {
+		policy = new RetryPolicy();
+		policy.setInitialBackoff(10);
+		policy.setMaxBackoff(100);
+		policy.setJitter(0);
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@After
+	public void tearDown() throws Exception {
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Test the backoff doubles with each attempt until it reaches the max
+	 * backoff, and that calls are not retried past the max retries.
+	 */
+	@Test
+	public void testBackoffGrowthAndCap() {
+		policy.setMaxRetries(6);
+		long[] expected = {10, 20, 40, 80, 100, 100, -1};
+		for (int attempt = 1; attempt <= expected.length; attempt++) {
+			assertEquals("Attempt " + attempt, expected[attempt - 1],
+					policy.getRetryDelay(new HttpRequest(URL), null, serverError(), attempt));
+		}
+	}
+
+	/**
+	 * Test the jitter takes at most its fraction off the backoff.
+	 */
+	@Test
+	public void testJitterBounds() {
+		policy.setInitialBackoff(1000);
+		policy.setMaxBackoff(1000);
+		policy.setJitter(0.25);
+		Set<Long> delays = new HashSet<Long>();
+		for (int i = 0; i < 200; i++) {
+			long delay = policy.getRetryDelay(new HttpRequest(URL), null, serverError(), 1);
+			assertTrue("Delay out of bounds: " + delay, delay >= 750 && delay <= 1000);
+			delays.add(delay);
+		}
+		assertTrue("Delays should be spread out.", delays.size() > 1);
+	}
+
+	/**
+	 * Test a Retry-After header in seconds overrides a shorter backoff.
+	 */
+	@Test
+	public void testRetryAfterSeconds() {
+		HttpResponse response = new HttpResponse(503);
+		response.addHeader("Retry-After", "3");
+		assertEquals(3000, policy.getRetryDelay(new HttpRequest(URL), response, serverError(), 1));
+	}
+
+	/**
+	 * Test a Retry-After header given as an http date.
+	 */
+	@Test
+	public void testRetryAfterDate() {
+		SimpleDateFormat format = new SimpleDateFormat("EEE, dd MMM yyyy HH:mm:ss zzz", Locale.US);
+		format.setTimeZone(TimeZone.getTimeZone("GMT"));
+		HttpResponse response = new HttpResponse(503);
+		response.addHeader("Retry-After", format.format(new Date(System.currentTimeMillis() + 10000)));
+		long delay = policy.getRetryDelay(new HttpRequest(URL), response, serverError(), 1);
+		assertTrue("Delay should follow the date: " + delay, delay > 8000 && delay <= 10000);
+	}
+
+	/**
+	 * Test a Retry-After longer than the max retry after stops the retries.
+	 */
+	@Test
+	public void testMaxRetryAfterClamp() {
+		policy.setMaxRetryAfter(5000);
+		HttpResponse response = new HttpResponse(429);
+		response.addHeader("Retry-After", "6");
+		assertEquals(-1, policy.getRetryDelay(new HttpRequest(URL), response, limitExceeded(), 1));
+		response = new HttpResponse(429);
+		response.addHeader("Retry-After", "5");
+		assertEquals(5000, policy.getRetryDelay(new HttpRequest(URL), response, limitExceeded(), 1));
+	}
+
+	/**
+	 * Test requests that are not idempotent are not retried.
+	 */
+	@Test
+	public void testNonIdempotentRequest() {
+		assertEquals(-1, policy.getRetryDelay(new HttpRequest(URL, HttpRequest.POST), null, serverError(), 1));
+	}
+
+	/**
+	 * Test a client retries a call answered with 503 until it succeeds.
+	 */
+	@Test
+	public void testRetryUnavailable() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				if (server.getRequests() <= 2) {
+					return StubHttpServer.response(UNAVAILABLE, SERVER_ERROR, "");
+				}
+				return StubHttpServer.response(QUESTIONS, "");
+			}
+		});
+		PagedList<Question> questions = createClient().getQuestions(7);
+		assertEquals(7, questions.get(0).getQuestionId());
+		assertEquals(3, server.getRequests());
+	}
+
+	/**
+	 * Test a client waits as long as a 429 asks for before retrying.
+	 */
+	@Test
+	public void testRetryTooManyRequests() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				if (server.getRequests() == 1) {
+					return StubHttpServer.response(TOO_MANY_REQUESTS, LIMIT_EXCEEDED, "Retry-After: 1\r\n");
+				}
+				return StubHttpServer.response(QUESTIONS, "");
+			}
+		});
+		long start = System.currentTimeMillis();
+		createClient().getQuestions(7);
+		assertTrue("Should wait for the Retry-After.", System.currentTimeMillis() - start >= 1000);
+		assertEquals(2, server.getRequests());
+	}
+
+	/**
+	 * Test a client gives up at once when a 429 asks for a longer wait than
+	 * the max retry after.
+	 */
+	@Test
+	public void testRetryAfterTooLong() throws Exception {
+		policy.setMaxRetryAfter(5000);
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return StubHttpServer.response(TOO_MANY_REQUESTS, LIMIT_EXCEEDED, "Retry-After: 3600\r\n");
+			}
+		});
+		try {
+			createClient().getQuestions(7);
+			fail("Should not retry.");
+		} catch (RequestLimitExceededException e) {
+			// expected
+		}
+		assertEquals(1, server.getRequests());
+	}
+
+	/**
+	 * Test a client stops retrying once its retry budget is spent, and
+	 * that the budget is earned back by calls.
+	 */
+	@Test
+	public void testRetryBudgetExhausted() throws Exception {
+		policy.setBudgetReserve(2);
+		policy.setBudgetRatio(0.5);
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return StubHttpServer.response(UNAVAILABLE, SERVER_ERROR, "");
+			}
+		});
+		StackExchangeApiJsonClient client = createClient();
+		assertFailedAfter(client, 3);
+		assertFailedAfter(client, 1);
+		// with the half retry of the previous call, this call has earned one retry
+		assertFailedAfter(client, 2);
+		assertFailedAfter(client, 1);
+	}
+
+	/**
+	 * Asserts a call of the client fails with a server error after the given
+	 * number of requests.
+	 *
+	 * @param client the client
+	 * @param requests the requests
+	 */
+	private void assertFailedAfter(StackExchangeApiJsonClient client, int requests) {
+		int before = server.getRequests();
+		try {
+			client.getQuestions(7);
+			fail("Should fail.");
+		} catch (InternalServerException e) {
+			// expected
+		}
+		assertEquals(requests, server.getRequests() - before);
+	}
+
+	/**
+	 * Creates a client calling the server with the retry policy.
+	 *
+	 * @return the client
+	 */
+	private StackExchangeApiJsonClient createClient() {
+		StackExchangeApiJsonClient client = new StackExchangeApiJsonClient("key");
+		client.setApiProvider(new CustomApiProvider(server.getUrl("")));
+		ClientConfiguration configuration = new ClientConfiguration();
+		configuration.setRetryPolicy(policy);
+		client.setConfiguration(configuration);
+		return client;
+	}
+
+	/**
+	 * Creates a server error.
+	 *
+	 * @return the exception
+	 */
+	private static StackExchangeApiException serverError() {
+		return new InternalServerException("unavailable", new Date());
+	}
+
+	/**
+	 * Creates a request limit exceeded error.
+	 *
+	 * @return the exception
+	 */
+	private static StackExchangeApiException limitExceeded() {
+		return new RequestLimitExceededException("throttled", new Date());
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.code.stackexchange.client.ClientConfiguration;
+import com.google.code.stackexchange.client.cache.impl.InMemoryResponseCache;
+import com.google.code.stackexchange.client.constant.StackExchangeApiMethods;
+import com.google.code.stackexchange.client.provider.CustomApiProvider;
+import com.google.code.stackexchange.client.transport.impl.StubHttpServer;
+
+/**
+ * The Class StackExchangeApiGatewayTest.
+ *
+ * Tests the refresh of stale cached responses by the gateway.
+ */
+public class StackExchangeApiGatewayTest extends TestCase {
+
+	/** The Constant TIME_TO_LIVE. */
+	private static final long TIME_TO_LIVE = 100L;
+
+	/** The Constant REFRESH_TIMEOUT. */
+	private static final long REFRESH_TIMEOUT = 300L;
+
+	/** The Constant READERS. */
+	private static final int READERS = 8;
+
+	/** The cache. */
+	private InMemoryResponseCache cache;
+
+	/** The client. */
+	private StackExchangeApiJsonClient client;
+
+	/** The server. */
+	private StubHttpServer server;
+
+	/** The executor. */
+	private ExecutorService executor;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#setUp()
+	 */
+	@Before
+	public void setUp() throws Exception {
+		cache = new InMemoryResponseCache();
+		cache.setTimeToLive(StackExchangeApiMethods.GET_QUESTIONS, TIME_TO_LIVE);
+		cache.setMaxStale(StackExchangeApiMethods.GET_QUESTIONS, 60000);
+		cache.setRefreshTimeout(REFRESH_TIMEOUT);
+		executor = Executors.newFixedThreadPool(READERS);
+	}
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@After
+	public void tearDown() throws Exception {
+		executor.shutdownNow();
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Test concurrent readers of an expired response get the stale content
+	 * at once while exactly one refresh runs in the background.
+	 */
+	@Test
+	public void testStaleReadersShareOneRefresh() throws Exception {
+		final CountDownLatch refreshReleased = new CountDownLatch(1);
+		startServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				if (server.getRequests() == 1) {
+					return questions(1);
+				}
+				await(refreshReleased);
+				return questions(2);
+			}
+		});
+		assertEquals(1, client.getQuestions().get(0).getQuestionId());
+		Thread.sleep(TIME_TO_LIVE + 50);
+
+		final CyclicBarrier barrier = new CyclicBarrier(READERS);
+		List<Future<Long>> readers = new ArrayList<Future<Long>>();
+		for (int i = 0; i < READERS; i++) {
+			readers.add(executor.submit(new Callable<Long>() {
+				@Override
+				public Long call() throws Exception {
+					barrier.await();
+					return client.getQuestions().get(0).getQuestionId();
+				}
+			}));
+		}
+		for (Future<Long> reader : readers) {
+			assertEquals(Long.valueOf(1), reader.get(5, TimeUnit.SECONDS));
+		}
+		awaitRequests(2);
+		assertEquals(1, client.getQuestions().get(0).getQuestionId());
+		assertEquals(2, server.getRequests());
+
+		refreshReleased.countDown();
+		awaitQuestion(2);
+		assertEquals(2, server.getRequests());
+	}
+
+	/**
+	 * Test a refresh that fails leaves the stale content, and that the entry
+	 * is handed to another reader for refresh once the refresh timeout runs
+	 * out.
+	 */
+	@Test
+	public void testRefreshTimeoutReleasesEntry() throws Exception {
+		startServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				switch (server.getRequests()) {
+				case 1:
+					return questions(1);
+				case 2:
+					return StubHttpServer.response("503 Service Unavailable",
+							"{\"error\":{\"code\":500,\"message\":\"unavailable\"}}", "");
+				default:
+					return questions(2);
+				}
+			}
+		});
+		assertEquals(1, client.getQuestions().get(0).getQuestionId());
+		Thread.sleep(TIME_TO_LIVE + 50);
+
+		long refreshStarted = System.currentTimeMillis();
+		assertEquals(1, client.getQuestions().get(0).getQuestionId());
+		awaitRequests(2);
+		Thread.sleep(50);
+		assertEquals(1, client.getQuestions().get(0).getQuestionId());
+		assertTrue("Should still be within the refresh timeout.",
+				System.currentTimeMillis() - refreshStarted < REFRESH_TIMEOUT);
+		assertEquals(2, server.getRequests());
+
+		Thread.sleep(REFRESH_TIMEOUT);
+		assertEquals(1, client.getQuestions().get(0).getQuestionId());
+		awaitQuestion(2);
+		assertEquals(3, server.getRequests());
+	}
+
+	/**
+	 * Starts the server and creates a client calling it through the cache.
+	 *
+	 * @param handler the handler
+	 */
+	private void startServer(StubHttpServer.Handler handler) throws Exception {
+		server = new StubHttpServer(handler);
+		client = new StackExchangeApiJsonClient("key");
+		client.setApiProvider(new CustomApiProvider(server.getUrl("")));
+		ClientConfiguration configuration = new ClientConfiguration();
+		configuration.setResponseCache(cache);
+		client.setConfiguration(configuration);
+	}
+
+	/**
+	 * Waits until the server has read the given number of requests.
+	 *
+	 * @param requests the requests
+	 */
+	private void awaitRequests(int requests) throws Exception {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (server.getRequests() < requests && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(requests, server.getRequests());
+	}
+
+	/**
+	 * Waits until the client is answered the refreshed question.
+	 *
+	 * @param questionId the question id
+	 */
+	private void awaitQuestion(long questionId) throws Exception {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (client.getQuestions().get(0).getQuestionId() != questionId && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		assertEquals(questionId, client.getQuestions().get(0).getQuestionId());
+	}
+
+	/**
+	 * Builds a response holding one question.
+	 *
+	 * @param questionId the question id
+	 *
+	 * @return the response
+	 */
+	private static byte[] questions(long questionId) {
+		return StubHttpServer.response("{\"total\":1,\"page\":1,\"pagesize\":30,\"questions\":[{\"question_id\":"
+				+ questionId + "}]}", "");
+	}
+
+	/**
+	 * Waits for a latch.
+	 *
+	 * @param latch the latch
+	 */
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
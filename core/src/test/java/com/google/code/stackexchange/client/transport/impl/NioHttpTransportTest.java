@@ -0,0 +1,279 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.transport.impl;
+
+import java.io.IOException;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.code.stackexchange.client.transport.HttpRequest;
+import com.google.code.stackexchange.client.transport.HttpResponse;
+import com.google.code.stackexchange.client.transport.HttpResponseCallback;
+
+/**
+ * The Class NioHttpTransportTest.
+ */
+public class NioHttpTransportTest extends TestCase {
+
+	/** The server. */
+	private StubHttpServer server;
+
+	/** The transport. */
+	private NioHttpTransport transport;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@After
+	public void tearDown() throws Exception {
+		if (transport != null) {
+			transport.shutdown();
+		}
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Test bodies framed by their content length are read exactly, leaving the
+	 * connection ready for the next response.
+	 */
+	@Test
+	public void testContentLengthFraming() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return StubHttpServer.response(path + "-" + index, "");
+			}
+		});
+		transport = new NioHttpTransport();
+		assertEquals("/a-0", execute("/a"));
+		assertEquals("/b-1", execute("/b"));
+		assertEquals(1, server.getConnections());
+	}
+
+	/**
+	 * Test chunked bodies are decoded, chunk extensions and trailers included,
+	 * leaving the connection ready for the next response.
+	 */
+	@Test
+	public void testChunkedFraming() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				if (index == 0) {
+					return StubHttpServer.chunked("5;name=value\r\nhello\r\n1\r\n \r\nb\r\nchunked/a-0\r\n0\r\nX-Trailer: t\r\n\r\n");
+				}
+				return StubHttpServer.chunked("4\r\n" + path + "\r\n0\r\n\r\n");
+			}
+		});
+		transport = new NioHttpTransport();
+		assertEquals("hello chunked/a-0", execute("/a"));
+		assertEquals("/bcd", execute("/bcd"));
+		assertEquals(1, server.getConnections());
+	}
+
+	/**
+	 * Test chunks larger than the read buffer are reassembled across reads.
+	 */
+	@Test
+	public void testLargeChunks() throws Exception {
+		final char[] chunk = new char[40000];
+		Arrays.fill(chunk, 'x');
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				String data = new String(chunk);
+				return StubHttpServer.chunked(Integer.toHexString(data.length()) + "\r\n" + data + "\r\n"
+						+ Integer.toHexString(data.length()) + "\r\n" + data + "\r\n0\r\n\r\n");
+			}
+		});
+		transport = new NioHttpTransport();
+		assertEquals(2 * chunk.length, execute("/a").length());
+		assertEquals(2 * chunk.length, execute("/b").length());
+		assertEquals(1, server.getConnections());
+	}
+
+	/**
+	 * Test an interim response is skipped and the final one returned.
+	 */
+	@Test
+	public void testInterimResponse() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				byte[] interim = "HTTP/1.1 100 Continue\r\n\r\n".getBytes();
+				byte[] response = StubHttpServer.response(path, "");
+				byte[] both = new byte[interim.length + response.length];
+				System.arraycopy(interim, 0, both, 0, interim.length);
+				System.arraycopy(response, 0, both, interim.length, response.length);
+				return both;
+			}
+		});
+		transport = new NioHttpTransport();
+		assertEquals("/a", execute("/a"));
+	}
+
+	/**
+	 * Test a body without a length is read until the server closes the
+	 * connection.
+	 */
+	@Test
+	public void testBodyUntilClose() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return ("HTTP/1.1 200 OK\r\nConnection: close\r\n\r\n" + path).getBytes();
+			}
+		});
+		transport = new NioHttpTransport();
+		assertEquals("/a", execute("/a"));
+		assertEquals("/b", execute("/b"));
+		assertEquals(2, server.getConnections());
+	}
+
+	/**
+	 * Test a chunked body cut short by the server fails the request instead
+	 * of returning a partial body.
+	 */
+	@Test
+	public void testTruncatedChunkedBody() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return ("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\nConnection: close\r\n\r\n"
+						+ "10\r\nonly part").getBytes();
+			}
+		});
+		transport = new NioHttpTransport();
+		try {
+			execute("/a");
+			fail("Should fail on a truncated body.");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Test concurrent requests are queued on the host connections, within the
+	 * host limit, and each answered with its own response.
+	 */
+	@Test
+	public void testConcurrentRequests() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return StubHttpServer.response(path, "");
+			}
+		});
+		transport = new NioHttpTransport();
+		transport.setMaxConnectionsPerHost(2);
+		int requests = 20;
+		final String[] bodies = new String[requests];
+		final AtomicInteger failures = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(requests);
+		for (int i = 0; i < requests; i++) {
+			final int index = i;
+			transport.executeAsync(new HttpRequest(server.getUrl("/" + i)), new HttpResponseCallback() {
+				@Override
+				public void completed(HttpResponse response) {
+					try {
+						bodies[index] = StubHttpServer.read(response);
+					} catch (IOException e) {
+						failures.incrementAndGet();
+					}
+					done.countDown();
+				}
+
+				@Override
+				public void failed(IOException e) {
+					failures.incrementAndGet();
+					done.countDown();
+				}
+			});
+		}
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(0, failures.get());
+		for (int i = 0; i < requests; i++) {
+			assertEquals("/" + i, bodies[i]);
+		}
+		assertTrue("Should stay within the host limit: " + server.getConnections(), server.getConnections() <= 2);
+	}
+
+	/**
+	 * Test a host that cannot be resolved fails the request, which is resolved
+	 * away from the I/O thread.
+	 */
+	@Test
+	public void testUnknownHost() throws Exception {
+		transport = new NioHttpTransport();
+		HttpRequest request = new HttpRequest("http://unknown-host.invalid/a");
+		request.setReadTimeout(5000);
+		try {
+			transport.execute(request);
+			fail("Should not resolve an invalid host.");
+		} catch (UnknownHostException e) {
+			assertEquals("unknown-host.invalid", e.getMessage());
+		}
+	}
+
+	/**
+	 * Test shutting down the transport leaves a fallback transport it was
+	 * given running, the caller owns it.
+	 */
+	@Test
+	public void testShutdownLeavesGivenFallback() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return StubHttpServer.response(path, "");
+			}
+		});
+		PooledHttpTransport fallback = new PooledHttpTransport();
+		try {
+			new NioHttpTransport(fallback).shutdown();
+			HttpRequest request = new HttpRequest(server.getUrl("/a"));
+			request.setReadTimeout(5000);
+			assertEquals("/a", StubHttpServer.read(fallback.execute(request)));
+		} finally {
+			fallback.shutdown();
+		}
+	}
+
+	/**
+	 * Executes a request and reads its body.
+	 *
+	 * @param path the path
+	 *
+	 * @return the body
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private String execute(String path) throws IOException {
+		HttpRequest request = new HttpRequest(server.getUrl(path));
+		request.setReadTimeout(5000);
+		return StubHttpServer.read(transport.execute(request));
+	}
+}
@@ -0,0 +1,190 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.transport.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.code.stackexchange.client.transport.HttpRequest;
+
+/**
+ * The Class PipelinedHttpTransportTest.
+ */
+public class PipelinedHttpTransportTest extends TestCase {
+
+	/** The number of concurrent requests. */
+	private static final int REQUESTS = 8;
+
+	/** The server. */
+	private StubHttpServer server;
+
+	/** The transport. */
+	private PipelinedHttpTransport transport;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@After
+	public void tearDown() throws Exception {
+		if (transport != null) {
+			transport.shutdown();
+		}
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Test pipelined responses are matched to their requests.
+	 */
+	@Test
+	public void testPipelinedResponses() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return StubHttpServer.response(path, "");
+			}
+		});
+		transport = new PipelinedHttpTransport();
+		transport.setMaxConnectionsPerHost(1);
+		assertResponses(executeConcurrently());
+		assertTrue("Should keep pipelining.", transport.isPipelining(getRoute()));
+		assertEquals("Should share one connection.", 1, server.getConnections());
+	}
+
+	/**
+	 * Test requests queued behind a response that closes the connection are
+	 * sent again through the fallback transport, and that the host is no
+	 * longer pipelined.
+	 */
+	@Test
+	public void testFallbackWhenClosedEarly() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				if (index == 0) {
+					// hold the first response so that the others queue behind it
+					sleep(200);
+					return StubHttpServer.response(path, "Connection: close\r\n");
+				}
+				return StubHttpServer.response(path, "");
+			}
+		});
+		transport = new PipelinedHttpTransport();
+		transport.setMaxConnectionsPerHost(1);
+		assertResponses(executeConcurrently());
+		assertFalse("Should stop pipelining.", transport.isPipelining(getRoute()));
+
+		int requests = server.getRequests();
+		assertEquals("/after", StubHttpServer.read(transport.execute(new HttpRequest(server.getUrl("/after")))));
+		assertEquals("Should send one request.", requests + 1, server.getRequests());
+	}
+
+	/**
+	 * Test shutting down the transport leaves a fallback transport it was
+	 * given running, the caller owns it.
+	 */
+	@Test
+	public void testShutdownLeavesGivenFallback() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return StubHttpServer.response(path, "");
+			}
+		});
+		PooledHttpTransport fallback = new PooledHttpTransport();
+		try {
+			new PipelinedHttpTransport(fallback).shutdown();
+			HttpRequest request = new HttpRequest(server.getUrl("/a"));
+			request.setReadTimeout(5000);
+			assertEquals("/a", StubHttpServer.read(fallback.execute(request)));
+		} finally {
+			fallback.shutdown();
+		}
+	}
+
+	/**
+	 * Executes requests concurrently.
+	 *
+	 * @return the responses
+	 */
+	private List<Future<String>> executeConcurrently() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(REQUESTS);
+		try {
+			List<Future<String>> responses = new ArrayList<Future<String>>();
+			for (int i = 0; i < REQUESTS; i++) {
+				final String url = server.getUrl("/" + i);
+				responses.add(executor.submit(new Callable<String>() {
+					@Override
+					public String call() throws Exception {
+						HttpRequest request = new HttpRequest(url);
+						request.setReadTimeout(5000);
+						return StubHttpServer.read(transport.execute(request));
+					}
+				}));
+			}
+			for (Future<String> response : responses) {
+				response.get();
+			}
+			return responses;
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Asserts each response carries the path of its request.
+	 *
+	 * @param responses the responses
+	 */
+	private static void assertResponses(List<Future<String>> responses) throws Exception {
+		for (int i = 0; i < responses.size(); i++) {
+			assertEquals("/" + i, responses.get(i).get());
+		}
+	}
+
+	/**
+	 * Gets the route of the server.
+	 *
+	 * @return the route
+	 */
+	private String getRoute() {
+		return server.getUrl("");
+	}
+
+	/**
+	 * Sleep.
+	 *
+	 * @param millis the millis
+	 */
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
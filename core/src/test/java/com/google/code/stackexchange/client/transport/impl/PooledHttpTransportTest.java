@@ -0,0 +1,260 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.transport.impl;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.net.ProxySelector;
+import java.net.SocketAddress;
+import java.net.URI;
+import java.net.URL;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.junit.After;
+import org.junit.Test;
+
+import com.google.code.stackexchange.client.transport.HttpRequest;
+
+/**
+ * The Class PooledHttpTransportTest.
+ */
+public class PooledHttpTransportTest extends TestCase {
+
+	/** The server. */
+	private StubHttpServer server;
+
+	/** The transport. */
+	private PooledHttpTransport transport;
+
+	/* (non-Javadoc)
+	 * @see junit.framework.TestCase#tearDown()
+	 */
+	@After
+	public void tearDown() throws Exception {
+		if (transport != null) {
+			transport.shutdown();
+		}
+		if (server != null) {
+			server.stop();
+		}
+	}
+
+	/**
+	 * Test bodies framed by their content length are read exactly, leaving the
+	 * connection ready for the next response.
+	 */
+	@Test
+	public void testContentLengthFraming() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return StubHttpServer.response(path + "-" + index, "");
+			}
+		});
+		transport = new PooledHttpTransport();
+		assertEquals("/a-0", execute("/a"));
+		assertEquals("/b-1", execute("/b"));
+		assertEquals(1, server.getConnections());
+	}
+
+	/**
+	 * Test chunked bodies are decoded, chunk extensions and trailers included,
+	 * leaving the connection ready for the next response.
+	 */
+	@Test
+	public void testChunkedFraming() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				if (index == 0) {
+					return StubHttpServer.chunked("5;name=value\r\nhello\r\n1\r\n \r\nb\r\nchunked/a-0\r\n0\r\nX-Trailer: t\r\n\r\n");
+				}
+				return StubHttpServer.chunked("4\r\n" + path + "\r\n0\r\n\r\n");
+			}
+		});
+		transport = new PooledHttpTransport();
+		assertEquals("hello chunked/a-0", execute("/a"));
+		assertEquals("/bcd", execute("/bcd"));
+		assertEquals(1, server.getConnections());
+	}
+
+	/**
+	 * Test a chunked body cut short by the server fails the read instead of
+	 * returning a partial body.
+	 */
+	@Test
+	public void testTruncatedChunkedBody() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return ("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\nConnection: close\r\n\r\n"
+						+ "10\r\nonly part").getBytes();
+			}
+		});
+		transport = new PooledHttpTransport();
+		try {
+			execute("/a");
+			fail("Should fail on a truncated body.");
+		} catch (IOException e) {
+			// expected
+		}
+		assertEquals(0, transport.getPoolStats().getAvailable());
+	}
+
+	/**
+	 * Test sequential requests share one connection.
+	 */
+	@Test
+	public void testConnectionReuse() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return StubHttpServer.response(path, "");
+			}
+		});
+		transport = new PooledHttpTransport();
+		for (int i = 0; i < 5; i++) {
+			assertEquals("/" + i, execute("/" + i));
+		}
+		assertEquals(1, server.getConnections());
+		assertEquals(1, transport.getPoolStats().getCreated());
+		assertEquals(4, transport.getPoolStats().getReused());
+		assertEquals(1, transport.getPoolStats().getAvailable());
+		assertEquals(0, transport.getPoolStats().getLeased());
+	}
+
+	/**
+	 * Test a response that closes the connection is not pooled.
+	 */
+	@Test
+	public void testConnectionClose() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return StubHttpServer.response(path, "Connection: close\r\n");
+			}
+		});
+		transport = new PooledHttpTransport();
+		assertEquals("/a", execute("/a"));
+		assertEquals(0, transport.getPoolStats().getAvailable());
+		assertEquals("/b", execute("/b"));
+		assertEquals(2, server.getConnections());
+	}
+
+	/**
+	 * Test connections idle for longer than the max idle time are closed and
+	 * replaced by a new one.
+	 */
+	@Test
+	public void testIdleEviction() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return StubHttpServer.response(path, "");
+			}
+		});
+		transport = new PooledHttpTransport();
+		transport.setMaxIdleTime(100);
+		assertEquals("/a", execute("/a"));
+		assertEquals(1, transport.getPoolStats().getAvailable());
+		Thread.sleep(200);
+		transport.closeIdleConnections();
+		assertEquals(0, transport.getPoolStats().getAvailable());
+		assertEquals(1, transport.getPoolStats().getEvicted());
+		assertEquals("/b", execute("/b"));
+		assertEquals(2, server.getConnections());
+		assertEquals(0, transport.getPoolStats().getReused());
+	}
+
+	/**
+	 * Test the evictor closes idle connections on its own once rescheduled for
+	 * a shorter max idle time.
+	 */
+	@Test
+	public void testScheduledEviction() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return StubHttpServer.response(path, "");
+			}
+		});
+		transport = new PooledHttpTransport();
+		transport.setMaxIdleTime(100);
+		assertEquals("/a", execute("/a"));
+		long deadline = System.currentTimeMillis() + 5000;
+		while (transport.getPoolStats().getAvailable() > 0 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(50);
+		}
+		assertEquals(0, transport.getPoolStats().getAvailable());
+		assertEquals(1, transport.getPoolStats().getEvicted());
+	}
+
+	/**
+	 * Test requests the default proxy selector routes through a proxy are sent
+	 * to the proxy and kept out of the pool.
+	 */
+	@Test
+	public void testProxiedRequest() throws Exception {
+		server = new StubHttpServer(new StubHttpServer.Handler() {
+			@Override
+			public byte[] respond(String path, int index) {
+				return StubHttpServer.response(path, "");
+			}
+		});
+		URL serverUrl = new URL(server.getUrl("/"));
+		final Proxy proxy = new Proxy(Proxy.Type.HTTP, new InetSocketAddress(serverUrl.getHost(), serverUrl.getPort()));
+		ProxySelector defaultSelector = ProxySelector.getDefault();
+		ProxySelector.setDefault(new ProxySelector() {
+			@Override
+			public List<Proxy> select(URI uri) {
+				return Collections.singletonList(proxy);
+			}
+
+			@Override
+			public void connectFailed(URI uri, SocketAddress address, IOException e) {
+			}
+		});
+		try {
+			transport = new PooledHttpTransport();
+			HttpRequest request = new HttpRequest("http://proxied.invalid/a");
+			request.setReadTimeout(5000);
+			assertEquals("http://proxied.invalid/a", StubHttpServer.read(transport.execute(request)));
+			assertEquals(0, transport.getPoolStats().getCreated());
+		} finally {
+			ProxySelector.setDefault(defaultSelector);
+		}
+	}
+
+	/**
+	 * Executes a request and reads its body.
+	 *
+	 * @param path the path
+	 *
+	 * @return the body
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private String execute(String path) throws IOException {
+		HttpRequest request = new HttpRequest(server.getUrl(path));
+		request.setReadTimeout(5000);
+		return StubHttpServer.read(transport.execute(request));
+	}
+}
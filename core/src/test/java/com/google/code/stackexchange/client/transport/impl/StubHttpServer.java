@@ -0,0 +1,300 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.client.transport.impl;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.google.code.stackexchange.client.transport.HttpResponse;
+
+/**
+ * The Class StubHttpServer.
+ *
+ * A local HTTP/1.1 server for the transport and client tests that answers each request
+ * with the raw bytes its handler returns, so that the framing and the
+ * connection handling of the response are under the control of the test.
+ * A response with a <code>Connection: close</code> header closes the
+ * connection once written, dropping any request queued behind it.
+ */
+public class StubHttpServer {
+
+	/**
+	 * The Interface Handler.
+	 */
+	public interface Handler {
+
+		/**
+		 * Answers a request.
+		 *
+		 * @param path the path of the request
+		 * @param index the index of the request on its connection, starting at 0
+		 *
+		 * @return the raw response, status line included
+		 */
+		byte[] respond(String path, int index);
+	}
+
+	/** The server socket. */
+	private final ServerSocket serverSocket;
+
+	/** The handler. */
+	private final Handler handler;
+
+	/** The accepted connections. */
+	private final AtomicInteger connections = new AtomicInteger();
+
+	/** The requests read. */
+	private final AtomicInteger requests = new AtomicInteger();
+
+	/** The open sockets. */
+	private final List<Socket> sockets = new ArrayList<Socket>();
+
+	/**
+	 * Instantiates and starts a new stub http server.
+	 *
+	 * @param handler the handler
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public StubHttpServer(Handler handler) throws IOException {
+		this.handler = handler;
+		this.serverSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+		Thread acceptor = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				accept();
+			}
+		}, "stub-http-acceptor");
+		acceptor.setDaemon(true);
+		acceptor.start();
+	}
+
+	/**
+	 * Gets the url of a path on this server.
+	 *
+	 * @param path the path
+	 *
+	 * @return the url
+	 */
+	public String getUrl(String path) {
+		return "http://127.0.0.1:" + serverSocket.getLocalPort() + path;
+	}
+
+	/**
+	 * Gets the connections.
+	 *
+	 * @return the number of connections accepted
+	 */
+	public int getConnections() {
+		return connections.get();
+	}
+
+	/**
+	 * Gets the requests.
+	 *
+	 * @return the number of requests read
+	 */
+	public int getRequests() {
+		return requests.get();
+	}
+
+	/**
+	 * Stops the server and closes its connections.
+	 */
+	public void stop() {
+		try {
+			serverSocket.close();
+		} catch (IOException e) {
+			// already closed
+		}
+		synchronized (sockets) {
+			for (Socket socket : sockets) {
+				close(socket);
+			}
+		}
+	}
+
+	/**
+	 * Accepts connections until the server is stopped.
+	 */
+	private void accept() {
+		while (!serverSocket.isClosed()) {
+			final Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (IOException e) {
+				return;
+			}
+			connections.incrementAndGet();
+			synchronized (sockets) {
+				sockets.add(socket);
+			}
+			Thread worker = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					serve(socket);
+				}
+			}, "stub-http-connection");
+			worker.setDaemon(true);
+			worker.start();
+		}
+	}
+
+	/**
+	 * Answers the requests of a connection in order.
+	 *
+	 * @param socket the socket
+	 */
+	private void serve(Socket socket) {
+		try {
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+			OutputStream out = socket.getOutputStream();
+			for (int index = 0;; index++) {
+				String requestLine = readLine(in);
+				if (requestLine == null) {
+					break;
+				}
+				int contentLength = 0;
+				String line;
+				while ((line = readLine(in)) != null && line.length() > 0) {
+					if (line.toLowerCase().startsWith("content-length:")) {
+						contentLength = Integer.parseInt(line.substring(15).trim());
+					}
+				}
+				for (int i = 0; i < contentLength; i++) {
+					in.read();
+				}
+				requests.incrementAndGet();
+				byte[] response = handler.respond(requestLine.split(" ")[1], index);
+				out.write(response);
+				out.flush();
+				if (new String(response, "ISO-8859-1").toLowerCase().contains("connection: close")) {
+					break;
+				}
+			}
+		} catch (IOException e) {
+			// the client went away
+		} finally {
+			close(socket);
+		}
+	}
+
+	/**
+	 * Reads a line ending in CRLF.
+	 *
+	 * @param in the in
+	 *
+	 * @return the line, null at the end of the stream
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private static String readLine(InputStream in) throws IOException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		int b;
+		while ((b = in.read()) != -1) {
+			if (b == '\n') {
+				String value = line.toString("ISO-8859-1");
+				return value.endsWith("\r") ? value.substring(0, value.length() - 1) : value;
+			}
+			line.write(b);
+		}
+		return null;
+	}
+
+	/**
+	 * Close.
+	 *
+	 * @param socket the socket
+	 */
+	private static void close(Socket socket) {
+		try {
+			socket.close();
+		} catch (IOException e) {
+			// already closed
+		}
+	}
+
+	/**
+	 * Builds a response whose body is framed by its content length.
+	 *
+	 * @param body the body
+	 * @param headers the extra headers, each ending in CRLF
+	 *
+	 * @return the response
+	 */
+	public static byte[] response(String body, String headers) {
+		return response("200 OK", body, headers);
+	}
+
+	/**
+	 * Builds a response with the given status whose body is framed by its
+	 * content length.
+	 *
+	 * @param status the status code and reason phrase, e.g. 503 Service Unavailable
+	 * @param body the body
+	 * @param headers the extra headers, each ending in CRLF
+	 *
+	 * @return the response
+	 */
+	public static byte[] response(String status, String body, String headers) {
+		return ("HTTP/1.1 " + status + "\r\nContent-Length: " + body.length() + "\r\n" + headers + "\r\n" + body).getBytes();
+	}
+
+	/**
+	 * Builds a response whose body is chunked.
+	 *
+	 * @param body the chunked body, chunk sizes and terminator included
+	 *
+	 * @return the response
+	 */
+	public static byte[] chunked(String body) {
+		return ("HTTP/1.1 200 OK\r\nTransfer-Encoding: chunked\r\n\r\n" + body).getBytes();
+	}
+
+	/**
+	 * Reads the body of a response and closes it.
+	 *
+	 * @param response the response
+	 *
+	 * @return the body
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public static String read(HttpResponse response) throws IOException {
+		try {
+			ByteArrayOutputStream body = new ByteArrayOutputStream();
+			InputStream in = response.getContent();
+			byte[] buffer = new byte[1024];
+			int count;
+			while ((count = in.read(buffer)) != -1) {
+				body.write(buffer, 0, count);
+			}
+			return body.toString("ISO-8859-1");
+		} finally {
+			response.close();
+		}
+	}
+}
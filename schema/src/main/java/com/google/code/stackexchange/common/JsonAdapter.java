@@ -0,0 +1,41 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.common;
+
+import java.io.IOException;
+
+/**
+ * The Interface JsonAdapter.
+ *
+ * Reads an entity straight from a {@link JsonSource}, without reflection.
+ * Adapters of the schema entities are generated at compile time by the
+ * {@link com.google.code.stackexchange.common.processor.JsonAdapterProcessor}
+ * and looked up with {@link JsonAdapters#getAdapter(Class)}.
+ */
+public interface JsonAdapter<T> {
+
+	/**
+	 * Reads the next value.
+	 *
+	 * @param in the source
+	 *
+	 * @return the entity, null if the value is null
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public T read(JsonSource in) throws IOException;
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.common;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The Class JsonAdapters.
+ *
+ * Finds the generated adapter of a class, named after the class with a
+ * JsonAdapter suffix. Builds that skip annotation processing have no
+ * adapters, in which case callers fall back to reflection.
+ */
+public final class JsonAdapters {
+
+	/** The Constant ADAPTER_SUFFIX. */
+	public static final String ADAPTER_SUFFIX = "JsonAdapter";
+
+	/** The Constant INSTANCE_FIELD. */
+	public static final String INSTANCE_FIELD = "INSTANCE";
+
+	/** The Constant NONE. */
+	private static final Object NONE = new Object();
+
+	/** The adapters found so far, or NONE for the classes without one. */
+	private static final ConcurrentMap<Class<?>, Object> ADAPTERS = new ConcurrentHashMap<Class<?>, Object>();
+
+	/**
+	 * Instantiates a new json adapters.
+	 */
+	private JsonAdapters() {}
+
+	/**
+	 * Gets the generated adapter of a class.
+	 *
+	 * @param clazz the clazz
+	 *
+	 * @return the adapter, null if the class has none
+	 */
+	@SuppressWarnings("unchecked")
+	public static <T> JsonAdapter<T> getAdapter(Class<T> clazz) {
+		Object adapter = ADAPTERS.get(clazz);
+		if (adapter == null) {
+			adapter = findAdapter(clazz);
+			ADAPTERS.putIfAbsent(clazz, adapter);
+		}
+		return adapter == NONE ? null : (JsonAdapter<T>) adapter;
+	}
+
+	/**
+	 * Loads the generated adapter of a class.
+	 *
+	 * @param clazz the clazz
+	 *
+	 * @return the adapter, or NONE
+	 */
+	private static Object findAdapter(Class<?> clazz) {
+		try {
+			Class<?> adapterClass = Class.forName(clazz.getName() + ADAPTER_SUFFIX, true, clazz.getClassLoader());
+			Object adapter = adapterClass.getField(INSTANCE_FIELD).get(null);
+			return adapter instanceof JsonAdapter<?> ? adapter : NONE;
+		} catch (ClassNotFoundException e) {
+			return NONE;
+		} catch (NoSuchFieldException e) {
+			return NONE;
+		} catch (IllegalAccessException e) {
+			return NONE;
+		}
+	}
+}
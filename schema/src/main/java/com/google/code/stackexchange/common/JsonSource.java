@@ -0,0 +1,178 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.common;
+
+import java.io.IOException;
+
+/**
+ * The Interface JsonSource.
+ *
+ * A stream of json tokens read one value at a time, as used by the
+ * generated {@link JsonAdapter}s. Objects are read as
+ * <pre>
+ * in.beginObject();
+ * while (in.hasNext()) {
+ *     String name = in.nextName();
+ *     ... read or skip the value ...
+ * }
+ * in.endObject();
+ * </pre>
+ * and arrays the same way without the names. Scalars are converted the way
+ * Gson converts them, e.g. a string holding a number can be read as a number.
+ */
+public interface JsonSource {
+
+	/**
+	 * Consumes the start of an object.
+	 *
+	 * @throws IOException if the next value is not an object
+	 */
+	public void beginObject() throws IOException;
+
+	/**
+	 * Consumes the end of the current object.
+	 *
+	 * @throws IOException if the object has more members
+	 */
+	public void endObject() throws IOException;
+
+	/**
+	 * Consumes the start of an array.
+	 *
+	 * @throws IOException if the next value is not an array
+	 */
+	public void beginArray() throws IOException;
+
+	/**
+	 * Consumes the end of the current array.
+	 *
+	 * @throws IOException if the array has more elements
+	 */
+	public void endArray() throws IOException;
+
+	/**
+	 * Checks if the current object or array has another member or element.
+	 *
+	 * @return true, if there is another member or element
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public boolean hasNext() throws IOException;
+
+	/**
+	 * Reads the name of the next member of the current object.
+	 *
+	 * @return the name
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public String nextName() throws IOException;
+
+	/**
+	 * Consumes the next value if it is null.
+	 *
+	 * @return true, if the value was null
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public boolean nextNull() throws IOException;
+
+	/**
+	 * Reads a string, or the text of a number or a boolean.
+	 *
+	 * @return the string
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public String nextString() throws IOException;
+
+	/**
+	 * Reads a string whose value is likely to repeat, e.g. a tag. Equal
+	 * values may be returned as the same instance.
+	 *
+	 * @return the string
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public String nextPooledString() throws IOException;
+
+	/**
+	 * Reads a number, or a string holding one, as a long.
+	 *
+	 * @return the long
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public long nextLong() throws IOException;
+
+	/**
+	 * Reads a number, or a string holding one, as an int.
+	 *
+	 * @return the int
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public int nextInt() throws IOException;
+
+	/**
+	 * Reads a number, or a string holding one, as a double.
+	 *
+	 * @return the double
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public double nextDouble() throws IOException;
+
+	/**
+	 * Reads a boolean, or a string holding one.
+	 *
+	 * @return the boolean
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public boolean nextBoolean() throws IOException;
+
+	/**
+	 * Skips the next value, whatever it is.
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	public void skipValue() throws IOException;
+
+	/**
+	 * Gets the entity read before with the same id, for entities nested in
+	 * the elements of a response that shares them.
+	 *
+	 * @param clazz the class of the entity
+	 * @param id the id of the entity
+	 *
+	 * @return the entity, null if none was read or entities are not shared
+	 */
+	public <T> T getShared(Class<T> clazz, Object id);
+
+	/**
+	 * Shares an entity read with the given id, for entities nested in the
+	 * elements of a response that shares them.
+	 *
+	 * @param clazz the class of the entity
+	 * @param id the id of the entity
+	 * @param entity the entity
+	 *
+	 * @return the entity shared for the id, the one read before if any
+	 */
+	public <T> T share(Class<T> clazz, Object id, T entity);
+}
@@ -0,0 +1,262 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.common;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * The Class LazyPagedList.
+ *
+ * A paged list whose elements are decoded from the response only when they
+ * are first read, and kept once decoded. Callers reading a few elements of a
+ * large page only pay for those. Elements can be added, replaced and removed
+ * as in an array list, without decoding the others.
+ *
+ * Like an array list, a lazy list is not safe to use from several threads at
+ * once. Copies made with {@link #LazyPagedList(LazyPagedList)} share the
+ * decoder and can be used by different threads. A lazy list is serialized as
+ * a {@link PagedArrayList} with every element decoded.
+ */
+public class LazyPagedList<E> extends AbstractList<E> implements PagedList<E>, RandomAccess, Serializable {
+
+	/** The Constant serialVersionUID. */
+	private static final long serialVersionUID = -2871926440368312702L;
+
+	/** The decoder. */
+	private final transient ElementDecoder<? extends E> decoder;
+
+	/** The elements, decoded or pending. */
+	private final transient List<Object> elements;
+
+	/** The total. */
+	private long total;
+
+	/** The page. */
+	private int page;
+
+	/** The page size. */
+	private int pageSize;
+
+	/**
+	 * Instantiates a new lazy paged list.
+	 *
+	 * @param size the number of elements in the response
+	 * @param decoder the decoder of the elements
+	 */
+	public LazyPagedList(int size, ElementDecoder<? extends E> decoder) {
+		this.decoder = decoder;
+		this.elements = new ArrayList<Object>(size);
+		for (int i = 0; i < size; i++) {
+			elements.add(new Pending(i));
+		}
+	}
+
+	/**
+	 * Instantiates a copy of a lazy paged list. Elements not yet decoded stay
+	 * pending in the copy.
+	 *
+	 * @param list the list to copy
+	 */
+	public LazyPagedList(LazyPagedList<E> list) {
+		this.decoder = list.decoder;
+		this.elements = new ArrayList<Object>(list.elements);
+		this.total = list.total;
+		this.page = list.page;
+		this.pageSize = list.pageSize;
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#get(int)
+	 */
+	@Override
+	public E get(int index) {
+		return resolve(index, elements.get(index));
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractCollection#size()
+	 */
+	@Override
+	public int size() {
+		return elements.size();
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#set(int, java.lang.Object)
+	 */
+	@Override
+	public E set(int index, E element) {
+		return resolve(-1, elements.set(index, element));
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#add(int, java.lang.Object)
+	 */
+	@Override
+	public void add(int index, E element) {
+		modCount++;
+		elements.add(index, element);
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#remove(int)
+	 */
+	@Override
+	public E remove(int index) {
+		modCount++;
+		return resolve(-1, elements.remove(index));
+	}
+
+	/* (non-Javadoc)
+	 * @see java.util.AbstractList#clear()
+	 */
+	@Override
+	public void clear() {
+		modCount++;
+		elements.clear();
+	}
+
+	/**
+	 * Checks if the element at the given index has been decoded.
+	 *
+	 * @param index the index
+	 *
+	 * @return true, if decoded
+	 */
+	public boolean isDecoded(int index) {
+		return !(elements.get(index) instanceof Pending);
+	}
+
+	/**
+	 * Decodes the element if it is still pending, keeping it at the given
+	 * index.
+	 *
+	 * @param index the index to keep the decoded element at, -1 to not keep it
+	 * @param element the element or its pending marker
+	 *
+	 * @return the element
+	 */
+	@SuppressWarnings("unchecked")
+	private E resolve(int index, Object element) {
+		if (element instanceof Pending) {
+			E decoded = decoder.decode(((Pending) element).index);
+			if (index >= 0) {
+				elements.set(index, decoded);
+			}
+			return decoded;
+		}
+		return (E) element;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.PagedList#getTotal()
+	 */
+	public long getTotal() {
+		return total;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.PagedList#setTotal(long)
+	 */
+	public void setTotal(long total) {
+		this.total = total;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.PagedList#getPage()
+	 */
+	public int getPage() {
+		return page;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.PagedList#setPage(int)
+	 */
+	public void setPage(int page) {
+		this.page = page;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.PagedList#getPageSize()
+	 */
+	public int getPageSize() {
+		return pageSize;
+	}
+
+	/* (non-Javadoc)
+	 * @see com.google.code.stackexchange.common.PagedList#setPageSize(int)
+	 */
+	public void setPageSize(int pageSize) {
+		this.pageSize = pageSize;
+	}
+
+	/**
+	 * Replaces the list by a fully decoded array list when serialized.
+	 *
+	 * @return the paged array list
+	 */
+	private Object writeReplace() {
+		PagedArrayList<E> list = new PagedArrayList<E>();
+		list.addAll(this);
+		list.setTotal(total);
+		list.setPage(page);
+		list.setPageSize(pageSize);
+		return list;
+	}
+
+	/**
+	 * The Interface ElementDecoder.
+	 *
+	 * Decodes the elements of a response. Decoders must be safe to call from
+	 * several threads, as copies of a list share theirs.
+	 */
+	public interface ElementDecoder<E> {
+
+		/**
+		 * Decodes an element.
+		 *
+		 * @param index the index of the element in the response
+		 *
+		 * @return the element
+		 */
+		public E decode(int index);
+	}
+
+	/**
+	 * The Class Pending.
+	 *
+	 * Marks an element not decoded yet.
+	 */
+	private static class Pending {
+
+		/** The index of the element in the response. */
+		private final int index;
+
+		/**
+		 * Instantiates a new pending element.
+		 *
+		 * @param index the index
+		 */
+		Pending(int index) {
+			this.index = index;
+		}
+	}
+}
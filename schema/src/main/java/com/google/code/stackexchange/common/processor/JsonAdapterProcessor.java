@@ -0,0 +1,681 @@
+/*
+ * Copyright 2010 Nabeel Mukhtar 
+ * 
+ * Licensed under the Apache License, Version 2.0 (the "License"); 
+ * you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * 
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ * 
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. 
+ * See the License for the specific language governing permissions and
+ * limitations under the License. 
+ * 
+ */
+package com.google.code.stackexchange.common.processor;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+import com.google.code.stackexchange.common.Identity;
+import com.google.code.stackexchange.common.JsonAdapters;
+import com.google.code.stackexchange.common.Pooled;
+
+/**
+ * The Class JsonAdapterProcessor.
+ *
+ * Generates a {@link com.google.code.stackexchange.common.JsonAdapter} for
+ * every concrete schema entity, next to the entity and named after it. The
+ * adapters set the fields through their setters and read the json names Gson
+ * derives with its lower case with underscores naming policy. Dates are read
+ * as seconds since the epoch and enums with their fromValue method, the way
+ * the deserializers of the client decode them.
+ *
+ * Entities with a field the generated code cannot set, or of a type it cannot
+ * read, get no adapter and are left to Gson.
+ *
+ * The processor claims the annotations it reads, and javac runs it when they
+ * are present. The schema is compiled as a whole, so the first round has them
+ * and every entity among its root elements. A build that compiles only some
+ * entities without them gets no adapters for those, and Gson decodes them.
+ */
+@SupportedAnnotationTypes({"com.google.code.stackexchange.common.Pooled", "com.google.code.stackexchange.common.Identity"})
+public class JsonAdapterProcessor extends AbstractProcessor {
+
+	/** The Constant SCHEMA_ENTITY. */
+	private static final String SCHEMA_ENTITY = "com.google.code.stackexchange.schema.SchemaEntity";
+
+	/** The Constant BOXED_READS. */
+	private static final Map<String, String> BOXED_READS = new HashMap<String, String>();
+
+	static {
+		BOXED_READS.put("java.lang.String", "in.nextString()");
+		BOXED_READS.put("java.lang.Long", "Long.valueOf(in.nextLong())");
+		BOXED_READS.put("java.lang.Integer", "Integer.valueOf(in.nextInt())");
+		BOXED_READS.put("java.lang.Double", "Double.valueOf(in.nextDouble())");
+		BOXED_READS.put("java.lang.Boolean", "Boolean.valueOf(in.nextBoolean())");
+		BOXED_READS.put("java.util.Date", "new java.util.Date(in.nextLong() * 1000L)");
+	}
+
+	/** Whether each entity seen so far can have an adapter. */
+	private final Map<String, Boolean> supported = new HashMap<String, Boolean>();
+
+	/* (non-Javadoc)
+	 * @see javax.annotation.processing.AbstractProcessor#getSupportedSourceVersion()
+	 */
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	/* (non-Javadoc)
+	 * @see javax.annotation.processing.AbstractProcessor#process(java.util.Set, javax.annotation.processing.RoundEnvironment)
+	 */
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		if (roundEnv.processingOver() || processingEnv.getElementUtils().getTypeElement(SCHEMA_ENTITY) == null) {
+			// the annotations are only read by this processor
+			return true;
+		}
+		for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+			if (isEntity(type) && isSupported(type)) {
+				try {
+					writeAdapter(type);
+				} catch (IOException e) {
+					processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Cannot write the json adapter: " + e, type);
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks if the type is a concrete, top level schema entity.
+	 *
+	 * @param type the type
+	 *
+	 * @return true, if it is an entity
+	 */
+	private boolean isEntity(TypeElement type) {
+		TypeElement schemaEntity = processingEnv.getElementUtils().getTypeElement(SCHEMA_ENTITY);
+		return type.getKind() == ElementKind.CLASS
+			&& type.getNestingKind() == NestingKind.TOP_LEVEL
+			&& type.getModifiers().contains(Modifier.PUBLIC)
+			&& !type.getModifiers().contains(Modifier.ABSTRACT)
+			&& processingEnv.getTypeUtils().isSubtype(type.asType(), schemaEntity.asType());
+	}
+
+	/**
+	 * Checks if an adapter can be generated for the entity, reporting why not.
+	 *
+	 * @param type the type
+	 *
+	 * @return true, if supported
+	 */
+	private boolean isSupported(TypeElement type) {
+		String name = type.getQualifiedName().toString();
+		Boolean known = supported.get(name);
+		if (known != null) {
+			return known;
+		}
+		// assumed while checking, for entities referring to each other
+		supported.put(name, Boolean.TRUE);
+		String problem = findProblem(type);
+		if (problem != null) {
+			processingEnv.getMessager().printMessage(Diagnostic.Kind.NOTE, "No json adapter for " + name + ": " + problem, type);
+		}
+		supported.put(name, problem == null);
+		return problem == null;
+	}
+
+	/**
+	 * Finds what prevents generating an adapter for the entity.
+	 *
+	 * @param type the type
+	 *
+	 * @return the problem, null if there is none
+	 */
+	private String findProblem(TypeElement type) {
+		boolean constructor = false;
+		for (ExecutableElement method : ElementFilter.constructorsIn(type.getEnclosedElements())) {
+			constructor |= method.getParameters().isEmpty() && method.getModifiers().contains(Modifier.PUBLIC);
+		}
+		if (!constructor) {
+			return "no public constructor without arguments";
+		}
+		int identities = 0;
+		for (VariableElement field : getFields(type)) {
+			if (findSetter(type, field) == null) {
+				return "no setter of field " + field.getSimpleName();
+			}
+			if (getRead(field.asType()) == null) {
+				return "field " + field.getSimpleName() + " of unsupported type " + field.asType();
+			}
+			if (field.getAnnotation(Identity.class) != null) {
+				identities++;
+				if (!isIdentityType(field.asType())) {
+					return "identity field " + field.getSimpleName() + " is not a long, an int or a string";
+				}
+			}
+		}
+		if (identities > 1) {
+			return "more than one identity field";
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the fields Gson would decode, those of the superclasses first.
+	 *
+	 * @param type the type
+	 *
+	 * @return the fields
+	 */
+	private List<VariableElement> getFields(TypeElement type) {
+		List<VariableElement> fields = new ArrayList<VariableElement>();
+		TypeMirror superclass = type.getSuperclass();
+		if (superclass.getKind() == TypeKind.DECLARED) {
+			fields.addAll(getFields((TypeElement) ((DeclaredType) superclass).asElement()));
+		}
+		for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			Set<Modifier> modifiers = field.getModifiers();
+			if (!modifiers.contains(Modifier.STATIC) && !modifiers.contains(Modifier.TRANSIENT)) {
+				fields.add(field);
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * Finds the setter of a field: setName, or setQuestion for a boolean named
+	 * isQuestion.
+	 *
+	 * @param type the type
+	 * @param field the field
+	 *
+	 * @return the name of the setter, null if there is none
+	 */
+	private String findSetter(TypeElement type, VariableElement field) {
+		String name = field.getSimpleName().toString();
+		List<String> candidates = new ArrayList<String>();
+		candidates.add("set" + Character.toUpperCase(name.charAt(0)) + name.substring(1));
+		if (field.asType().getKind() == TypeKind.BOOLEAN && name.length() > 2 && name.startsWith("is")
+				&& Character.isUpperCase(name.charAt(2))) {
+			candidates.add("set" + name.substring(2));
+		}
+		for (ExecutableElement method : ElementFilter.methodsIn(processingEnv.getElementUtils().getAllMembers(type))) {
+			if (candidates.contains(method.getSimpleName().toString())
+					&& method.getModifiers().contains(Modifier.PUBLIC)
+					&& !method.getModifiers().contains(Modifier.STATIC)
+					&& method.getParameters().size() == 1
+					&& processingEnv.getTypeUtils().isSameType(method.getParameters().get(0).asType(), field.asType())) {
+				return method.getSimpleName().toString();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the expression reading a value of the type, which is known not to
+	 * be null.
+	 *
+	 * @param type the type
+	 *
+	 * @return the expression, null if the type is not supported
+	 */
+	private String getRead(TypeMirror type) {
+		return getRead(type, false);
+	}
+
+	/**
+	 * Gets the expression reading a value of the type, which is known not to
+	 * be null.
+	 *
+	 * @param type the type
+	 * @param pooled whether strings are read as pooled strings
+	 *
+	 * @return the expression, null if the type is not supported
+	 */
+	private String getRead(TypeMirror type, boolean pooled) {
+		switch (type.getKind()) {
+		case LONG:
+			return "in.nextLong()";
+		case INT:
+			return "in.nextInt()";
+		case DOUBLE:
+			return "in.nextDouble()";
+		case BOOLEAN:
+			return "in.nextBoolean()";
+		case FLOAT:
+			return "(float) in.nextDouble()";
+		case SHORT:
+			return "(short) in.nextInt()";
+		case BYTE:
+			return "(byte) in.nextInt()";
+		case DECLARED:
+			break;
+		default:
+			return null;
+		}
+		TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+		String name = element.getQualifiedName().toString();
+		List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+		if (pooled && name.equals("java.lang.String")) {
+			return "in.nextPooledString()";
+		}
+		if (BOXED_READS.containsKey(name)) {
+			return BOXED_READS.get(name);
+		}
+		if (element.getKind() == ElementKind.ENUM) {
+			return hasFromValue(element) ? name + ".fromValue(in.nextString())" : null;
+		}
+		if (name.equals("java.util.List") || name.equals("java.util.Collection")) {
+			return arguments.size() == 1 && getRead(arguments.get(0)) != null && isReference(arguments.get(0))
+				? "read" + getHelperName(type, pooled) + "(in)" : null;
+		}
+		if (name.equals("java.util.Map")) {
+			return arguments.size() == 2 && getKeyRead(arguments.get(0)) != null
+				&& getRead(arguments.get(1)) != null && isReference(arguments.get(1))
+				? "read" + getHelperName(type, pooled) + "(in)" : null;
+		}
+		if (isEntity(element) && isSupported(element)) {
+			return name + JsonAdapters.ADAPTER_SUFFIX + "." + JsonAdapters.INSTANCE_FIELD + ".read(in)";
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the expression converting a member name, in a variable called name,
+	 * to a map key of the type.
+	 *
+	 * @param type the type
+	 *
+	 * @return the expression, null if the type is not supported
+	 */
+	private String getKeyRead(TypeMirror type) {
+		if (type.getKind() != TypeKind.DECLARED) {
+			return null;
+		}
+		TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+		if (element.getQualifiedName().contentEquals("java.lang.String")) {
+			return "name";
+		}
+		if (element.getKind() == ElementKind.ENUM && hasFromValue(element)) {
+			return element.getQualifiedName() + ".fromValue(name)";
+		}
+		return null;
+	}
+
+	/**
+	 * Checks if the enum has a public static fromValue(String) method.
+	 *
+	 * @param element the element
+	 *
+	 * @return true, if it has
+	 */
+	private boolean hasFromValue(TypeElement element) {
+		for (ExecutableElement method : ElementFilter.methodsIn(element.getEnclosedElements())) {
+			if (method.getSimpleName().contentEquals("fromValue")
+					&& method.getModifiers().contains(Modifier.PUBLIC)
+					&& method.getModifiers().contains(Modifier.STATIC)
+					&& method.getParameters().size() == 1
+					&& method.getParameters().get(0).asType().toString().equals("java.lang.String")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Checks if the type can identify an entity.
+	 *
+	 * @param type the type
+	 *
+	 * @return true, if a long, an int or a string
+	 */
+	private boolean isIdentityType(TypeMirror type) {
+		if (type.getKind() == TypeKind.LONG || type.getKind() == TypeKind.INT) {
+			return true;
+		}
+		String name = type.toString();
+		return name.equals("java.lang.Long") || name.equals("java.lang.Integer") || name.equals("java.lang.String");
+	}
+
+	/**
+	 * Checks if the type is a reference type.
+	 *
+	 * @param type the type
+	 *
+	 * @return true, if reference
+	 */
+	private boolean isReference(TypeMirror type) {
+		return !type.getKind().isPrimitive();
+	}
+
+	/**
+	 * Gets a name for the helper method reading values of a collection type,
+	 * e.g. ListOfString, or ListOfPooledString for pooled strings.
+	 *
+	 * @param type the type
+	 * @param pooled whether strings are read as pooled strings
+	 *
+	 * @return the helper name
+	 */
+	private String getHelperName(TypeMirror type, boolean pooled) {
+		if (type.getKind() != TypeKind.DECLARED) {
+			return type.toString();
+		}
+		StringBuilder name = new StringBuilder(((DeclaredType) type).asElement().getSimpleName());
+		if (pooled && name.toString().equals("String")) {
+			name.insert(0, "Pooled");
+		}
+		String separator = "Of";
+		for (TypeMirror argument : ((DeclaredType) type).getTypeArguments()) {
+			name.append(separator).append(getHelperName(argument, pooled));
+			separator = "And";
+		}
+		return name.toString();
+	}
+
+	/**
+	 * Writes the adapter of the entity.
+	 *
+	 * @param type the type
+	 *
+	 * @throws IOException Signals that an I/O exception has occurred.
+	 */
+	private void writeAdapter(TypeElement type) throws IOException {
+		String packageName = ((PackageElement) type.getEnclosingElement()).getQualifiedName().toString();
+		String entity = type.getSimpleName().toString();
+		String adapter = entity + JsonAdapters.ADAPTER_SUFFIX;
+		List<VariableElement> fields = getFields(type);
+		Map<String, Helper> helpers = new HashMap<String, Helper>();
+
+		PrintWriter out = new PrintWriter(processingEnv.getFiler().createSourceFile(packageName + "." + adapter, type).openWriter());
+		try {
+			out.println("package " + packageName + ";");
+			out.println();
+			out.println("import java.io.IOException;");
+			out.println("import java.util.HashMap;");
+			out.println("import java.util.Map;");
+			out.println();
+			out.println("import com.google.code.stackexchange.common.JsonAdapter;");
+			out.println("import com.google.code.stackexchange.common.JsonSource;");
+			out.println();
+			out.println("/**");
+			out.println(" * Reads {@link " + entity + "} from json without reflection.");
+			out.println(" *");
+			out.println(" * Generated by " + getClass().getName() + ", do not edit.");
+			out.println(" */");
+			out.println("public final class " + adapter + " implements JsonAdapter<" + entity + "> {");
+			out.println();
+			out.println("\t/** The Constant " + JsonAdapters.INSTANCE_FIELD + ". */");
+			out.println("\tpublic static final " + adapter + " " + JsonAdapters.INSTANCE_FIELD + " = new " + adapter + "();");
+			out.println();
+			out.println("\t/** The indexes of the fields by json name. */");
+			out.println("\tprivate static final Map<String, Integer> FIELDS = new HashMap<String, Integer>();");
+			out.println();
+			out.println("\tstatic {");
+			for (int i = 0; i < fields.size(); i++) {
+				out.println("\t\tFIELDS.put(\"" + getJsonName(fields.get(i).getSimpleName().toString()) + "\", " + i + ");");
+			}
+			out.println("\t}");
+			out.println();
+			out.println("\t/**");
+			out.println("\t * Instantiates a new adapter.");
+			out.println("\t */");
+			out.println("\tprivate " + adapter + "() {}");
+			out.println();
+			out.println("\t/* (non-Javadoc)");
+			out.println("\t * @see com.google.code.stackexchange.common.JsonAdapter#read(com.google.code.stackexchange.common.JsonSource)");
+			out.println("\t */");
+			out.println("\tpublic " + entity + " read(JsonSource in) throws IOException {");
+			out.println("\t\tif (in.nextNull()) {");
+			out.println("\t\t\treturn null;");
+			out.println("\t\t}");
+			int identityField = -1;
+			for (int i = 0; i < fields.size(); i++) {
+				if (fields.get(i).getAnnotation(Identity.class) != null) {
+					identityField = i;
+				}
+			}
+			boolean identified = identityField >= 0;
+			if (identified) {
+				// created once the id is known not to be shared
+				out.println("\t\t" + entity + " entity = null;");
+				out.println("\t\tObject identity = null;");
+			} else {
+				out.println("\t\t" + entity + " entity = new " + entity + "();");
+			}
+			out.println("\t\tin.beginObject();");
+			out.println("\t\twhile (in.hasNext()) {");
+			out.println("\t\t\tInteger field = FIELDS.get(in.nextName());");
+			out.println("\t\t\tif (field == null) {");
+			out.println("\t\t\t\tin.skipValue();");
+			out.println("\t\t\t\tcontinue;");
+			out.println("\t\t\t}");
+			if (identified) {
+				out.println("\t\t\tif (entity == null && field != " + identityField + ") {");
+				out.println("\t\t\t\tentity = new " + entity + "();");
+				out.println("\t\t\t}");
+			}
+			out.println("\t\t\tswitch (field) {");
+			for (int i = 0; i < fields.size(); i++) {
+				VariableElement field = fields.get(i);
+				TypeMirror fieldType = field.asType();
+				boolean pooled = field.getAnnotation(Pooled.class) != null;
+				String setter = findSetter(type, field);
+				out.println("\t\t\tcase " + i + ":");
+				if (field.getAnnotation(Identity.class) != null) {
+					writeIdentityRead(out, entity, fieldType, setter, getRead(fieldType, pooled));
+				} else if (isReference(fieldType)) {
+					out.println("\t\t\t\tentity." + setter + "(in.nextNull() ? null : " + getRead(fieldType, pooled) + ");");
+				} else {
+					out.println("\t\t\t\tif (!in.nextNull()) {");
+					out.println("\t\t\t\t\tentity." + setter + "(" + getRead(fieldType, pooled) + ");");
+					out.println("\t\t\t\t}");
+				}
+				out.println("\t\t\t\tbreak;");
+				collectHelpers(fieldType, pooled, helpers);
+			}
+			out.println("\t\t\t}");
+			out.println("\t\t}");
+			if (identified) {
+				out.println("\t\tif (entity == null) {");
+				out.println("\t\t\tentity = new " + entity + "();");
+				out.println("\t\t}");
+			}
+			out.println("\t\tin.endObject();");
+			if (identified) {
+				out.println("\t\treturn identity == null ? entity : in.share(" + entity + ".class, identity, entity);");
+			} else {
+				out.println("\t\treturn entity;");
+			}
+			out.println("\t}");
+			for (Map.Entry<String, Helper> helper : helpers.entrySet()) {
+				writeHelper(out, helper.getKey(), helper.getValue().type, helper.getValue().pooled);
+			}
+			out.println("}");
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Writes the read of the identity field. When it is the first member read,
+	 * the entity read before with the same id, if the source shares it, is
+	 * returned and the rest of the object skipped. Otherwise the entity is
+	 * created here.
+	 *
+	 * @param out the out
+	 * @param entity the simple name of the entity
+	 * @param type the type of the field
+	 * @param setter the setter of the field
+	 * @param read the expression reading the field
+	 */
+	private void writeIdentityRead(PrintWriter out, String entity, TypeMirror type, String setter, String read) {
+		String box = type.getKind() == TypeKind.LONG ? "Long" : type.getKind() == TypeKind.INT ? "Integer" : type.toString();
+		if (isReference(type)) {
+			out.println("\t\t\t\tidentity = in.nextNull() ? null : " + read + ";");
+		} else {
+			out.println("\t\t\t\tif (!in.nextNull()) {");
+			out.println("\t\t\t\t\tidentity = " + read + ";");
+			out.println("\t\t\t\t}");
+		}
+		out.println("\t\t\t\tif (entity == null) {");
+		out.println("\t\t\t\t\t" + entity + " shared = identity == null ? null : in.getShared(" + entity + ".class, identity);");
+		out.println("\t\t\t\t\tif (shared != null) {");
+		out.println("\t\t\t\t\t\twhile (in.hasNext()) {");
+		out.println("\t\t\t\t\t\t\tin.nextName();");
+		out.println("\t\t\t\t\t\t\tin.skipValue();");
+		out.println("\t\t\t\t\t\t}");
+		out.println("\t\t\t\t\t\tin.endObject();");
+		out.println("\t\t\t\t\t\treturn shared;");
+		out.println("\t\t\t\t\t}");
+		out.println("\t\t\t\t\tentity = new " + entity + "();");
+		out.println("\t\t\t\t}");
+		if (isReference(type)) {
+			out.println("\t\t\t\tentity." + setter + "((" + box + ") identity);");
+		} else {
+			out.println("\t\t\t\tif (identity != null) {");
+			out.println("\t\t\t\t\tentity." + setter + "((" + box + ") identity);");
+			out.println("\t\t\t\t}");
+		}
+	}
+
+	/**
+	 * Collects the collection types needing a helper method.
+	 *
+	 * @param type the type
+	 * @param pooled whether strings are read as pooled strings
+	 * @param helpers the helpers by name
+	 */
+	private void collectHelpers(TypeMirror type, boolean pooled, Map<String, Helper> helpers) {
+		if (type.getKind() != TypeKind.DECLARED) {
+			return;
+		}
+		String name = ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString();
+		if (name.equals("java.util.List") || name.equals("java.util.Collection") || name.equals("java.util.Map")) {
+			helpers.put(getHelperName(type, pooled), new Helper(type, pooled));
+			for (TypeMirror argument : ((DeclaredType) type).getTypeArguments()) {
+				collectHelpers(argument, pooled, helpers);
+			}
+		}
+	}
+
+	/**
+	 * Writes the helper method reading a list or a map, which is known not to
+	 * be null.
+	 *
+	 * @param out the out
+	 * @param name the name of the helper
+	 * @param type the type
+	 * @param pooled whether strings are read as pooled strings
+	 */
+	private void writeHelper(PrintWriter out, String name, TypeMirror type, boolean pooled) {
+		List<? extends TypeMirror> arguments = ((DeclaredType) type).getTypeArguments();
+		boolean map = arguments.size() == 2;
+		String value = arguments.get(arguments.size() - 1).toString();
+		out.println();
+		out.println("\t/**");
+		out.println("\t * Reads a " + (map ? "map" : "list") + " of " + ((DeclaredType) arguments.get(arguments.size() - 1)).asElement().getSimpleName() + ".");
+		out.println("\t *");
+		out.println("\t * @param in the source");
+		out.println("\t *");
+		out.println("\t * @return the " + (map ? "map" : "list"));
+		out.println("\t *");
+		out.println("\t * @throws IOException Signals that an I/O exception has occurred.");
+		out.println("\t */");
+		out.println("\tprivate static " + type + " read" + name + "(JsonSource in) throws IOException {");
+		if (map) {
+			String key = arguments.get(0).toString();
+			out.println("\t\t" + type + " map = new java.util.LinkedHashMap<" + key + ", " + value + ">();");
+			out.println("\t\tin.beginObject();");
+			out.println("\t\twhile (in.hasNext()) {");
+			out.println("\t\t\tString name = in.nextName();");
+			out.println("\t\t\tmap.put(" + getKeyRead(arguments.get(0)) + ", in.nextNull() ? null : " + getRead(arguments.get(1), pooled) + ");");
+			out.println("\t\t}");
+			out.println("\t\tin.endObject();");
+			out.println("\t\treturn map;");
+		} else {
+			out.println("\t\t" + type + " list = new java.util.ArrayList<" + value + ">();");
+			out.println("\t\tin.beginArray();");
+			out.println("\t\twhile (in.hasNext()) {");
+			out.println("\t\t\tlist.add(in.nextNull() ? null : " + getRead(arguments.get(0), pooled) + ");");
+			out.println("\t\t}");
+			out.println("\t\tin.endArray();");
+			out.println("\t\treturn list;");
+		}
+		out.println("\t}");
+	}
+
+	/**
+	 * Gets the json name of a field the way Gson's lower case with
+	 * underscores naming policy does, e.g. question_id for questionId.
+	 *
+	 * @param fieldName the field name
+	 *
+	 * @return the json name
+	 */
+	static String getJsonName(String fieldName) {
+		StringBuilder name = new StringBuilder(fieldName.length() + 4);
+		for (int i = 0; i < fieldName.length(); i++) {
+			char c = fieldName.charAt(i);
+			if (Character.isUpperCase(c) && i > 0) {
+				name.append('_');
+			}
+			name.append(c);
+		}
+		return name.toString().toLowerCase();
+	}
+
+	/**
+	 * The Class Helper.
+	 *
+	 * A collection type read by a helper method.
+	 */
+	private static class Helper {
+
+		/** The type. */
+		private final TypeMirror type;
+
+		/** Whether strings are read as pooled strings. */
+		private final boolean pooled;
+
+		/**
+		 * Instantiates a new helper.
+		 *
+		 * @param type the type
+		 * @param pooled whether strings are read as pooled strings
+		 */
+		Helper(TypeMirror type, boolean pooled) {
+			this.type = type;
+			this.pooled = pooled;
+		}
+	}
+}
@@ -16,6 +16,7 @@
  */
 package com.google.code.stackexchange.schema;
 
+import com.google.code.stackexchange.common.Pooled;
 import com.google.code.stackexchange.schema.Badge;
 import com.google.code.stackexchange.schema.User;
 
@@ -34,6 +35,7 @@ public class Badge extends SchemaEntity {
 	private BadgeRank rank;
 	
 	/** The name. */
+	@Pooled
 	private String name;
 	
 	/** The description. */
@@ -18,6 +18,7 @@ package com.google.code.stackexchange.schema;
 
 import java.util.Date;
 
+import com.google.code.stackexchange.common.Pooled;
 import com.google.code.stackexchange.schema.PostTimeline;
 import com.google.code.stackexchange.schema.User;
 
@@ -54,6 +55,7 @@ public class PostTimeline extends SchemaEntity {
 	private long commentId;
 	
 	/** The display name. */
+	@Pooled
 	private String displayName;
 	
 	/** The post comment url. */
@@ -22,6 +22,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.google.code.stackexchange.common.Pooled;
 import com.google.code.stackexchange.schema.Question;
 import com.google.code.stackexchange.schema.User;
 
@@ -208,6 +209,7 @@ public class Question extends SchemaEntity {
 	private String title;
 	
 	/** The tags. */
+	@Pooled
 	private List<String> tags = new ArrayList<String>();
 	
 	/** The answers. */
@@ -20,6 +20,7 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
 
+import com.google.code.stackexchange.common.Pooled;
 import com.google.code.stackexchange.schema.Revision;
 import com.google.code.stackexchange.schema.User;
 
@@ -44,6 +45,7 @@ public class Revision extends SchemaEntity {
 	private boolean isRollback;
 	
 	/** The last tags. */
+	@Pooled
 	private List<String> lastTags = new ArrayList<String>();
 	
 	/** The revision guid. */
@@ -53,6 +55,7 @@ public class Revision extends SchemaEntity {
 	private long revisionNumber;
 	
 	/** The tags. */
+	@Pooled
 	private List<String> tags = new ArrayList<String>();
 	
 	/** The revision type. */
@@ -24,9 +24,17 @@ import java.util.logging.Logger;
  */
 public abstract class SchemaEntity implements Serializable {
 
-	/** The logger. */
-    protected transient final Logger logger = Logger.getLogger(getClass().getCanonicalName());
-	
 	/** The Constant serialVersionUID. */
 	private static final long serialVersionUID = 250056223059654638L;
+
+	/**
+	 * Gets the logger of the entity class. It is looked up when used rather
+	 * than held by every entity, so that creating an entity neither allocates
+	 * nor takes the lock of the log manager.
+	 * 
+	 * @return the logger
+	 */
+	protected Logger getLogger() {
+		return Logger.getLogger(getClass().getCanonicalName());
+	}
 }
@@ -18,6 +18,8 @@ package com.google.code.stackexchange.schema;
 
 import java.util.List;
 
+import com.google.code.stackexchange.common.Pooled;
+
 /**
  * @author nmukhtar
  *
@@ -29,6 +31,7 @@ public class Site extends SchemaEntity {
 	 */
 	private static final long serialVersionUID = -9095528905439888541L;
 	
+	@Pooled
 	private String name;
 	private String logoUrl;
 	private String apiEndpoint;
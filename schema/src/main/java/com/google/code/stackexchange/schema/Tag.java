@@ -19,6 +19,7 @@ package com.google.code.stackexchange.schema;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.google.code.stackexchange.common.Pooled;
 import com.google.code.stackexchange.schema.Tag;
 
 /**
@@ -107,6 +108,7 @@ public class Tag extends SchemaEntity {
 	private static final long serialVersionUID = -4228675989610922635L;
 	
 	/** The name. */
+	@Pooled
 	private String name;
 	
 	/** The count. */
@@ -20,6 +20,8 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
 
+import com.google.code.stackexchange.common.Identity;
+import com.google.code.stackexchange.common.Pooled;
 import com.google.code.stackexchange.schema.User;
 
 /**
@@ -280,6 +282,7 @@ public class User extends SchemaEntity {
 	private static final long serialVersionUID = -5517600617397335450L;
 	
 	/** The user id. */
+	@Identity
 	private long userId;
 	
 	/** The user type. */
@@ -289,6 +292,7 @@ public class User extends SchemaEntity {
 	private Date creationDate;
 	
 	/** The display name. */
+	@Pooled
 	private String displayName;
 	
 	/** The reputation. */